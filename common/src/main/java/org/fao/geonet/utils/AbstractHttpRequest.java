@@ -92,6 +92,7 @@ public class AbstractHttpRequest {
     private UsernamePasswordCredentials proxyCredentials;
     private String fragment;
     private String userInfo;
+    private String accept;
 
     public AbstractHttpRequest(String protocol, String host, int port, GeonetHttpRequestFactory requestFactory) {
         if (!(protocol.equals("http") || protocol.equals("https"))) {
@@ -154,6 +155,14 @@ public class AbstractHttpRequest {
         useSOAP = yesno;
     }
 
+    /**
+     * Overrides the Accept header of GET requests. Default is application/xml (or
+     * application/soap+xml when SOAP is used).
+     */
+    public void setAccept(String accept) {
+        this.accept = accept;
+    }
+
     public void setUseProxy(boolean yesno) {
         useProxy = yesno;
     }
@@ -313,7 +322,11 @@ public class AbstractHttpRequest {
         if (method == Method.GET) {
             HttpGet get = new HttpGet();
 
-            get.addHeader("Accept", !useSOAP ? "application/xml" : "application/soap+xml");
+            if (accept != null) {
+                get.addHeader("Accept", accept);
+            } else {
+                get.addHeader("Accept", !useSOAP ? "application/xml" : "application/soap+xml");
+            }
             httpMethod = get;
         } else {
             HttpPost post = new HttpPost();
@@ -105,14 +105,18 @@ import java.nio.file.FileSystemNotFoundException;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -128,6 +132,11 @@ public final class Xml {
     public static final Namespace xsiNS = Namespace.getNamespace("xsi", XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI);
     public static final NioPathAwareEntityResolver PATH_RESOLVER = new NioPathAwareEntityResolver();
 
+    /**
+     * XML schemas compiled from an xsd file, by file path.
+     */
+    private static final ConcurrentHashMap<Path, CompiledSchema> COMPILED_SCHEMAS = new ConcurrentHashMap<>();
+
     // http://www.w3.org/TR/REC-xml/#charsets
     public static final String XML10_ILLEGAL_CHAR_PATTERN = "[^"
         + "\u0009\r\n"
@@ -543,6 +552,16 @@ public final class Xml {
             ((CachedTransformer) transFact).clearCache();
         }
     }
+
+    /**
+     * Clears the XML schemas compiled by {@link #validate(Path, Element)} and
+     * {@link #validateInfo(Path, Element, XmlErrorHandler, String)}. A schema is also compiled
+     * again when its xsd file is modified but changes to included files are only taken into
+     * account after calling this method.
+     */
+    public static void clearSchemaCache() {
+        COMPILED_SCHEMAS.clear();
+    }
     //--------------------------------------------------------------------------
 
     /**
@@ -922,7 +941,7 @@ public final class Xml {
     /**
      * Validates an XML document using the hints in the schemaLocation attribute.
      */
-    public synchronized static void validate(Element xml) throws Exception {
+    public static void validate(Element xml) throws Exception {
         String schemaLoc = xml.getAttributeValue("schemaLocation", xsiNS);
         if (schemaLoc == null || schemaLoc.equals("")) {
             throw new IllegalArgumentException("XML document missing/blank schemaLocation hints - cannot validate");
@@ -942,8 +961,7 @@ public final class Xml {
      */
     public static void validate(Path schemaPath, Element xml) throws Exception {
         XmlErrorHandler eh = new XmlErrorHandler();
-        Schema schema = getSchemaFromPath(schemaPath);
-        Element xsdErrors = validateRealGuts(schema, xml, eh, null);
+        Element xsdErrors = validateRealGuts(getCompiledSchema(schemaPath), xml, eh, null);
         if (xsdErrors != null) {
             throw new XSDValidationErrorEx("XSD Validation error(s):\n" + getString(xsdErrors), xsdErrors);
         }
@@ -965,13 +983,42 @@ public final class Xml {
      * supplied error handler.
      */
     public static Element validateInfo(Path schemaPath, Element xml, XmlErrorHandler eh, String schemaName) throws Exception {
-        Schema schema = getSchemaFromPath(schemaPath);
-        return validateRealGuts(schema, xml, eh, schemaName);
+        return validateRealGuts(getCompiledSchema(schemaPath), xml, eh, schemaName);
     }
 
     //---------------------------------------------------------------------------
 
-    private static Schema getSchemaFromPath(Path schemaPath) throws SAXException {
+    /**
+     * Returns the compiled schema of an xsd file, compiling it on first use or if the file
+     * was modified since it was compiled.
+     */
+    private static CompiledSchema getCompiledSchema(Path schemaPath) throws IOException, SAXException {
+        final FileTime lastModified = Files.getLastModifiedTime(schemaPath);
+        CompiledSchema compiled = COMPILED_SCHEMAS.get(schemaPath);
+        if (compiled != null && compiled.lastModified.equals(lastModified)) {
+            return compiled;
+        }
+        try {
+            // Threads validating with the same schema wait for a single compilation
+            return COMPILED_SCHEMAS.compute(schemaPath, (path, current) -> {
+                if (current != null && current.lastModified.equals(lastModified)) {
+                    return current;
+                }
+                try {
+                    return new CompiledSchema(compileSchema(path), lastModified);
+                } catch (SAXException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+        } catch (IllegalStateException e) {
+            if (e.getCause() instanceof SAXException) {
+                throw (SAXException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static Schema compileSchema(Path schemaPath) throws SAXException {
         PathStreamSource schemaFile = new PathStreamSource(schemaPath);
         schemaFile.setSystemId(schemaPath.toUri().toASCIIString());
 
@@ -988,9 +1035,24 @@ public final class Xml {
      * Called by all validation methods to do the real guts of the validation job.
      */
     private static Element validateRealGuts(Schema schema, Element xml, XmlErrorHandler eh, String schemaName) throws JDOMException {
+        return validateRealGuts(schema.newValidatorHandler(), xml, eh, schemaName);
+    }
+
+    /**
+     * Validates with a validator handler of a compiled schema. The handler is given back to the
+     * schema for reuse once the validation is done.
+     */
+    private static Element validateRealGuts(CompiledSchema schema, Element xml, XmlErrorHandler eh, String schemaName) throws JDOMException {
+        ValidatorHandler vh = schema.borrowValidatorHandler();
+        Element xsdErrors = validateRealGuts(vh, xml, eh, schemaName);
+        // Not reused when the validation failed as the handler may be in an inconsistent state
+        schema.releaseValidatorHandler(vh);
+        return xsdErrors;
+    }
+
+    private static Element validateRealGuts(ValidatorHandler vh, Element xml, XmlErrorHandler eh, String schemaName) throws JDOMException {
         Resolver resolver = ResolverWrapper.getInstance(schemaName);
 
-        ValidatorHandler vh = schema.newValidatorHandler();
         vh.setResourceResolver(resolver.getXmlResolver());
         vh.setErrorHandler(eh);
 
@@ -1015,6 +1077,38 @@ public final class Xml {
 
     //---------------------------------------------------------------------------
 
+    /**
+     * A compiled schema (thread safe) with the validator handlers (not thread safe) created from
+     * it and available for reuse.
+     */
+    private static final class CompiledSchema {
+        private static final int MAX_IDLE_VALIDATOR_HANDLERS = 16;
+
+        private final Schema schema;
+        private final FileTime lastModified;
+        private final Queue<ValidatorHandler> idleValidatorHandlers = new ConcurrentLinkedQueue<>();
+
+        CompiledSchema(Schema schema, FileTime lastModified) {
+            this.schema = schema;
+            this.lastModified = lastModified;
+        }
+
+        ValidatorHandler borrowValidatorHandler() {
+            ValidatorHandler vh = idleValidatorHandlers.poll();
+            return vh == null ? schema.newValidatorHandler() : vh;
+        }
+
+        void releaseValidatorHandler(ValidatorHandler vh) {
+            // Do not keep a reference to the validated document
+            vh.setErrorHandler(null);
+            if (idleValidatorHandlers.size() < MAX_IDLE_VALIDATOR_HANDLERS) {
+                idleValidatorHandlers.offer(vh);
+            }
+        }
+    }
+
+    //---------------------------------------------------------------------------
+
     /**
      * Create and XPath expression for identified Element.
      *
@@ -46,11 +46,13 @@ import java.nio.file.FileSystem;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.util.Arrays;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 
 
@@ -207,4 +209,35 @@ public class XmlTest {
             Xml.isRDFLike("<?xml version='1.0' encoding='utf-8'?>\n<rdf:RDF\n" +
                 "    xmlns:rdf=\"http://www.w3.org/1999/02/22-rdf-syntax-ns#\"/>"));
     }
+
+    @Test
+    public void testValidateWithCompiledSchema() throws Exception {
+        Path xsd = Files.createTempFile("xmltest", ".xsd");
+        try {
+            Files.write(xsd, xsdWithElement("a").getBytes(Constants.CHARSET));
+            Element valid = new Element("a");
+            Element invalid = new Element("b");
+
+            // Validate several times to reuse the compiled schema and validator handlers
+            for (int i = 0; i < 3; i++) {
+                assertNull(Xml.validateInfo(xsd, valid, new XmlErrorHandler(), null));
+                assertNotNull(Xml.validateInfo(xsd, invalid, new XmlErrorHandler(), null));
+            }
+
+            // A modified xsd is compiled again
+            Files.write(xsd, xsdWithElement("b").getBytes(Constants.CHARSET));
+            Files.setLastModifiedTime(xsd, FileTime.fromMillis(Files.getLastModifiedTime(xsd).toMillis() + 10000));
+            assertNull(Xml.validateInfo(xsd, invalid, new XmlErrorHandler(), null));
+            assertNotNull(Xml.validateInfo(xsd, valid, new XmlErrorHandler(), null));
+        } finally {
+            Xml.clearSchemaCache();
+            Files.deleteIfExists(xsd);
+        }
+    }
+
+    private static String xsdWithElement(String name) {
+        return "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">"
+            + "<xs:element name=\"" + name + "\" type=\"xs:string\"/>"
+            + "</xs:schema>";
+    }
 }
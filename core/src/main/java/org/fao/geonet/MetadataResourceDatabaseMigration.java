@@ -29,6 +29,7 @@ import com.google.common.collect.Lists;
 
 import org.apache.commons.lang.StringUtils;
 import org.fao.geonet.constants.Geonet;
+import org.fao.geonet.domain.MetadataDataCodec;
 import org.fao.geonet.kernel.setting.SettingManager;
 import org.fao.geonet.schema.iso19139.ISO19139Namespaces;
 import org.fao.geonet.utils.Log;
@@ -176,20 +177,25 @@ public class MetadataResourceDatabaseMigration extends DatabaseMigrationTask {
             "UPDATE metadata SET data=? WHERE id=?")
         ) {
             try (Statement statement = connection.createStatement();
+                 // Compressed records can not be searched in SQL, they are checked once decoded
                  ResultSet resultSet = statement.executeQuery(String.format(
-                     "SELECT data, id, uuid FROM metadata WHERE data LIKE '%%%s%%'",
-                     settingManager.getServerURL()))
+                     "SELECT data, id, uuid FROM metadata WHERE data LIKE '%%%s%%' OR data LIKE '%s%%'",
+                     settingManager.getServerURL(), MetadataDataCodec.DEFLATE_MARKER))
             ) {
                 int numInBatch = 0;
 
                 while (resultSet.next()) {
-                    final Element xml = Xml.loadString(resultSet.getString(1), false);
+                    final String data = MetadataDataCodec.decode(resultSet.getString(1));
+                    if (!data.contains(settingManager.getServerURL())) {
+                        continue;
+                    }
+                    final Element xml = Xml.loadString(data, false);
                     final int id = resultSet.getInt(2);
                     final String uuid = resultSet.getString(3);
                     boolean changed = updateMetadataResourcesLink(xml, uuid, settingManager);
                     if (changed) {
                         String updatedData = Xml.getString(xml);
-                        update.setString(1, updatedData);
+                        update.setString(1, MetadataDataCodec.encode(updatedData));
                         update.setInt(2, id);
                         update.addBatch();
                         numInBatch++;
@@ -35,6 +35,7 @@ import org.jdom.Element;
 import org.jdom.filter.ElementFilter;
 import org.springframework.context.ConfigurableApplicationContext;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 
@@ -48,8 +49,19 @@ public class AbstractSchematronValidator {
 
     protected void runSchematron(String lang, Path schemaDir, List<MetadataValidation> validations, Element schemaTronXmlOut,
                                int metadataId, Element md, ApplicableSchematron applicable) {
+        runSchematron(lang, schemaDir, validations, schemaTronXmlOut, metadataId, md, null, applicable);
+    }
+
+    /**
+     * Runs a schematron on a record. If the hash of the record content is provided, the report
+     * is reused from {@link SchematronValidationCache} when the same content was already
+     * validated by the same rule.
+     */
+    protected void runSchematron(String lang, Path schemaDir, List<MetadataValidation> validations, Element schemaTronXmlOut,
+                               int metadataId, Element md, String mdHash, ApplicableSchematron applicable) {
         final ConfigurableApplicationContext applicationContext = ApplicationContextHolder.get();
         ThesaurusManager thesaurusManager = applicationContext.getBean(ThesaurusManager.class);
+        SchematronValidationCache validationCache = applicationContext.getBean(SchematronValidationCache.class);
 
         final Schematron schematron = applicable.schematron;
         final SchematronRequirement requirement = applicable.requirement;
@@ -68,7 +80,18 @@ public class AbstractSchematronValidator {
             params.put("thesaurusDir", thesaurusManager.getThesauriDirectory().toString());
 
             Path file = schemaDir.resolve(SCHEMATRON_DIR).resolve(schematron.getFile());
-            Element xmlReport = Xml.transform(md, file, params);
+            String reportKey = null;
+            Element xmlReport = null;
+            if (mdHash != null) {
+                reportKey = mdHash + "|" + ruleId + "|" + lang + "|" + file + "|" + Files.getLastModifiedTime(file).toMillis();
+                xmlReport = validationCache.getReport(reportKey);
+            }
+            if (xmlReport == null) {
+                xmlReport = Xml.transform(md, file, params);
+                if (xmlReport != null && reportKey != null) {
+                    validationCache.putReport(reportKey, xmlReport);
+                }
+            }
             if (xmlReport != null) {
                 report.addContent(xmlReport);
                 // add results to persistent validation information
@@ -30,7 +30,15 @@ import static org.springframework.data.jpa.domain.Specification.where;
 
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
+import javax.annotation.PostConstruct;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.apache.commons.lang.StringUtils;
 import org.fao.geonet.ApplicationContextHolder;
 import org.fao.geonet.constants.Geonet;
@@ -52,6 +60,7 @@ import org.fao.geonet.kernel.setting.SettingManager;
 import org.fao.geonet.kernel.setting.Settings;
 import org.fao.geonet.repository.GroupRepository;
 import org.fao.geonet.repository.GroupRepositoryCustom;
+import org.fao.geonet.repository.MetadataHeader;
 import org.fao.geonet.repository.OperationAllowedRepository;
 import org.fao.geonet.repository.OperationRepository;
 import org.fao.geonet.repository.SettingRepository;
@@ -62,10 +71,10 @@ import org.fao.geonet.repository.specification.UserGroupSpecs;
 import org.fao.geonet.utils.Log;
 import org.jdom.Element;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.data.jpa.domain.Specification;
-import org.springframework.data.jpa.domain.Specification;
 
 import jeeves.server.UserSession;
 import jeeves.server.context.ServiceContext;
@@ -99,6 +108,79 @@ public class AccessManager {
     @Autowired
     UserRepository userRepository;
 
+    /**
+     * Number of seconds a user privilege context (group memberships) and the list of groups
+     * are kept in memory before being reloaded from the database. Entries are also evicted
+     * when users or groups are modified (see {@link AccessManagerCacheEvictor}).
+     */
+    @Value("${accessmanager.privileges.cache.ttl:60}")
+    private long privilegesCacheTtl = 60;
+
+    @Value("${accessmanager.privileges.cache.maxsize:10000}")
+    private long privilegesCacheMaxSize = 10000;
+
+    private Cache<Integer, UserPrivilegeContext> privilegeContexts;
+
+    private volatile Supplier<List<Integer>> allGroupIds;
+
+    private volatile IntranetNetwork intranetNetwork = IntranetNetwork.UNDEFINED;
+
+    @PostConstruct
+    public void init() {
+        privilegeContexts = CacheBuilder.newBuilder()
+            .maximumSize(privilegesCacheMaxSize)
+            .expireAfterWrite(privilegesCacheTtl, TimeUnit.SECONDS)
+            .build();
+        resetGroups();
+    }
+
+    private void resetGroups() {
+        allGroupIds = Suppliers.memoizeWithExpiration(
+            () -> Collections.unmodifiableList(groupRepository.findIds()),
+            privilegesCacheTtl, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Returns the cached group memberships of a user, loading them from the database if needed.
+     *
+     * @param userId the id of the user
+     */
+    public UserPrivilegeContext getPrivilegeContext(final int userId) {
+        try {
+            return privilegeContexts.get(userId, () -> {
+                Optional<User> user = userRepository.findById(userId);
+                if (!user.isPresent()) {
+                    return UserPrivilegeContext.build(userId, null, Collections.emptyList());
+                }
+                return UserPrivilegeContext.build(userId, user.get().getProfile(),
+                    userGroupRepository.findAll(UserGroupSpecs.hasUserId(userId)));
+            });
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * Removes the cached privilege context of a user. To be called when the user or its
+     * group memberships change.
+     */
+    public void evictPrivilegeContext(final int userId) {
+        if (privilegeContexts != null) {
+            privilegeContexts.invalidate(userId);
+        }
+    }
+
+    /**
+     * Removes all cached privilege contexts and the cached list of groups. To be called
+     * when groups change.
+     */
+    public void clearPrivilegeCache() {
+        if (privilegeContexts != null) {
+            privilegeContexts.invalidateAll();
+            resetGroups();
+        }
+    }
+
     /**
      * Given a user(session) a list of groups and a metadata returns all operations that user can
      * perform on that metadata (an set of OPER_XXX as keys). If the user is authenticated the
@@ -180,16 +262,14 @@ public class AccessManager {
             hs.add(ReservedGroup.guest.getId());
 
             if (Profile.Administrator == usrSess.getProfile()) {
-                List<Integer> allGroupIds = groupRepository.findIds();
-
-                hs.addAll(allGroupIds);
+                hs.addAll(allGroupIds.get());
             } else {
-                Specification<UserGroup> spec = UserGroupSpecs.hasUserId(usrSess.getUserIdAsInt());
+                UserPrivilegeContext privileges = getPrivilegeContext(usrSess.getUserIdAsInt());
                 if (editingGroupsOnly) {
-                    spec = Specification.where(spec).and(UserGroupSpecs.hasProfile(Profile.Editor));
+                    hs.addAll(privileges.getEditorGroups());
+                } else {
+                    hs.addAll(privileges.getMemberGroups());
                 }
-
-                hs.addAll(userGroupRepository.findGroupIds(spec));
             }
         }
         return hs;
@@ -217,13 +297,7 @@ public class AccessManager {
 
         // get other groups
         if ((usrSess != null) && usrSess.isAuthenticated()) {
-            Specification<UserGroup> spec =
-                UserGroupSpecs.hasUserId(usrSess.getUserIdAsInt());
-            spec = Specification
-                .where(spec)
-                .and(UserGroupSpecs.hasProfile(Profile.Reviewer));
-
-            hs.addAll(userGroupRepository.findGroupIds(spec));
+            hs.addAll(getPrivilegeContext(usrSess.getUserIdAsInt()).getReviewerGroups());
         }
         return hs;
     }
@@ -236,23 +310,19 @@ public class AccessManager {
     public Set<Integer> getVisibleGroups(final int userId) throws Exception {
         Set<Integer> hs = new HashSet<Integer>();
 
-        Optional<User> user = userRepository.findById(userId);
+        UserPrivilegeContext privileges = getPrivilegeContext(userId);
+        Profile profile = privileges.getProfile();
 
-        if (!user.isPresent()) {
+        if (profile == null) {
             return hs;
         }
 
-        Profile profile = user.get().getProfile();
-
-        List<Integer> groupIds;
         if (profile == Profile.Administrator) {
-            groupIds = groupRepository.findIds();
+            hs.addAll(allGroupIds.get());
         } else {
-            groupIds = userGroupRepository.findGroupIds(UserGroupSpecs.hasUserId(user.get().getId()));
+            hs.addAll(privileges.getMemberGroups());
         }
 
-        hs.addAll(groupIds);
-
         return hs;
     }
 
@@ -290,11 +360,10 @@ public class AccessManager {
      * @param id The metadata internal identifier
      */
     public boolean isOwner(final ServiceContext context, final String id) throws Exception {
-        AbstractMetadata info = metadataUtils.findOne(id);
-        if (info == null)
+        MetadataHeader header = metadataUtils.findHeader(Integer.parseInt(id));
+        if (header == null)
             return false;
-        final MetadataSourceInfo sourceInfo = info.getSourceInfo();
-        return isOwner(context, sourceInfo);
+        return isOwner(context, header.getSourceInfo());
     }
 
     /**
@@ -480,13 +549,9 @@ public class AccessManager {
         }
 
         // Check if the user is a reviewer in the metadata owners group.
-        Specification<UserGroup> hasUserIdAndGroupAndProfile = where(UserGroupSpecs.hasProfile(Profile.Reviewer))
-            .and(UserGroupSpecs.hasGroupId(metadata.getSourceInfo().getGroupOwner()))
-            .and(UserGroupSpecs.hasUserId(us.getUserIdAsInt()));
-
-        UserGroupRepository userGroupRepo = context.getBean(UserGroupRepository.class);
-        boolean userIsReviewerOfOwnerGroup =
-            !userGroupRepo.findAll(hasUserIdAndGroupAndProfile).isEmpty();
+        Integer groupOwner = metadata.getSourceInfo().getGroupOwner();
+        boolean userIsReviewerOfOwnerGroup = groupOwner != null
+            && getPrivilegeContext(us.getUserIdAsInt()).getReviewerGroups().contains(groupOwner);
 
         if (settingManager.getValueAsBool(
                 SYSTEM_METADATAPRIVS_PUBLICATIONBYGROUPOWNERONLY, true)) {
@@ -517,15 +582,13 @@ public class AccessManager {
             return false;
         }
 
-        Specification spec = where(UserGroupSpecs.hasProfile(profile)).and(UserGroupSpecs.hasUserId(us.getUserIdAsInt()));
-
-        List<Integer> opAlloweds = new ArrayList<Integer>();
+        Set<Integer> profileGroups = getPrivilegeContext(us.getUserIdAsInt()).getGroups(profile);
         for (OperationAllowed opAllowed : allOpAlloweds) {
-            opAlloweds.add(opAllowed.getId().getGroupId());
+            if (profileGroups.contains(opAllowed.getId().getGroupId())) {
+                return true;
+            }
         }
-        spec = spec.and(UserGroupSpecs.hasGroupIds(opAlloweds));
-
-        return (!userGroupRepository.findAll(spec).isEmpty());
+        return false;
 
     }
 
@@ -560,16 +623,16 @@ public class AccessManager {
         }
 
         // IPv4
+        // Settings are entities in the second level cache so reading them is cheap.
         Optional<Setting> network = settingRepository.findById(Settings.SYSTEM_INTRANET_NETWORK);
         Optional<Setting> netmask = settingRepository.findById(Settings.SYSTEM_INTRANET_NETMASK);
 
         try {
             if (network.isPresent() && netmask.isPresent() &&
                 StringUtils.isNotEmpty(network.get().getValue()) && StringUtils.isNotEmpty(netmask.get().getValue())) {
-                long lIntranetNet = getAddress(network.get().getValue());
-                long lIntranetMask = getAddress(netmask.get().getValue());
+                IntranetNetwork intranet = getIntranetNetwork(network.get().getValue(), netmask.get().getValue());
                 long lAddress = getAddress(ip.split(",")[0]);
-                return (lAddress & lIntranetMask) == (lIntranetNet & lIntranetMask);
+                return (lAddress & intranet.mask) == intranet.maskedNetwork;
             }
         } catch (Exception nfe) {
             Log.error(Geonet.ACCESS_MANAGER,"isIntranet error: " + nfe.getMessage(), nfe);
@@ -577,6 +640,42 @@ public class AccessManager {
         return false;
     }
 
+    /**
+     * Returns the parsed intranet network, parsing the settings values only when they changed.
+     */
+    private IntranetNetwork getIntranetNetwork(String network, String netmask) {
+        IntranetNetwork current = intranetNetwork;
+        if (!current.isDefinedBy(network, netmask)) {
+            current = new IntranetNetwork(network, netmask, getAddress(network), getAddress(netmask));
+            intranetNetwork = current;
+        }
+        return current;
+    }
+
+    /**
+     * Intranet network and netmask as configured in the settings, with the network
+     * already masked.
+     */
+    private static final class IntranetNetwork {
+        static final IntranetNetwork UNDEFINED = new IntranetNetwork(null, null, 0, 0);
+
+        final String network;
+        final String netmask;
+        final long mask;
+        final long maskedNetwork;
+
+        IntranetNetwork(String network, String netmask, long lNetwork, long lMask) {
+            this.network = network;
+            this.netmask = netmask;
+            this.mask = lMask;
+            this.maskedNetwork = lNetwork & lMask;
+        }
+
+        boolean isDefinedBy(String network, String netmask) {
+            return network.equals(this.network) && netmask.equals(this.netmask);
+        }
+    }
+
     /**
      * Converts an ip x.x.x.x into a long.
      */
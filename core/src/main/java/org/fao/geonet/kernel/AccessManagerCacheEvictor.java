@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2001-2023 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel;
+
+import org.fao.geonet.events.group.GroupCreated;
+import org.fao.geonet.events.group.GroupRemoved;
+import org.fao.geonet.events.group.GroupUpdated;
+import org.fao.geonet.events.user.UserEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.event.SmartApplicationListener;
+
+/**
+ * Evicts the privilege contexts cached by {@link AccessManager} when users, user group
+ * memberships or groups are modified.
+ */
+public class AccessManagerCacheEvictor implements SmartApplicationListener {
+
+    @Autowired
+    private AccessManager accessManager;
+
+    @Override
+    public boolean supportsEventType(Class<? extends ApplicationEvent> eventType) {
+        return UserEvent.class.isAssignableFrom(eventType)
+            || GroupCreated.class.isAssignableFrom(eventType)
+            || GroupUpdated.class.isAssignableFrom(eventType)
+            || GroupRemoved.class.isAssignableFrom(eventType);
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationEvent event) {
+        if (event instanceof UserEvent) {
+            accessManager.evictPrivilegeContext(((UserEvent) event).getUser().getId());
+        } else {
+            accessManager.clearPrivilegeCache();
+        }
+    }
+
+    @Override
+    public int getOrder() {
+        return LOWEST_PRECEDENCE;
+    }
+}
@@ -90,10 +90,20 @@ public class EditLib {
     private static final Joiner SLASH_STRING_JOINER = Joiner.on('/');
 
     private SchemaManager scm;
+    private final boolean useChildTemplates;
     private static final Map<String, Integer> htVersions = new ConcurrentHashMap<String, Integer>();
 
     public EditLib(SchemaManager scm) {
+        this(scm, true);
+    }
+
+    /**
+     * @param useChildTemplates false to build each geonet:child element instead of cloning
+     *                          the templates cached in the schema.
+     */
+    EditLib(SchemaManager scm, boolean useChildTemplates) {
         this.scm = scm;
+        this.useChildTemplates = useChildTemplates;
     }
 
     /**
@@ -1370,6 +1380,9 @@ public class EditLib {
         MetadataType type = schema.getTypeInfo(elemType);
         LOGGER_EXPAND_ELEMENT.debug("Type = {}", type);
 
+        // Missing children are inserted in a copy of the children list
+        // and the element content is replaced once at the end.
+        List<Element> children = null;
         for (int i = 0; i < type.getElementCount(); i++) {
             String childQName = type.getElementAt(i);
 
@@ -1390,12 +1403,13 @@ public class EditLib {
 
                 Element newElem = createElement(schema, elemName, childQName, childNS, type.getMinCardinAt(i), type.getMaxCardinAt(i));
 
-                if (i == 0) insertFirst(md, newElem);
+                if (children == null) children = new ArrayList<Element>(md.getChildren());
+                if (i == 0) children.add(0, newElem);
                 else {
                     String prevQName = type.getElementAt(i - 1);
                     String prevName = getUnqualifiedName(prevQName);
                     String prevNS = getNamespace(prevQName, md, schema);
-                    insertLast(md, prevName, prevNS, newElem);
+                    insertLast(children, prevName, prevNS, newElem);
                 }
             } else {
                 LOGGER_EXPAND_ELEMENT.debug("- {} children of this type already present", list.size());
@@ -1421,10 +1435,16 @@ public class EditLib {
                     if (j < type.getMaxCardinAt(i) - 1)
                         listElem.setAttribute(new Attribute(Edit.Element.Attr.ADD, Edit.Value.TRUE));
                 }
-                if (list.size() < type.getMaxCardinAt(i))
-                    insertLast(md, childName, childNS, createElement(schema, elemName, childQName, childNS, type.getMinCardinAt(i), type.getMaxCardinAt(i)));
+                if (list.size() < type.getMaxCardinAt(i)) {
+                    if (children == null) children = new ArrayList<Element>(md.getChildren());
+                    insertLast(children, childName, childNS, createElement(schema, elemName, childQName, childNS, type.getMinCardinAt(i), type.getMaxCardinAt(i)));
+                }
             }
         }
+        if (children != null) {
+            md.removeContent();
+            md.addContent(children);
+        }
         addAttribs(type, md, schema);
     }
 
@@ -1485,38 +1505,21 @@ public class EditLib {
         return "UNKNOWN";
     }
 
-    private void insertFirst(Element md, Element child) {
-        List<Element> list = new ArrayList(md.getChildren());
-        md.removeContent();
-        md.addContent(child);
-        for (Element elem : list) {
-            md.addContent(elem);
-        }
-    }
-
-    private void insertLast(Element md, String childName, String childNS, Element child) {
-        boolean added = false;
-
-        @SuppressWarnings("unchecked")
-        List<Element> list = md.getChildren();
-
-        List<Element> v = new ArrayList<Element>();
-
+    /**
+     * Inserts the child after the last element of the first group of elements with the given
+     * name. The child is not inserted if there is no such element.
+     */
+    private void insertLast(List<Element> list, String childName, String childNS, Element child) {
         for (int i = 0; i < list.size(); i++) {
             Element el = list.get(i);
 
-            v.add(el);
-
-            if (equal(childName, childNS, el) && !added) {
+            if (equal(childName, childNS, el)) {
                 if (i == list.size() - 1 || !equal(el, list.get(i + 1))) {
-                    v.add(child);
-                    added = true;
+                    list.add(i + 1, child);
+                    return;
                 }
             }
         }
-
-        md.removeContent();
-        md.addContent(v);
     }
 
     private boolean equal(String childName, String childNS, Element el) {
@@ -1593,9 +1596,39 @@ public class EditLib {
     }
 
     /**
-     * Creates a new element for editing, adding all mandatory subtags.
+     * Creates a new element for editing, adding all mandatory subtags. The element is cloned from
+     * a template cached in the schema, only the uuid attributes being set for each call.
      */
     private Element createElement(MetadataSchema schema, String parent, String qname, String childNS, int min, int max) throws Exception {
+        Element child;
+        if (useChildTemplates) {
+            String key = parent + '|' + qname + '|' + childNS + '|' + min + '|' + max;
+            Element template = schema.getEditChildTemplate(key);
+            if (template == null) {
+                template = createElementTemplate(schema, parent, qname, childNS, min, max);
+                schema.putEditChildTemplate(key, template);
+            }
+            child = (Element) template.clone();
+        } else {
+            child = createElementTemplate(schema, parent, qname, childNS, min, max);
+        }
+        setChildUuid(child);
+        return child;
+    }
+
+    private void setChildUuid(Element child) {
+        child.setAttribute(Edit.ChildElem.Attr.UUID,
+            child.getAttributeValue(Edit.ChildElem.Attr.UUID) + UUID.randomUUID().toString());
+        for (Object o : child.getChildren(CHILD, Edit.NAMESPACE)) {
+            setChildUuid((Element) o);
+        }
+    }
+
+    /**
+     * Builds the geonet:child element for a child. The uuid attributes only contain a prefix
+     * completed by {@link #setChildUuid(Element)}.
+     */
+    private Element createElementTemplate(MetadataSchema schema, String parent, String qname, String childNS, int min, int max) throws Exception {
 
         Element child = new Element(CHILD, Edit.NAMESPACE);
         SchemaSuggestions mdSugg = scm.getSchemaSuggestions(schema.getName());
@@ -1603,7 +1636,7 @@ public class EditLib {
         child.setAttribute(new Attribute(NAME, getUnqualifiedName(qname)));
         child.setAttribute(new Attribute(Edit.ChildElem.Attr.PREFIX, getPrefix(qname)));
         child.setAttribute(new Attribute(NAMESPACE, childNS));
-        child.setAttribute(new Attribute(Edit.ChildElem.Attr.UUID, CHILD + "_" + qname + "_" + UUID.randomUUID().toString()));
+        child.setAttribute(new Attribute(Edit.ChildElem.Attr.UUID, CHILD + "_" + qname + "_"));
         child.setAttribute(new Attribute(Edit.ChildElem.Attr.MIN, "" + min));
         child.setAttribute(new Attribute(Edit.ChildElem.Attr.MAX, "" + max));
 
@@ -1633,7 +1666,7 @@ public class EditLib {
                     LOGGER.debug("OR element having gco:CharacterString substitute and no suggestion: {}", qname);
 
                     Element basicTypeNode = isoPlugin.createBasicTypeCharacterString();
-                    Element newElem = createElement(schema, qname,
+                    Element newElem = createElementTemplate(schema, qname,
                         basicTypeNode.getQualifiedName(),
                         basicTypeNode.getNamespaceURI(), 1, 1);
                     child.addContent(newElem);
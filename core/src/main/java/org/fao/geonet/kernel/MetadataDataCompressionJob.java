@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2001-2023 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel;
+
+import com.google.common.collect.Lists;
+import jeeves.transaction.TransactionManager;
+import jeeves.transaction.TransactionTask;
+import org.fao.geonet.constants.Geonet;
+import org.fao.geonet.domain.Metadata;
+import org.fao.geonet.domain.MetadataDataCodec;
+import org.fao.geonet.domain.Metadata_;
+import org.fao.geonet.repository.MetadataRepository;
+import org.fao.geonet.repository.PathSpec;
+import org.fao.geonet.repository.specification.MetadataSpecs;
+import org.fao.geonet.util.ThreadPool;
+import org.fao.geonet.utils.Log;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.TransactionStatus;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Rewrites the data column of the records which are not stored in the format
+ * currently configured (see {@link MetadataDataCodec} and {@link XmlSerializer}).
+ * <p/>
+ * Compressed and uncompressed rows can be read at any time, so the conversion runs in
+ * the background, by batch, each batch in its own transaction. Only the storage format
+ * changes, change dates and the index are left untouched.
+ */
+public class MetadataDataCompressionJob {
+    private static final int BATCH_SIZE = 200;
+
+    private static final PathSpec<Metadata, String> DATA_PATH = new PathSpec<Metadata, String>() {
+        @Override
+        public Path<String> getPath(Root<Metadata> root) {
+            return root.get(Metadata_.data);
+        }
+    };
+
+    @Autowired
+    private MetadataRepository metadataRepository;
+
+    @Autowired
+    private ThreadPool threadPool;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    /**
+     * Start the conversion once the application is started.
+     */
+    @Value("${metadata.data.compression.migrateOnStartup:false}")
+    private boolean migrateOnStartup = false;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @PostConstruct
+    public void init() {
+        if (migrateOnStartup) {
+            threadPool.runTask(this::migrate, 60, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Start the conversion in the background.
+     *
+     * @return false if a conversion is already running.
+     */
+    public boolean start() {
+        if (running.get()) {
+            return false;
+        }
+        threadPool.runTask(this::migrate);
+        return true;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Convert all records not stored in the current format.
+     *
+     * @return the number of records converted.
+     */
+    public int migrate() {
+        if (!running.compareAndSet(false, true)) {
+            Log.warning(Geonet.DATA_MANAGER, "Metadata data compression job is already running.");
+            return 0;
+        }
+        try {
+            final boolean compress = MetadataDataCodec.isCompressionEnabled();
+            @SuppressWarnings("unchecked")
+            Specification<Metadata> toConvert =
+                (Specification<Metadata>) MetadataSpecs.isDataCompressed(!compress);
+            List<Integer> ids = metadataRepository.findIdsBy(toConvert);
+            Log.info(Geonet.DATA_MANAGER, String.format(
+                "Metadata data compression job: %d records to %s.", ids.size(), compress ? "compress" : "decompress"));
+
+            int converted = 0;
+            for (List<Integer> batch : Lists.partition(ids, BATCH_SIZE)) {
+                if (Thread.currentThread().isInterrupted()) {
+                    Log.warning(Geonet.DATA_MANAGER, "Metadata data compression job interrupted.");
+                    break;
+                }
+                converted += convert(batch);
+                Log.info(Geonet.DATA_MANAGER, String.format(
+                    "Metadata data compression job: %d/%d records converted.", converted, ids.size()));
+            }
+            return converted;
+        } catch (Exception e) {
+            Log.error(Geonet.DATA_MANAGER, "Metadata data compression job failed. Error is: " + e.getMessage(), e);
+            return 0;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private int convert(final List<Integer> ids) {
+        return TransactionManager.runInTransaction("convert metadata data storage", applicationContext,
+            TransactionManager.TransactionRequirement.CREATE_NEW,
+            TransactionManager.CommitBehavior.ALWAYS_COMMIT, false, new TransactionTask<Integer>() {
+                @Override
+                public Integer doInTransaction(TransactionStatus transaction) throws Throwable {
+                    List<Metadata> records = metadataRepository.findAllById(ids);
+                    for (Metadata record : records) {
+                        // The document does not change so the entity is not dirty, write it
+                        // again with an update query which encodes it with the current format.
+                        metadataRepository.createBatchUpdateQuery(DATA_PATH, record.getData(),
+                            (Specification<Metadata>) MetadataSpecs.hasMetadataId(record.getId())).execute();
+                    }
+                    return records.size();
+                }
+            });
+    }
+}
@@ -1186,6 +1186,7 @@ public class SchemaManager {
                 Xml.writeResponse(new Document((Element) root.detach()), out);
                 Xml.resetResolver();
                 Xml.clearTransformerFactoryStylesheetCache();
+                Xml.clearSchemaCache();
             }
         }
     }
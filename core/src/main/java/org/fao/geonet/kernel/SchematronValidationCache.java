@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2001-2023 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.fao.geonet.constants.Edit;
+import org.fao.geonet.domain.Schematron;
+import org.fao.geonet.domain.SchematronCriteriaGroup;
+import org.fao.geonet.repository.SchematronCriteriaGroupRepository;
+import org.fao.geonet.repository.SchematronRepository;
+import org.jdom.Attribute;
+import org.jdom.Element;
+import org.jdom.Text;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches what is needed to run the schematron validation of records: the schematrons of each
+ * schema, the criteria groups of each schematron and the reports produced for a record content.
+ *
+ * The schematrons and criteria are evicted when they are modified (see
+ * {@link SchematronValidationCacheEvictor}). Reports are keyed by a hash of the record content,
+ * the rule, the language and the schematron file so that validating an unchanged record does
+ * not run the rule again. As rules may also depend on external resources (eg. thesaurus, URL
+ * checks), entries expire after a configurable delay.
+ */
+public class SchematronValidationCache {
+
+    @Value("${schematron.validation.cache.ttl:300}")
+    private long cacheTtl = 300;
+
+    @Value("${schematron.validation.cache.reports.maxsize:1000}")
+    private long reportsMaxSize = 1000;
+
+    @Autowired
+    private SchematronRepository schematronRepository;
+
+    @Autowired
+    private SchematronCriteriaGroupRepository criteriaGroupRepository;
+
+    private Cache<String, List<Schematron>> schematronsBySchema;
+
+    private Cache<Integer, List<SchematronCriteriaGroup>> criteriaGroupsBySchematron;
+
+    private Cache<String, Element> reports;
+
+    @PostConstruct
+    public void init() {
+        schematronsBySchema = CacheBuilder.newBuilder()
+            .expireAfterWrite(cacheTtl, TimeUnit.SECONDS)
+            .build();
+        criteriaGroupsBySchematron = CacheBuilder.newBuilder()
+            .expireAfterWrite(cacheTtl, TimeUnit.SECONDS)
+            .build();
+        reports = CacheBuilder.newBuilder()
+            .maximumSize(reportsMaxSize)
+            .expireAfterWrite(cacheTtl, TimeUnit.SECONDS)
+            .build();
+    }
+
+    /**
+     * @return the schematrons of a schema sorted by display priority.
+     */
+    public List<Schematron> getSchematrons(final String schemaName) {
+        try {
+            return schematronsBySchema.get(schemaName, () -> {
+                List<Schematron> schematrons = new ArrayList<>(schematronRepository.findAllBySchemaName(schemaName));
+                Collections.sort(schematrons, Schematron.DISPLAY_PRIORITY_COMPARATOR);
+                return Collections.unmodifiableList(schematrons);
+            });
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    public List<SchematronCriteriaGroup> getCriteriaGroups(final int schematronId) {
+        try {
+            return criteriaGroupsBySchematron.get(schematronId, () ->
+                Collections.unmodifiableList(criteriaGroupRepository.findAllById_SchematronId(schematronId)));
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * @return a copy of the report produced for the key or null if not in the cache.
+     */
+    public Element getReport(String key) {
+        Element report = reports.getIfPresent(key);
+        return report == null ? null : (Element) report.clone();
+    }
+
+    public void putReport(String key, Element report) {
+        reports.put(key, (Element) report.clone());
+    }
+
+    /**
+     * Removes the cached schematrons and criteria. To be called when they change.
+     */
+    public void clearRules() {
+        schematronsBySchema.invalidateAll();
+        criteriaGroupsBySchematron.invalidateAll();
+    }
+
+    /**
+     * Computes a hash of a record content. The uuid attributes of the editing elements
+     * (geonet:element, geonet:child) are random and ignored.
+     */
+    public static String hash(Element md) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        hash(hasher, md);
+        return hasher.hash().toString();
+    }
+
+    private static void hash(Hasher hasher, Element element) {
+        boolean isEditElement = Edit.NAMESPACE.getURI().equals(element.getNamespaceURI());
+        hasher.putByte((byte) 1)
+            .putString(element.getNamespaceURI(), StandardCharsets.UTF_8)
+            .putByte((byte) 0)
+            .putString(element.getQualifiedName(), StandardCharsets.UTF_8);
+        for (Object o : element.getAttributes()) {
+            Attribute attribute = (Attribute) o;
+            if (isEditElement && attribute.getName().equals(Edit.Element.Attr.UUID)) {
+                continue;
+            }
+            hasher.putByte((byte) 2)
+                .putString(attribute.getNamespaceURI(), StandardCharsets.UTF_8)
+                .putByte((byte) 0)
+                .putString(attribute.getQualifiedName(), StandardCharsets.UTF_8)
+                .putByte((byte) 0)
+                .putString(attribute.getValue(), StandardCharsets.UTF_8);
+        }
+        for (Object o : element.getContent()) {
+            if (o instanceof Element) {
+                hash(hasher, (Element) o);
+            } else if (o instanceof Text) {
+                hasher.putByte((byte) 3)
+                    .putString(((Text) o).getText(), StandardCharsets.UTF_8);
+            }
+        }
+        hasher.putByte((byte) 4);
+    }
+}
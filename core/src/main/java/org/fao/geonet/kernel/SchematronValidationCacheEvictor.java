@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2001-2023 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel;
+
+import org.fao.geonet.entitylistener.GeonetworkEntityListener;
+import org.fao.geonet.entitylistener.PersistentEventType;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Evicts the schematrons and criteria cached by {@link SchematronValidationCache} when a
+ * schematron, a criteria group or a criteria is saved or removed.
+ *
+ * @param <T> the schematron related entity class
+ */
+public class SchematronValidationCacheEvictor<T> implements GeonetworkEntityListener<T> {
+
+    private final Class<T> entityClass;
+
+    @Autowired
+    private SchematronValidationCache schematronValidationCache;
+
+    public SchematronValidationCacheEvictor(Class<T> entityClass) {
+        this.entityClass = entityClass;
+    }
+
+    @Override
+    public Class<T> getEntityClass() {
+        return entityClass;
+    }
+
+    @Override
+    public void handleEvent(PersistentEventType type, T entity) {
+        if (type == PersistentEventType.PostPersist
+            || type == PersistentEventType.PostUpdate
+            || type == PersistentEventType.PostRemove) {
+            schematronValidationCache.clearRules();
+        }
+    }
+}
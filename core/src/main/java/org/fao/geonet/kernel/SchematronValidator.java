@@ -33,14 +33,11 @@ import org.fao.geonet.domain.SchematronCriteria;
 import org.fao.geonet.domain.SchematronCriteriaGroup;
 import org.fao.geonet.domain.SchematronRequirement;
 import org.fao.geonet.kernel.schema.MetadataSchema;
-import org.fao.geonet.repository.SchematronCriteriaGroupRepository;
-import org.fao.geonet.repository.SchematronRepository;
 import org.fao.geonet.utils.Log;
 import org.jdom.Element;
 import org.springframework.context.ConfigurableApplicationContext;
 
 import java.nio.file.Path;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -73,8 +70,9 @@ public class SchematronValidator extends AbstractSchematronValidator {
                     ? getApplicableSchematronList(metadataId, md, metadataSchema)
                     : onlyForSchematronList;
 
+            String mdHash = applicableSchematron.isEmpty() ? null : SchematronValidationCache.hash(md);
             for (ApplicableSchematron applicable : applicableSchematron) {
-                runSchematron(lang, schemaDir, validations, schemaTronXmlOut, metadataId, md, applicable);
+                runSchematron(lang, schemaDir, validations, schemaTronXmlOut, metadataId, md, mdHash, applicable);
             }
         } catch (Throwable e) {
             Element errorReport = new Element("schematronVerificationError", Edit.NAMESPACE);
@@ -94,11 +92,9 @@ public class SchematronValidator extends AbstractSchematronValidator {
                                                            final Element md,
                                                            final MetadataSchema metadataSchema) {
         List<ApplicableSchematron> applicableSchematron = Lists.newArrayList();
-        SchematronRepository schematronRepository = ApplicationContextHolder.get().getBean(SchematronRepository.class);
+        SchematronValidationCache validationCache = ApplicationContextHolder.get().getBean(SchematronValidationCache.class);
 
-        final List<Schematron> schematronList = schematronRepository.findAllBySchemaName(metadataSchema.getName());
-
-        Collections.sort(schematronList, Schematron.DISPLAY_PRIORITY_COMPARATOR);
+        final List<Schematron> schematronList = validationCache.getSchematrons(metadataSchema.getName());
 
         //Loop through all xsl files
         for (Schematron schematron : schematronList) {
@@ -123,9 +119,9 @@ public class SchematronValidator extends AbstractSchematronValidator {
                                                  final Schematron schematron) {
         //it contains absolute path to the xsl file
         final ConfigurableApplicationContext applicationContext = ApplicationContextHolder.get();
-        SchematronCriteriaGroupRepository criteriaGroupRepository = applicationContext.getBean(SchematronCriteriaGroupRepository.class);
+        SchematronValidationCache validationCache = applicationContext.getBean(SchematronValidationCache.class);
 
-        List<SchematronCriteriaGroup> criteriaGroups = criteriaGroupRepository.findAllById_SchematronId(schematron.getId());
+        List<SchematronCriteriaGroup> criteriaGroups = validationCache.getCriteriaGroups(schematron.getId());
 
         //Loop through all criteria to see if apply schematron
         //if any criteria does not apply, do not apply at all (AND)
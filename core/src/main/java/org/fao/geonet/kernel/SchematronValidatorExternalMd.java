@@ -29,8 +29,6 @@ import org.fao.geonet.constants.Edit;
 import org.fao.geonet.constants.Geonet;
 import org.fao.geonet.domain.*;
 import org.fao.geonet.kernel.schema.MetadataSchema;
-import org.fao.geonet.repository.SchematronCriteriaGroupRepository;
-import org.fao.geonet.repository.SchematronRepository;
 import org.fao.geonet.utils.Log;
 import org.jdom.Element;
 import org.springframework.context.ConfigurableApplicationContext;
@@ -56,8 +54,9 @@ public class SchematronValidatorExternalMd extends AbstractSchematronValidator {
         try {
             List<ApplicableSchematron> applicableSchematron = getApplicableSchematronList(md, metadataSchema, groupOwnerId);
 
+            String mdHash = applicableSchematron.isEmpty() ? null : SchematronValidationCache.hash(md);
             for (ApplicableSchematron applicable : applicableSchematron) {
-                runSchematron(lang, schemaDir, validations, schemaTronXmlOut, -1, md, applicable);
+                runSchematron(lang, schemaDir, validations, schemaTronXmlOut, -1, md, mdHash, applicable);
             }
         } catch (Throwable e) {
             Element errorReport = new Element("schematronVerificationError", Edit.NAMESPACE);
@@ -74,11 +73,9 @@ public class SchematronValidatorExternalMd extends AbstractSchematronValidator {
                                                            final Integer groupOwnerId) {
 
         List<ApplicableSchematron> applicableSchematron = Lists.newArrayList();
-        SchematronRepository schematronRepository = ApplicationContextHolder.get().getBean(SchematronRepository.class);
+        SchematronValidationCache validationCache = ApplicationContextHolder.get().getBean(SchematronValidationCache.class);
 
-        final List<Schematron> schematronList = schematronRepository.findAllBySchemaName(metadataSchema.getName());
-
-        Collections.sort(schematronList, Schematron.DISPLAY_PRIORITY_COMPARATOR);
+        final List<Schematron> schematronList = validationCache.getSchematrons(metadataSchema.getName());
 
         //Loop through all xsl files
         for (Schematron schematron : schematronList) {
@@ -103,9 +100,9 @@ public class SchematronValidatorExternalMd extends AbstractSchematronValidator {
                                                  final Integer groupOwnerId) {
         //it contains absolute path to the xsl file
         final ConfigurableApplicationContext applicationContext = ApplicationContextHolder.get();
-        SchematronCriteriaGroupRepository criteriaGroupRepository = applicationContext.getBean(SchematronCriteriaGroupRepository.class);
+        SchematronValidationCache validationCache = applicationContext.getBean(SchematronValidationCache.class);
 
-        List<SchematronCriteriaGroup> criteriaGroups = criteriaGroupRepository.findAllById_SchematronId(schematron.getId());
+        List<SchematronCriteriaGroup> criteriaGroups = validationCache.getCriteriaGroups(schematron.getId());
 
         //Loop through all criteria to see if apply schematron
         //if any criteria does not apply, do not apply at all (AND)
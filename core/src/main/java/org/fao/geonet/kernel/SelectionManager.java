@@ -28,7 +28,6 @@ import jeeves.server.UserSession;
 import jeeves.server.context.ServiceContext;
 
 import org.apache.commons.lang.StringUtils;
-import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.search.SearchHit;
 import org.fao.geonet.ApplicationContextHolder;
 import org.fao.geonet.constants.Edit;
@@ -41,6 +40,7 @@ import org.jdom.Element;
 
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.annotation.Nonnull;
 
@@ -243,14 +243,12 @@ public class SelectionManager {
             if (request == null) {
                 return;
             } else {
-                final SearchResponse searchResponse;
-                try {
-                    EsSearchManager searchManager = context.getBean(EsSearchManager.class);
-                    searchResponse = searchManager.query(request.get("query"), FIELDLIST_UUID, 0, maxhits);
-                    List<String> uuidList = new ArrayList();
-                    for (SearchHit h : Arrays.asList(searchResponse.getHits().getHits())) {
-                        uuidList.add((String) h.getSourceAsMap().get(Geonet.IndexFieldNames.UUID));
-                    }
+                EsSearchManager searchManager = context.getBean(EsSearchManager.class);
+                try (Stream<SearchHit> hits = searchManager.stream(request.get("query"), FIELDLIST_UUID)) {
+                    List<String> uuidList = hits
+                        .limit(maxhits)
+                        .map(h -> (String) h.getSourceAsMap().get(Geonet.IndexFieldNames.UUID))
+                        .collect(Collectors.toList());
 
                     if (selection != null) {
                         selection.addAll(uuidList);
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2001-2023 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel;
+
+import org.fao.geonet.domain.Profile;
+import org.fao.geonet.domain.UserGroup;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of the group memberships of a user, as stored in the user group table.
+ * Built once by {@link AccessManager} and cached so that privilege checks done while building
+ * search filters or checking operations do not hit the database for every call.
+ */
+public final class UserPrivilegeContext {
+
+    private final int userId;
+    private final Profile profile;
+    private final Set<Integer> memberGroups;
+    private final Map<Profile, Set<Integer>> groupsByProfile;
+
+    private UserPrivilegeContext(int userId, Profile profile, Set<Integer> memberGroups,
+                                 Map<Profile, Set<Integer>> groupsByProfile) {
+        this.userId = userId;
+        this.profile = profile;
+        this.memberGroups = memberGroups;
+        this.groupsByProfile = groupsByProfile;
+    }
+
+    /**
+     * Builds the context from the user group relations of a user.
+     *
+     * @param userId     the user identifier
+     * @param profile    the user main profile (as stored on the user)
+     * @param userGroups all user group relations of the user
+     */
+    public static UserPrivilegeContext build(int userId, Profile profile, Collection<UserGroup> userGroups) {
+        Set<Integer> members = new HashSet<>();
+        Map<Profile, Set<Integer>> byProfile = new EnumMap<>(Profile.class);
+        for (UserGroup userGroup : userGroups) {
+            int groupId = userGroup.getId().getGroupId();
+            members.add(groupId);
+            byProfile.computeIfAbsent(userGroup.getProfile(), p -> new HashSet<>()).add(groupId);
+        }
+        Map<Profile, Set<Integer>> immutableByProfile = new EnumMap<>(Profile.class);
+        for (Map.Entry<Profile, Set<Integer>> entry : byProfile.entrySet()) {
+            immutableByProfile.put(entry.getKey(), Collections.unmodifiableSet(entry.getValue()));
+        }
+        return new UserPrivilegeContext(userId, profile,
+            Collections.unmodifiableSet(members),
+            Collections.unmodifiableMap(immutableByProfile));
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    /**
+     * @return the user profile or null if the user does not exist anymore.
+     */
+    public Profile getProfile() {
+        return profile;
+    }
+
+    /**
+     * @return the ids of all groups the user is member of, whatever the profile.
+     */
+    public Set<Integer> getMemberGroups() {
+        return memberGroups;
+    }
+
+    /**
+     * @return the ids of the groups where the user has exactly the given profile.
+     */
+    public Set<Integer> getGroups(Profile profile) {
+        Set<Integer> groups = groupsByProfile.get(profile);
+        return groups == null ? Collections.emptySet() : groups;
+    }
+
+    public Set<Integer> getReviewerGroups() {
+        return getGroups(Profile.Reviewer);
+    }
+
+    public Set<Integer> getEditorGroups() {
+        return getGroups(Profile.Editor);
+    }
+}
@@ -31,6 +31,7 @@ import org.fao.geonet.ApplicationContextHolder;
 import org.fao.geonet.constants.Geonet;
 import org.fao.geonet.domain.AbstractMetadata;
 import org.fao.geonet.domain.ISODate;
+import org.fao.geonet.domain.MetadataDataCodec;
 import org.fao.geonet.domain.Pair;
 import org.fao.geonet.domain.ReservedOperation;
 import org.fao.geonet.kernel.datamanager.IMetadataManager;
@@ -44,10 +45,13 @@ import org.jdom.Attribute;
 import org.jdom.Element;
 import org.jdom.JDOMException;
 import org.jdom.Namespace;
+import org.springframework.beans.factory.annotation.Value;
 
 import jeeves.server.context.ServiceContext;
 import jeeves.xlink.Processor;
 
+import javax.annotation.PostConstruct;
+
 /**
  * This class is responsible of reading and writing xml on the database. It works on tables like
  * (id, data, lastChangeDate).
@@ -55,6 +59,19 @@ import jeeves.xlink.Processor;
 public abstract class XmlSerializer {
     private static InheritableThreadLocal<ThreadLocalConfiguration> configThreadLocal = new InheritableThreadLocal<XmlSerializer.ThreadLocalConfiguration>();
 
+    /**
+     * Store the records compressed in the data column. Existing records are
+     * converted by {@link MetadataDataCompressionJob}.
+     */
+    @Value("${metadata.data.compression.enabled:false}")
+    private boolean compressData = false;
+
+    @PostConstruct
+    public void initDataCompression() {
+        MetadataDataCodec.setCompressionEnabled(compressData);
+        Log.info(Geonet.DATA_MANAGER, "Metadata records are stored " + (compressData ? "compressed" : "uncompressed") + " in the database.");
+    }
+
     public static ThreadLocalConfiguration getThreadLocal(boolean setIfNotPresent) {
         ThreadLocalConfiguration config = configThreadLocal.get();
         if (config == null && setIfNotPresent) {
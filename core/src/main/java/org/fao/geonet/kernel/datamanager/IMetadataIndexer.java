@@ -26,6 +26,7 @@ package org.fao.geonet.kernel.datamanager;
 import java.io.IOException;
 import java.util.Calendar;
 import java.util.List;
+import java.util.Map;
 
 import org.fao.geonet.domain.AbstractMetadata;
 import org.fao.geonet.kernel.search.ISearchManager;
@@ -103,6 +104,16 @@ public interface IMetadataIndexer {
 
     void indexMetadataPrivileges(String uuid, int id) throws Exception;
 
+    /**
+     * Update the privileges fields (op0..opN, groupPublished, isPublishedToAll) of a set of records
+     * without running the full indexing. Privileges are loaded from the database in one query per
+     * chunk of records and sent to the index as bulk partial updates.
+     *
+     * @param records map of record internal id to index document id, ie. the record uuid
+     *                with a -draft suffix for working copies
+     */
+    void indexMetadataPrivileges(Map<Integer, String> records) throws Exception;
+
     /**
      * Start record versioning
      *
@@ -23,6 +23,8 @@
 
 package org.fao.geonet.kernel.datamanager;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -80,6 +82,19 @@ public interface IMetadataManager {
      */
     void deleteMetadataGroup(ServiceContext context, String metadataId) throws Exception;
 
+    /**
+     * Removes a set of records. Related information (privileges, ratings, validations, saved
+     * selections and file uploads) is removed using one statement per table for the whole set
+     * and the index is updated once. Records which can not be removed in bulk (eg. sub-templates
+     * which may be referenced) are removed one by one using {@link #deleteMetadata(ServiceContext, String)}.
+     *
+     * @param context
+     * @param records the records to remove
+     * @return the ids of the records removed
+     * @throws Exception
+     */
+    List<Integer> deleteMetadata(ServiceContext context, Collection<? extends AbstractMetadata> records) throws Exception;
+
     /**
      * Creates a new metadata duplicating an existing template creating a random uuid.
      *
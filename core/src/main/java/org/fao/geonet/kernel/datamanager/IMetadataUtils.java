@@ -24,6 +24,7 @@
 package org.fao.geonet.kernel.datamanager;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -38,6 +39,7 @@ import org.fao.geonet.domain.ISODate;
 import org.fao.geonet.domain.MetadataSourceInfo;
 import org.fao.geonet.domain.MetadataType;
 import org.fao.geonet.domain.Pair;
+import org.fao.geonet.repository.MetadataHeader;
 import org.fao.geonet.repository.SimpleMetadata;
 import org.fao.geonet.repository.reports.MetadataReportsQueries;
 import org.jdom.Element;
@@ -123,6 +125,12 @@ public interface IMetadataUtils {
 
     String getPermalink(String uuid, String language);
 
+    /**
+     * Same as {@link #getPermalink(String, String)} with the default link built on the given node URL
+     * instead of the node of the current request.
+     */
+    String getPermalink(String uuid, String language, String nodeUrl);
+
     String getDefaultUrl(String uuid, String language);
 
     String getDoi(String uuid) throws ResourceNotFoundException, IOException, JDOMException;
@@ -354,6 +362,25 @@ public interface IMetadataUtils {
      */
     public AbstractMetadata findOne(int id);
 
+    /**
+     * Given an identifier, return the header of the record associated to it.
+     * The header does not contain the XML document of the record.
+     *
+     * @param id
+     * @return the header or null if the record does not exist
+     */
+    @Nullable
+    MetadataHeader findHeader(int id);
+
+    /**
+     * Return the headers of a set of records. The headers do not contain the
+     * XML document of the records.
+     *
+     * @param ids
+     * @return a map of metadataId -> header, for the records found
+     */
+    Map<Integer, MetadataHeader> findHeaders(Collection<Integer> ids);
+
     /**
      * Find all the ids of the records that fits the specification
      *
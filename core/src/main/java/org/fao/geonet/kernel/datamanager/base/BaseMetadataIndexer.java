@@ -35,6 +35,8 @@ import jeeves.server.context.ServiceContext;
 import jeeves.xlink.Processor;
 import org.apache.commons.lang.StringUtils;
 import org.eclipse.jetty.util.ConcurrentHashSet;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkResponse;
 import org.fao.geonet.ApplicationContextHolder;
 import org.fao.geonet.api.records.attachments.Store;
 import org.fao.geonet.constants.Geonet;
@@ -54,6 +56,7 @@ import org.fao.geonet.kernel.search.IndexingMode;
 import org.fao.geonet.kernel.setting.SettingManager;
 import org.fao.geonet.kernel.setting.Settings;
 import org.fao.geonet.repository.*;
+import org.fao.geonet.repository.specification.MetadataSpecs;
 import org.fao.geonet.repository.userfeedback.UserFeedbackRepository;
 import org.fao.geonet.resources.Resources;
 import org.fao.geonet.util.ThreadUtils;
@@ -77,6 +80,7 @@ import java.util.*;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 import static org.fao.geonet.resources.Resources.DEFAULT_LOGO_EXTENSION;
 
@@ -153,52 +157,83 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
         searchManager.forceIndexChanges();
     }
 
+    /**
+     * Number of records removed from the database and the index in one batch.
+     */
+    private static final int DELETE_BATCH_SIZE = 500;
+
+    /**
+     * Remove records matching the specification. Records are removed by batch
+     * of {@link #DELETE_BATCH_SIZE} records. The operation stops between 2 batches
+     * if the current thread is interrupted.
+     *
+     * @return the number of records removed.
+     */
     @Override
     public int batchDeleteMetadataAndUpdateIndex(Specification<? extends AbstractMetadata> specification)
         throws Exception {
-        final List<? extends AbstractMetadata> metadataToDelete = metadataUtils.findAll(specification);
-
-        // Remove records from the database
-        // Delete all works on a database created by hibernate
-        // (because some foreign constraints are missing.
-        // See https://github.com/geonetwork/core-geonetwork/issues/1863). FIXME
-        // Delete all does not work on older database
-        // where operationAllowed contains references to the metadata table.
-        //
-//        for (AbstractMetadata md : metadataToDelete) {
-//            // --- remove metadata directory for each record
-//            store.delResources(ServiceContext.get(), md.getUuid(), true);
-//        }
-//
-//        // Remove records from the index
-//        searchManager.delete(metadataToDelete.stream().map(input -> Integer.toString(input.getId())).collect(Collectors.toList()));
-//        metadataManager.deleteAll(specification);
-        // So delete one by one even if slower
-        metadataToDelete.forEach(md -> {
+        final List<Integer> idsToDelete = metadataUtils.findAllIdsBy(specification);
+        final int total = idsToDelete.size();
+        final boolean historyEnabled = settingManager.getValueAsBool(Settings.SYSTEM_METADATA_HISTORY_ENABLED);
+        final ServiceContext context = ServiceContext.get();
+
+        int deleted = 0;
+        for (int start = 0; start < total; start += DELETE_BATCH_SIZE) {
+            if (Thread.currentThread().isInterrupted()) {
+                Log.warning(Geonet.DATA_MANAGER, String.format(
+                    "Batch delete interrupted. %d/%d records removed.", deleted, total));
+                break;
+            }
+
+            List<Integer> chunk = idsToDelete.subList(start, Math.min(start + DELETE_BATCH_SIZE, total));
+            final List<? extends AbstractMetadata> metadataToDelete =
+                metadataUtils.findAll(MetadataSpecs.hasMetadataIdIn(chunk));
+
+            // Extract information for RecordDeletedEvent
+            // before the record is removed from the database and the index.
+            Map<Integer, RecordDeletedEvent> deletedEvents = new HashMap<>();
+            if (historyEnabled) {
+                int userId = context.getUserSession().getUserIdAsInt();
+                for (AbstractMetadata md : metadataToDelete) {
+                    LinkedHashMap<String, String> titles = metadataUtils.extractTitles(Integer.toString(md.getId()));
+                    deletedEvents.put(md.getId(),
+                        new RecordDeletedEvent(md.getId(), md.getUuid(), titles, userId, md.getData()));
+                }
+            }
+
             try {
-                // Extract information for RecordDeletedEvent
-                LinkedHashMap<String, String> titles = metadataUtils.extractTitles(Integer.toString(md.getId()));
-                UserSession userSession = ServiceContext.get().getUserSession();
-                String xmlBefore = md.getData();
+                List<Integer> removed = metadataManager.deleteMetadata(context, metadataToDelete);
+                deleted += removed.size();
 
-                store.delResources(ServiceContext.get(), md.getUuid());
-                metadataManager.deleteMetadata(ServiceContext.get(), String.valueOf(md.getId()));
+                Set<Integer> removedIds = new HashSet<>(removed);
+                for (AbstractMetadata md : metadataToDelete) {
+                    if (!removedIds.contains(md.getId())) {
+                        continue;
+                    }
+                    // --- remove metadata directory
+                    store.delResources(context, md.getUuid());
 
-                // Trigger RecordDeletedEvent
-                new RecordDeletedEvent(md.getId(), md.getUuid(), titles, userSession.getUserIdAsInt(), xmlBefore).publish(ApplicationContextHolder.get());
+                    RecordDeletedEvent event = deletedEvents.get(md.getId());
+                    if (event != null) {
+                        event.publish(ApplicationContextHolder.get());
+                    }
+                }
             } catch (Exception e) {
                 Log.warning(Geonet.DATA_MANAGER, String.format(
-
-                    "Error during removal of metadata %s part of batch delete operation. " +
-                        "This error may create a ghost record (ie. not in the index " +
+                    "Error during removal of %d metadata part of batch delete operation. " +
+                        "This error may create ghost records (ie. not in the index " +
                         "but still present in the database). " +
-                        "You can reindex the catalogue to see it again. " +
-                        "Error was: %s.", md.getUuid(), e.getMessage()));
-                e.printStackTrace();
+                        "You can reindex the catalogue to see them again. " +
+                        "Error was: %s.", chunk.size(), e.getMessage()), e);
             }
-        });
 
-        return metadataToDelete.size();
+            if (total > DELETE_BATCH_SIZE) {
+                Log.info(Geonet.DATA_MANAGER, String.format(
+                    "Batch delete: %d/%d records processed.", start + chunk.size(), total));
+            }
+        }
+
+        return deleted;
     }
 
     @Override
@@ -344,8 +379,10 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
             Multimap<String, Object> fields = ArrayListMultimap.create();
             int id$ = Integer.parseInt(metadataId);
 
-            // get metadata, extracting and indexing any xlinks
-            Element md = getXmlSerializer().selectNoXLinkResolver(metadataId, true, false);
+            // get metadata, extracting and indexing any xlinks.
+            // The record is loaded once and used for both the document and its properties.
+            fullMd = metadataUtils.findOne(id$);
+            Element md = getXmlSerializer().removeHiddenElements(true, fullMd, false);
             final ServiceContext serviceContext = getServiceContext();
             if (getXmlSerializer().resolveXLinks()) {
                 List<Attribute> xlinks = Processor.getXLinks(md);
@@ -363,8 +400,6 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
                 fields.put(Geonet.IndexFieldNames.HASXLINKS, false);
             }
 
-            fullMd = metadataUtils.findOne(id$);
-
             final String schema = fullMd.getDataInfo().getSchemaId();
             final String createDate = fullMd.getDataInfo().getCreateDate().getDateAndTime();
             final String changeDate = fullMd.getDataInfo().getChangeDate().getDateAndTime();
@@ -581,8 +616,72 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
         searchManager.updateFields(uuid, buildFieldsForPrivileges(id), operationFields);
     }
 
+    /**
+     * Number of records for which privileges are loaded in one query
+     * and sent to the index in one bulk request.
+     */
+    private static final int PRIVILEGES_BATCH_SIZE = 500;
+
+    @Override
+    public void indexMetadataPrivileges(Map<Integer, String> records) throws Exception {
+        Set<String> privilegesFields = new HashSet<>();
+        Arrays.asList(ReservedOperation.values()).forEach(o ->
+            privilegesFields.add(Geonet.IndexFieldNames.OP_PREFIX + o.getId())
+        );
+        privilegesFields.add(Geonet.IndexFieldNames.GROUP_PUBLISHED);
+        privilegesFields.add(Geonet.IndexFieldNames.GROUP_PUBLISHED + "Id");
+
+        Map<Integer, Group> groups = new HashMap<>();
+        groupRepository.findAll().forEach(g -> groups.put(g.getId(), g));
+
+        List<Integer> ids = new ArrayList<>(records.keySet());
+        int total = ids.size();
+        int failures = 0;
+        for (int start = 0; start < total; start += PRIVILEGES_BATCH_SIZE) {
+            List<Integer> chunk = ids.subList(start, Math.min(start + PRIVILEGES_BATCH_SIZE, total));
+
+            Map<Integer, List<OperationAllowed>> operationsByRecord = new HashMap<>();
+            chunk.forEach(id -> operationsByRecord.put(id, new ArrayList<>()));
+            operationAllowedRepository.findAllById_MetadataIdIn(chunk).forEach(o ->
+                operationsByRecord.get(o.getId().getMetadataId()).add(o));
+
+            Map<String, Multimap<String, Object>> documents = new HashMap<>(chunk.size());
+            operationsByRecord.forEach((id, operations) ->
+                documents.put(records.get(id), buildFieldsForPrivileges(operations, groups::get)));
+
+            BulkResponse response = searchManager.updateFields(documents, privilegesFields);
+            if (response.hasFailures()) {
+                for (BulkItemResponse item : response.getItems()) {
+                    if (item.isFailed()) {
+                        failures++;
+                        Log.warning(Geonet.INDEX_ENGINE, String.format(
+                            "Error while updating privileges of record %s in the index. Error was: %s.",
+                            item.getId(), item.getFailureMessage()));
+                    }
+                }
+            }
+
+            if (total > PRIVILEGES_BATCH_SIZE) {
+                Log.info(Geonet.INDEX_ENGINE, String.format(
+                    "Privileges updated in the index for %d/%d records.",
+                    start + chunk.size(), total));
+            }
+        }
+        if (failures > 0) {
+            Log.warning(Geonet.INDEX_ENGINE, String.format(
+                "Privileges not updated in the index for %d/%d records. Reindex them.",
+                failures, total));
+        }
+    }
+
     private Multimap<String, Object> buildFieldsForPrivileges(int recordId) {
-        List<OperationAllowed> operationsAllowed = operationAllowedRepository.findAllById_MetadataId(recordId);
+        return buildFieldsForPrivileges(
+            operationAllowedRepository.findAllById_MetadataId(recordId),
+            groupId -> groupRepository.findById(groupId).orElse(null));
+    }
+
+    private Multimap<String, Object> buildFieldsForPrivileges(List<OperationAllowed> operationsAllowed,
+                                                              Function<Integer, Group> groupLoader) {
         Multimap<String, Object> privilegesFields = ArrayListMultimap.create();
         boolean isPublishedToAll = false;
 
@@ -593,13 +692,13 @@ public class BaseMetadataIndexer implements IMetadataIndexer, ApplicationEventPu
 
             privilegesFields.put(Geonet.IndexFieldNames.OP_PREFIX + operationId, String.valueOf(groupId));
             if (operationId == ReservedOperation.view.getId()) {
-                Optional<Group> g = groupRepository.findById(groupId);
-                if (g.isPresent()) {
-                    privilegesFields.put(Geonet.IndexFieldNames.GROUP_PUBLISHED, g.get().getName());
-                    privilegesFields.put(Geonet.IndexFieldNames.GROUP_PUBLISHED + "Id", g.get().getId());
+                Group g = groupLoader.apply(groupId);
+                if (g != null) {
+                    privilegesFields.put(Geonet.IndexFieldNames.GROUP_PUBLISHED, g.getName());
+                    privilegesFields.put(Geonet.IndexFieldNames.GROUP_PUBLISHED + "Id", g.getId());
 
 
-                    if (g.get().getId() == ReservedGroup.all.getId()) {
+                    if (g.getId() == ReservedGroup.all.getId()) {
                         isPublishedToAll = true;
                     }
                 }
@@ -136,6 +136,8 @@ public class BaseMetadataManager implements IMetadataManager {
     protected AccessManager accessManager;
     @Autowired
     private UserSavedSelectionRepository userSavedSelectionRepository;
+    @Autowired
+    private OperationAllowedRepository operationAllowedRepository;
 
     private static final int METADATA_BATCH_PAGE_SIZE = 50000;
 
@@ -360,6 +362,67 @@ public class BaseMetadataManager implements IMetadataManager {
         getSearchManager().delete(String.format("+id:%s", metadataId));
     }
 
+    @Override
+    public List<Integer> deleteMetadata(ServiceContext context, Collection<? extends AbstractMetadata> records) throws Exception {
+        boolean allowReferencedDeletion = settingManager.getValueAsBool(Settings.SYSTEM_XLINK_ALLOW_REFERENCED_DELETION);
+        List<Integer> removed = new ArrayList<>(records.size());
+        List<Integer> ids = new ArrayList<>(records.size());
+        List<String> uuids = new ArrayList<>(records.size());
+        for (AbstractMetadata metadata : records) {
+            if (canBeDeletedInBatch(metadata, allowReferencedDeletion)) {
+                ids.add(metadata.getId());
+                uuids.add(metadata.getUuid());
+            } else {
+                try {
+                    deleteMetadata(context, String.valueOf(metadata.getId()));
+                    removed.add(metadata.getId());
+                } catch (Exception e) {
+                    LOGGER_DATA_MANAGER.warn("Error during removal of metadata {}. Error is: {}",
+                        metadata.getUuid(), e.getMessage());
+                }
+            }
+        }
+
+        if (ids.isEmpty()) {
+            return removed;
+        }
+
+        operationAllowedRepository.deleteAllByMetadataIdIn(ids);
+        metadataRatingByIpRepository.deleteAllById_MetadataIdIn(ids);
+        metadataValidationRepository.deleteAllById_MetadataIdIn(ids);
+        userSavedSelectionRepository.deleteAllByUuidIn(uuids);
+
+        // Logical delete for metadata file uploads
+        PathSpec<MetadataFileUpload, String> deletedDatePathSpec = new PathSpec<MetadataFileUpload, String>() {
+            @Override
+            public javax.persistence.criteria.Path<String> getPath(Root<MetadataFileUpload> root) {
+                return root.get(MetadataFileUpload_.deletedDate);
+            }
+        };
+        metadataFileUploadRepository
+            .createBatchUpdateQuery(deletedDatePathSpec, new ISODate().toString(), MetadataFileUploadSpecs.isNotDeletedForMetadataIn(ids));
+
+        // --- remove metadata. Records are removed through the entity manager
+        // so that categories, feedbacks and entity listeners are handled.
+        for (Integer id : ids) {
+            getXmlSerializer().delete(String.valueOf(id), context);
+            removed.add(id);
+        }
+
+        // --- update search criteria
+        getSearchManager().delete(ids);
+        return removed;
+    }
+
+    /**
+     * @return true if the record does not need any checks before being removed
+     * and can be part of a bulk delete.
+     */
+    protected boolean canBeDeletedInBatch(AbstractMetadata metadata, boolean allowReferencedDeletion) {
+        return allowReferencedDeletion
+            || metadata.getDataInfo().getType() != MetadataType.SUB_TEMPLATE;
+    }
+
     /**
      * Creates a new metadata duplicating an existing template creating a random
      * uuid.
@@ -29,13 +29,13 @@ import java.util.Set;
 import javax.annotation.CheckForNull;
 
 import org.fao.geonet.constants.Geonet;
-import org.fao.geonet.domain.AbstractMetadata;
 import org.fao.geonet.exceptions.NoSchemaMatchesException;
 import org.fao.geonet.exceptions.SchemaMatchConflictException;
 import org.fao.geonet.kernel.SchemaManager;
 import org.fao.geonet.kernel.datamanager.IMetadataSchemaUtils;
 import org.fao.geonet.kernel.datamanager.IMetadataUtils;
 import org.fao.geonet.kernel.schema.MetadataSchema;
+import org.fao.geonet.repository.MetadataHeader;
 import org.fao.geonet.utils.Log;
 import org.jdom.Element;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -90,13 +90,13 @@ public class BaseMetadataSchemaUtils implements IMetadataSchemaUtils {
      */
     @Override
     public String getMetadataSchema(String id) throws Exception {
-        AbstractMetadata md = metadataUtils.findOne(id);
+        MetadataHeader md = metadataUtils.findHeader(Integer.parseInt(id));
 
         if (md == null) {
             throw new IllegalArgumentException("Metadata not found for id : " + id);
         } else {
             // get metadata
-            return md.getDataInfo().getSchemaId();
+            return md.getSchemaId();
         }
     }
 
@@ -137,7 +137,7 @@ public class BaseMetadataUtils implements IMetadataUtils {
     public @Nullable
     @Override
     String getMetadataUuid(@Nonnull String id) throws Exception {
-        AbstractMetadata metadata = findOne(id);
+        MetadataHeader metadata = findHeader(Integer.parseInt(id));
 
         if (metadata == null)
             return null;
@@ -322,6 +322,11 @@ public class BaseMetadataUtils implements IMetadataUtils {
 
     @Override
     public String getPermalink(String uuid, String language) {
+        return getPermalink(uuid, language, settingManager.getNodeURL());
+    }
+
+    @Override
+    public String getPermalink(String uuid, String language, String nodeUrl) {
         Boolean doiIsFirst = settingManager.getValueAsBool(METADATA_URL_SITEMAPDOIFIRST, false);
 
         if (Boolean.TRUE.equals(doiIsFirst)) {
@@ -338,7 +343,7 @@ public class BaseMetadataUtils implements IMetadataUtils {
 
 
         String sitemapLinkUrl = settingManager.getValue(METADATA_URL_SITEMAPLINKURL);
-        String defaultLink = settingManager.getNodeURL() + "api/records/" + uuid + "?language=all";
+        String defaultLink = nodeUrl + "api/records/" + uuid + "?language=all";
         String permalink = buildUrl(uuid, language, sitemapLinkUrl);
         return StringUtils.isNotEmpty(permalink) ? permalink : defaultLink;
     }
@@ -592,21 +597,14 @@ public class BaseMetadataUtils implements IMetadataUtils {
         // READONLYMODE
         if (!srvContext.getBean(NodeInfo.class).isReadOnly()) {
             int iId = Integer.parseInt(id);
-            metadataRepository.update(iId, new Updater<Metadata>() {
-                @Override
-                public void apply(Metadata entity) {
-                    entity.getDataInfo().setPopularity(
-                        entity.getDataInfo().getPopularity() + 1
-                    );
-                }
-            });
-            final java.util.Optional<Metadata> metadata = metadataRepository.findById(iId);
+            metadataRepository.incrementPopularity(iId);
+            final MetadataHeader metadata = findHeader(iId);
 
-            if (metadata.isPresent()) {
+            if (metadata != null) {
                 searchManager.updateFieldAsynch(
-                    metadata.get().getUuid(),
+                    metadata.getUuid(),
                     Geonet.IndexFieldNames.POPULARITY,
-                    metadata.get().getDataInfo().getPopularity());
+                    metadata.getPopularity());
 
             }
         } else {
@@ -906,6 +904,20 @@ public class BaseMetadataUtils implements IMetadataUtils {
         return metadata.isPresent()?metadata.get():null;
     }
 
+    @Override
+    public MetadataHeader findHeader(int id) {
+        return findHeaders(Collections.singletonList(id)).get(id);
+    }
+
+    @Override
+    public Map<Integer, MetadataHeader> findHeaders(Collection<Integer> ids) {
+        Map<Integer, MetadataHeader> headers = new HashMap<>(ids.size());
+        for (MetadataHeader header : metadataRepository.findHeaders(ids)) {
+            headers.put(header.getId(), header);
+        }
+        return headers;
+    }
+
     @Override
     public AbstractMetadata findOneByUuid(String uuid) {
     	AbstractMetadata metadata = null;
@@ -42,8 +42,14 @@ import org.springframework.data.jpa.domain.Specification;
 
 import javax.annotation.Nonnull;
 import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 public class DraftMetadataManager extends BaseMetadataManager implements IMetadataManager {
 
@@ -93,6 +99,34 @@ public class DraftMetadataManager extends BaseMetadataManager implements IMetada
         // _entityManager.flush();
         // _entityManager.clear();
     }
+
+    /**
+     * Removes a set of records. Approved records which have a draft version are skipped.
+     */
+    @Override
+    public List<Integer> deleteMetadata(ServiceContext context, Collection<? extends AbstractMetadata> records) throws Exception {
+        Set<String> approvedUuids = records.stream()
+            .filter(md -> md instanceof Metadata)
+            .map(AbstractMetadata::getUuid)
+            .collect(Collectors.toSet());
+        Set<String> uuidsWithDraft = approvedUuids.isEmpty() ? Collections.emptySet() :
+            metadataDraftRepository.findAll((Specification<MetadataDraft>) MetadataSpecs.hasMetadataUuidIn(approvedUuids))
+                .stream()
+                .map(AbstractMetadata::getUuid)
+                .collect(Collectors.toSet());
+
+        List<AbstractMetadata> toDelete = new ArrayList<>(records.size());
+        for (AbstractMetadata md : records) {
+            if (md instanceof Metadata && uuidsWithDraft.contains(md.getUuid())) {
+                Log.warning(Geonet.DATA_MANAGER, String.format(
+                    "The metadata %s has a draft version. Cancel the modification to be able to remove the approved version.",
+                    md.getUuid()));
+            } else {
+                toDelete.add(md);
+            }
+        }
+        return super.deleteMetadata(context, toDelete);
+    }
     /**
      * For update of owner info.
      */
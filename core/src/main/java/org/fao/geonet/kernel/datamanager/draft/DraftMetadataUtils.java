@@ -238,6 +238,23 @@ public class DraftMetadataUtils extends BaseMetadataUtils {
         return md.isPresent()?md.get():null;
     }
 
+    @Override
+    public Map<Integer, MetadataHeader> findHeaders(Collection<Integer> ids) {
+        Map<Integer, MetadataHeader> headers = super.findHeaders(ids);
+        if (headers.size() < ids.size()) {
+            List<Integer> missing = new ArrayList<>();
+            for (Integer id : ids) {
+                if (!headers.containsKey(id)) {
+                    missing.add(id);
+                }
+            }
+            for (MetadataHeader header : metadataDraftRepository.findHeaders(missing)) {
+                headers.put(header.getId(), header);
+            }
+        }
+        return headers;
+    }
+
     @Override
     public boolean existsMetadataUuid(String uuid) throws Exception {
         return super.existsMetadataUuid(uuid) || !findAllIdsBy(hasMetadataUuid(uuid)).isEmpty();
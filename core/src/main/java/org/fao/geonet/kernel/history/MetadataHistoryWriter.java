@@ -0,0 +1,327 @@
+/*
+ * Copyright (C) 2001-2023 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.history;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import jeeves.transaction.TransactionManager;
+import jeeves.transaction.TransactionTask;
+import org.fao.geonet.constants.Geonet;
+import org.fao.geonet.domain.ISODate;
+import org.fao.geonet.domain.MetadataStatus;
+import org.fao.geonet.domain.StatusValue;
+import org.fao.geonet.events.history.AbstractHistoryEvent;
+import org.fao.geonet.kernel.datamanager.IMetadataUtils;
+import org.fao.geonet.repository.MetadataStatusRepository;
+import org.fao.geonet.repository.StatusValueRepository;
+import org.fao.geonet.utils.Log;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persists the record history events (see {@link AbstractHistoryEvent}) in the background so
+ * that editing, import or privileges operations do not wait for the history to be written.
+ * <p/>
+ * Events are queued once the transaction which published them is committed. A single thread
+ * resolves the missing uuids and titles and saves the events by batch, in one transaction
+ * using JDBC batching. When the queue is full, or the writer stopped, events are written
+ * by the calling thread so that none is lost.
+ */
+public class MetadataHistoryWriter {
+
+    /**
+     * Maximum number of events saved in one transaction.
+     */
+    @Value("${metadata.history.writer.batchSize:100}")
+    private int batchSize = 100;
+
+    /**
+     * Maximum number of events waiting to be saved.
+     */
+    @Value("${metadata.history.writer.queueSize:10000}")
+    private int queueSize = 10000;
+
+    @Autowired
+    private MetadataStatusRepository metadataStatusRepository;
+
+    @Autowired
+    private StatusValueRepository statusValueRepository;
+
+    @Autowired
+    private IMetadataUtils metadataUtils;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Status values are reference data only changed by migrations.
+     */
+    private final Cache<Integer, Optional<StatusValue>> statusValues = CacheBuilder.newBuilder()
+        .expireAfterWrite(10, TimeUnit.MINUTES)
+        .build();
+
+    private BlockingQueue<PendingEvent> queue;
+    private ExecutorService executor;
+    private volatile boolean running = false;
+
+    @PostConstruct
+    public void init() {
+        queue = new LinkedBlockingQueue<>(queueSize);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory();
+        threadFactory.setDaemon(true);
+        threadFactory.setThreadNamePrefix("MetadataHistoryWriter-");
+        executor = Executors.newSingleThreadExecutor(threadFactory);
+        running = true;
+        executor.submit(this::drain);
+    }
+
+    /**
+     * Stop accepting events and wait for the queued ones to be saved.
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                    Log.warning(Geonet.DATA_MANAGER, String.format(
+                        "Metadata history writer stopped with %d events not saved.", queue.size()));
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Queue an history event to be saved once the current transaction, if any, is committed.
+     *
+     * @param event         the event
+     * @param statusId      the id of the {@link StatusValue} of the event (see {@link StatusValue.Events})
+     * @param changeMessage the change message to store
+     */
+    public void submit(AbstractHistoryEvent event, String statusId, String changeMessage) {
+        final PendingEvent pending = new PendingEvent(event, Integer.parseInt(statusId), changeMessage);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // The record may not be visible to the writer transaction before
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    enqueue(pending);
+                }
+            });
+        } else {
+            enqueue(pending);
+        }
+    }
+
+    /**
+     * @return the number of events waiting to be saved.
+     */
+    public int getQueueSize() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * @return the number of milliseconds the oldest event waiting to be saved has been queued.
+     */
+    public long getQueueLag() {
+        PendingEvent oldest = queue == null ? null : queue.peek();
+        return oldest == null ? 0 : System.currentTimeMillis() - oldest.submitted;
+    }
+
+    private void enqueue(PendingEvent pending) {
+        if (!running || !queue.offer(pending)) {
+            write(Collections.singletonList(pending));
+        }
+    }
+
+    private void drain() {
+        List<PendingEvent> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingEvent first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                Log.error(Geonet.DATA_MANAGER, "Error while saving history events. Error is: " + e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingEvent> batch) {
+        List<MetadataStatus> statuses = new ArrayList<>(batch.size());
+        for (PendingEvent pending : batch) {
+            MetadataStatus metadataStatus = toMetadataStatus(pending);
+            if (metadataStatus != null) {
+                statuses.add(metadataStatus);
+            }
+        }
+        if (statuses.isEmpty()) {
+            return;
+        }
+
+        try {
+            save(statuses);
+        } catch (Exception e) {
+            Log.warning(Geonet.DATA_MANAGER, String.format(
+                "Error while saving a batch of %d history events, saving them one by one. Error is: %s",
+                statuses.size(), e.getMessage()));
+            for (MetadataStatus metadataStatus : statuses) {
+                // Ids may have been assigned by the failed transaction
+                metadataStatus.setId(0);
+                try {
+                    save(Collections.singletonList(metadataStatus));
+                } catch (Exception ex) {
+                    Log.error(Geonet.DATA_MANAGER, String.format(
+                        "Error while saving history event for metadata id: %d", metadataStatus.getMetadataId()), ex);
+                }
+            }
+        }
+    }
+
+    private void save(final List<MetadataStatus> statuses) {
+        TransactionManager.runInTransaction("save metadata history events", applicationContext,
+            TransactionManager.TransactionRequirement.CREATE_NEW,
+            TransactionManager.CommitBehavior.ALWAYS_COMMIT, false, new TransactionTask<Void>() {
+                @Override
+                public Void doInTransaction(TransactionStatus transaction) throws Throwable {
+                    entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+                    metadataStatusRepository.saveAll(statuses);
+                    entityManager.flush();
+                    return null;
+                }
+            });
+    }
+
+    private MetadataStatus toMetadataStatus(PendingEvent pending) {
+        AbstractHistoryEvent event = pending.event;
+        StatusValue status = getStatusValue(pending.statusId);
+        if (status == null) {
+            Log.warning(Geonet.DATA_MANAGER, String.format(
+                "Status with id '%s' not found in database. Check database migration SQL file to add default status if you want to log record history.",
+                pending.statusId));
+            return null;
+        }
+
+        Integer metadataid = Math.toIntExact(event.getMdId());
+        MetadataStatus metadataStatus = new MetadataStatus();
+        metadataStatus.setMetadataId(metadataid);
+        metadataStatus.setUserId(event.getUserId());
+        metadataStatus.setChangeDate(new ISODate(pending.submitted));
+        metadataStatus.setStatusValue(status);
+        metadataStatus.setOwner(event.getUserId());
+        // Used the uuid if supplied otherwise try to look it up.
+        if (event.getUuid() != null && event.getUuid().length() > 0) {
+            metadataStatus.setUuid(event.getUuid());
+        } else {
+            try {
+                metadataStatus.setUuid(metadataUtils.getMetadataUuid(Integer.toString(metadataid)));
+            } catch (Exception e) {
+                Log.error(Geonet.DATA_MANAGER, String.format(
+                    "Error locating uuid for metadata id: %d", metadataid), e);
+            }
+            if (metadataStatus.getUuid() == null || metadataStatus.getUuid().length() == 0) {
+                Log.error(Geonet.DATA_MANAGER, String.format(
+                    "Could not located uuid for metadata id: %d", metadataid));
+                return null;
+            }
+        }
+
+        if (event.getTitles() != null && event.getTitles().size() > 0) {
+            metadataStatus.setTitles(event.getTitles());
+        } else {
+            try {
+                metadataStatus.setTitles(metadataUtils.extractTitles(Integer.toString(metadataid)));
+            } catch (Exception e) {
+                Log.error(Geonet.DATA_MANAGER, String.format(
+                    "Error locating titles for metadata id: %d", metadataid), e);
+            }
+        }
+
+        metadataStatus.setChangeMessage(pending.changeMessage);
+        metadataStatus.setCurrentState(event.getCurrentState());
+        metadataStatus.setPreviousState(event.getPreviousState());
+        metadataStatus.setRelatedMetadataStatus(event.getRelatedMetadataStatus());
+        return metadataStatus;
+    }
+
+    private StatusValue getStatusValue(final int statusId) {
+        try {
+            return statusValues.get(statusId,
+                () -> Optional.ofNullable(statusValueRepository.findOneById(statusId))).orElse(null);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private static class PendingEvent {
+        private final AbstractHistoryEvent event;
+        private final int statusId;
+        private final String changeMessage;
+        private final long submitted = System.currentTimeMillis();
+
+        PendingEvent(AbstractHistoryEvent event, int statusId, String changeMessage) {
+            this.event = event;
+            this.statusId = statusId;
+            this.changeMessage = changeMessage;
+        }
+    }
+}
@@ -39,6 +39,15 @@ public interface IMEFVisitor {
     public void handleMetadataFiles(DirectoryStream<Path> files, Element info,
                                     int index) throws Exception;
 
+    /**
+     * Prepare a record once its metadata and feature catalog files have been handled. Visitors
+     * reading several records concurrently call it from worker threads, so it must not depend on
+     * the other records. {@link #handleInfo(Element, int)} is always called afterwards, in
+     * archive order.
+     */
+    default void prepareRecord(Element info, int index) throws Exception {
+    }
+
     public void handleInfo(Element info, int index) throws Exception;
 
     public void handleFeatureCat(Element md, int index) throws Exception;
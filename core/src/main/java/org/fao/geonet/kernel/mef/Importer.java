@@ -24,6 +24,7 @@
 package org.fao.geonet.kernel.mef;
 
 import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import jeeves.server.ServiceConfig;
 import jeeves.server.context.ServiceContext;
@@ -59,6 +60,8 @@ import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 import static org.fao.geonet.domain.Localized.translationXmlToLangMap;
 
@@ -83,6 +86,22 @@ public class Importer {
     public static List<String> doImport(String fileType, final MEFLib.UuidAction uuidAction, final String style, final String source,
         final MetadataType isTemplate, final String[] category, final String groupId, final boolean validate, final boolean assign,
         final ServiceContext context, final Path mefFile) throws Exception {
+        return doImport(fileType, uuidAction, style, source, isTemplate, category, groupId, validate, assign, context, mefFile, 1, null);
+    }
+
+    /**
+     * Import the records of a MEF, ZIP or XML file.
+     *
+     * Records of a MEF2 file are parsed, transformed and validated by {@code threads} workers while
+     * they are stored one after the other in archive order. Stored records are indexed in bulk
+     * at the end of the import.
+     *
+     * @param threads  number of records prepared concurrently.
+     * @param listener notified with the id of each stored record. Can be null.
+     */
+    public static List<String> doImport(String fileType, final MEFLib.UuidAction uuidAction, final String style, final String source,
+        final MetadataType isTemplate, final String[] category, final String groupId, final boolean validate, final boolean assign,
+        final ServiceContext context, final Path mefFile, final int threads, final Consumer<String> listener) throws Exception {
         ApplicationContext applicationContext = ApplicationContextHolder.get();
         final DataManager dm = applicationContext.getBean(DataManager.class);
         final SettingManager sm = applicationContext.getBean(SettingManager.class);
@@ -91,8 +110,11 @@ public class Importer {
         String preferredSchema = applicationContext.getBean(ServiceConfig.class).getValue("preferredSchema", "iso19139");
 
         final List<String> metadataIdMap = new ArrayList<String>();
-        final List<Element> md = new ArrayList<Element>();
-        final List<Element> fc = new ArrayList<Element>();
+        // Records may be collected and prepared by several threads, they are removed once stored
+        final Map<Integer, Element> md = new ConcurrentHashMap<>();
+        final Map<Integer, Element> fc = new ConcurrentHashMap<>();
+        final Map<Integer, String> schemas = new ConcurrentHashMap<>();
+        final List<String> toIndex = new ArrayList<>();
 
         // Try to define MEF version from mef file not from parameter
         if (fileType.equals("mef")) {
@@ -109,352 +131,415 @@ public class Importer {
         else if (fileType.equals("mef"))
             visitor = new MEFVisitor();
         else if (fileType.equals("mef2"))
-            visitor = new MEF2Visitor();
+            visitor = new MEF2Visitor(threads);
         else
             throw new BadArgumentException("Bad file type parameter.");
 
         // --- import metadata from MEF, Xml, ZIP files
         final String finalPreferredSchema = preferredSchema;
-        MEFLib.visit(mefFile, visitor, new IMEFVisitor() {
+        try {
+            MEFLib.visit(mefFile, visitor, new IMEFVisitor() {
 
-            public void handleMetadata(Element metadata, int index) throws Exception {
-                if (Log.isDebugEnabled(Geonet.MEF))
-                    Log.debug(Geonet.MEF, "Collecting metadata:\n" + Xml.getString(metadata));
-                md.add(index, metadata);
-            }
+                public void handleMetadata(Element metadata, int index) throws Exception {
+                    if (Log.isDebugEnabled(Geonet.MEF))
+                        Log.debug(Geonet.MEF, "Collecting metadata:\n" + Xml.getString(metadata));
+                    md.put(index, metadata);
+                }
 
-            public void handleMetadataFiles(DirectoryStream<Path> metadataXmlFiles, Element info, int index) throws Exception {
-                String infoSchema = "_none_";
-                String uuid = null;
-                if (info != null && info.getContentSize() != 0) {
-                    Element general = info.getChild("general");
-                    if (general != null && general.getContentSize() != 0) {
-                        if (general.getChildText("schema") != null) {
-                            infoSchema = general.getChildText("schema");
-                        }
-                        if (general.getChildText("uuid") != null) {
-                            uuid = general.getChildText("uuid");
+                public void handleMetadataFiles(DirectoryStream<Path> metadataXmlFiles, Element info, int index) throws Exception {
+                    String infoSchema = "_none_";
+                    String uuid = null;
+                    if (info != null && info.getContentSize() != 0) {
+                        Element general = info.getChild("general");
+                        if (general != null && general.getContentSize() != 0) {
+                            if (general.getChildText("schema") != null) {
+                                infoSchema = general.getChildText("schema");
+                            }
+                            if (general.getChildText("uuid") != null) {
+                                uuid = general.getChildText("uuid");
+                            }
                         }
                     }
-                }
 
-                Path lastUnknownMetadataFolderName = null;
-                if (Log.isDebugEnabled(Geonet.MEF))
-                    Log.debug(Geonet.MEF, "info.xml says schema should be " + infoSchema);
+                    Path lastUnknownMetadataFolderName = null;
+                    if (Log.isDebugEnabled(Geonet.MEF))
+                        Log.debug(Geonet.MEF, "info.xml says schema should be " + infoSchema);
 
-                Element metadataValidForImport;
+                    Element metadataValidForImport;
 
-                Map<String, Pair<String, Element>> mdFiles = new HashMap<String, Pair<String, Element>>();
-                for (Path file : metadataXmlFiles) {
-                    if (file != null && java.nio.file.Files.isRegularFile(file)) {
-                        Element metadata = Xml.loadFile(file);
+                    Map<String, Pair<String, Element>> mdFiles = new HashMap<String, Pair<String, Element>>();
+                    for (Path file : metadataXmlFiles) {
+                        if (file != null && java.nio.file.Files.isRegularFile(file)) {
+                            Element metadata = Xml.loadFile(file);
 
-                        // Important folder name to identify metadata should be ../../
-                        lastUnknownMetadataFolderName = file.getParent().getParent().relativize(file);
+                            // Important folder name to identify metadata should be ../../
+                            lastUnknownMetadataFolderName = file.getParent().getParent().relativize(file);
 
-                        try {
-                            String metadataSchema = dm.autodetectSchema(metadata, null);
-                            // If local node doesn't know metadata
-                            // schema try to load next xml file.
-                            if (metadataSchema == null) {
-                                continue;
-                            }
+                            try {
+                                String metadataSchema = dm.autodetectSchema(metadata, null);
+                                // If local node doesn't know metadata
+                                // schema try to load next xml file.
+                                if (metadataSchema == null) {
+                                    continue;
+                                }
 
-                            String currFile = "Found metadata file " + file.getParent().getParent().relativize(file);
+                                String currFile = "Found metadata file " + file.getParent().getParent().relativize(file);
 
-                            mdFiles.put(metadataSchema, Pair.read(currFile, metadata));
+                                mdFiles.put(metadataSchema, Pair.read(currFile, metadata));
 
-                        } catch (NoSchemaMatchesException e) {
-                            Log.debug(Geonet.MEF, "No schema match for " + lastUnknownMetadataFolderName + ".");
+                            } catch (NoSchemaMatchesException e) {
+                                Log.debug(Geonet.MEF, "No schema match for " + lastUnknownMetadataFolderName + ".");
+                            }
                         }
                     }
-                }
 
-                if (mdFiles.size() == 0) {
-                    throw new BadFormatEx(uuid + " / No valid metadata file found" + ((lastUnknownMetadataFolderName == null) ?
-                        "" :
-                        (" in " + lastUnknownMetadataFolderName)) + ".");
-                }
+                    if (mdFiles.size() == 0) {
+                        throw new BadFormatEx(uuid + " / No valid metadata file found" + ((lastUnknownMetadataFolderName == null) ?
+                            "" :
+                            (" in " + lastUnknownMetadataFolderName)) + ".");
+                    }
 
-                // 1st: Select metadata with schema in info file
-                Pair<String, Element> mdInform = mdFiles.get(infoSchema);
-                if (mdInform != null) {
-                    if (Log.isDebugEnabled(Geonet.MEF)) {
-                        Log.debug(Geonet.MEF, mdInform.one() + " with info.xml schema (" + infoSchema + ").");
+                    // 1st: Select metadata with schema in info file
+                    Pair<String, Element> mdInform = mdFiles.get(infoSchema);
+                    if (mdInform != null) {
+                        if (Log.isDebugEnabled(Geonet.MEF)) {
+                            Log.debug(Geonet.MEF, mdInform.one() + " with info.xml schema (" + infoSchema + ").");
+                        }
+                        metadataValidForImport = mdInform.two();
+                        handleMetadata(metadataValidForImport, index);
+                        return;
                     }
-                    metadataValidForImport = mdInform.two();
-                    handleMetadata(metadataValidForImport, index);
-                    return;
-                }
 
-                // 2nd: Select metadata with preferredSchema
-                mdInform = mdFiles.get(finalPreferredSchema);
-                if (mdInform != null) {
+                    // 2nd: Select metadata with preferredSchema
+                    mdInform = mdFiles.get(finalPreferredSchema);
+                    if (mdInform != null) {
+                        if (Log.isDebugEnabled(Geonet.MEF)) {
+                            Log.debug(Geonet.MEF, mdInform.one() + " with preferred schema (" + finalPreferredSchema + ").");
+                        }
+                        metadataValidForImport = mdInform.two();
+                        handleMetadata(metadataValidForImport, index);
+                        return;
+                    }
+
+                    // Lastly: Select the first metadata in the map
+                    String metadataSchema = (String) mdFiles.keySet().toArray()[0];
+                    mdInform = mdFiles.get(metadataSchema);
                     if (Log.isDebugEnabled(Geonet.MEF)) {
-                        Log.debug(Geonet.MEF, mdInform.one() + " with preferred schema (" + finalPreferredSchema + ").");
+                        Log.debug(Geonet.MEF, mdInform.one() + " with known schema (" + metadataSchema + ").");
                     }
                     metadataValidForImport = mdInform.two();
+
+                    // Import valid metadata
                     handleMetadata(metadataValidForImport, index);
-                    return;
                 }
 
-                // Lastly: Select the first metadata in the map
-                String metadataSchema = (String) mdFiles.keySet().toArray()[0];
-                mdInform = mdFiles.get(metadataSchema);
-                if (Log.isDebugEnabled(Geonet.MEF)) {
-                    Log.debug(Geonet.MEF, mdInform.one() + " with known schema (" + metadataSchema + ").");
-                }
-                metadataValidForImport = mdInform.two();
+                // --------------------------------------------------------------------
 
-                // Import valid metadata
-                handleMetadata(metadataValidForImport, index);
-            }
+                public void handleFeatureCat(Element featureCat, int index) throws Exception {
+                    if (featureCat != null) {
+                        if (Log.isDebugEnabled(Geonet.MEF))
+                            Log.debug(Geonet.MEF, "Collecting feature catalog:\n" + Xml.getString(featureCat));
+                    }
+                    if (featureCat != null) {
+                        fc.put(index, featureCat);
+                    }
+                }
 
-            // --------------------------------------------------------------------
+                // --------------------------------------------------------------------
 
-            public void handleFeatureCat(Element featureCat, int index) throws Exception {
-                if (featureCat != null) {
-                    if (Log.isDebugEnabled(Geonet.MEF))
-                        Log.debug(Geonet.MEF, "Collecting feature catalog:\n" + Xml.getString(featureCat));
+                public void prepareRecord(Element info, int index) throws Exception {
+                    if (ServiceContext.get() != context) {
+                        context.setAsThreadLocal();
+                    }
+                    schemas.put(index, prepare(index));
                 }
-                fc.add(index, featureCat);
-            }
 
-            // --------------------------------------------------------------------
-
-            /**
-             * Record is not a template by default. No category attached to
-             * record by default. No stylesheet used by default. If no site
-             * identifier provided, use current node id by default. No
-             * validation by default.
-             * <p/>
-             * If record is a template and not a MEF file always generate a new
-             * UUID.
-             */
-            public void handleInfo(Element info, int index) throws Exception {
-                String uuid = null;
-                String createDate = null;
-                String changeDate = null;
-                String sourceName = null;
-                Map<String, String> sourceTranslations = Maps.newHashMap();
-                // Schema in info.xml is not used here anymore.
-                // It is used in handleMetadataFiles as the first option to pick a
-                // metadata file from those in a metadata dir in a MEF2
-                // String schema = null;
-                String rating = null;
-                String popularity = null;
-                Element categs = null;
-                final Element privileges;
-
-                // Apply a stylesheet transformation if requested
-
-                if (!style.equals("_none_")) {
-                    FilePathChecker.verify(style);
-
-                    final GeonetworkDataDirectory dataDirectory = applicationContext.getBean(GeonetworkDataDirectory.class);
-                    Path xsltPath = dataDirectory.getXsltConversion(style);
-                    if (Files.exists(xsltPath)) {
-                        md.add(index, Xml.transform(md.get(index), xsltPath));
-                    } else {
-                        throw new Exception(String.format("XSL transformation '%s' not found.", style));
+                /**
+                 * Apply the stylesheet transformation, detect the schema and validate the record if
+                 * requested. Does not depend on the other records and can run in parallel.
+                 *
+                 * @return the schema of the record.
+                 */
+                private String prepare(int index) throws Exception {
+                    // Apply a stylesheet transformation if requested
+
+                    if (!style.equals("_none_")) {
+                        FilePathChecker.verify(style);
+
+                        final GeonetworkDataDirectory dataDirectory = applicationContext.getBean(GeonetworkDataDirectory.class);
+                        Path xsltPath = dataDirectory.getXsltConversion(style);
+                        if (Files.exists(xsltPath)) {
+                            md.put(index, Xml.transform(md.get(index), xsltPath));
+                        } else {
+                            throw new Exception(String.format("XSL transformation '%s' not found.", style));
+                        }
                     }
-                }
 
-                final Element metadata = md.get(index);
-                String schema = dm.autodetectSchema(metadata, null);
+                    final Element metadata = md.get(index);
+                    String schema = dm.autodetectSchema(metadata, null);
 
-                if (schema == null)
-                    throw new Exception("Unknown schema");
+                    if (schema == null)
+                        throw new Exception("Unknown schema");
 
-                // Handle non MEF files insertion
-                if (info.getChildren().size() == 0) {
-                    if (category != null) {
-                        categs = new Element("categories");
-                        for (String c : category) {
-                            // TODO: convert id to name ?
-                            categs.addContent((new Element("category")).setAttribute("name", c));
+                    if (schema.startsWith("iso19139")) {
+                        // In GeoNetwork 3.x, links to resources changed:
+                        // * thumbnails contains full URL instead of file name only
+                        // * API mode change old URL structure.
+                        try {
+                            MetadataResourceDatabaseMigration.updateMetadataResourcesLink(metadata, null, sm);
+                        } catch (UnsupportedOperationException ex) {
+                            // Ignore, this is triggered when importing templates with empty gmd:fileIdentifier, should not fail.
                         }
                     }
-                    privileges = new Element("group");
-                    privileges.addContent(new Element("operation").setAttribute("name", "view"));
-                    privileges.addContent(new Element("operation").setAttribute("name", "editing"));
-                    privileges.addContent(new Element("operation").setAttribute("name", "download"));
-                    privileges.addContent(new Element("operation").setAttribute("name", "notify"));
-                    privileges.addContent(new Element("operation").setAttribute("name", "dynamic"));
-                    privileges.addContent(new Element("operation").setAttribute("name", "featured"));
-
-                    if (isTemplate == MetadataType.METADATA) {
-                        // Get the Metadata uuid if it's not a template.
-                        uuid = dm.extractUUID(schema, md.get(index));
-                    } else if (isTemplate == MetadataType.SUB_TEMPLATE) {
-                        // Get subtemplate uuid if defined in @uuid at root
-                        uuid = md.get(index).getAttributeValue("uuid");
-                    } else if (isTemplate == MetadataType.TEMPLATE_OF_SUB_TEMPLATE) {
-                        // Get subtemplate uuid if defined in @uuid at root
-                        uuid = md.get(index).getAttributeValue("uuid");
-                    }
-
-                } else {
-                    if (Log.isDebugEnabled(Geonet.MEF))
-                        Log.debug(Geonet.MEF, "Collecting info file:\n" + Xml.getString(info));
 
-                    categs = info.getChild("categories");
-                    privileges = info.getChild("privileges");
+                    if (validate) {
+                        Integer groupIdVal = null;
+                        if (org.apache.commons.lang.StringUtils.isNotEmpty(groupId)) {
+                            groupIdVal = Integer.parseInt(groupId);
+                        }
 
-                    Element general = info.getChild("general");
+                        // Validate xsd and schematron
+                        DataManager.validateExternalMetadata(schema, metadata, context, groupIdVal);
+                    }
+                    return schema;
+                }
 
-                    uuid = general.getChildText("uuid");
-                    createDate = general.getChildText("createDate");
-                    changeDate = general.getChildText("changeDate");
-                    // If "assign" checkbox is set to true, we assign the metadata to the current catalog siteID/siteName
-                    if (assign) {
-                        if (Log.isDebugEnabled(Geonet.MEF)) {
-                            Log.debug(Geonet.MEF, "Assign to local catalog");
+                // --------------------------------------------------------------------
+
+                /**
+                 * Record is not a template by default. No category attached to
+                 * record by default. No stylesheet used by default. If no site
+                 * identifier provided, use current node id by default. No
+                 * validation by default.
+                 * <p/>
+                 * If record is a template and not a MEF file always generate a new
+                 * UUID.
+                 */
+                public void handleInfo(Element info, int index) throws Exception {
+                    String uuid = null;
+                    String createDate = null;
+                    String changeDate = null;
+                    String sourceName = null;
+                    Map<String, String> sourceTranslations = Maps.newHashMap();
+                    // Schema in info.xml is not used here anymore.
+                    // It is used in handleMetadataFiles as the first option to pick a
+                    // metadata file from those in a metadata dir in a MEF2
+                    // String schema = null;
+                    String rating = null;
+                    String popularity = null;
+                    Element categs = null;
+                    final Element privileges;
+
+                    // Records not read by a MEF2 visitor are prepared here
+                    String schema = schemas.remove(index);
+                    if (schema == null) {
+                        schema = prepare(index);
+                    }
+                    final Element metadata = md.remove(index);
+                    Element featureCat = fc.remove(index);
+
+                    // Handle non MEF files insertion
+                    if (info.getChildren().size() == 0) {
+                        if (category != null) {
+                            categs = new Element("categories");
+                            for (String c : category) {
+                                // TODO: convert id to name ?
+                                categs.addContent((new Element("category")).setAttribute("name", c));
+                            }
+                        }
+                        privileges = new Element("group");
+                        privileges.addContent(new Element("operation").setAttribute("name", "view"));
+                        privileges.addContent(new Element("operation").setAttribute("name", "editing"));
+                        privileges.addContent(new Element("operation").setAttribute("name", "download"));
+                        privileges.addContent(new Element("operation").setAttribute("name", "notify"));
+                        privileges.addContent(new Element("operation").setAttribute("name", "dynamic"));
+                        privileges.addContent(new Element("operation").setAttribute("name", "featured"));
+
+                        if (isTemplate == MetadataType.METADATA) {
+                            // Get the Metadata uuid if it's not a template.
+                            uuid = dm.extractUUID(schema, metadata);
+                        } else if (isTemplate == MetadataType.SUB_TEMPLATE) {
+                            // Get subtemplate uuid if defined in @uuid at root
+                            uuid = metadata.getAttributeValue("uuid");
+                        } else if (isTemplate == MetadataType.TEMPLATE_OF_SUB_TEMPLATE) {
+                            // Get subtemplate uuid if defined in @uuid at root
+                            uuid = metadata.getAttributeValue("uuid");
                         }
+
                     } else {
-                        // --- If siteId is not set, set to current node
-                        sourceName = general.getChildText("siteName");
-                        sourceTranslations = translationXmlToLangMap(general.getChildren("siteTranslations"));
                         if (Log.isDebugEnabled(Geonet.MEF))
-                            Log.debug(Geonet.MEF, "Assign to catalog: " + source);
+                            Log.debug(Geonet.MEF, "Collecting info file:\n" + Xml.getString(info));
+
+                        categs = info.getChild("categories");
+                        privileges = info.getChild("privileges");
+
+                        Element general = info.getChild("general");
+
+                        uuid = general.getChildText("uuid");
+                        createDate = general.getChildText("createDate");
+                        changeDate = general.getChildText("changeDate");
+                        // If "assign" checkbox is set to true, we assign the metadata to the current catalog siteID/siteName
+                        if (assign) {
+                            if (Log.isDebugEnabled(Geonet.MEF)) {
+                                Log.debug(Geonet.MEF, "Assign to local catalog");
+                            }
+                        } else {
+                            // --- If siteId is not set, set to current node
+                            sourceName = general.getChildText("siteName");
+                            sourceTranslations = translationXmlToLangMap(general.getChildren("siteTranslations"));
+                            if (Log.isDebugEnabled(Geonet.MEF))
+                                Log.debug(Geonet.MEF, "Assign to catalog: " + source);
+                        }
+                        rating = general.getChildText("rating");
+                        popularity = general.getChildText("popularity");
                     }
-                    rating = general.getChildText("rating");
-                    popularity = general.getChildText("popularity");
-                }
 
-                if (schema.startsWith("iso19139")) {
-                    // In GeoNetwork 3.x, links to resources changed:
-                    // * thumbnails contains full URL instead of file name only
-                    // * API mode change old URL structure.
+                    // Only keep the record in memory until it is stored
+                    List<String> recordId = new ArrayList<>(1);
                     try {
-                        MetadataResourceDatabaseMigration.updateMetadataResourcesLink(metadata, null, sm);
-                    } catch (UnsupportedOperationException ex) {
-                        // Ignore, this is triggered when importing templates with empty gmd:fileIdentifier, should not fail.
+                        importRecord(uuid, uuidAction, Lists.newArrayList(metadata), schema, 0, source, sourceName, sourceTranslations,
+                            context, recordId, createDate, changeDate, groupId, isTemplate);
+                        metadataIdMap.add(index, recordId.get(0));
+                    } catch (Exception e) {
+                        throw new Exception("Failed to import metadata with uuid '" + uuid + "'. " + e.getLocalizedMessage(), e);
                     }
-                }
 
-                if (validate) {
-                    Integer groupIdVal = null;
-                    if (org.apache.commons.lang.StringUtils.isNotEmpty(groupId)) {
-                        groupIdVal = Integer.parseInt(groupId);
-                    }
+                    String fcId = null;
+                    if (featureCat != null) {
+                        // UUID is set as @uuid in root element
+                        uuid = UUID.randomUUID().toString();
 
-                    // Validate xsd and schematron
-                    DataManager.validateExternalMetadata(schema, metadata, context, groupIdVal);
-                }
+                        featureCat = dm.setUUID("iso19110", uuid, featureCat);
 
-                try {
-                    importRecord(uuid, uuidAction, md, schema, index, source, sourceName, sourceTranslations, context, metadataIdMap,
-                        createDate, changeDate, groupId, isTemplate);
-                } catch (Exception e) {
-                    throw new Exception("Failed to import metadata with uuid '" + uuid + "'. " + e.getLocalizedMessage(), e);
-                }
+                        //
+                        // insert metadata
+                        //
+                        int userid = context.getUserSession().getUserIdAsInt();
+                        String group = null, docType = null, title = null, category = null;
+                        boolean ufo = false;
+                        fcId = dm
+                            .insertMetadata(context, "iso19110", featureCat, uuid, userid, group, source, isTemplate.codeString, docType,
+                                category, createDate, changeDate, ufo, IndexingMode.full);
 
-                if (fc.size() != 0 && fc.get(index) != null) {
-                    // UUID is set as @uuid in root element
-                    uuid = UUID.randomUUID().toString();
+                        if (Log.isDebugEnabled(Geonet.MEF))
+                            Log.debug(Geonet.MEF, "Adding Feature catalog with uuid: " + uuid);
 
-                    fc.add(index, dm.setUUID("iso19110", uuid, fc.get(index)));
+                        // Create database relation between metadata and feature
+                        // catalog
+                        String mdId = metadataIdMap.get(index);
 
-                    //
-                    // insert metadata
-                    //
-                    int userid = context.getUserSession().getUserIdAsInt();
-                    String group = null, docType = null, title = null, category = null;
-                    boolean ufo = false;
-                    String fcId = dm
-                        .insertMetadata(context, "iso19110", fc.get(index), uuid, userid, group, source, isTemplate.codeString, docType,
-                            category, createDate, changeDate, ufo, IndexingMode.full);
+                        final MetadataRelationRepository relationRepository = context.getBean(MetadataRelationRepository.class);
+                        final MetadataRelation relation = new MetadataRelation();
+                        relation.setId(new MetadataRelationId(Integer.valueOf(mdId), Integer.valueOf(fcId)));
 
-                    if (Log.isDebugEnabled(Geonet.MEF))
-                        Log.debug(Geonet.MEF, "Adding Feature catalog with uuid: " + uuid);
+                        relationRepository.save(relation);
 
-                    // Create database relation between metadata and feature
-                    // catalog
-                    String mdId = metadataIdMap.get(index);
+                        metadataIdMap.add(fcId);
+                        // TODO : privileges not handled for feature catalog ...
+                    }
 
-                    final MetadataRelationRepository relationRepository = context.getBean(MetadataRelationRepository.class);
-                    final MetadataRelation relation = new MetadataRelation();
-                    relation.setId(new MetadataRelationId(Integer.valueOf(mdId), Integer.valueOf(fcId)));
+                    final int iMetadataId = Integer.valueOf(metadataIdMap.get(index));
+
+                    final String finalPopularity = popularity;
+                    final String finalRating = rating;
+                    final Element finalCategs = categs;
+                    final String finalGroupId = groupId;
+                    context.getBean(IMetadataManager.class).update(iMetadataId, new Updater<Metadata>() {
+                        @Override public void apply(@Nonnull final Metadata metadata) {
+                            final MetadataDataInfo dataInfo = metadata.getDataInfo();
+                            if (finalPopularity != null) {
+                                dataInfo.setPopularity(Integer.valueOf(finalPopularity));
+                            }
+                            if (finalRating != null) {
+                                dataInfo.setRating(Integer.valueOf(finalRating));
+                            }
+                            dataInfo.setType(isTemplate);
 
-                    relationRepository.save(relation);
+                            metadata.getHarvestInfo().setHarvested(false);
 
-                    metadataIdMap.add(fcId);
-                    // TODO : privileges not handled for feature catalog ...
-                }
+                            addCategoriesToMetadata(metadata, finalCategs, context);
 
-                final int iMetadataId = Integer.valueOf(metadataIdMap.get(index));
-
-                final String finalPopularity = popularity;
-                final String finalRating = rating;
-                final Element finalCategs = categs;
-                final String finalGroupId = groupId;
-                context.getBean(IMetadataManager.class).update(iMetadataId, new Updater<Metadata>() {
-                    @Override public void apply(@Nonnull final Metadata metadata) {
-                        final MetadataDataInfo dataInfo = metadata.getDataInfo();
-                        if (finalPopularity != null) {
-                            dataInfo.setPopularity(Integer.valueOf(finalPopularity));
-                        }
-                        if (finalRating != null) {
-                            dataInfo.setRating(Integer.valueOf(finalRating));
-                        }
-                        dataInfo.setType(isTemplate);
 
-                        metadata.getHarvestInfo().setHarvested(false);
+                            if (finalGroupId == null || finalGroupId.equals("")) {
+                                Group ownerGroup = addPrivileges(context, dm, iMetadataId, privileges);
+                                if (ownerGroup != null) {
+                                    metadata.getSourceInfo().setGroupOwner(ownerGroup.getId());
+                                }
+                            } else {
+                                final OperationAllowedRepository allowedRepository = context.getBean(OperationAllowedRepository.class);
+                                final Set<OperationAllowed> allowedSet = addOperations(context, dm, privileges, iMetadataId,
+                                    Integer.valueOf(finalGroupId));
+                                allowedRepository.saveAll(allowedSet);
+                            }
+                        }
+                    });
 
-                        addCategoriesToMetadata(metadata, finalCategs, context);
+                    if (validate) {
+                        java.util.Optional<Metadata> md = context.getBean(MetadataRepository.class).findById(iMetadataId);
 
+                        if (md.isPresent()) {
+                            // Persist the validation status
+                            IMetadataValidator metadataValidator = context.getBean(IMetadataValidator.class);
 
-                        if (finalGroupId == null || finalGroupId.equals("")) {
-                            Group ownerGroup = addPrivileges(context, dm, iMetadataId, privileges);
-                            if (ownerGroup != null) {
-                                metadata.getSourceInfo().setGroupOwner(ownerGroup.getId());
-                            }
-                        } else {
-                            final OperationAllowedRepository allowedRepository = context.getBean(OperationAllowedRepository.class);
-                            final Set<OperationAllowed> allowedSet = addOperations(context, dm, privileges, iMetadataId,
-                                Integer.valueOf(finalGroupId));
-                            allowedRepository.saveAll(allowedSet);
+                            metadataValidator.doValidate(md.get(), context.getLanguage());
                         }
                     }
-                });
 
-                if (validate) {
-                    java.util.Optional<Metadata> md = context.getBean(MetadataRepository.class).findById(iMetadataId);
-
-                    if (md.isPresent()) {
-                        // Persist the validation status
-                        IMetadataValidator metadataValidator = context.getBean(IMetadataValidator.class);
-
-                        metadataValidator.doValidate(md.get(), context.getLanguage());
+                    // Records are indexed in bulk once the import is done
+                    toIndex.add(metadataIdMap.get(index));
+                    if (listener != null) {
+                        listener.accept(metadataIdMap.get(index));
+                        if (fcId != null) {
+                            listener.accept(fcId);
+                        }
                     }
                 }
 
-                dm.indexMetadata(metadataIdMap.get(index), true);
-            }
-
-            // --------------------------------------------------------------------
+                // --------------------------------------------------------------------
 
-            public void handlePublicFile(String file, String changeDate, InputStream is, int index) throws Exception {
-                if (Log.isDebugEnabled(Geonet.MEF)) {
-                    Log.debug(Geonet.MEF, "Adding public file with name=" + file);
+                public void handlePublicFile(String file, String changeDate, InputStream is, int index) throws Exception {
+                    if (Log.isDebugEnabled(Geonet.MEF)) {
+                        Log.debug(Geonet.MEF, "Adding public file with name=" + file);
+                    }
+                    saveFile(context, metadataIdMap.get(index), MetadataResourceVisibility.PUBLIC, file, changeDate, is);
                 }
-                saveFile(context, metadataIdMap.get(index), MetadataResourceVisibility.PUBLIC, file, changeDate, is);
-            }
 
-            // --------------------------------------------------------------------
+                // --------------------------------------------------------------------
 
-            public void handlePrivateFile(String file, String changeDate, InputStream is, int index) throws Exception {
-                if (Log.isDebugEnabled(Geonet.MEF))
-                    Log.debug(Geonet.MEF, "Adding private file with name=" + file);
-                saveFile(context, metadataIdMap.get(index), MetadataResourceVisibility.PRIVATE, file, changeDate, is);
-            }
+                public void handlePrivateFile(String file, String changeDate, InputStream is, int index) throws Exception {
+                    if (Log.isDebugEnabled(Geonet.MEF))
+                        Log.debug(Geonet.MEF, "Adding private file with name=" + file);
+                    saveFile(context, metadataIdMap.get(index), MetadataResourceVisibility.PRIVATE, file, changeDate, is);
+                }
 
-        });
+            });
+        } finally {
+            indexRecords(dm, toIndex);
+        }
 
         return metadataIdMap;
     }
 
+    /**
+     * Index the stored records in bulk requests and refresh the index once, instead of
+     * refreshing it after each record. Also called when the import fails to index the records
+     * stored so far.
+     */
+    private static void indexRecords(DataManager dm, List<String> ids) {
+        for (String id : ids) {
+            try {
+                dm.indexMetadata(id, false);
+            } catch (Exception e) {
+                Log.error(Geonet.MEF, "Error while indexing imported record " + id + ". Error is: " + e.getMessage(), e);
+            }
+        }
+        try {
+            dm.forceIndexChanges();
+        } catch (Exception e) {
+            Log.error(Geonet.MEF, "Error while sending imported records to the index. Error is: " + e.getMessage(), e);
+        }
+    }
+
     public static void addCategoriesToMetadata(AbstractMetadata metadata, Element finalCategs, ServiceContext context) {
         if (finalCategs != null) {
             final MetadataCategoryRepository categoryRepository = context.getBean(MetadataCategoryRepository.class);
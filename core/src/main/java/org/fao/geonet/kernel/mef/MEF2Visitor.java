@@ -23,6 +23,7 @@
 
 package org.fao.geonet.kernel.mef;
 
+import com.google.common.util.concurrent.MoreExecutors;
 import org.fao.geonet.Logger;
 import org.fao.geonet.constants.Geonet;
 import org.fao.geonet.exceptions.BadFormatEx;
@@ -31,6 +32,7 @@ import org.fao.geonet.utils.IO;
 import org.fao.geonet.utils.Log;
 import org.fao.geonet.utils.Xml;
 import org.jdom.Element;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -38,8 +40,15 @@ import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystem;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.fao.geonet.kernel.mef.MEFConstants.FILE_INFO;
 
@@ -48,6 +57,20 @@ import static org.fao.geonet.kernel.mef.MEFConstants.FILE_INFO;
  */
 public class MEF2Visitor implements IVisitor {
 
+    private final int threads;
+
+    public MEF2Visitor() {
+        this(1);
+    }
+
+    /**
+     * @param threads number of records read and prepared concurrently. Records are always handed
+     *                over to {@link IMEFVisitor#handleInfo(Element, int)} in archive order.
+     */
+    public MEF2Visitor(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
     public void visit(Path mefFile, IMEFVisitor v) throws Exception {
         handleXml(mefFile, v);
     }
@@ -55,14 +78,14 @@ public class MEF2Visitor implements IVisitor {
     /**
      * Read the input MEF file and for each metadata found, check structure for metadata.xml,
      * info.xml and optional feature catalogue files.
+     *
+     * Entries are read in place from the archive. Metadata, feature catalog and info files of the
+     * next records are parsed and prepared in parallel while the current record is handled.
      */
     public Element handleXml(Path mefFile, IMEFVisitor v) throws Exception {
 
         Logger log = Log.createLogger(Geonet.MEF);
 
-        int nbMetadata = 0;
-        Element fc;
-
         Element info = new Element("info");
 
 
@@ -72,51 +95,85 @@ public class MEF2Visitor implements IVisitor {
             if (IO.isEmptyDir(root)) {
                 log.debug("Metadata folder is directly under the unzip temporary folder.");
             } else {
+                List<Path> records = new ArrayList<>();
                 try (DirectoryStream<Path> paths = Files.newDirectoryStream(root)) {
                     for (Path file : paths) {
                         if (Files.isDirectory(file)) {
-                            // Handle metadata file
-                            Path metadataDir = file.resolve("metadata");
-
-                            if (IO.isEmptyDir(metadataDir)) {
-                                throw new BadFormatEx(
-                                    "Missing XML document in metadata folder " + metadataDir + " in MEF file "
-                                        + mefFile + ".");
-                            }
-
-                            // Handle feature catalog
-                            Path fcFile = getFeatureCalalogFile(file);
-                            if (fcFile != null) {
-                                fc = Xml.loadFile(fcFile);
-                            } else {
-                                fc = null;
-                            }
-
-                            // Handle info file
-                            Path fileInfo = file.resolve(FILE_INFO);
-                            if (Files.exists(fileInfo)) {
-                                info = Xml.loadFile(fileInfo);
-                            }
-
-                            try (DirectoryStream<Path> xmlFiles = Files.newDirectoryStream(metadataDir)) {
-                                v.handleMetadataFiles(xmlFiles, info, nbMetadata);
-                            }
-                            v.handleFeatureCat(fc, nbMetadata);
-                            v.handleInfo(info, nbMetadata);
-
-                            // Handle binaries
-                            handleBin(file, v, info, nbMetadata);
-
-                            nbMetadata++;
+                            records.add(file);
                         }
                     }
                 }
+
+                ExecutorService executor = threads > 1 ?
+                    new DelegatingSecurityContextExecutorService(Executors.newFixedThreadPool(threads)) :
+                    MoreExecutors.newDirectExecutorService();
+                Deque<Future<Element>> pending = new ArrayDeque<>();
+                // Sequential visits keep the read / handle order of each record
+                int maxPending = threads > 1 ? threads * 2 : 1;
+                int submitted = 0;
+                try {
+                    for (int nbMetadata = 0; nbMetadata < records.size(); nbMetadata++) {
+                        while (submitted < records.size() && pending.size() < maxPending) {
+                            final Path file = records.get(submitted);
+                            final int index = submitted;
+                            pending.add(executor.submit(() -> readRecord(mefFile, file, v, index)));
+                            submitted++;
+                        }
+                        info = await(pending.poll());
+                        v.handleInfo(info, nbMetadata);
+
+                        // Handle binaries
+                        handleBin(records.get(nbMetadata), v, info, nbMetadata);
+                    }
+                } finally {
+                    executor.shutdownNow();
+                }
             }
         }
 
         return info;
     }
 
+    /**
+     * Load the metadata, feature catalog and info files of a record folder and let the visitor
+     * prepare it.
+     *
+     * @return the info file of the record.
+     */
+    private Element readRecord(Path mefFile, Path file, IMEFVisitor v, int index) throws Exception {
+        // Handle metadata file
+        Path metadataDir = file.resolve("metadata");
+
+        if (IO.isEmptyDir(metadataDir)) {
+            throw new BadFormatEx(
+                "Missing XML document in metadata folder " + metadataDir + " in MEF file "
+                    + mefFile + ".");
+        }
+
+        // Handle feature catalog
+        Path fcFile = getFeatureCalalogFile(file);
+        Element fc = fcFile != null ? Xml.loadFile(fcFile) : null;
+
+        // Handle info file
+        Path fileInfo = file.resolve(FILE_INFO);
+        Element info = Files.exists(fileInfo) ? Xml.loadFile(fileInfo) : new Element("info");
+
+        try (DirectoryStream<Path> xmlFiles = Files.newDirectoryStream(metadataDir)) {
+            v.handleMetadataFiles(xmlFiles, info, index);
+        }
+        v.handleFeatureCat(fc, index);
+        v.prepareRecord(info, index);
+        return info;
+    }
+
+    private static Element await(Future<Element> record) throws Exception {
+        try {
+            return record.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
     /**
      * Check binary files to import.
      */
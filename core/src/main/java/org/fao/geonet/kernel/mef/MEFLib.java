@@ -41,6 +41,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -111,6 +112,28 @@ public class MEFLib {
         return Importer.doImport(fileType, uuidAction, style, source, isTemplate, category, groupId, validate, assign, context, mefFile);
     }
 
+    /**
+     * Import a MEF file preparing {@code threads} records concurrently.
+     *
+     * @see Importer#doImport(String, UuidAction, String, String, MetadataType, String[], String, boolean, boolean, ServiceContext, Path, int, Consumer)
+     */
+    public static List<String> doImport(String fileType,
+                                        final MEFLib.UuidAction uuidAction,
+                                        final String style,
+                                        final String source,
+                                        final MetadataType isTemplate,
+                                        final String[] category,
+                                        final String groupId,
+                                        final boolean validate,
+                                        final boolean assign,
+                                        final ServiceContext context,
+                                        final Path mefFile,
+                                        final int threads,
+                                        final Consumer<String> listener) throws Exception {
+        return Importer.doImport(fileType, uuidAction, style, source, isTemplate, category, groupId, validate, assign, context, mefFile,
+            threads, listener);
+    }
+
     public static List<String> doImport(Element params, ServiceContext context, Path mefFile, Path stylePath) throws Exception {
         return Importer.doImport(params, context, mefFile, stylePath);
     }
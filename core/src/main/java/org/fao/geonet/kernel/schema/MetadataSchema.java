@@ -64,6 +64,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import javax.xml.bind.JAXBContext;
@@ -91,6 +92,7 @@ public class MetadataSchema {
     private Map<String, Namespace> hmPrefixes = new HashMap<String, Namespace>();
     private Map<String, Pair<String, Element>> hmOperationFilters =
         new HashMap<String, Pair<String, Element>>();
+    private Map<String, Element> hmEditChildTemplates = new ConcurrentHashMap<String, Element>();
     private String schemaName;
     private Path schemaDir;
     private String standardUrl;
@@ -284,6 +286,25 @@ public class MetadataSchema {
         return childValues.get(0);
     }
 
+    //---------------------------------------------------------------------------
+
+    /**
+     * Returns a geonet:child element built by the editor for a child of an element (see EditLib).
+     * It only depends on the schema definition and suggestions, so it is built once and cloned
+     * when a record is expanded for editing.
+     *
+     * @param key parent and child names with the child cardinality
+     * @return the template which MUST NOT be modified, or null if not yet built
+     */
+    @JsonIgnore
+    public Element getEditChildTemplate(String key) {
+        return hmEditChildTemplates.get(key);
+    }
+
+    public void putEditChildTemplate(String key, Element template) {
+        hmEditChildTemplates.put(key, template);
+    }
+
     //---------------------------------------------------------------------------
     //---
     //--- Package protected API methods
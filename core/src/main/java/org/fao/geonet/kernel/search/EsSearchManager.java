@@ -28,30 +28,50 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
+import com.yammer.metrics.core.DummyMeter;
+import com.yammer.metrics.core.Meter;
+import jeeves.monitor.MonitorManager;
 import jeeves.server.UserSession;
 import jeeves.server.context.ServiceContext;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
+import org.elasticsearch.ElasticsearchStatusException;
 import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
 import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.elasticsearch.action.admin.indices.forcemerge.ForceMergeRequest;
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsRequest;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
 import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.support.WriteRequest;
 import org.elasticsearch.action.support.master.AcknowledgedResponse;
 import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.action.update.UpdateResponse;
+import org.elasticsearch.client.GetAliasesResponse;
 import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.indices.CreateIndexRequest;
 import org.elasticsearch.client.indices.CreateIndexResponse;
 import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.index.query.QueryStringQueryBuilder;
 import org.elasticsearch.index.reindex.DeleteByQueryRequest;
 import org.elasticsearch.script.Script;
 import org.elasticsearch.script.ScriptType;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.sort.FieldSortBuilder;
 import org.elasticsearch.search.sort.SortBuilder;
 import org.fao.geonet.ApplicationContextHolder;
@@ -64,8 +84,10 @@ import org.fao.geonet.kernel.SelectionManager;
 import org.fao.geonet.kernel.datamanager.IMetadataUtils;
 import org.fao.geonet.kernel.search.index.OverviewIndexFieldUpdater;
 import org.fao.geonet.kernel.setting.SettingInfo;
+import org.fao.geonet.monitor.index.IndexBulkDocumentsMeter;
 import org.fao.geonet.repository.SourceRepository;
 import org.fao.geonet.repository.specification.MetadataSpecs;
+import org.fao.geonet.util.ThreadUtils;
 import org.fao.geonet.utils.Xml;
 import org.jdom.Element;
 import org.jdom.JDOMException;
@@ -75,13 +97,27 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.jpa.domain.Specification;
 
+import javax.annotation.PostConstruct;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
 
 import static org.elasticsearch.rest.RestStatus.CREATED;
 import static org.elasticsearch.rest.RestStatus.OK;
@@ -98,6 +134,17 @@ public class EsSearchManager implements ISearchManager {
     public static final String SCHEMA_INDEX_XSLT_FOLDER = "index-fields";
     public static final String SCHEMA_INDEX_XSTL_FILENAME = "index.xsl";
     public static final String SCHEMA_INDEX_SUBTEMPLATE_XSTL_FILENAME = "index-subtemplate.xsl";
+
+    /**
+     * Maximum number of records removed from the index in one delete by query.
+     */
+    private static final int DELETE_BATCH_SIZE = 500;
+
+    private static final String REFRESH_INTERVAL = "index.refresh_interval";
+    private static final String NUMBER_OF_REPLICAS = "index.number_of_replicas";
+
+    private static final long BULK_FLUSH_TIMEOUT_MINUTES = 30;
+
     public static final String FIELDNAME = "name";
     public static final String FIELDSTRING = "string";
 
@@ -181,6 +228,49 @@ public class EsSearchManager implements ISearchManager {
     @Autowired
     OverviewIndexFieldUpdater overviewFieldUpdater;
 
+    @Autowired(required = false)
+    private MonitorManager monitorManager;
+
+    /**
+     * Refresh applied when a single record is indexed, eg. after an edit,
+     * so that the user can search for the changes right away.
+     */
+    @Value("${es.index.refresh.interactive:IMMEDIATE}")
+    private WriteRequest.RefreshPolicy interactiveRefreshPolicy = WriteRequest.RefreshPolicy.IMMEDIATE;
+
+    /**
+     * Refresh applied to the bulk requests of batches (eg. harvesting, batch editing, reindexing).
+     * With NONE, the index is refreshed once by {@link #forceIndexChanges()}.
+     */
+    @Value("${es.index.refresh.batch:NONE}")
+    private WriteRequest.RefreshPolicy batchRefreshPolicy = WriteRequest.RefreshPolicy.NONE;
+
+    private final AtomicBoolean refreshNeeded = new AtomicBoolean(false);
+
+    /**
+     * Records sent without refresh. Their overview is added once the index is refreshed
+     * as the overview updater searches for the records to update.
+     */
+    private final Set<String> overviewsAfterRefresh = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Number of seconds the fields of a document returned by {@link #getDocumentsFields(Collection, Set)}
+     * are kept in memory (0 to disable) and maximum number of documents kept.
+     */
+    @Value("${es.index.fieldsCache.ttl:10}")
+    private int fieldsCacheTtl = 10;
+
+    @Value("${es.index.fieldsCache.maxsize:5000}")
+    private int fieldsCacheMaxSize = 5000;
+
+    private Cache<FieldsCacheKey, Map<String, Object>> fieldsCache;
+
+    /**
+     * Incremented each time a write to the index completes. Part of the key of the
+     * fields cache so that values read before a change are not returned after it.
+     */
+    private final AtomicLong indexVersion = new AtomicLong();
+
     private int commitInterval = 200;
 
     // public for test, to be private or protected
@@ -188,6 +278,49 @@ public class EsSearchManager implements ISearchManager {
         Collections.synchronizedMap(new HashMap<>());
     private Map<String, String> indexList;
 
+    /**
+     * Name of the index loaded by {@link #rebuildIndexWithAliasSwap(ServiceContext)}
+     * or null if no such rebuild is running.
+     */
+    private volatile String rebuildIndexName;
+
+    /**
+     * True for the threads loading the new index during a rebuild with alias swap.
+     * Documents indexed by those threads go to the new index, others go to the live one.
+     */
+    private final ThreadLocal<Boolean> rebuildThread = ThreadLocal.withInitial(() -> false);
+
+    private final Map<String, String> listOfDocumentsToRebuild = new HashMap<>();
+
+    /**
+     * Records indexed or updated, and delete queries run, by other threads
+     * while a rebuild with alias swap is running. They are replayed on the new index
+     * in the order they were made.
+     */
+    private final Queue<RebuildChange> changesDuringRebuild = new ConcurrentLinkedQueue<>();
+    private final Set<String> rebuiltDocuments = ConcurrentHashMap.newKeySet();
+
+    /**
+     * A document indexed or a delete query run on the live index during a rebuild.
+     */
+    private static class RebuildChange {
+        private final String id;
+        private final String deleteQuery;
+
+        private RebuildChange(String id, String deleteQuery) {
+            this.id = id;
+            this.deleteQuery = deleteQuery;
+        }
+
+        static RebuildChange indexed(String id) {
+            return new RebuildChange(id, null);
+        }
+
+        static RebuildChange deleted(String query) {
+            return new RebuildChange(null, query);
+        }
+    }
+
     private Path getXSLTForIndexing(Path schemaDir, MetadataType metadataType) {
         Path xsltForIndexing = schemaDir
             .resolve(SCHEMA_INDEX_XSLT_FOLDER)
@@ -241,6 +374,16 @@ public class EsSearchManager implements ISearchManager {
     }
 
 
+    @PostConstruct
+    public void initFieldsCache() {
+        if (fieldsCacheTtl > 0) {
+            fieldsCache = CacheBuilder.newBuilder()
+                .maximumSize(fieldsCacheMaxSize)
+                .expireAfterWrite(fieldsCacheTtl, TimeUnit.SECONDS)
+                .build();
+        }
+    }
+
     @Override
     public void init(boolean dropIndexFirst, Optional<List<String>> indices) throws Exception {
         if (indexList != null) {
@@ -265,11 +408,15 @@ public class EsSearchManager implements ISearchManager {
     private void createIndex(String indexId, String indexName, boolean dropIndexFirst) throws IOException {
         if (dropIndexFirst) {
             try {
-                DeleteIndexRequest request = new DeleteIndexRequest(indexName);
+                // The index may be an alias set by a rebuild with alias swap
+                Set<String> aliasedIndices = getAliasedIndices(indexName);
+                DeleteIndexRequest request = new DeleteIndexRequest(aliasedIndices.isEmpty() ?
+                    new String[]{indexName} : aliasedIndices.toArray(new String[0]));
                 AcknowledgedResponse deleteIndexResponse = client.getClient().indices().delete(request, RequestOptions.DEFAULT);
                 if (deleteIndexResponse.isAcknowledged()) {
                     LOGGER.debug("Index '{}' removed.", new Object[]{indexName});
                 }
+                indexChanged();
             } catch (Exception e) {
                 // index does not exist ?
                 LOGGER.debug("Error during index '{}' removal. Error is: {}", new Object[]{indexName, e.getMessage()});
@@ -327,9 +474,14 @@ public class EsSearchManager implements ISearchManager {
     }
 
     public UpdateResponse updateFields(String id, Map<String, Object> fields) throws Exception {
+        trackChange(id);
         fields.put("indexingDate", new Date());
         UpdateRequest updateRequest = new UpdateRequest(defaultIndex, id).doc(fields);
-        return client.getClient().update(updateRequest, RequestOptions.DEFAULT);
+        try {
+            return client.getClient().update(updateRequest, RequestOptions.DEFAULT);
+        } finally {
+            indexChanged();
+        }
     }
 
     public BulkResponse updateFields(String id, Multimap<String, Object> fields, Set<String> fieldsToRemove) throws Exception {
@@ -338,6 +490,7 @@ public class EsSearchManager implements ISearchManager {
         return updateFields(id, fieldMap, fieldsToRemove);
     }
     public BulkResponse updateFields(String id, Map<String, Object> fieldMap, Set<String> fieldsToRemove) throws Exception {
+        trackChange(id);
         fieldMap.put("indexingDate", new Date());
         BulkRequest bulkrequest = new BulkRequest();
         StringBuffer script = new StringBuffer();
@@ -353,19 +506,58 @@ public class EsSearchManager implements ISearchManager {
         UpdateRequest addFieldRequest = new UpdateRequest(defaultIndex, id)
             .doc(fieldMap);
         bulkrequest.add(addFieldRequest);
-        return client.getClient().bulk(bulkrequest, RequestOptions.DEFAULT);
+        try {
+            return client.getClient().bulk(bulkrequest, RequestOptions.DEFAULT);
+        } finally {
+            indexChanged();
+        }
+    }
+
+    /**
+     * Partially update a set of documents in one bulk request. For each document,
+     * one scripted update removes the fields to remove and then sets the new values.
+     *
+     * @param documents      the fields to set per document id
+     * @param fieldsToRemove the fields to remove from each document before setting the new values
+     */
+    public BulkResponse updateFields(Map<String, Multimap<String, Object>> documents, Set<String> fieldsToRemove) throws Exception {
+        StringBuilder script = new StringBuilder();
+        fieldsToRemove.forEach(f ->
+            script.append(String.format("ctx._source.remove('%s');", f)));
+        script.append("ctx._source.putAll(params.fields);");
+
+        Date indexingDate = new Date();
+        BulkRequest bulkrequest = new BulkRequest();
+        documents.forEach((id, fields) -> {
+            trackChange(id);
+            Map<String, Object> fieldMap = new HashMap<>();
+            fields.asMap().forEach((e, v) -> fieldMap.put(e, v.toArray()));
+            fieldMap.put("indexingDate", indexingDate);
+            bulkrequest.add(new UpdateRequest(defaultIndex, id).script(new Script(ScriptType.INLINE,
+                "painless",
+                script.toString(),
+                Collections.singletonMap("fields", fieldMap))));
+        });
+        try {
+            return client.getClient().bulk(bulkrequest, RequestOptions.DEFAULT);
+        } finally {
+            indexChanged();
+        }
     }
 
     public void updateFieldsAsynch(String id, Map<String, Object> fields) throws Exception {
+        trackChange(id);
         fields.put("indexingDate", new Date());
         UpdateRequest request = new UpdateRequest(defaultIndex, id).doc(fields);
         ActionListener listener = new ActionListener<UpdateResponse>() {
             @Override
             public void onResponse(UpdateResponse updateResponse) {
+                indexChanged();
             }
 
             @Override
             public void onFailure(Exception e) {
+                indexChanged();
             }
         };
         client.getClient().updateAsync(request, RequestOptions.DEFAULT, listener);
@@ -416,11 +608,19 @@ public class EsSearchManager implements ISearchManager {
 
         String jsonDocument = mapper.writeValueAsString(doc);
 
+        if (rebuildThread.get()) {
+            addDocumentToRebuild(id, jsonDocument);
+            return;
+        }
+        trackChange(id);
+
         if (forceRefreshReaders) {
             Map<String, String> document = new HashMap<>();
             document.put(id, jsonDocument);
-            final BulkResponse bulkItemResponses = client.bulkRequest(defaultIndex, document);
-            checkIndexResponse(bulkItemResponses, document);
+            final BulkResponse bulkItemResponses = client.bulkRequest(defaultIndex, document, interactiveRefreshPolicy);
+            indexChanged();
+            getBulkDocumentsMeter().mark();
+            checkIndexResponse(defaultIndex, bulkItemResponses, document);
             overviewFieldUpdater.process(id);
         } else {
             listOfDocumentsToIndex.put(id, jsonDocument);
@@ -434,24 +634,125 @@ public class EsSearchManager implements ISearchManager {
         Map<String, String> documents = new HashMap<>(listOfDocumentsToIndex);
         listOfDocumentsToIndex.clear();
         if (documents.size() > 0) {
-            try {
-                final BulkResponse bulkItemResponses = client
-                    .bulkRequest(defaultIndex, documents);
-                checkIndexResponse(bulkItemResponses, documents);
-            } catch (Exception e) {
-                LOGGER.error(
-                    "An error occurred while indexing {} documents in current indexing list. Error is {}.",
-                    new Object[]{listOfDocumentsToIndex.size(), e.getMessage()});
-            } finally {
-                // TODO: Trigger this async ?
-                documents.keySet().forEach(uuid -> {
-                    overviewFieldUpdater.process(uuid);
-                });
+            sendDocumentsAsync(defaultIndex, documents, batchRefreshPolicy, true);
+        }
+    }
+
+    /**
+     * Send documents with the bulk sender of the client. The caller only waits
+     * if too many bulk requests are in flight. The response is checked once received.
+     */
+    private void sendDocumentsAsync(String index, Map<String, String> documents,
+                                    WriteRequest.RefreshPolicy refreshPolicy,
+                                    boolean updateOverviews) {
+        try {
+            client.bulkRequestAsync(index, documents, refreshPolicy).whenComplete((bulkItemResponses, error) -> {
+                indexChanged();
+                try {
+                    if (error != null) {
+                        LOGGER.error(
+                            "An error occurred while indexing {} documents in index '{}'. Error is {}.",
+                            new Object[]{documents.size(), index, error.getMessage()});
+                    } else {
+                        if (refreshPolicy == WriteRequest.RefreshPolicy.NONE && index.equals(defaultIndex)) {
+                            refreshNeeded.set(true);
+                        }
+                        getBulkDocumentsMeter().mark(documents.size());
+                        checkIndexResponse(index, bulkItemResponses, documents);
+                    }
+                } catch (Exception e) {
+                    LOGGER.error(
+                        "An error occurred while checking the indexing of {} documents in index '{}'. Error is {}.",
+                        new Object[]{documents.size(), index, e.getMessage()});
+                } finally {
+                    if (updateOverviews) {
+                        updateOverviews(documents.keySet(), refreshPolicy);
+                    }
+                }
+            });
+        } catch (Exception e) {
+            LOGGER.error(
+                "An error occurred while indexing {} documents in index '{}'. Error is {}.",
+                new Object[]{documents.size(), index, e.getMessage()});
+            if (updateOverviews) {
+                updateOverviews(documents.keySet(), refreshPolicy);
             }
         }
     }
 
-    private void checkIndexResponse(BulkResponse bulkItemResponses,
+    private void updateOverviews(Set<String> ids, WriteRequest.RefreshPolicy refreshPolicy) {
+        if (refreshPolicy == WriteRequest.RefreshPolicy.NONE) {
+            overviewsAfterRefresh.addAll(ids);
+        } else {
+            ids.forEach(overviewFieldUpdater::process);
+        }
+    }
+
+    /**
+     * Wait for the bulk requests in flight to complete.
+     */
+    private void waitForBulkRequests() {
+        if (client.getBulkSender() == null) {
+            return;
+        }
+        try {
+            client.getBulkSender().flush(BULK_FLUSH_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            LOGGER.error("Bulk requests not completed. Error is {}.", e.getMessage());
+        }
+    }
+
+    private Meter getBulkDocumentsMeter() {
+        return monitorManager == null ? DummyMeter.INSTANCE : monitorManager.getMeter(IndexBulkDocumentsMeter.class);
+    }
+
+    /**
+     * Add a document to the new index of a rebuild with alias swap.
+     * Documents are sent by batch of {@link #commitInterval} without refresh.
+     */
+    private void addDocumentToRebuild(String id, String jsonDocument) {
+        Map<String, String> documents = null;
+        rebuiltDocuments.add(id);
+        synchronized (listOfDocumentsToRebuild) {
+            listOfDocumentsToRebuild.put(id, jsonDocument);
+            if (listOfDocumentsToRebuild.size() >= commitInterval) {
+                documents = new HashMap<>(listOfDocumentsToRebuild);
+                listOfDocumentsToRebuild.clear();
+            }
+        }
+        if (documents != null) {
+            sendDocumentsToRebuild(documents);
+        }
+    }
+
+    private void flushDocumentsToRebuild() {
+        Map<String, String> documents;
+        synchronized (listOfDocumentsToRebuild) {
+            documents = new HashMap<>(listOfDocumentsToRebuild);
+            listOfDocumentsToRebuild.clear();
+        }
+        if (documents.size() > 0) {
+            sendDocumentsToRebuild(documents);
+        }
+    }
+
+    private void sendDocumentsToRebuild(Map<String, String> documents) {
+        sendDocumentsAsync(rebuildIndexName, documents, WriteRequest.RefreshPolicy.NONE, false);
+    }
+
+    /**
+     * Record a change made on the live index while a rebuild with alias swap
+     * is running, so that it is replayed on the new index.
+     */
+    private void trackChange(String id) {
+        if (rebuildIndexName != null && !rebuildThread.get()) {
+            changesDuringRebuild.add(RebuildChange.indexed(id));
+        }
+    }
+
+    private void checkIndexResponse(String index, BulkResponse bulkItemResponses,
                                     Map<String, String> documents) throws IOException {
         if (bulkItemResponses.hasFailures()) {
             Map<String, String> listErrorOfDocumentsToIndex = new HashMap<>(bulkItemResponses.getItems().length);
@@ -501,7 +802,7 @@ public class EsSearchManager implements ISearchManager {
             });
 
             if (listErrorOfDocumentsToIndex.size() > 0) {
-                BulkResponse response = client.bulkRequest(defaultIndex, listErrorOfDocumentsToIndex);
+                BulkResponse response = client.bulkRequest(index, listErrorOfDocumentsToIndex);
                 if (!(response.status().getStatus() != 201)) {
                     LOGGER.error("Failed to save error documents {}.",
                         new Object[]{errorDocumentIds.toArray().toString()});
@@ -693,7 +994,27 @@ public class EsSearchManager implements ISearchManager {
 
     @Override
     public void forceIndexChanges() {
+        if (rebuildThread.get()) {
+            flushDocumentsToRebuild();
+            waitForBulkRequests();
+            return;
+        }
         sendDocumentsToIndex();
+        waitForBulkRequests();
+        if (refreshNeeded.getAndSet(false)) {
+            try {
+                client.getClient().indices().refresh(new RefreshRequest(defaultIndex), RequestOptions.DEFAULT);
+            } catch (Exception e) {
+                LOGGER.error("Error during index '{}' refresh. Error is: {}",
+                    new Object[]{defaultIndex, e.getMessage()});
+                // Overviews are added after the next refresh
+                refreshNeeded.set(true);
+                return;
+            }
+        }
+        List<String> ids = new ArrayList<>(overviewsAfterRefresh);
+        overviewsAfterRefresh.removeAll(ids);
+        ids.forEach(overviewFieldUpdater::process);
     }
 
     @Override
@@ -743,10 +1064,285 @@ public class EsSearchManager implements ISearchManager {
                 dataMan.indexMetadata(id + "", false);
             }
         }
-        sendDocumentsToIndex();
+        forceIndexChanges();
         return true;
     }
 
+    /**
+     * Rebuild the records index without interrupting search.
+     *
+     * Records are loaded in a new index named after the default index and the current
+     * time (eg. gn-records-20230412103000) while the default index remains searchable.
+     * During loading, refresh is disabled, replicas are set to 0 and bulk requests
+     * do not force a refresh. Once loaded, settings are restored, the index is
+     * force merged and the default index alias is moved to the new index in one
+     * atomic operation. Previous indices are then removed.
+     *
+     * Records indexed, updated or removed in the live index while the rebuild is
+     * running are replayed on the new index.
+     *
+     * If the default index is a concrete index (eg. created by a previous version
+     * or by a reset), it is replaced by an alias with the same name.
+     */
+    public synchronized void rebuildIndexWithAliasSwap(ServiceContext context) throws Exception {
+        if (rebuildIndexName != null) {
+            throw new IllegalStateException(String.format(
+                "Index '%s' is already being rebuilt.", rebuildIndexName));
+        }
+        DataManager dataMan = context.getBean(DataManager.class);
+        IMetadataUtils metadataRepository = context.getBean(IMetadataUtils.class);
+
+        String indexId = getIndexId(defaultIndex);
+        String newIndex = String.format("%s-%s", defaultIndex,
+            new SimpleDateFormat("yyyyMMddHHmmss").format(new Date()));
+        Set<String> previousIndices = getAliasedIndices(defaultIndex);
+        boolean isConcreteIndex = previousIndices.isEmpty()
+            && client.getClient().indices().exists(new GetIndexRequest(defaultIndex), RequestOptions.DEFAULT);
+
+        createIndex(indexId, newIndex, false);
+
+        GetSettingsResponse settingsResponse = client.getClient().indices().getSettings(
+            new GetSettingsRequest().indices(newIndex).names(REFRESH_INTERVAL, NUMBER_OF_REPLICAS),
+            RequestOptions.DEFAULT);
+        String refreshInterval = settingsResponse.getSetting(newIndex, REFRESH_INTERVAL);
+        String numberOfReplicas = settingsResponse.getSetting(newIndex, NUMBER_OF_REPLICAS);
+        updateIndexSettings(newIndex, Settings.builder()
+            .put(REFRESH_INTERVAL, "-1")
+            .put(NUMBER_OF_REPLICAS, 0));
+
+        final Specification<Metadata> metadataSpec =
+            Specification.where((Specification<Metadata>) MetadataSpecs.isType(MetadataType.METADATA))
+                .or((Specification<Metadata>) MetadataSpecs.isType(MetadataType.TEMPLATE));
+        final List<Integer> metadataIds = metadataRepository.findAllIdsBy(
+            Specification.where(metadataSpec)
+        );
+
+        LOGGER.info("Rebuilding index '{}' in index '{}' with {} records.",
+            new Object[]{defaultIndex, newIndex, metadataIds.size()});
+        long start = System.currentTimeMillis();
+        changesDuringRebuild.clear();
+        rebuiltDocuments.clear();
+        rebuildIndexName = newIndex;
+        boolean swapped = false;
+        try {
+            loadRebuildIndex(context, metadataIds);
+
+            Settings.Builder settings = Settings.builder();
+            if (refreshInterval == null) {
+                settings.putNull(REFRESH_INTERVAL);
+            } else {
+                settings.put(REFRESH_INTERVAL, refreshInterval);
+            }
+            if (numberOfReplicas == null) {
+                settings.putNull(NUMBER_OF_REPLICAS);
+            } else {
+                settings.put(NUMBER_OF_REPLICAS, numberOfReplicas);
+            }
+            updateIndexSettings(newIndex, settings);
+            client.getClient().indices().forcemerge(
+                new ForceMergeRequest(newIndex).maxNumSegments(1), RequestOptions.DEFAULT);
+
+            replayChangesInRebuildIndex(dataMan, metadataRepository);
+            client.getClient().indices().refresh(new RefreshRequest(newIndex), RequestOptions.DEFAULT);
+
+            IndicesAliasesRequest aliasesRequest = new IndicesAliasesRequest();
+            aliasesRequest.addAliasAction(IndicesAliasesRequest.AliasActions.add()
+                .index(newIndex).alias(defaultIndex));
+            if (isConcreteIndex) {
+                aliasesRequest.addAliasAction(IndicesAliasesRequest.AliasActions.removeIndex()
+                    .index(defaultIndex));
+            }
+            for (String previousIndex : previousIndices) {
+                aliasesRequest.addAliasAction(IndicesAliasesRequest.AliasActions.remove()
+                    .index(previousIndex).alias(defaultIndex));
+            }
+            client.getClient().indices().updateAliases(aliasesRequest, RequestOptions.DEFAULT);
+            indexChanged();
+            swapped = true;
+        } finally {
+            rebuildIndexName = null;
+            if (!swapped) {
+                try {
+                    client.getClient().indices().delete(new DeleteIndexRequest(newIndex), RequestOptions.DEFAULT);
+                } catch (Exception e) {
+                    LOGGER.error("Error during index '{}' removal. Error is: {}",
+                        new Object[]{newIndex, e.getMessage()});
+                }
+            }
+        }
+
+        // Changes made between the last replay and the swap
+        // are now applied to the alias which points to the new index.
+        if (replayChanges(dataMan, metadataRepository, defaultIndex) > 0) {
+            indexChanged();
+        }
+
+        if (!previousIndices.isEmpty()) {
+            try {
+                client.getClient().indices().delete(
+                    new DeleteIndexRequest(previousIndices.toArray(new String[0])), RequestOptions.DEFAULT);
+            } catch (Exception e) {
+                LOGGER.error("Error during previous indices '{}' removal. Error is: {}",
+                    new Object[]{previousIndices, e.getMessage()});
+            }
+        }
+
+        // Overviews are not part of the records, add them now that the new index is searched.
+        rebuiltDocuments.forEach(overviewFieldUpdater::process);
+        rebuiltDocuments.clear();
+
+        LOGGER.info("Index '{}' rebuilt in index '{}' in {}ms.",
+            new Object[]{defaultIndex, newIndex, System.currentTimeMillis() - start});
+    }
+
+    /**
+     * Index records in the new index of a rebuild with alias swap using
+     * one thread per available processor.
+     */
+    private void loadRebuildIndex(ServiceContext context, List<Integer> metadataIds) throws Exception {
+        DataManager dataMan = context.getBean(DataManager.class);
+        // The ids may come in a linked list, copy them for constant time access by index.
+        final int[] ids = metadataIds.stream().mapToInt(Integer::intValue).toArray();
+        int threadCount = ThreadUtils.getNumberOfThreads();
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        AtomicInteger next = new AtomicInteger();
+        List<Future<?>> tasks = new ArrayList<>(threadCount);
+        try {
+            for (int i = 0; i < threadCount; i++) {
+                tasks.add(executor.submit(() -> {
+                    context.setAsThreadLocal();
+                    rebuildThread.set(true);
+                    try {
+                        int index;
+                        while ((index = next.getAndIncrement()) < ids.length) {
+                            String id = String.valueOf(ids[index]);
+                            try {
+                                dataMan.indexMetadata(id, false);
+                            } catch (Exception e) {
+                                LOGGER.error("Error indexing record '{}' in index '{}'. Error is: {}",
+                                    new Object[]{id, rebuildIndexName, e.getMessage()});
+                            }
+                        }
+                    } finally {
+                        rebuildThread.remove();
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                try {
+                    task.get();
+                } catch (ExecutionException e) {
+                    throw new IOException(String.format(
+                        "Error while loading index '%s'. Error is: %s",
+                        rebuildIndexName, e.getCause().getMessage()), e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        flushDocumentsToRebuild();
+        waitForBulkRequests();
+    }
+
+    /**
+     * Apply on the new index the changes made on the live index
+     * since the rebuild started or since the previous replay.
+     */
+    private void replayChangesInRebuildIndex(DataManager dataMan, IMetadataUtils metadataUtils) throws Exception {
+        rebuildThread.set(true);
+        try {
+            int changes = replayChanges(dataMan, metadataUtils, rebuildIndexName);
+            LOGGER.info("{} changes replayed in index '{}'.",
+                new Object[]{changes, rebuildIndexName});
+        } finally {
+            rebuildThread.remove();
+        }
+    }
+
+    /**
+     * Apply the changes tracked during a rebuild in the order they were made.
+     * Records changed between two delete queries are indexed again in one batch,
+     * which is searchable before the next delete query runs. A record deleted and
+     * then created again with the same UUID is therefore not removed by the replay.
+     *
+     * @param index the index the changes are applied to
+     * @return the number of changes.
+     */
+    private int replayChanges(DataManager dataMan, IMetadataUtils metadataUtils, String index) throws Exception {
+        int changes = 0;
+        Set<String> changedIds = new HashSet<>();
+        RebuildChange change;
+        while ((change = changesDuringRebuild.poll()) != null) {
+            changes++;
+            if (change.deleteQuery == null) {
+                changedIds.add(change.id);
+            } else {
+                reindexChangedDocuments(dataMan, metadataUtils, changedIds);
+                changedIds.clear();
+                // Delete by query only sees the documents of the last refresh
+                client.getClient().indices().refresh(new RefreshRequest(index), RequestOptions.DEFAULT);
+                client.deleteByQuery(index, change.deleteQuery);
+            }
+        }
+        reindexChangedDocuments(dataMan, metadataUtils, changedIds);
+        return changes;
+    }
+
+    /**
+     * Index again the records changed during a rebuild and wait for the bulk requests.
+     * Changes are tracked by document id, ie. the record UUID with a -draft suffix for drafts.
+     */
+    private void reindexChangedDocuments(DataManager dataMan, IMetadataUtils metadataUtils, Set<String> changedIds) {
+        if (changedIds.isEmpty()) {
+            return;
+        }
+        Set<String> uuids = new HashSet<>();
+        changedIds.forEach(id -> uuids.add(StringUtils.removeEnd(id, "-draft")));
+        for (String uuid : uuids) {
+            for (AbstractMetadata metadata : metadataUtils.findAllByUuid(uuid)) {
+                try {
+                    dataMan.indexMetadata(String.valueOf(metadata.getId()), false);
+                } catch (Exception e) {
+                    LOGGER.error("Error indexing record '{}'. Error is: {}",
+                        new Object[]{metadata.getId(), e.getMessage()});
+                }
+            }
+        }
+        forceIndexChanges();
+    }
+
+    private void updateIndexSettings(String indexName, Settings.Builder settings) throws IOException {
+        UpdateSettingsRequest request = new UpdateSettingsRequest(indexName).settings(settings);
+        client.getClient().indices().putSettings(request, RequestOptions.DEFAULT);
+    }
+
+    /**
+     * @return the indices the alias points to, or an empty set if no alias with this name exists.
+     */
+    private Set<String> getAliasedIndices(String alias) throws IOException {
+        try {
+            GetAliasesResponse response = client.getClient().indices().getAlias(
+                new GetAliasesRequest(alias), RequestOptions.DEFAULT);
+            return new HashSet<>(response.getAliases().keySet());
+        } catch (ElasticsearchStatusException e) {
+            return Collections.emptySet();
+        }
+    }
+
+    /**
+     * @return the index identifier (ie. the index configuration file name) of an index.
+     */
+    private String getIndexId(String indexName) {
+        if (indexList != null) {
+            for (Map.Entry<String, String> index : indexList.entrySet()) {
+                if (index.getValue().equals(indexName)) {
+                    return index.getKey();
+                }
+            }
+        }
+        return indexType;
+    }
+
     public Map<String, Object> getDocument(String uuid) throws Exception {
         return client.getDocument(defaultIndex, uuid);
     }
@@ -764,6 +1360,40 @@ public class EsSearchManager implements ISearchManager {
         return client.query(defaultIndex, luceneQuery, filterQuery, includedFields, from, size);
     }
 
+    /**
+     * Stream all records matching a query, one page of hits at a time.
+     * Close the stream (eg. using try-with-resources) when it may not be consumed entirely.
+     *
+     * @see EsRestClient#stream(String, QueryBuilder, QueryBuilder, Set)
+     */
+    public Stream<SearchHit> stream(String luceneQuery, String filterQuery, Set<String> includedFields) {
+        return stream(luceneQuery, filterQuery, includedFields, null);
+    }
+
+    public Stream<SearchHit> stream(String luceneQuery, String filterQuery, Set<String> includedFields,
+                                    List<SortBuilder<FieldSortBuilder>> sort) {
+        return client.stream(defaultIndex,
+            QueryBuilders.queryStringQuery(luceneQuery),
+            StringUtils.isNotEmpty(filterQuery) ? QueryBuilders.queryStringQuery(filterQuery) : null,
+            includedFields, sort);
+    }
+
+    public Stream<SearchHit> stream(JsonNode jsonQuery, Set<String> includedFields) {
+        return client.stream(defaultIndex,
+            QueryBuilders.wrapperQuery(String.valueOf(jsonQuery)), null,
+            includedFields);
+    }
+
+    /**
+     * Run a set of searches on the records index in one multi search request.
+     * Use {@link EsRestClient#buildSearchSource(String, String, Set, int, int)} to build them.
+     *
+     * @return the responses in the same order as the searches.
+     */
+    public List<SearchResponse> multiQuery(List<SearchSourceBuilder> searches) throws Exception {
+        return client.multiQuery(defaultIndex, searches);
+    }
+
     public SearchResponse query(JsonNode jsonRequest, Set<String> includedFields,
                                 int from, int size, List<SortBuilder<FieldSortBuilder>> sort) throws Exception {
         // TODO: Review postFilterBuilder
@@ -777,12 +1407,107 @@ public class EsSearchManager implements ISearchManager {
     }
 
     public Map<String, String> getFieldsValues(String id, Set<String> fields) throws Exception {
-        return client.getFieldsValues(defaultIndex, id, fields);
+        Map<String, String> values = getFieldsValues(Collections.singleton(id), fields).get(id);
+        return values == null ? new HashMap<>(fields.size()) : values;
+    }
+
+    /**
+     * Get values for a set of fields of many records at once. Only string fields and the
+     * default value of multilingual fields (ending with Object) are returned.
+     *
+     * @param uuids the record UUIDs
+     * @return the field values by record UUID. Records not in the index are not part of the result.
+     * @see #getDocumentsFields(Collection, Set)
+     */
+    public Map<String, Map<String, String>> getFieldsValues(Collection<String> uuids, Set<String> fields) throws Exception {
+        Map<String, Map<String, String>> values = new LinkedHashMap<>(uuids.size());
+        getDocumentsFields(uuids, fields).forEach((uuid, source) ->
+            values.put(uuid, EsRestClient.toFieldValues(source, fields)));
+        return values;
+    }
+
+    /**
+     * Get the source of many records at once, restricted to a set of fields, with one multi get
+     * request. Documents are kept in memory for a few seconds (see es.index.fieldsCache.ttl)
+     * unless the index is changed in the meantime, so that callers resolving the same related
+     * records over and over do not query the index each time.
+     *
+     * @param uuids  the record UUIDs
+     * @param fields the fields to return, all if empty
+     * @return the source by record UUID. Records not in the index are not part of the result.
+     */
+    public Map<String, Map<String, Object>> getDocumentsFields(Collection<String> uuids, Set<String> fields) throws Exception {
+        long version = indexVersion.get();
+        Set<String> fieldSet = Collections.unmodifiableSet(new HashSet<>(fields));
+        Map<String, Map<String, Object>> documents = new LinkedHashMap<>(uuids.size());
+        List<String> missing = new ArrayList<>();
+        for (String uuid : new LinkedHashSet<>(uuids)) {
+            Map<String, Object> source = fieldsCache == null ? null :
+                fieldsCache.getIfPresent(new FieldsCacheKey(uuid, fieldSet, version));
+            if (source != null) {
+                documents.put(uuid, source);
+            } else {
+                missing.add(uuid);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            Map<String, Map<String, Object>> found = client.getDocumentsFields(defaultIndex, missing, fieldSet);
+            if (found != null) {
+                for (String uuid : missing) {
+                    Map<String, Object> source = found.get(uuid);
+                    if (source != null) {
+                        source = Collections.unmodifiableMap(source);
+                        documents.put(uuid, source);
+                        if (fieldsCache != null) {
+                            fieldsCache.put(new FieldsCacheKey(uuid, fieldSet, version), source);
+                        }
+                    }
+                }
+            }
+        }
+        return documents;
+    }
+
+    private void indexChanged() {
+        indexVersion.incrementAndGet();
+    }
+
+    private static final class FieldsCacheKey {
+        private final String uuid;
+        private final Set<String> fields;
+        private final long version;
+
+        FieldsCacheKey(String uuid, Set<String> fields, long version) {
+            this.uuid = uuid;
+            this.fields = fields;
+            this.version = version;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FieldsCacheKey)) {
+                return false;
+            }
+            FieldsCacheKey that = (FieldsCacheKey) o;
+            return version == that.version
+                && uuid.equals(that.uuid)
+                && fields.equals(that.fields);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(uuid, fields, version);
+        }
     }
 
 
     public void clearIndex() throws Exception {
         client.deleteByQuery(defaultIndex, "*:*");
+        indexChanged();
     }
 
 //    public void iterateQuery(SolrQuery params, final Consumer<SolrDocument> callback) throws IOException, SolrServerException {
@@ -815,17 +1540,9 @@ public class EsSearchManager implements ISearchManager {
 
     @Override
     public Map<String, String> getDocsChangeDate() throws Exception {
-        // TODO: Response could be large
-        // https://www.elastic.co/guide/en/elasticsearch/client/java-rest/master/java-rest-high-search-scroll.html
         final Map<String, String> docs = new HashMap<>();
-        try {
-            int from = 0;
-            SettingInfo si = ApplicationContextHolder.get().getBean(SettingInfo.class);
-            int size = Integer.parseInt(si.getSelectionMaxRecords());
-
-            final SearchResponse response = client.query(defaultIndex, "*", null, docsChangeIncludedFields, from, size);
-
-            response.getHits().forEach(r -> {
+        try (Stream<SearchHit> hits = stream("*", null, docsChangeIncludedFields)) {
+            hits.forEach(r -> {
                 docs.put(r.getId(), (String) r.getSourceAsMap().get(Geonet.IndexFieldNames.DATABASE_CHANGE_DATE));
             });
         } catch (Exception e) {
@@ -889,34 +1606,82 @@ public class EsSearchManager implements ISearchManager {
 
     @Override
     public Set<Integer> getDocsWithXLinks() throws Exception {
-//        final SolrQuery params = new SolrQuery("*:*");
-//        params.setFilterQueries(DOC_TYPE + ":metadata");
-//        params.setFilterQueries(Geonet.IndexFieldNames.HASXLINKS + ":1");
-//        params.setFields(ID);
-//        Set<Integer> result = new HashSet<>();
-//        iterateQuery(params,
-//            doc -> result.add(convertInteger(doc.getFieldValue(ID))));
-        return null;
+        Set<Integer> result = new HashSet<>();
+        try (Stream<SearchHit> hits = stream(
+            String.format("+%s:true", Geonet.IndexFieldNames.HASXLINKS), null,
+            ImmutableSet.of(Geonet.IndexFieldNames.ID))) {
+            hits.forEach(r -> result.add(
+                Integer.parseInt(r.getSourceAsMap().get(Geonet.IndexFieldNames.ID).toString())));
+        }
+        return result;
     }
 
     @Override
     public void delete(String txt) throws Exception {
+        if (rebuildIndexName != null && !rebuildThread.get()) {
+            changesDuringRebuild.add(RebuildChange.deleted(txt));
+        }
         DeleteByQueryRequest request = new DeleteByQueryRequest();
         request.indices(defaultIndex);
         request.setQuery(new QueryStringQueryBuilder(txt));
         request.setRefresh(true);
-        client.getClient().deleteByQuery(request, RequestOptions.DEFAULT);
+        try {
+            client.getClient().deleteByQuery(request, RequestOptions.DEFAULT);
+        } finally {
+            indexChanged();
+        }
     }
 
+    /**
+     * Delete the documents of a set of records. The document ids of each
+     * {@link #DELETE_BATCH_SIZE} records are searched and the documents are removed
+     * with one bulk request, without refresh.
+     */
     @Override
     public void delete(List<Integer> metadataIds) throws Exception {
-        metadataIds.stream().forEach(metadataId -> {
+        for (int i = 0; i < metadataIds.size(); i += DELETE_BATCH_SIZE) {
+            List<Integer> batch = metadataIds.subList(i, Math.min(i + DELETE_BATCH_SIZE, metadataIds.size()));
+            StringJoiner query = new StringJoiner(" OR ", "+id:(", ")");
+            batch.forEach(id -> query.add(String.valueOf(id)));
+            if (rebuildIndexName != null && !rebuildThread.get()) {
+                changesDuringRebuild.add(RebuildChange.deleted(query.toString()));
+            }
             try {
-                this.delete(String.format("+id:%d", metadataId));
+                final SearchResponse response = client.query(defaultIndex, query.toString(), null,
+                    ImmutableSet.of(Geonet.IndexFieldNames.ID), 0, batch.size());
+                List<String> documentIds = new ArrayList<>(batch.size());
+                for (SearchHit hit : response.getHits()) {
+                    documentIds.add(hit.getId());
+                }
+                if (!documentIds.isEmpty()) {
+                    deleteDocumentsAsync(documentIds);
+                }
             } catch (Exception e) {
-                e.printStackTrace();
+                LOGGER.error("Error while removing {} records from index. Error is: {}",
+                    batch.size(), e.getMessage());
             }
-        });
+        }
+    }
+
+    /**
+     * Delete documents by id with the bulk sender. The index is refreshed
+     * with the next indexing changes.
+     */
+    private void deleteDocumentsAsync(List<String> documentIds) throws IOException {
+        client.bulkDeleteAsync(defaultIndex, documentIds, WriteRequest.RefreshPolicy.NONE)
+            .whenComplete((bulkItemResponses, error) -> {
+                indexChanged();
+                if (error != null) {
+                    LOGGER.error("An error occurred while removing {} documents from index '{}'. Error is {}.",
+                        new Object[]{documentIds.size(), defaultIndex, error.getMessage()});
+                    return;
+                }
+                refreshNeeded.set(true);
+                if (bulkItemResponses.hasFailures()) {
+                    LOGGER.error("Some documents were not removed from index '{}'. Error is {}.",
+                        new Object[]{defaultIndex, bulkItemResponses.buildFailureMessage()});
+                }
+            });
     }
 
     @Override
@@ -929,11 +1694,8 @@ public class EsSearchManager implements ISearchManager {
             query = "*:*";
         }
 
-        int from = 0;
-        SettingInfo si = ApplicationContextHolder.get().getBean(SettingInfo.class);
-        int size = Integer.parseInt(si.getSelectionMaxRecords());
-
-        final SearchResponse response = client.query(defaultIndex, query, null, docsChangeIncludedFields, from, size);
+        // Only the total is needed
+        final SearchResponse response = client.query(defaultIndex, query, null, docsChangeIncludedFields, 0, 0);
         return response.getHits().getTotalHits().value;
     }
 
@@ -968,4 +1730,12 @@ public class EsSearchManager implements ISearchManager {
     public boolean isIndexing() {
         return listOfDocumentsToIndex.size() > 0;
     }
+
+    /**
+     * @return true if a rebuild with alias swap is running. The live index
+     * remains searchable in the meantime.
+     */
+    public boolean isRebuilding() {
+        return rebuildIndexName != null;
+    }
 }
@@ -5,13 +5,22 @@ import org.elasticsearch.action.search.SearchResponse;
 import org.fao.geonet.kernel.search.EsSearchManager;
 import org.fao.geonet.util.XslUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * An operation which takes some time to add information
- * into the index. This action can be run in the background (TODO)
+ * into the index. Overviews are downloaded and resized in the background
+ * by a bounded number of threads, once per record even if the record is
+ * indexed several times while waiting.
  */
 public class OverviewIndexFieldUpdater {
     private Integer imageSize = 140;
@@ -19,7 +28,58 @@ public class OverviewIndexFieldUpdater {
     @Autowired
     EsSearchManager searchManager;
 
+    /**
+     * Number of threads building the overview data. 0 to build them on the indexing thread.
+     */
+    @Value("${overview.index.threads:2}")
+    private int threads;
+
+    /**
+     * Number of records waiting for their overview data. When the queue is full,
+     * the indexing thread builds them itself.
+     */
+    @Value("${overview.index.queue:1000}")
+    private int queueSize;
+
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        if (threads > 0) {
+            executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the number of records waiting for their overview data.
+     */
+    public int getQueueSize() {
+        return executor == null ? 0 : executor.getQueue().size();
+    }
+
     public void process(String uuid) {
+        if (executor == null) {
+            update(uuid);
+        } else if (pending.add(uuid)) {
+            executor.execute(() -> {
+                // A record indexed again from now on is queued again
+                pending.remove(uuid);
+                update(uuid);
+            });
+        }
+    }
+
+    private void update(String uuid) {
         Set<String> source = new HashSet<>();
         source.add("overview");
         SearchResponse response = null;
@@ -23,9 +23,20 @@
 
 package org.fao.geonet.kernel.thumbnail;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.yammer.metrics.core.DummyTimer;
+import com.yammer.metrics.core.Timer;
+import jeeves.monitor.MetricsFactory;
+import jeeves.monitor.MonitorManager;
 import jeeves.server.context.ServiceContext;
 
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
 import org.fao.geonet.constants.Geonet;
+import org.fao.geonet.monitor.thumbnail.ThumbnailRenderTimer;
 import org.fao.geonet.utils.IO;
 import org.fao.geonet.utils.Log;
 import org.mapfish.print.MapPrinter;
@@ -33,30 +44,49 @@ import org.mapfish.print.output.OutputFormat;
 import org.mapfish.print.output.PrintParams;
 import org.mapfish.print.utils.PJsonObject;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 
 import java.awt.Graphics2D;
 import java.awt.Transparency;
 import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.HashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import javax.annotation.PreDestroy;
 import javax.imageio.ImageIO;
 
 /**
  * Use MapFish print module to generate thumbnail.
  *
+ * Thumbnails are rendered by a bounded number of threads with a bounded work queue. Identical
+ * print specifications (same layers, extent and rotation) requested concurrently are rendered once,
+ * and rendered thumbnails are kept in a least recently used disk cache.
+ *
  * Created by francois on 3/25/14.
  */
 public class ThumbnailMaker {
     private static final String LOGGER_NAME = "thumbnail.maker";
     private static final String CONFIG_FILE = "WEB-INF/config-print/print-config.yaml";
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
     private MapPrinter mapPrinter = null;
     private File configFile = null;
     private String configFilePath = null;
@@ -65,6 +95,38 @@ public class ThumbnailMaker {
     @Autowired
     private ApplicationContext _applicationContext;
 
+    @Autowired(required = false)
+    private MonitorManager monitorManager;
+
+    /**
+     * Number of thumbnails rendered at the same time.
+     */
+    @Value("${thumbnail.render.threads:2}")
+    private int renderThreads;
+
+    /**
+     * Number of thumbnails waiting to be rendered. Requests are rejected when the queue is full.
+     */
+    @Value("${thumbnail.render.queue:20}")
+    private int renderQueueSize;
+
+    /**
+     * Number of rendered thumbnails kept on disk.
+     */
+    @Value("${thumbnail.cache.maxsize:200}")
+    private int cacheMaxSize;
+
+    /**
+     * Number of seconds a rendered thumbnail is kept on disk after its last use.
+     */
+    @Value("${thumbnail.cache.ttl:3600}")
+    private long cacheTtl;
+
+    private ThreadPoolExecutor renderExecutor;
+    private final ConcurrentMap<String, CompletableFuture<Path>> rendering = new ConcurrentHashMap<>();
+    private Cache<String, Path> renderedThumbnails;
+    private Path cacheDirectory;
+
     public static void rotate(Path imageFile, String extension, int angle) {
         BufferedImage originalImage;
         try {
@@ -112,6 +174,45 @@ public class ThumbnailMaker {
     public void init(ServiceContext context) {
         configFilePath = context.getAppPath() + File.separator + CONFIG_FILE;
         initMapPrinter();
+        initRenderingService();
+    }
+
+    private synchronized void initRenderingService() {
+        if (renderExecutor != null) {
+            return;
+        }
+        int threads = Math.max(1, renderThreads);
+        renderExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, renderQueueSize)));
+        renderedThumbnails = CacheBuilder.newBuilder()
+            .maximumSize(cacheMaxSize)
+            .expireAfterAccess(cacheTtl, TimeUnit.SECONDS)
+            .removalListener((RemovalListener<String, Path>) notification ->
+                FileUtils.deleteQuietly(notification.getValue().toFile()))
+            .build();
+        try {
+            cacheDirectory = Files.createTempDirectory("thumbnail-cache");
+        } catch (IOException e) {
+            Log.error(LOGGER_NAME, "Error creating the thumbnail cache directory. Error is " + e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (renderExecutor != null) {
+            renderExecutor.shutdownNow();
+            renderedThumbnails.invalidateAll();
+        }
+        if (cacheDirectory != null) {
+            FileUtils.deleteQuietly(cacheDirectory.toFile());
+        }
+    }
+
+    /**
+     * @return the number of thumbnails waiting to be rendered.
+     */
+    public int getQueueSize() {
+        return renderExecutor == null ? 0 : renderExecutor.getQueue().size();
     }
 
     private void initMapPrinter() {
@@ -148,18 +249,82 @@ public class ThumbnailMaker {
         return mapPrinter;
     }
 
+    /**
+     * Render a thumbnail or reuse the one rendered for the same configuration.
+     *
+     * @return a temporary file owned by the caller.
+     */
     public Path generateThumbnail(String jsonConfig, Integer rotationAngle)
         throws IOException {
+        initRenderingService();
+
+        String key = DigestUtils.sha256Hex(jsonConfig + "|" + rotationAngle);
+        for (int attempt = 0; ; attempt++) {
+            Path rendered = renderedThumbnails.getIfPresent(key);
+            if (rendered == null) {
+                rendered = await(render(key, jsonConfig, rotationAngle));
+            } else if (Log.isDebugEnabled(LOGGER_NAME)) {
+                Log.debug(LOGGER_NAME, "Reusing thumbnail rendered from config: " + jsonConfig);
+            }
+
+            Path tempFile = Files.createTempFile("thumbnail", "." + FilenameUtils.getExtension(rendered.toString()));
+            try {
+                Files.copy(rendered, tempFile, StandardCopyOption.REPLACE_EXISTING);
+                return tempFile;
+            } catch (NoSuchFileException e) {
+                // Evicted from the cache meanwhile
+                Files.deleteIfExists(tempFile);
+                renderedThumbnails.invalidate(key);
+                if (attempt > 0) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private CompletableFuture<Path> render(String key, String jsonConfig, Integer rotationAngle) throws IOException {
+        final CompletableFuture<Path> thumbnail = new CompletableFuture<>();
+        final CompletableFuture<Path> inProgress = rendering.putIfAbsent(key, thumbnail);
+        if (inProgress != null) {
+            return inProgress;
+        }
 
+        try {
+            renderExecutor.execute(() -> {
+                final long start = System.nanoTime();
+                try {
+                    Path file = print(key, jsonConfig, rotationAngle);
+                    getTimer(ThumbnailRenderTimer.class).update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    renderedThumbnails.put(key, file);
+                    thumbnail.complete(file);
+                } catch (Throwable e) {
+                    thumbnail.completeExceptionally(e);
+                } finally {
+                    rendering.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rendering.remove(key);
+            throw new IOException(String.format(
+                "Too many thumbnails are waiting to be generated (%d). Try again later.", getQueueSize()), e);
+        }
+        return thumbnail;
+    }
+
+    private Path print(String key, String jsonConfig, Integer rotationAngle) throws IOException {
         PJsonObject specJson = MapPrinter.parseSpec(jsonConfig);
         if (Log.isDebugEnabled(LOGGER_NAME)) {
             Log.debug(LOGGER_NAME, "Generating thumbnail from config: " + jsonConfig);
         }
         final OutputFormat outputFormat = getMapPrinter().getOutputFormat(specJson);
 
-        Path tempFile = Files.createTempFile("thumbnail", "." + outputFormat.getFileSuffix());
+        // Each rendering gets its own file, so that the removal of a replaced
+        // or expired cache entry never deletes the file of another entry.
+        Path file = cacheDirectory == null ?
+            Files.createTempFile("thumbnail", "." + outputFormat.getFileSuffix()) :
+            Files.createTempFile(cacheDirectory, key + "-", "." + outputFormat.getFileSuffix());
 
-        try (OutputStream out = Files.newOutputStream(tempFile)) {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), OUTPUT_BUFFER_SIZE)) {
             PrintParams params = new PrintParams(
                 getMapPrinter().getConfig(),
                 configFile.getParentFile(),
@@ -172,8 +337,26 @@ public class ThumbnailMaker {
         }
 
         if (rotationAngle != null) {
-            rotate(tempFile, outputFormat.getFileSuffix(), rotationAngle);
+            rotate(file, outputFormat.getFileSuffix(), rotationAngle);
         }
-        return tempFile;
+        return file;
+    }
+
+    private static Path await(CompletableFuture<Path> thumbnail) throws IOException {
+        try {
+            return thumbnail.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the thumbnail");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Error creating a thumbnail. Error is " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private Timer getTimer(Class<? extends MetricsFactory<Timer>> type) {
+        return monitorManager == null ? DummyTimer.INSTANCE : monitorManager.getTimer(type);
     }
 }
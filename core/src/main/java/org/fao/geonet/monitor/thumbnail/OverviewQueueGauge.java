@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2001-2023 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.monitor.thumbnail;
+
+import com.yammer.metrics.core.Gauge;
+import com.yammer.metrics.core.MetricsRegistry;
+import jeeves.monitor.MetricsFactory;
+import jeeves.server.context.ServiceContext;
+import org.fao.geonet.kernel.search.index.OverviewIndexFieldUpdater;
+
+/**
+ * Returns the number of records waiting for their overview data to be indexed or -1 if unable
+ * to get it.
+ */
+public class OverviewQueueGauge implements MetricsFactory<Gauge<Integer>> {
+
+    @Override
+    public Gauge<Integer> create(MetricsRegistry metricsRegistry, final ServiceContext context) {
+        return metricsRegistry.newGauge(OverviewIndexFieldUpdater.class, "Queue_Size", new Gauge<Integer>() {
+            @Override
+            public Integer value() {
+                try {
+                    return context.getBean(OverviewIndexFieldUpdater.class).getQueueSize();
+                } catch (Exception e) {
+                    return -1;
+                }
+            }
+        });
+    }
+}
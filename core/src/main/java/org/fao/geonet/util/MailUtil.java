@@ -25,6 +25,8 @@ package org.fao.geonet.util;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.mail.*;
+import org.fao.geonet.ApplicationContextHolder;
+import org.fao.geonet.kernel.search.EsSearchManager;
 import org.fao.geonet.kernel.setting.SettingManager;
 import org.fao.geonet.kernel.setting.Settings;
 import org.fao.geonet.utils.Log;
@@ -34,7 +36,10 @@ import javax.mail.Session;
 import javax.mail.internet.InternetAddress;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -504,10 +509,23 @@ public class MailUtil {
             fields.add(m.group(1));
         }
 
+        if (fields.isEmpty()) {
+            return message;
+        }
+
+        // All fields are read from the index at once
+        Map<String, String> values = new HashMap<>();
+        try {
+            values = ApplicationContextHolder.get().getBean(EsSearchManager.class)
+                .getFieldsValues(uuid, new HashSet<>(fields));
+        } catch (Exception e) {
+            Log.error(LOG_MODULE_NAME, "Failed to get index fields " + fields + " value on '" + uuid + "', caused by " + e.getMessage());
+        }
+
         // First substitution for variables not stored in the index
         for (String f : fields) {
-            String mdf = XslUtil.getIndexField(null, uuid, f, language);
-            message = message.replace("{{index:" + f + "}}", mdf);
+            String mdf = values.get(f);
+            message = message.replace("{{index:" + f + "}}", mdf == null ? "" : mdf);
         }
         return message;
     }
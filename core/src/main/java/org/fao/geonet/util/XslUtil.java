@@ -51,7 +51,6 @@ import net.objecthunter.exp4j.Expression;
 import net.objecthunter.exp4j.ExpressionBuilder;
 import org.apache.commons.beanutils.PropertyUtils;
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang.NotImplementedException;
 import org.apache.commons.lang.StringUtils;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
@@ -76,6 +75,7 @@ import org.fao.geonet.constants.Geonet;
 import org.fao.geonet.domain.*;
 import org.fao.geonet.index.es.EsRestClient;
 import org.fao.geonet.kernel.*;
+import org.fao.geonet.kernel.datamanager.IMetadataUtils;
 import org.fao.geonet.kernel.datamanager.base.BaseMetadataUtils;
 import org.fao.geonet.kernel.search.CodeListTranslator;
 import org.fao.geonet.kernel.search.EsSearchManager;
@@ -834,17 +834,23 @@ public final class XslUtil {
         return "";
     }
 
+    /**
+     * Get field value for metadata identified by its internal identifier.
+     *
+     * @see #getIndexField(Object, Object, Object, Object)
+     */
     public static String getIndexFieldById(Object appName, Object id, Object field, Object lang) {
-        String fieldname = field.toString();
-        String language = (lang.toString().equals("") ? null : lang.toString());
-        throw new NotImplementedException("getIndexFieldById not implemented in ES");
-//        try {
-//            String fieldValue = LuceneSearcher.getMetadataFromIndexById(language, id.toString(), fieldname);
-//            return fieldValue == null ? "" : fieldValue;
-//        } catch (Exception e) {
-//            Log.error(Geonet.GEONETWORK, "Failed to get index field value caused by " + e.getMessage());
-//            return "";
-//        }
+        try {
+            String uuid = ApplicationContextHolder.get().getBean(IMetadataUtils.class).getMetadataUuid(id.toString());
+            if (uuid == null) {
+                return "";
+            }
+            String fieldValue = getIndexField(appName, uuid, field, lang);
+            return fieldValue == null ? "" : fieldValue;
+        } catch (Exception e) {
+            Log.error(Geonet.GEONETWORK, "Failed to get index field value caused by " + e.getMessage());
+            return "";
+        }
     }
 
     /**
@@ -1206,6 +1212,17 @@ public final class XslUtil {
         }
     }
 
+    /**
+     * Encoding buffers larger than this size are not kept for the next overview.
+     */
+    private static final int DATA_URL_BUFFER_MAX_SIZE = 1024 * 1024;
+
+    /**
+     * Encoding buffer reused by the overviews built on a thread.
+     */
+    private static final ThreadLocal<ByteArrayOutputStream> DATA_URL_BUFFER =
+        ThreadLocal.withInitial(() -> new ByteArrayOutputStream(64 * 1024));
+
     /**
      * Build data URL like data:image/png;base64, iVBORw...
      */
@@ -1234,11 +1251,14 @@ public final class XslUtil {
 
                 if (image != null) {
                     BufferedImage resized = ImageUtil.resize(image, size != null ? size : 140);
-                    ByteArrayOutputStream output = new ByteArrayOutputStream();
+                    ByteArrayOutputStream output = DATA_URL_BUFFER.get();
+                    output.reset();
                     ImageIO.write(resized, "png", output);
-                    output.flush();
                     byte[] imagesB = output.toByteArray();
-                    output.close();
+                    if (output.size() > DATA_URL_BUFFER_MAX_SIZE) {
+                        // Do not keep large buffers for the lifetime of the thread
+                        DATA_URL_BUFFER.remove();
+                    }
 
                     sb.append("image/png;base64, ");
                     sb.append(Base64.getEncoder().encodeToString(imagesB));
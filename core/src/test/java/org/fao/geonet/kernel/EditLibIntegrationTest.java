@@ -28,14 +28,17 @@ import com.google.common.collect.Lists;
 import junit.framework.Assert;
 
 import org.fao.geonet.AbstractCoreIntegrationTest;
+import org.fao.geonet.constants.Edit;
 import org.fao.geonet.constants.Geonet;
 import org.fao.geonet.domain.Pair;
 import org.fao.geonet.kernel.schema.MetadataSchema;
+import org.fao.geonet.utils.Log;
 import org.fao.geonet.utils.Xml;
 import org.jdom.Content;
 import org.jdom.Element;
 import org.jdom.JDOMException;
 import org.jdom.Namespace;
+import org.jdom.filter.ElementFilter;
 import org.junit.Ignore;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -43,8 +46,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Set;
 
 import static junit.framework.TestCase.assertEquals;
 import static org.fao.geonet.Assert.assertFalse;
@@ -819,4 +825,57 @@ public class EditLibIntegrationTest extends AbstractCoreIntegrationTest {
         Assert.assertEquals("gmd:MD_Distribution", longestMatch.one().getQualifiedName());
         Assert.assertEquals("gmd:transferOptions/gmd:MD_DigitalTransferOptions/gmd:onLine/gmd:CI_OnlineResource/gmd:linkage", longestMatch.two());
     }
+
+    @Test
+    public void testExpandTreeWithCachedTemplates() throws Exception {
+        final Element metadata = Xml.loadFile(EditLibIntegrationTest.class.getResource("multilingual-metadata.xml"));
+        MetadataSchema schema = _schemaManager.getSchema("iso19139");
+        final EditLib editLib = new EditLib(_schemaManager);
+
+        long start = System.currentTimeMillis();
+        Element uncached = expand(new EditLib(_schemaManager, false), schema, metadata);
+        long uncachedTime = System.currentTimeMillis() - start;
+
+        expand(editLib, schema, metadata);
+        start = System.currentTimeMillis();
+        Element warm = expand(editLib, schema, metadata);
+        long warmTime = System.currentTimeMillis() - start;
+        Log.debug(Geonet.EDITOR, "Editor expansion of multilingual-metadata.xml: " + uncachedTime + "ms (uncached), " + warmTime + "ms (cached)");
+
+        // Each geonet:child must get its own uuid even if built from the same template
+        Set<String> uuids = new HashSet<>();
+        int children = 0;
+        Iterator<?> it = warm.getDescendants(new ElementFilter(Edit.RootChild.CHILD, Edit.NAMESPACE));
+        while (it.hasNext()) {
+            Element child = (Element) it.next();
+            String uuid = child.getAttributeValue(Edit.ChildElem.Attr.UUID);
+            assertFalse(uuid.endsWith("_"));
+            uuids.add(uuid);
+            children++;
+        }
+        assertTrue(children > 0);
+        assertEquals(children, uuids.size());
+
+        // Apart from the uuids, the cached templates produce the same editing information
+        removeUuids(uncached);
+        removeUuids(warm);
+        assertEquals(Xml.getString(uncached), Xml.getString(warm));
+    }
+
+    private Element expand(EditLib editLib, MetadataSchema schema, Element metadata) throws Exception {
+        Element md = (Element) metadata.clone();
+        editLib.enumerateTree(md);
+        editLib.expandTree(schema, md);
+        return md;
+    }
+
+    private void removeUuids(Element md) {
+        Iterator<?> it = md.getDescendants(new ElementFilter());
+        while (it.hasNext()) {
+            Element element = (Element) it.next();
+            if (Edit.NAMESPACE.getURI().equals(element.getNamespaceURI())) {
+                element.removeAttribute(Edit.Element.Attr.UUID);
+            }
+        }
+    }
 }
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2001-2023 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel;
+
+import org.fao.geonet.constants.Edit;
+import org.jdom.Element;
+import org.jdom.Namespace;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Tests for {@link SchematronValidationCache#hash(Element)}.
+ */
+public class SchematronValidationCacheTest {
+
+    private static final Namespace GMD = Namespace.getNamespace("gmd", "http://www.isotc211.org/2005/gmd");
+
+    private static Element record(String title, String editUuid) {
+        Element ref = new Element(Edit.RootChild.ELEMENT, Edit.NAMESPACE)
+            .setAttribute(Edit.Element.Attr.REF, "2")
+            .setAttribute(Edit.Element.Attr.UUID, editUuid);
+        Element titleElement = new Element("title", GMD).setText(title).addContent(ref);
+        return new Element("MD_Metadata", GMD)
+            .setAttribute("uuid", "abc")
+            .addContent(titleElement);
+    }
+
+    @Test
+    public void testEditingUuidsAreIgnored() {
+        assertEquals(SchematronValidationCache.hash(record("title", "gmd:title_1")),
+            SchematronValidationCache.hash(record("title", "gmd:title_2")));
+    }
+
+    @Test
+    public void testContentChangesTheHash() {
+        String hash = SchematronValidationCache.hash(record("title", "gmd:title_1"));
+        assertNotEquals(hash, SchematronValidationCache.hash(record("other title", "gmd:title_1")));
+
+        Element otherUuid = record("title", "gmd:title_1").setAttribute("uuid", "def");
+        assertNotEquals(hash, SchematronValidationCache.hash(otherUuid));
+
+        Element otherRef = record("title", "gmd:title_1");
+        otherRef.getChild("title", GMD).getChild(Edit.RootChild.ELEMENT, Edit.NAMESPACE)
+            .setAttribute(Edit.Element.Attr.REF, "3");
+        assertNotEquals(hash, SchematronValidationCache.hash(otherRef));
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2001-2023 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel;
+
+import org.fao.geonet.domain.Profile;
+import org.fao.geonet.domain.UserGroup;
+import org.fao.geonet.domain.UserGroupId;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link UserPrivilegeContext}.
+ */
+public class UserPrivilegeContextTest {
+
+    private static UserGroup userGroup(int userId, int groupId, Profile profile) {
+        return new UserGroup().setId(new UserGroupId().setUserId(userId).setGroupId(groupId).setProfile(profile));
+    }
+
+    @Test
+    public void testGroupsByProfile() {
+        UserPrivilegeContext context = UserPrivilegeContext.build(3, Profile.Reviewer, Arrays.asList(
+            userGroup(3, 10, Profile.Editor),
+            userGroup(3, 10, Profile.Reviewer),
+            userGroup(3, 11, Profile.Editor),
+            userGroup(3, 12, Profile.RegisteredUser)));
+
+        assertEquals(3, context.getUserId());
+        assertEquals(Profile.Reviewer, context.getProfile());
+        assertEquals(3, context.getMemberGroups().size());
+        assertEquals(2, context.getEditorGroups().size());
+        assertTrue(context.getEditorGroups().contains(11));
+        assertEquals(Collections.singleton(10), context.getReviewerGroups());
+        assertTrue(context.getGroups(Profile.UserAdmin).isEmpty());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutable() {
+        UserPrivilegeContext context = UserPrivilegeContext.build(3, Profile.Editor,
+            Collections.singletonList(userGroup(3, 10, Profile.Editor)));
+        context.getEditorGroups().add(11);
+    }
+}
@@ -29,7 +29,9 @@ import org.fao.geonet.AbstractCoreIntegrationTest;
 import org.fao.geonet.ZipUtil;
 import org.fao.geonet.constants.Params;
 import org.fao.geonet.domain.AbstractMetadata;
+import org.fao.geonet.domain.MetadataType;
 import org.fao.geonet.domain.User;
+import org.fao.geonet.kernel.setting.SettingManager;
 import org.fao.geonet.repository.MetadataRepository;
 import org.fao.geonet.utils.IO;
 import org.jdom.Element;
@@ -41,6 +43,7 @@ import java.nio.file.FileSystem;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static junit.framework.Assert.assertNotNull;
@@ -92,6 +95,30 @@ public class MEFLibIntegrationTest extends AbstractCoreIntegrationTest {
         }
     }
 
+    @Test
+    public void testDoImportMefVersion2WithThreads() throws Exception {
+        ServiceContext context = createServiceContext();
+
+        final Path resource = IO.toPath(MEFLibIntegrationTest.class.getResource("mef2-example-2md.zip").toURI());
+
+        final User admin = loginAsAdmin(context);
+
+        final List<String> storedIds = Collections.synchronizedList(new ArrayList<>());
+        final List<String> metadataIds = MEFLib.doImport("mef2", MEFLib.UuidAction.GENERATEUUID, "_none_",
+            context.getBean(SettingManager.class).getSiteId(), MetadataType.METADATA, new String[]{}, "",
+            false, false, context, resource, 4, storedIds::add);
+        assertEquals(2, metadataIds.size());
+        // Records are stored in archive order whatever the number of threads
+        assertEquals(metadataIds, storedIds);
+
+        for (String metadataId : metadataIds) {
+            final AbstractMetadata metadata = _metadataRepo.findById(Integer.parseInt(metadataId)).get();
+
+            assertNotNull(metadata);
+            assertEquals(admin.getId(), metadata.getSourceInfo().getOwner().intValue());
+        }
+    }
+
     public static class ImportMetadata {
         private final AbstractCoreIntegrationTest testClass;
         private ServiceContext context;
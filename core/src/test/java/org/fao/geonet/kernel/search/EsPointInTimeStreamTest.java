@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2001-2023 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.search;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.SortBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.fao.geonet.kernel.AbstractIntegrationTestWithMockedSingletons;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EsPointInTimeStreamTest extends AbstractIntegrationTestWithMockedSingletons {
+
+    private static final int NUMBER_OF_DOCUMENTS = 11;
+    private static final int PAGE_SIZE = 3;
+    private static final String RUN_FIELD = "streamTestRun";
+    private static final String POSITION_FIELD = "streamTestPosition";
+
+    @Autowired
+    private EsSearchManager searchManager;
+
+    private String run;
+    private QueryBuilder query;
+
+    @Before
+    public void setUp() throws Exception {
+        run = UUID.randomUUID().toString();
+        query = QueryBuilders.termQuery(RUN_FIELD + ".keyword", run);
+
+        Map<String, String> documents = new HashMap<>();
+        for (int i = 0; i < NUMBER_OF_DOCUMENTS; i++) {
+            documents.put(run + "-" + i, String.format(
+                "{\"%s\": \"%s\", \"%s\": %d}", RUN_FIELD, run, POSITION_FIELD, i));
+        }
+        searchManager.client.bulkRequest(searchManager.getDefaultIndex(), documents);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        searchManager.client.deleteByQuery(searchManager.getDefaultIndex(), RUN_FIELD + ".keyword:\"" + run + "\"");
+    }
+
+    @Test
+    public void testStreamInIndexOrder() throws Exception {
+        long openContexts = getOpenSearchContexts();
+        List<String> ids = stream(null).map(SearchHit::getId).collect(Collectors.toList());
+
+        assertEquals(NUMBER_OF_DOCUMENTS, ids.size());
+        assertEquals(expectedIds(), new HashSet<>(ids));
+        assertEquals(openContexts, getOpenSearchContexts());
+    }
+
+    @Test
+    public void testStreamWithSort() throws Exception {
+        long openContexts = getOpenSearchContexts();
+        List<SortBuilder<FieldSortBuilder>> sort = Collections.singletonList(
+            SortBuilders.fieldSort(POSITION_FIELD).order(SortOrder.DESC));
+        List<Integer> positions = stream(sort)
+            .map(h -> ((Number) h.getSourceAsMap().get(POSITION_FIELD)).intValue())
+            .collect(Collectors.toList());
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = NUMBER_OF_DOCUMENTS - 1; i >= 0; i--) {
+            expected.add(i);
+        }
+        assertEquals(expected, positions);
+        assertEquals(openContexts, getOpenSearchContexts());
+    }
+
+    @Test
+    public void testPointInTimeClosedWhenStreamEndsEarly() throws Exception {
+        long openContexts = getOpenSearchContexts();
+        List<SearchHit> hits;
+        try (Stream<SearchHit> stream = stream(null)) {
+            hits = stream.limit(PAGE_SIZE + 1).collect(Collectors.toList());
+            // The second page is read and the point in time still open
+            assertTrue(getOpenSearchContexts() > openContexts);
+        }
+
+        assertEquals(PAGE_SIZE + 1, hits.size());
+        assertEquals(openContexts, getOpenSearchContexts());
+    }
+
+    private Stream<SearchHit> stream(List<SortBuilder<FieldSortBuilder>> sort) {
+        return searchManager.client.stream(searchManager.getDefaultIndex(), query, null,
+            Collections.singleton(POSITION_FIELD), sort, PAGE_SIZE);
+    }
+
+    private Set<String> expectedIds() {
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < NUMBER_OF_DOCUMENTS; i++) {
+            ids.add(run + "-" + i);
+        }
+        return ids;
+    }
+
+    /**
+     * @return the number of search contexts open on the cluster, one per shard of an open point in time.
+     */
+    private long getOpenSearchContexts() throws Exception {
+        Response response = searchManager.client.getClient().getLowLevelClient()
+            .performRequest(new Request("GET", "/_nodes/stats/indices/search"));
+        JsonNode nodes = new ObjectMapper().readTree(response.getEntity().getContent()).get("nodes");
+        long openContexts = 0;
+        for (JsonNode node : nodes) {
+            openContexts += node.path("indices").path("search").path("open_contexts").asLong();
+        }
+        return openContexts;
+    }
+}
@@ -24,7 +24,6 @@
 package org.fao.geonet.kernel.csw.services.getrecords;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import jeeves.server.context.ServiceContext;
 import org.apache.commons.lang.StringUtils;
 import org.elasticsearch.action.search.SearchResponse;
@@ -43,11 +42,9 @@ import org.fao.geonet.csw.common.ResultType;
 import org.fao.geonet.csw.common.exceptions.CatalogException;
 import org.fao.geonet.csw.common.exceptions.InvalidParameterValueEx;
 import org.fao.geonet.csw.common.exceptions.NoApplicableCodeEx;
-import org.fao.geonet.domain.AbstractMetadata;
 import org.fao.geonet.kernel.DataManager;
 import org.fao.geonet.kernel.SchemaManager;
-import org.fao.geonet.kernel.csw.services.getrecords.es.CswFilter2Es;
-import org.fao.geonet.kernel.datamanager.IMetadataUtils;
+import org.fao.geonet.kernel.csw.services.getrecords.es.EsQueryTemplateCache;
 import org.fao.geonet.kernel.schema.MetadataSchema;
 import org.fao.geonet.kernel.search.EsFilterBuilder;
 import org.fao.geonet.kernel.search.EsSearchManager;
@@ -84,9 +81,6 @@ public class SearchController {
     @Autowired
     NodeInfo node;
 
-    @Autowired
-    IMetadataUtils metadataUtils;
-
     @Autowired
     private EsSearchManager searchManager;
 
@@ -96,6 +90,9 @@ public class SearchController {
     @Autowired
     private EsFilterBuilder esFilterBuilder;
 
+    @Autowired
+    private EsQueryTemplateCache queryTemplateCache;
+
 
     @Autowired
     private SchemaManager schemaManager;
@@ -443,16 +440,11 @@ public class SearchController {
                                          Set<String> elemNames, String typeName, int maxHitsFromSummary,
                                          String strategy) throws CatalogException {
 
-        String elasticSearchQuery = convertCswFilterToEsQuery(filterExpr, filterVersion);
-
         JsonNode esJsonQuery;
 
         try {
             String filterQueryString = esFilterBuilder.build(context, "metadata", false, node);
-            String jsonQuery = String.format(elasticSearchQuery, filterQueryString);
-
-            ObjectMapper objectMapper = new ObjectMapper();
-            esJsonQuery = objectMapper.readTree(jsonQuery);
+            esJsonQuery = queryTemplateCache.getQuery(filterExpr, filterVersion, filterQueryString, fieldMapper);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -478,12 +470,10 @@ public class SearchController {
             int counter = 0;
 
             for(SearchHit hit : hits) {
-                int mdId =  Integer.parseInt((String) hit.getSourceAsMap().get("id"));
-
-                AbstractMetadata metadata = metadataUtils.findOne(mdId);
+                String mdId = (String) hit.getSourceAsMap().get("id");
 
                 String displayLanguage = context.getLanguage();
-                Element resultMD = retrieveMetadata(context, metadata.getId() + "",
+                Element resultMD = retrieveMetadata(context, mdId,
                     setName, outSchema, elemNames, typeName, resultType, strategy, displayLanguage);
 
                 if (resultMD != null) {
@@ -557,10 +547,6 @@ public class SearchController {
         }
     }
 
-    private String  convertCswFilterToEsQuery(Element xml, String filterVersion) {
-        return CswFilter2Es.translate(FilterParser.parseFilter(xml, filterVersion), fieldMapper);
-    }
-
     /**
      * Applies postprocessing stylesheet if available.
      *
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2001-2023 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.csw.services.getrecords.es;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.fao.geonet.kernel.csw.services.getrecords.FilterParser;
+import org.fao.geonet.kernel.csw.services.getrecords.IFieldMapper;
+import org.fao.geonet.utils.Xml;
+import org.jdom.Element;
+import org.springframework.beans.factory.annotation.Value;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Cache of the Elasticsearch queries translated from CSW filters.
+ * <p/>
+ * Harvesters send the same GetRecords constraint many times, only changing the paging.
+ * The filter is parsed and translated by {@link CswFilter2Es} once and the result is kept
+ * as a parsed query template. The privilege filter of the user is then set in the filter
+ * clause of a copy of the template, so the query is not formatted and parsed again for each
+ * request.
+ */
+public class EsQueryTemplateCache {
+    /**
+     * Mapper shared by the CSW search. It is thread safe as long as its configuration is not
+     * changed.
+     */
+    public static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * Value of the filter clause of the translated queries replaced by the privilege filter.
+     */
+    static final String FILTER_PLACEHOLDER = "%s";
+
+    @Value("${csw.getrecords.queryCache.maxsize:1000}")
+    private long maxSize = 1000;
+
+    private Cache<String, ObjectNode> templates;
+
+    private Cache<String, TextNode> privilegeFilters;
+
+    public EsQueryTemplateCache() {
+    }
+
+    public EsQueryTemplateCache(long maxSize) {
+        this.maxSize = maxSize;
+        init();
+    }
+
+    @PostConstruct
+    public void init() {
+        templates = CacheBuilder.newBuilder()
+            .maximumSize(maxSize)
+            .build();
+        privilegeFilters = CacheBuilder.newBuilder()
+            .maximumSize(maxSize)
+            .build();
+    }
+
+    /**
+     * Builds the Elasticsearch query of a CSW filter for a user.
+     *
+     * @param filterExpr      the CSW filter or null to match all records.
+     * @param filterVersion   the filter version.
+     * @param privilegeFilter the privilege filter of the user, as built by
+     *                        {@link org.fao.geonet.kernel.search.EsFilterBuilder}. It is a query
+     *                        string escaped to be inserted in a JSON string.
+     * @param fieldMapper     the mapper of the CSW queryables to index fields.
+     * @return a new query the caller can modify.
+     */
+    public ObjectNode getQuery(Element filterExpr, String filterVersion,
+                               String privilegeFilter, IFieldMapper fieldMapper) throws JsonProcessingException {
+        ObjectNode query = getTemplate(filterExpr, filterVersion, fieldMapper).deepCopy();
+        ObjectNode filterClause = (ObjectNode) query.path("bool").path("filter").path("query_string");
+        filterClause.set("query", getPrivilegeFilter(privilegeFilter));
+        return query;
+    }
+
+    /**
+     * @return the translated query of the filter, shared by all users. Must not be modified.
+     */
+    ObjectNode getTemplate(Element filterExpr, String filterVersion,
+                           IFieldMapper fieldMapper) throws JsonProcessingException {
+        // The key is the filter as serialized for the filter parser, so filters only
+        // differing by indentation share the same template.
+        String key = filterVersion + "|" + (filterExpr == null ? "" : Xml.getString(filterExpr));
+        ObjectNode template = templates.getIfPresent(key);
+        if (template == null) {
+            String translation = CswFilter2Es.translate(
+                FilterParser.parseFilter(filterExpr, filterVersion), fieldMapper);
+            template = (ObjectNode) OBJECT_MAPPER.readTree(translation);
+            JsonNode filterClause = template.path("bool").path("filter").path("query_string");
+            if (!filterClause.isObject() || !FILTER_PLACEHOLDER.equals(filterClause.path("query").asText())) {
+                throw new IllegalStateException(String.format(
+                    "Translated query '%s' does not have a filter clause for the privileges.", translation));
+            }
+            templates.put(key, template);
+        }
+        return template;
+    }
+
+    private TextNode getPrivilegeFilter(String privilegeFilter) throws JsonProcessingException {
+        TextNode filter = privilegeFilters.getIfPresent(privilegeFilter);
+        if (filter == null) {
+            // The privilege filter is escaped for a JSON string, read it as one
+            // to get the same query string as when it was formatted in the query.
+            filter = (TextNode) OBJECT_MAPPER.readTree("\"" + privilegeFilter + "\"");
+            privilegeFilters.put(privilegeFilter, filter);
+        }
+        return filter;
+    }
+}
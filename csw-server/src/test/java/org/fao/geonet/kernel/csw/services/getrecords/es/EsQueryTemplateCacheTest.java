@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2001-2023 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+package org.fao.geonet.kernel.csw.services.getrecords.es;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.fao.geonet.kernel.csw.services.getrecords.FilterParser;
+import org.fao.geonet.kernel.csw.services.getrecords.IFieldMapper;
+import org.fao.geonet.utils.Xml;
+import org.jdom.Element;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.opengis.filter.capability.FilterCapabilities;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * EsQueryTemplateCache must build the same queries as formatting the privilege filter
+ * in the translation of the CSW filter.
+ */
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(classes = CswFilter2EsTestConfiguration.class)
+class EsQueryTemplateCacheTest {
+
+    private static final String PRIVILEGE_FILTER =
+        "(op0:(1 OR 2 OR \\\\-1) owner:3) AND (isTemplate:n) AND (draft:n OR draft:e)";
+
+    private static final String TYPE_AND_BBOX_FILTER =
+        "<ogc:Filter xmlns:ogc=\"http://www.opengis.net/ogc\">\n"
+            + "  <ogc:And>\n"
+            + "    <ogc:PropertyIsEqualTo>\n"
+            + "      <ogc:PropertyName>Type</ogc:PropertyName>\n"
+            + "      <ogc:Literal>dataset</ogc:Literal>\n"
+            + "    </ogc:PropertyIsEqualTo>\n"
+            + "    <ogc:BBOX>\n"
+            + "      <gml:Envelope xmlns:gml=\"http://www.opengis.net/gml\">\n"
+            + "        <gml:lowerCorner>-10 35</gml:lowerCorner>\n"
+            + "        <gml:upperCorner>30 70</gml:upperCorner>\n"
+            + "      </gml:Envelope>\n"
+            + "    </ogc:BBOX>\n"
+            + "  </ogc:And>\n"
+            + "</ogc:Filter>";
+
+    private static final String ANY_TEXT_FILTER =
+        "<ogc:Filter xmlns:ogc=\"http://www.opengis.net/ogc\">\n"
+            + "  <ogc:PropertyIsLike wildCard=\"%\" singleChar=\"_\" escapeChar=\"\\\">\n"
+            + "    <ogc:PropertyName>AnyText</ogc:PropertyName>\n"
+            + "    <ogc:Literal>%water%</ogc:Literal>\n"
+            + "  </ogc:PropertyIsLike>\n"
+            + "</ogc:Filter>";
+
+    private static final String MODIFIED_AND_KEYWORD_FILTER =
+        "<ogc:Filter xmlns:ogc=\"http://www.opengis.net/ogc\">\n"
+            + "  <ogc:And>\n"
+            + "    <ogc:PropertyIsGreaterThanOrEqualTo>\n"
+            + "      <ogc:PropertyName>Modified</ogc:PropertyName>\n"
+            + "      <ogc:Literal>2020-01-01</ogc:Literal>\n"
+            + "    </ogc:PropertyIsGreaterThanOrEqualTo>\n"
+            + "    <ogc:PropertyIsEqualTo>\n"
+            + "      <ogc:PropertyName>Subject</ogc:PropertyName>\n"
+            + "      <ogc:Literal>Hydrography</ogc:Literal>\n"
+            + "    </ogc:PropertyIsEqualTo>\n"
+            + "  </ogc:And>\n"
+            + "</ogc:Filter>";
+
+    @Autowired
+    IFieldMapper fieldMapper;
+
+    @Test
+    void testQueryIsTheFormattedTranslation() throws Exception {
+        EsQueryTemplateCache cache = new EsQueryTemplateCache(10);
+
+        for (String filter : new String[]{TYPE_AND_BBOX_FILTER, ANY_TEXT_FILTER, MODIFIED_AND_KEYWORD_FILTER}) {
+            assertEquals(formatQuery(filter, PRIVILEGE_FILTER),
+                cache.getQuery(Xml.loadString(filter, false), FilterCapabilities.VERSION_110,
+                    PRIVILEGE_FILTER, fieldMapper));
+        }
+        assertEquals(formatQuery(null, PRIVILEGE_FILTER),
+            cache.getQuery(null, FilterCapabilities.VERSION_110, PRIVILEGE_FILTER, fieldMapper));
+    }
+
+    @Test
+    void testTemplateIsSharedByUsers() throws Exception {
+        EsQueryTemplateCache cache = new EsQueryTemplateCache(10);
+        Element filter = Xml.loadString(TYPE_AND_BBOX_FILTER, false);
+        Element indentedFilter = Xml.loadString(TYPE_AND_BBOX_FILTER.replace("\n", "\n    "), false);
+
+        ObjectNode template = cache.getTemplate(filter, FilterCapabilities.VERSION_110, fieldMapper);
+        assertSame(template, cache.getTemplate(indentedFilter, FilterCapabilities.VERSION_110, fieldMapper));
+
+        ObjectNode adminQuery = cache.getQuery(filter, FilterCapabilities.VERSION_110, "*:*", fieldMapper);
+        ObjectNode userQuery = cache.getQuery(filter, FilterCapabilities.VERSION_110, PRIVILEGE_FILTER, fieldMapper);
+        assertNotSame(adminQuery, userQuery);
+        assertEquals("*:*", adminQuery.at("/bool/filter/query_string/query").asText());
+        assertEquals(EsQueryTemplateCache.FILTER_PLACEHOLDER,
+            template.at("/bool/filter/query_string/query").asText());
+    }
+
+    @Test
+    void testLiteralWithPercent() throws Exception {
+        EsQueryTemplateCache cache = new EsQueryTemplateCache(10);
+        String filter = MODIFIED_AND_KEYWORD_FILTER.replace("Hydrography", "100%");
+
+        // Formatting the privilege filter in the query fails on the literal.
+        ObjectNode query = cache.getQuery(Xml.loadString(filter, false), FilterCapabilities.VERSION_110,
+            PRIVILEGE_FILTER, fieldMapper);
+
+        assertEquals("(op0:(1 OR 2 OR \\-1) owner:3) AND (isTemplate:n) AND (draft:n OR draft:e)",
+            query.at("/bool/filter/query_string/query").asText());
+    }
+
+    /**
+     * Compares the query built from the cache with the query formatted and parsed for each
+     * request, on filters typically sent by INSPIRE harvesters.
+     */
+    @Test
+    @Disabled
+    void benchmarkQueryBuild() throws Exception {
+        EsQueryTemplateCache cache = new EsQueryTemplateCache(10);
+        String[] filters = {TYPE_AND_BBOX_FILTER, ANY_TEXT_FILTER, MODIFIED_AND_KEYWORD_FILTER};
+        Element[] elements = new Element[filters.length];
+        for (int i = 0; i < filters.length; i++) {
+            elements[i] = Xml.loadString(filters[i], false);
+        }
+
+        measurePerformance("formatted", () -> {
+            for (Element element : elements) {
+                String translation = CswFilter2Es.translate(
+                    FilterParser.parseFilter(element, FilterCapabilities.VERSION_110), fieldMapper);
+                EsQueryTemplateCache.OBJECT_MAPPER.readTree(String.format(translation, PRIVILEGE_FILTER));
+            }
+        });
+        measurePerformance("cached", () -> {
+            for (Element element : elements) {
+                cache.getQuery(element, FilterCapabilities.VERSION_110, PRIVILEGE_FILTER, fieldMapper);
+            }
+        });
+    }
+
+    private JsonNode formatQuery(String filter, String privilegeFilter) throws Exception {
+        String translation = CswFilter2Es.translate(
+            FilterParser.parseFilter(filter, FilterCapabilities.VERSION_110), fieldMapper);
+        return EsQueryTemplateCache.OBJECT_MAPPER.readTree(String.format(translation, privilegeFilter));
+    }
+
+    private static void measurePerformance(String name, TestFunction testFunction) throws Exception {
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5)) {
+            testFunction.exec();
+        }
+        long executions = 0;
+        start = System.nanoTime();
+        while (System.nanoTime() - start < TimeUnit.SECONDS.toNanos(20)) {
+            testFunction.exec();
+            executions++;
+        }
+        long duration = System.nanoTime() - start;
+        System.out.printf("%s: %d executions, average of %.3fms per execution%n",
+            name, executions, TimeUnit.NANOSECONDS.toMicros(duration) / 1000d / executions);
+    }
+
+    private interface TestFunction {
+        void exec() throws Exception;
+    }
+}
@@ -22,6 +22,7 @@
  */
 package org.fao.geonet.domain;
 
+import org.fao.geonet.domain.converter.MetadataDataType;
 import org.fao.geonet.utils.Xml;
 import org.hibernate.annotations.Type;
 import org.jdom.Element;
@@ -111,14 +112,16 @@ public abstract class AbstractMetadata extends GeonetEntity {
     }
 
     /**
-     * Get the metadata data as a string (typically XML)
+     * Get the metadata data as a string (typically XML). The column may hold the
+     * document compressed (see {@link MetadataDataCodec}), the entity always holds the
+     * plain document.
      *
      * @return the metadata data as a string.
      */
     @Column(nullable = false)
     @Lob
     @Basic(fetch = FetchType.LAZY)
-    @Type(type = "org.hibernate.type.TextType") // this is a work around for postgres so postgres can correctly load clobs
+    @Type(type = MetadataDataType.NAME) // text type as a work around for postgres so postgres can correctly load clobs
     public String getData() {
         return _data;
     }
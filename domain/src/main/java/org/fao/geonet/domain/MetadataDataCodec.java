@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2001-2023 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.domain;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Encode and decode the metadata document as stored in the data column of the metadata tables.
+ * <p/>
+ * When compression is enabled, documents are deflated and stored in base64 prefixed by
+ * {@link #DEFLATE_MARKER}. Documents without the marker (ie. all records stored before
+ * compression was enabled) are returned as is, so compressed and plain rows can coexist.
+ */
+public final class MetadataDataCodec {
+    /**
+     * Prefix of the compressed documents. A XML document can not start with it.
+     */
+    public static final String DEFLATE_MARKER = "{deflate}";
+
+    private static volatile boolean compressionEnabled = false;
+
+    private MetadataDataCodec() {
+        // no instantiation
+    }
+
+    public static boolean isCompressionEnabled() {
+        return compressionEnabled;
+    }
+
+    /**
+     * Enable or disable compression for the documents written from now on.
+     * Existing rows are not modified.
+     */
+    public static void setCompressionEnabled(boolean enabled) {
+        compressionEnabled = enabled;
+    }
+
+    /**
+     * @return true if the stored value is compressed.
+     */
+    public static boolean isCompressed(String stored) {
+        return stored != null && stored.startsWith(DEFLATE_MARKER);
+    }
+
+    /**
+     * @return the value to store for the document according to the current compression mode.
+     */
+    public static String encode(String data) {
+        if (data == null || !compressionEnabled) {
+            return data;
+        }
+        return compress(data);
+    }
+
+    /**
+     * @return the value to store for a document compressed whatever the compression mode
+     * as soon as it has at least minLength characters. Shorter documents are stored as is
+     * as compression would not save space.
+     */
+    public static String encode(String data, int minLength) {
+        if (data == null || data.length() < minLength) {
+            return data;
+        }
+        return compress(data);
+    }
+
+    /**
+     * @return the document for a stored value, compressed or not.
+     */
+    public static String decode(String stored) {
+        if (!isCompressed(stored)) {
+            return stored;
+        }
+        return decompress(stored);
+    }
+
+    static String compress(String data) {
+        byte[] input = data.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(64, input.length / 4));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                output.write(buffer, 0, count);
+            }
+            return DEFLATE_MARKER + Base64.getEncoder().encodeToString(output.toByteArray());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static String decompress(String stored) {
+        byte[] input = Base64.getDecoder().decode(stored.substring(DEFLATE_MARKER.length()));
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(input.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated compressed metadata document.");
+                }
+                output.write(buffer, 0, count);
+            }
+            return new String(output.toByteArray(), StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Invalid compressed metadata document. Error is: " + e.getMessage(), e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
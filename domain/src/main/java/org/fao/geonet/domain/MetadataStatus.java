@@ -24,6 +24,7 @@
 package org.fao.geonet.domain;
 
 import com.fasterxml.jackson.annotation.*;
+import org.fao.geonet.domain.converter.CompressedTextType;
 import org.fao.geonet.domain.converter.JpaConverterJson;
 import org.fao.geonet.entitylistener.AbstractEntityListenerManager;
 import org.hibernate.annotations.Type;
@@ -393,8 +394,14 @@ public class MetadataStatus extends GeonetEntity {
         }
     }
 
+    /**
+     * Get the state of the record before the change. Large states (eg. the record XML)
+     * are stored compressed (see {@link CompressedTextType}).
+     *
+     * @return the previous state.
+     */
     @Lob
-    @Type(type = "org.hibernate.type.TextType")
+    @Type(type = CompressedTextType.NAME)
     @Basic(fetch = FetchType.LAZY)
     public String getPreviousState() {
         return previousState;
@@ -405,7 +412,7 @@ public class MetadataStatus extends GeonetEntity {
     }
 
     @Lob
-    @Type(type = "org.hibernate.type.TextType")
+    @Type(type = CompressedTextType.NAME)
     @Basic(fetch = FetchType.LAZY)
     public String getCurrentState() {
         return currentState;
@@ -23,6 +23,8 @@
 
 package org.fao.geonet.domain;
 
+import org.fao.geonet.entitylistener.SchematronEntityListenerManager;
+
 import java.io.File;
 import java.util.Comparator;
 import java.util.Map;
@@ -33,6 +35,7 @@ import javax.persistence.Cacheable;
 import javax.persistence.CollectionTable;
 import javax.persistence.Column;
 import javax.persistence.ElementCollection;
+import javax.persistence.EntityListeners;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
@@ -57,6 +60,7 @@ import javax.persistence.UniqueConstraint;
 @Cacheable
 @Access(AccessType.PROPERTY)
 @SequenceGenerator(name = Schematron.ID_SEQ_NAME, initialValue = 100, allocationSize = 1)
+@EntityListeners(SchematronEntityListenerManager.class)
 public class Schematron extends Localized {
     public static final Comparator<? super Schematron> DISPLAY_PRIORITY_COMPARATOR = new Comparator<Schematron>() {
         @Override
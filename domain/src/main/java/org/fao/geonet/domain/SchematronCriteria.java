@@ -23,6 +23,7 @@
 
 package org.fao.geonet.domain;
 
+import org.fao.geonet.entitylistener.SchematronCriteriaEntityListenerManager;
 import org.jdom.Element;
 import org.jdom.Namespace;
 import org.springframework.context.ApplicationContext;
@@ -43,6 +44,7 @@ import java.util.List;
 @Cacheable
 @Access(AccessType.PROPERTY)
 @SequenceGenerator(name = SchematronCriteria.ID_SEQ_NAME, initialValue = 100, allocationSize = 1)
+@EntityListeners(SchematronCriteriaEntityListenerManager.class)
 public class SchematronCriteria extends GeonetEntity {
     static final String ID_SEQ_NAME = "schematron_criteria_id_seq";
     static final String EL_UI_TYPE = "uitype";
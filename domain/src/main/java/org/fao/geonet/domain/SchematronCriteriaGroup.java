@@ -23,6 +23,7 @@
 
 package org.fao.geonet.domain;
 
+import org.fao.geonet.entitylistener.SchematronCriteriaGroupEntityListenerManager;
 import org.jdom.Element;
 
 import javax.annotation.Nonnull;
@@ -38,6 +39,7 @@ import java.util.List;
 @Table(name = "SchematronCriteriaGroup")
 //@Cacheable
 @Access(AccessType.PROPERTY)
+@EntityListeners(SchematronCriteriaGroupEntityListenerManager.class)
 public class SchematronCriteriaGroup extends GeonetEntity {
     private SchematronCriteriaGroupId id;
     private List<SchematronCriteria> criteria = new ArrayList<SchematronCriteria>();
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2001-2023 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.domain.converter;
+
+import org.fao.geonet.domain.MetadataDataCodec;
+import org.hibernate.type.AbstractSingleColumnStandardBasicType;
+import org.hibernate.type.descriptor.WrapperOptions;
+import org.hibernate.type.descriptor.java.StringTypeDescriptor;
+import org.hibernate.type.descriptor.sql.LongVarcharTypeDescriptor;
+
+/**
+ * Same as {@link org.hibernate.type.TextType} (so postgres can load the text columns) but
+ * the values of at least {@link #MIN_LENGTH} characters are stored compressed (see
+ * {@link MetadataDataCodec}). Values stored uncompressed are read as is, so existing rows
+ * remain readable. Entities always hold the plain value.
+ */
+public class CompressedTextType extends AbstractSingleColumnStandardBasicType<String> {
+    public static final String NAME = "org.fao.geonet.domain.converter.CompressedTextType";
+
+    /**
+     * Below that size, the deflated and base64 encoded value is not smaller.
+     */
+    public static final int MIN_LENGTH = 512;
+
+    public CompressedTextType() {
+        super(LongVarcharTypeDescriptor.INSTANCE, CompressedStringTypeDescriptor.INSTANCE);
+    }
+
+    @Override
+    public String getName() {
+        return "compressed_text";
+    }
+
+    static class CompressedStringTypeDescriptor extends StringTypeDescriptor {
+        static final CompressedStringTypeDescriptor INSTANCE = new CompressedStringTypeDescriptor();
+
+        @Override
+        public <X> X unwrap(String value, Class<X> type, WrapperOptions options) {
+            return super.unwrap(MetadataDataCodec.encode(value, MIN_LENGTH), type, options);
+        }
+
+        @Override
+        public <X> String wrap(X value, WrapperOptions options) {
+            return MetadataDataCodec.decode(super.wrap(value, options));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2001-2023 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+package org.fao.geonet.domain.converter;
+
+import org.fao.geonet.domain.MetadataDataCodec;
+import org.hibernate.type.AbstractSingleColumnStandardBasicType;
+import org.hibernate.type.descriptor.WrapperOptions;
+import org.hibernate.type.descriptor.java.StringTypeDescriptor;
+import org.hibernate.type.descriptor.sql.LongVarcharTypeDescriptor;
+
+/**
+ * Type of the data column of the metadata tables. Same as {@link org.hibernate.type.TextType}
+ * (so postgres can load the text columns) but the records are stored compressed or not
+ * depending on the compression mode (see {@link MetadataDataCodec}). Entities always hold
+ * the plain document, so criteria on the data attribute are bound with the stored value.
+ */
+public class MetadataDataType extends AbstractSingleColumnStandardBasicType<String> {
+    public static final String NAME = "org.fao.geonet.domain.converter.MetadataDataType";
+
+    public MetadataDataType() {
+        super(LongVarcharTypeDescriptor.INSTANCE, MetadataDataTypeDescriptor.INSTANCE);
+    }
+
+    @Override
+    public String getName() {
+        return "metadata_data";
+    }
+
+    static class MetadataDataTypeDescriptor extends StringTypeDescriptor {
+        static final MetadataDataTypeDescriptor INSTANCE = new MetadataDataTypeDescriptor();
+
+        @Override
+        public <X> X unwrap(String value, Class<X> type, WrapperOptions options) {
+            return super.unwrap(MetadataDataCodec.encode(value), type, options);
+        }
+
+        @Override
+        public <X> String wrap(X value, WrapperOptions options) {
+            return MetadataDataCodec.decode(super.wrap(value, options));
+        }
+    }
+}
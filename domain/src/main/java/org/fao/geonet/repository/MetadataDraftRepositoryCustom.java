@@ -36,6 +36,7 @@ import org.springframework.data.repository.NoRepositoryBean;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -106,4 +107,14 @@ public interface MetadataDraftRepositoryCustom<T extends AbstractMetadata> {
     @Nullable
     Element findUuidsAndChangeDatesAndSchemaId(List<Integer> ids);
 
+    /**
+     * Load the header (ids, data, source and harvest information without the XML document)
+     * of a set of metadata.
+     *
+     * @param ids the ids of the metadata
+     * @return the headers of the metadata found
+     */
+    @Nonnull
+    List<MetadataHeader> findHeaders(@Nonnull Collection<Integer> ids);
+
 }
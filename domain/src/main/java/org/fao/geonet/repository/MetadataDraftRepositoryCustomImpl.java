@@ -41,6 +41,7 @@ import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.repository.NoRepositoryBean;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -233,4 +234,19 @@ public class MetadataDraftRepositoryCustomImpl implements MetadataDraftRepositor
         return result;
     }
 
+    @Nonnull
+    @Override
+    public List<MetadataHeader> findHeaders(@Nonnull Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        TypedQuery<MetadataHeader> query = _entityManager.createQuery(
+            "select new org.fao.geonet.repository.MetadataHeader("
+                + "id, uuid, dataInfo.schemaId, dataInfo.type_JPAWorkaround, "
+                + "dataInfo.createDate, dataInfo.changeDate, dataInfo.popularity, "
+                + "sourceInfo.sourceId, sourceInfo.owner, sourceInfo.groupOwner, "
+                + "harvestInfo.harvested_JPAWorkaround, harvestInfo.uuid) "
+                + "from MetadataDraft where id in :ids", MetadataHeader.class);
+        return query.setParameter("ids", ids).getResultList();
+    }
 }
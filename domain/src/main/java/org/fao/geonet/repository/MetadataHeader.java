@@ -0,0 +1,125 @@
+/*
+ * Copyright (C) 2001-2023 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.repository;
+
+import org.fao.geonet.domain.Constants;
+import org.fao.geonet.domain.ISODate;
+import org.fao.geonet.domain.MetadataSourceInfo;
+import org.fao.geonet.domain.MetadataType;
+
+/**
+ * Read-only projection of a metadata record containing its identifiers, data, source and harvest
+ * information but not its XML document. Use it instead of loading the metadata entity
+ * when the XML is not needed.
+ */
+public class MetadataHeader {
+    private final int id;
+    private final String uuid;
+    private final String schemaId;
+    private final MetadataType type;
+    private final ISODate createDate;
+    private final ISODate changeDate;
+    private final int popularity;
+    private final String sourceId;
+    private final Integer owner;
+    private final Integer groupOwner;
+    private final boolean harvested;
+    private final String harvestUuid;
+
+    public MetadataHeader(Integer id, String uuid, String schemaId, char type,
+                          ISODate createDate, ISODate changeDate, int popularity,
+                          String sourceId, Integer owner, Integer groupOwner,
+                          char harvested, String harvestUuid) {
+        this.id = id;
+        this.uuid = uuid;
+        this.schemaId = schemaId;
+        this.type = MetadataType.lookup(type);
+        this.createDate = createDate;
+        this.changeDate = changeDate;
+        this.popularity = popularity;
+        this.sourceId = sourceId;
+        this.owner = owner;
+        this.groupOwner = groupOwner;
+        this.harvested = Constants.toBoolean_fromYNChar(harvested);
+        this.harvestUuid = harvestUuid;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public String getSchemaId() {
+        return schemaId;
+    }
+
+    public MetadataType getType() {
+        return type;
+    }
+
+    public ISODate getCreateDate() {
+        return createDate;
+    }
+
+    public ISODate getChangeDate() {
+        return changeDate;
+    }
+
+    public int getPopularity() {
+        return popularity;
+    }
+
+    public String getSourceId() {
+        return sourceId;
+    }
+
+    public Integer getOwner() {
+        return owner;
+    }
+
+    public Integer getGroupOwner() {
+        return groupOwner;
+    }
+
+    public boolean isHarvested() {
+        return harvested;
+    }
+
+    public String getHarvestUuid() {
+        return harvestUuid;
+    }
+
+    /**
+     * @return a new (detached) source info built from the header.
+     */
+    public MetadataSourceInfo getSourceInfo() {
+        return new MetadataSourceInfo()
+            .setSourceId(sourceId)
+            .setOwner(owner)
+            .setGroupOwner(groupOwner);
+    }
+}
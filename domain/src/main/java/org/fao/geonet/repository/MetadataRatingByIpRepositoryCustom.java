@@ -23,6 +23,8 @@
 
 package org.fao.geonet.repository;
 
+import java.util.Collection;
+
 /**
  * Custom crafted methods for the MetadataRatingByIpRepository.
  * <p/>
@@ -47,4 +49,12 @@ public interface MetadataRatingByIpRepositoryCustom {
      * @return the number of rows deleted
      */
     int deleteAllById_MetadataId(int metadataId);
+
+    /**
+     * Delete all the entities that are related to the indicated set of metadata.
+     *
+     * @param metadataIds the ids of the metadata.
+     * @return the number of rows deleted
+     */
+    int deleteAllById_MetadataIdIn(Collection<Integer> metadataIds);
 }
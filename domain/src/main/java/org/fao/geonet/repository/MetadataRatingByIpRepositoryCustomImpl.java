@@ -36,6 +36,8 @@ import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Expression;
 import javax.persistence.criteria.Root;
 
+import java.util.Collection;
+
 /**
  * Implementation for MetadataRatingByIpRepositoryCustom interface.
  * <p/>
@@ -66,4 +68,17 @@ public class MetadataRatingByIpRepositoryCustomImpl implements MetadataRatingByI
         Query query = _entityManager.createQuery("DELETE FROM " + entityType + " WHERE " + metadataIdPropName + " = " + metadataId);
         return query.executeUpdate();
     }
+
+    @Override
+    @Transactional
+    public int deleteAllById_MetadataIdIn(final Collection<Integer> metadataIds) {
+        if (metadataIds.isEmpty()) {
+            return 0;
+        }
+        String entityType = MetadataRatingByIp.class.getSimpleName();
+        String metadataIdPropName = MetadataRatingByIpId_.metadataId.getName();
+        Query query = _entityManager.createQuery("DELETE FROM " + entityType + " WHERE " + metadataIdPropName + " IN :metadataIds");
+        query.setParameter("metadataIds", metadataIds);
+        return query.executeUpdate();
+    }
 }
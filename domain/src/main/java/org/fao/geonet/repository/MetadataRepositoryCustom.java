@@ -23,6 +23,7 @@
 
 package org.fao.geonet.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -123,4 +124,22 @@ public interface MetadataRepositoryCustom<T extends AbstractMetadata> {
     @Nullable
     Element findUuidsAndChangeDatesAndSchemaId(List<Integer> ids);
 
+    /**
+     * Load the header (ids, data, source and harvest information without the XML document)
+     * of a set of metadata.
+     *
+     * @param ids the ids of the metadata
+     * @return the headers of the metadata found
+     */
+    @Nonnull
+    List<MetadataHeader> findHeaders(@Nonnull Collection<Integer> ids);
+
+    /**
+     * Increment the popularity of a metadata without loading it.
+     *
+     * @param id the id of the metadata
+     * @return the number of metadata updated
+     */
+    int incrementPopularity(int id);
+
 }
@@ -38,7 +38,10 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.persistence.*;
 import javax.persistence.criteria.*;
+import org.springframework.transaction.annotation.Transactional;
+
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -228,4 +231,28 @@ public class MetadataRepositoryCustomImpl implements MetadataRepositoryCustom<Me
         return result;
     }
 
+    @Nonnull
+    @Override
+    public List<MetadataHeader> findHeaders(@Nonnull Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        TypedQuery<MetadataHeader> query = _entityManager.createQuery(
+            "select new org.fao.geonet.repository.MetadataHeader("
+                + "id, uuid, dataInfo.schemaId, dataInfo.type_JPAWorkaround, "
+                + "dataInfo.createDate, dataInfo.changeDate, dataInfo.popularity, "
+                + "sourceInfo.sourceId, sourceInfo.owner, sourceInfo.groupOwner, "
+                + "harvestInfo.harvested_JPAWorkaround, harvestInfo.uuid) "
+                + "from Metadata where id in :ids", MetadataHeader.class);
+        return query.setParameter("ids", ids).getResultList();
+    }
+
+    @Override
+    @Transactional
+    public int incrementPopularity(int id) {
+        return _entityManager.createQuery(
+            "update Metadata set dataInfo.popularity = dataInfo.popularity + 1 where id = :id")
+            .setParameter("id", id)
+            .executeUpdate();
+    }
 }
@@ -27,6 +27,8 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+
 /**
  * Custom repository methods for the MetadataValidationRepository User: Jesse Date: 9/5/13 Time:
  * 10:17 PM
@@ -43,6 +45,17 @@ public interface MetadataValidationRepositoryCustom {
     @Query(value="DELETE FROM MetadataValidation v where v.id.metadataId = ?1")
     int deleteAllById_MetadataId(Integer metadataId);
 
+    /**
+     * Delete all the entities that are related to the indicated set of metadata.
+     *
+     * @param metadataIds the ids of the metadata.
+     * @return the number of rows deleted
+     */
+    @Modifying(clearAutomatically=true)
+    @Transactional
+    @Query(value="DELETE FROM MetadataValidation v where v.id.metadataId in ?1")
+    int deleteAllById_MetadataIdIn(Collection<Integer> metadataIds);
+
     /**
      * Delete all the entities that are related to the indicated metadata
      * and are internal validation (eg. XSD or schematron).
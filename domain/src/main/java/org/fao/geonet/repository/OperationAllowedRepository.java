@@ -23,6 +23,7 @@
 
 package org.fao.geonet.repository;
 
+import java.util.Collection;
 import java.util.List;
 
 import javax.annotation.Nonnegative;
@@ -55,6 +56,15 @@ public interface OperationAllowedRepository extends GeonetRepository<OperationAl
     @Nonnull
     List<OperationAllowed> findAllById_MetadataId(int metadataId);
 
+    /**
+     * Find all operations allowed entities for a set of metadata ids.
+     *
+     * @param metadataIds the metadata ids
+     * @return all operation allowed entities with one of the given metadataids.
+     */
+    @Nonnull
+    List<OperationAllowed> findAllById_MetadataIdIn(Collection<Integer> metadataIds);
+
     /**
      * Find all operations allowed entities with the given groupid.
      *
@@ -99,6 +109,17 @@ public interface OperationAllowedRepository extends GeonetRepository<OperationAl
     @Query("DELETE FROM OperationAllowed where id.metadataId = ?1")
     public int deleteAllByMetadataId(int id);
 
+    /**
+     * Delete all the {@link OperationAllowed} of a set of metadata.
+     *
+     * @param ids          metadata ids
+     * @return the number of entities deleted.
+     */
+    @Transactional
+    @Modifying(clearAutomatically=true)
+    @Query("DELETE FROM OperationAllowed where id.metadataId in ?1")
+    public int deleteAllByMetadataIdIn(Collection<Integer> ids);
+
     /**
      * Delete all the {@link OperationAllowed} with the given id in the id component selected by the
      * operation.
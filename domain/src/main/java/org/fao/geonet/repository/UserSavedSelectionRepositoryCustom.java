@@ -25,6 +25,7 @@ package org.fao.geonet.repository;
 
 import org.fao.geonet.domain.UserSavedSelection;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -44,4 +45,6 @@ public interface UserSavedSelectionRepositoryCustom {
     List<String> findMetadataUpdatedAfter(Integer selectionId, Integer userId, String lastNotificationDate, String nextLastNotificationDate);
 
     int deleteAllByUuid(String metadataUuid);
+
+    int deleteAllByUuidIn(Collection<String> metadataUuids);
 }
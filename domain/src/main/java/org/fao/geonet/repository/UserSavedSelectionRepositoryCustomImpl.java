@@ -41,6 +41,7 @@ import javax.persistence.criteria.ParameterExpression;
 import javax.persistence.criteria.Path;
 import javax.persistence.criteria.Root;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -167,6 +168,25 @@ public class UserSavedSelectionRepositoryCustomImpl
         return deleted;
     }
 
+    @Override
+    @Transactional
+    public int deleteAllByUuidIn(Collection<String> metadataUuids) {
+        if (metadataUuids.isEmpty()) {
+            return 0;
+        }
+        final String metadataUuidPath =
+            SortUtils.createPath(UserSavedSelection_.id, UserSavedSelectionId_.metadataUuid);
+        final String qlString =
+            "DELETE FROM " + UserSavedSelection.class.getSimpleName() +
+                " WHERE " + metadataUuidPath + " IN :metadataUuids";
+        final int deleted = _entityManager.createQuery(qlString)
+            .setParameter("metadataUuids", metadataUuids)
+            .executeUpdate();
+        _entityManager.flush();
+        _entityManager.clear();
+        return deleted;
+    }
+
     @Override
     @Transactional
     public int deleteAllBySelectionAndUser(Integer selection, Integer userId) {
@@ -115,4 +115,16 @@ public class MetadataFileUploadSpecs {
         };
     }
 
+    public static Specification<MetadataFileUpload> isNotDeletedForMetadataIn(final Collection<Integer> metadataIds) {
+        return new Specification<MetadataFileUpload>() {
+            @Override
+            public Predicate toPredicate(Root<MetadataFileUpload> root, CriteriaQuery<?> query, CriteriaBuilder cb) {
+                Path<String> deletedDateAttributePath = root.get(MetadataFileUpload_.deletedDate);
+                Path<Integer> metadataIdAttributePath = root.get(MetadataFileUpload_.metadataId);
+                return cb.and(cb.isNull(deletedDateAttributePath),
+                    metadataIdAttributePath.in(metadataIds));
+            }
+        };
+    }
+
 }
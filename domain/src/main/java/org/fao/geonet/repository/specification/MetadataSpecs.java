@@ -68,6 +68,24 @@ public final class MetadataSpecs {
         };
     }
 
+    /**
+     * Records whose data column is (or is not) stored compressed (see {@link MetadataDataCodec}).
+     */
+    public static Specification<? extends AbstractMetadata> isDataCompressed(final boolean compressed) {
+        return new Specification<AbstractMetadata>() {
+            @Override
+            public Predicate toPredicate(Root<AbstractMetadata> root, CriteriaQuery<?> query, CriteriaBuilder cb) {
+                // Values compared to the data attribute are encoded like the records, so
+                // compare the beginning of the stored value which is a plain string.
+                Path<String> dataPath = root.get(AbstractMetadata_.data);
+                Predicate isCompressed = cb.equal(
+                    cb.substring(dataPath, 1, MetadataDataCodec.DEFLATE_MARKER.length()),
+                    MetadataDataCodec.DEFLATE_MARKER);
+                return compressed ? isCompressed : cb.not(isCompressed);
+            }
+        };
+    }
+
     public static Specification<? extends AbstractMetadata> hasMetadataId(final int metadataId) {
         return new Specification<AbstractMetadata>() {
             @Override
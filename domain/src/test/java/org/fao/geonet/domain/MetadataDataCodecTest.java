@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2001-2023 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.domain;
+
+import org.fao.geonet.domain.converter.MetadataDataType;
+import org.hibernate.type.descriptor.java.JavaTypeDescriptor;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MetadataDataCodecTest {
+    private static final String XML;
+
+    static {
+        StringBuilder builder = new StringBuilder("<gmd:MD_Metadata xmlns:gmd=\"http://www.isotc211.org/2005/gmd\">");
+        for (int i = 0; i < 100; i++) {
+            builder.append("<gmd:title><gco:CharacterString>Titre en français ").append(i)
+                .append("</gco:CharacterString></gmd:title>");
+        }
+        XML = builder.append("</gmd:MD_Metadata>").toString();
+    }
+
+    @After
+    public void tearDown() {
+        MetadataDataCodec.setCompressionEnabled(false);
+    }
+
+    @Test
+    public void testEncodeDisabled() {
+        MetadataDataCodec.setCompressionEnabled(false);
+        assertSame(XML, MetadataDataCodec.encode(XML));
+        assertFalse(MetadataDataCodec.isCompressed(MetadataDataCodec.encode(XML)));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        MetadataDataCodec.setCompressionEnabled(true);
+        String stored = MetadataDataCodec.encode(XML);
+        assertTrue(MetadataDataCodec.isCompressed(stored));
+        assertTrue(stored.length() < XML.length() / 4);
+        assertEquals(XML, MetadataDataCodec.decode(stored));
+    }
+
+    @Test
+    public void testDecodeLegacyRows() {
+        MetadataDataCodec.setCompressionEnabled(true);
+        assertSame(XML, MetadataDataCodec.decode(XML));
+        assertEquals(null, MetadataDataCodec.decode(null));
+    }
+
+    @Test
+    public void testEncodeMinLength() {
+        MetadataDataCodec.setCompressionEnabled(false);
+        String stored = MetadataDataCodec.encode(XML, 512);
+        assertTrue(MetadataDataCodec.isCompressed(stored));
+        assertEquals(XML, MetadataDataCodec.decode(stored));
+
+        assertSame("1", MetadataDataCodec.encode("1", 512));
+        assertEquals(null, MetadataDataCodec.encode(null, 512));
+    }
+
+    @Test
+    public void testMetadataDataType() {
+        JavaTypeDescriptor<String> descriptor = new MetadataDataType().getJavaTypeDescriptor();
+
+        MetadataDataCodec.setCompressionEnabled(true);
+        String stored = descriptor.unwrap(XML, String.class, null);
+        assertTrue(MetadataDataCodec.isCompressed(stored));
+        assertEquals(XML, descriptor.wrap(stored, null));
+
+        MetadataDataCodec.setCompressionEnabled(false);
+        assertEquals(XML, descriptor.unwrap(XML, String.class, null));
+        assertEquals(XML, descriptor.wrap(stored, null));
+    }
+}
@@ -241,6 +241,38 @@ public class MetadataRepositoryTest extends AbstractSpringDataTest {
         assertNotNull(allSourceInfo.get(metadata3.getId()));
     }
 
+    @Test
+    public void testFindHeaders() throws Exception {
+        Metadata metadata = _repo.save(newMetadata());
+        _repo.save(newMetadata());
+
+        final List<MetadataHeader> headers = _repo.findHeaders(Arrays.asList(metadata.getId(), Integer.MAX_VALUE / 2));
+
+        assertEquals(1, headers.size());
+        final MetadataHeader header = headers.get(0);
+        assertEquals(metadata.getId(), header.getId());
+        assertEquals(metadata.getUuid(), header.getUuid());
+        assertEquals(metadata.getDataInfo().getSchemaId(), header.getSchemaId());
+        assertEquals(metadata.getDataInfo().getType(), header.getType());
+        assertEquals(metadata.getSourceInfo(), header.getSourceInfo());
+        assertEquals(metadata.getHarvestInfo().isHarvested(), header.isHarvested());
+        assertEquals(metadata.getHarvestInfo().getUuid(), header.getHarvestUuid());
+
+        assertTrue(_repo.findHeaders(Arrays.asList()).isEmpty());
+    }
+
+    @Test
+    public void testIncrementPopularity() throws Exception {
+        Metadata metadata = _repo.save(newMetadata());
+        final int popularity = metadata.getDataInfo().getPopularity();
+
+        assertEquals(1, _repo.incrementPopularity(metadata.getId()));
+        assertEquals(0, _repo.incrementPopularity(Integer.MAX_VALUE / 2));
+
+        _entityManager.clear();
+        assertEquals(popularity + 1, _repo.findById(metadata.getId()).get().getDataInfo().getPopularity());
+    }
+
     private Metadata updateChangeDate(Metadata metadata, String date) {
         metadata.getDataInfo().setChangeDate(new ISODate(date));
         return metadata;
@@ -139,6 +139,21 @@ public class OperationAllowedRepositoryTest extends AbstractOperationsAllowedTes
         assertFalse(_opAllowRepo.findById(_opAllowed1.getId()).isPresent());
     }
 
+    @Test
+    public void testDeleteByMetadataIdIn() {
+        assertEquals(0, _opAllowRepo.deleteAllByMetadataIdIn(Arrays.asList(Integer.MAX_VALUE / 2)));
+        assertEquals(4, _opAllowRepo.count());
+
+        _opAllowRepo.deleteAllByMetadataIdIn(Arrays.asList(_md1.getId()));
+
+        List<OperationAllowed> opAllowedFound = _opAllowRepo.findAll();
+        assertEquals(1, opAllowedFound.size());
+        assertTrue(opAllowedFound.contains(_opAllowed2));
+
+        _opAllowRepo.deleteAllByMetadataIdIn(Arrays.asList(_md1.getId(), _md2.getId()));
+        assertEquals(0, _opAllowRepo.count());
+    }
+
 
     @Test
     public void testDeleteByGroupId() {
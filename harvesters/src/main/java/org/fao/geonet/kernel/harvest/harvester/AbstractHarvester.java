@@ -34,6 +34,7 @@ import org.fao.geonet.domain.Group;
 import org.fao.geonet.domain.HarvestHistory;
 import org.fao.geonet.domain.HarvestHistory_;
 import org.fao.geonet.domain.ISODate;
+import org.fao.geonet.domain.MetadataSourceInfo;
 import org.fao.geonet.domain.Profile;
 import org.fao.geonet.domain.Source;
 import org.fao.geonet.domain.SourceType;
@@ -282,10 +283,10 @@ public abstract class AbstractHarvester<T extends HarvestResult, P extends Abstr
 
                 final Specification<? extends AbstractMetadata> ownedByHarvester = Specification.where(MetadataSpecs.hasHarvesterUuid(getParams().getUuid()));
                 Set<String> sources = new HashSet<>();
-                for (Integer id : metadataRepository.findAllIdsBy(ownedByHarvester)) {
-                    sources.add(metadataUtils.findOne(id).getSourceInfo().getSourceId());
-                    metadataManager.deleteMetadata(context, "" + id);
+                for (MetadataSourceInfo sourceInfo : metadataManager.findAllSourceInfo(ownedByHarvester).values()) {
+                    sources.add(sourceInfo.getSourceId());
                 }
+                dataMan.batchDeleteMetadataAndUpdateIndex(ownedByHarvester);
 
                 // Remove all sources related to the harvestUuid if they are not linked to any record anymore
                 for (String sourceUuid : sources) {
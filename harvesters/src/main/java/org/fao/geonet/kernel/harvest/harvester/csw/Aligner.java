@@ -27,7 +27,6 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jeeves.server.context.ServiceContext;
 import org.apache.commons.lang.StringUtils;
-import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.search.SearchHit;
 import org.fao.geonet.GeonetContext;
 import org.fao.geonet.Logger;
@@ -70,6 +69,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 import static org.fao.geonet.kernel.search.EsSearchManager.FIELDLIST_UUID;
 import static org.fao.geonet.kernel.setting.Settings.SYSTEM_CSW_TRANSACTION_XPATH_UPDATE_CREATE_NEW_ELEMENTS;
@@ -667,14 +667,9 @@ public class Aligner extends BaseAligner<CswParams> {
         try {
             JsonNode esJsonQuery = objectMapper.readTree(String.format(jsonQuery, datasetIdCode, metadataUuid));
 
-            final SearchResponse queryResult = searchMan.query(
-                esJsonQuery,
-                FIELDLIST_UUID,
-                0, 1000);
-
-            for (SearchHit hit : queryResult.getHits()) {
-                String uuid = hit.getSourceAsMap().get(Geonet.IndexFieldNames.UUID).toString();
-                metadataUuids.add(uuid);
+            try (Stream<SearchHit> hits = searchMan.stream(esJsonQuery, FIELDLIST_UUID)) {
+                hits.forEach(hit -> metadataUuids.add(
+                    hit.getSourceAsMap().get(Geonet.IndexFieldNames.UUID).toString()));
             }
 
         } catch (Exception ex) {
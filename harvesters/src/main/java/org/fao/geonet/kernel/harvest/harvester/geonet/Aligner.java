@@ -48,6 +48,8 @@ import org.fao.geonet.kernel.setting.Settings;
 import org.fao.geonet.repository.GroupRepository;
 import org.fao.geonet.repository.MetadataRepository;
 import org.fao.geonet.schema.iso19139.ISO19139SchemaPlugin;
+import org.fao.geonet.lib.Lib;
+import org.fao.geonet.utils.GeonetHttpRequestFactory;
 import org.fao.geonet.utils.Log;
 import org.fao.geonet.utils.Xml;
 import org.fao.geonet.utils.XmlRequest;
@@ -58,8 +60,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.net.URL;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 
@@ -81,6 +88,9 @@ public class Aligner extends BaseAligner<GeonetParams> {
     private MetadataRepository metadataRepository;
     private Map<String, Map<String, String>> hmRemoteGroups = new HashMap<String, Map<String, String>>();
     private SettingManager settingManager;
+    private ExecutorService mefDownloader;
+    private List<RecordImport> pendingBatch = new ArrayList<>();
+    private Deque<Pair<List<RecordImport>, Future<Path>>> downloads = new ArrayDeque<>();
 
     public Aligner(AtomicBoolean cancelMonitor, Logger log, ServiceContext context, XmlRequest req,
                    GeonetParams params, Element remoteInfo) {
@@ -176,9 +186,23 @@ public class Aligner extends BaseAligner<GeonetParams> {
             preferredSchema = "iso19139";
         }
 
+        try {
+            alignRecords(records);
+        } finally {
+            closeDownloads();
+        }
+
+        dataMan.forceIndexChanges();
+
+        log.info("End of alignment for : " + params.getName());
+
+        return result;
+    }
+
+    private void alignRecords(SortedSet<RecordInfo> records) throws Exception {
         for (RecordInfo ri : records) {
             if (cancelMonitor.get()) {
-                return this.result;
+                return;
             }
 
             try {
@@ -255,11 +279,7 @@ public class Aligner extends BaseAligner<GeonetParams> {
             }
         }
 
-        dataMan.forceIndexChanges();
-
-        log.info("End of alignment for : " + params.getName());
-
-        return result;
+        importPendingBatches();
     }
 
     private Element extractValidMetadataForImport(DirectoryStream<Path> files, Element info) throws IOException, JDOMException {
@@ -353,98 +373,7 @@ public class Aligner extends BaseAligner<GeonetParams> {
     }
 
     private void addMetadata(final RecordInfo ri, final boolean localRating, String uuid) throws Exception {
-        final String id[] = {null};
-        final Element md[] = {null};
-
-        //--- import metadata from MEF file
-
-        Path mefFile = null;
-
-        try {
-            mefFile = retrieveMEF(ri.uuid);
-            String fileType = "mef";
-            MEFLib.Version version = MEFLib.getMEFVersion(mefFile);
-            if (version != null && version.equals(MEFLib.Version.V2)) {
-                fileType = "mef2";
-            }
-
-            IVisitor visitor = fileType.equals("mef2") ? new MEF2Visitor() : new MEFVisitor();
-
-            MEFLib.visit(mefFile, visitor, new IMEFVisitor() {
-                public void handleMetadata(Element mdata, int index) throws Exception {
-                    md[index] = mdata;
-                }
-
-                //--------------------------------------------------------------------
-
-                public void handleMetadataFiles(DirectoryStream<Path> files, Element info, int index) throws Exception {
-                    // Import valid metadata
-                    Element metadataValidForImport = extractValidMetadataForImport(files, info);
-
-                    if (metadataValidForImport != null) {
-                        handleMetadata(metadataValidForImport, index);
-                    }
-                }
-
-                //--------------------------------------------------------------------
-
-                public void handleInfo(Element info, int index) throws Exception {
-
-                    final Element metadata = md[index];
-                    String schema = dataMan.autodetectSchema(metadata, null);
-                    if (info != null && info.getContentSize() != 0) {
-                        Element general = info.getChild("general");
-                        if (general != null && general.getContentSize() != 0) {
-                            Element schemaInfo = general.getChild("schema");
-                            if (schemaInfo != null) {
-                                schemaInfo.setText(schema);
-                            }
-                        }
-                    }
-                    if (info != null) {
-                        id[index] = addMetadata(ri, md[index], info, localRating, uuid);
-                    }
-                }
-
-                //--------------------------------------------------------------------
-
-                public void handlePublicFile(String file, String changeDate, InputStream is, int index) throws Exception {
-                    handleFile(file, changeDate, is, index, MetadataResourceVisibility.PUBLIC);
-                }
-
-                private void handleFile(String file, String changeDate, InputStream is, int index, MetadataResourceVisibility visibility) throws Exception {
-                    if (id[index] == null) return;
-                    if (log.isDebugEnabled())
-                        log.debug("    - Adding remote " + visibility + " file with name: " + file);
-                    final Store store = context.getBean("resourceStore", Store.class);
-                    final IMetadataUtils metadataUtils = context.getBean(IMetadataUtils.class);
-                    final String metadataUuid = metadataUtils.getMetadataUuid(id[index]);
-                    store.putResource(context, metadataUuid, file, is, new ISODate(changeDate).toDate(), visibility, true);
-                }
-
-                public void handleFeatureCat(Element md, int index)
-                    throws Exception {
-                    // Feature Catalog not managed for harvesting
-                }
-
-                public void handlePrivateFile(String file, String changeDate,
-                                              InputStream is, int index) throws Exception {
-                    if (params.mefFormatFull) {
-                        handleFile(file, changeDate, is, index, MetadataResourceVisibility.PRIVATE);
-                    }
-                }
-            });
-        } catch (Exception e) {
-            //--- we ignore the exception here. Maybe the metadata has been removed just now
-            if (log.isDebugEnabled())
-                log.debug("  - Skipped unretrievable metadata (maybe has been removed) with uuid:" + ri.uuid);
-            result.unretrievable++;
-            log.error(e);
-        } finally {
-            if (mefFile != null) {
-                FileUtils.deleteQuietly(mefFile.toFile());
-            }
-        }
+        importRecord(new AddRecordImport(ri, localRating, uuid));
     }
 
     private String addMetadata(RecordInfo ri, Element md, Element info, boolean localRating, String uuid) throws Exception {
@@ -662,76 +591,12 @@ public class Aligner extends BaseAligner<GeonetParams> {
      */
     private void updateMetadata(final RecordInfo ri, final String id, final boolean localRating,
                                 final boolean useChangeDate, String localChangeDate, Boolean force) throws Exception {
-        final Element md[] = {null};
-        final Element publicFiles[] = {null};
-        final Element privateFiles[] = {null};
-
         if (localUuids.getID(ri.uuid) == null && !force) {
             if (log.isDebugEnabled())
                 log.debug("  - Skipped metadata managed by another harvesting node. uuid:" + ri.uuid + ", name:" + params.getName());
         } else {
             if (force || !useChangeDate || ri.isMoreRecentThan(localChangeDate)) {
-                Path mefFile = null;
-
-                try {
-                    mefFile = retrieveMEF(ri.uuid);
-
-                    String fileType = "mef";
-                    MEFLib.Version version = MEFLib.getMEFVersion(mefFile);
-                    if (version != null && version.equals(MEFLib.Version.V2)) {
-                        fileType = "mef2";
-                    }
-
-                    IVisitor visitor = fileType.equals("mef2") ? new MEF2Visitor() : new MEFVisitor();
-
-                    MEFLib.visit(mefFile, visitor, new IMEFVisitor() {
-                        public void handleMetadata(Element mdata, int index) throws Exception {
-                            md[index] = mdata;
-                        }
-
-                        //-----------------------------------------------------------------
-
-                        public void handleMetadataFiles(DirectoryStream<Path> files, Element info, int index) throws Exception {
-                            // Import valid metadata
-                            Element metadataValidForImport = extractValidMetadataForImport(files, info);
-
-                            if (metadataValidForImport != null) {
-                                handleMetadata(metadataValidForImport, index);
-                            }
-                        }
-
-                        public void handleInfo(Element info, int index) throws Exception {
-                            updateMetadata(ri, id, md[index], info, localRating, force);
-                            publicFiles[index] = info.getChild("public");
-                            privateFiles[index] = info.getChild("private");
-                        }
-
-                        //-----------------------------------------------------------------
-
-                        public void handlePublicFile(String file, String changeDate, InputStream is, int index) throws Exception {
-                            handleFile(id, file, MetadataResourceVisibility.PUBLIC, changeDate, is, publicFiles[index]);
-                        }
-
-                        public void handleFeatureCat(Element md, int index)
-                            throws Exception {
-                            // Feature Catalog not managed for harvesting
-                        }
-
-                        public void handlePrivateFile(String file,
-                                                      String changeDate, InputStream is, int index)
-                            throws Exception {
-                            handleFile(id, file, MetadataResourceVisibility.PRIVATE, changeDate, is, privateFiles[index]);
-                        }
-
-                    });
-                } catch (Exception e) {
-                    //--- we ignore the exception here. Maybe the metadata has been removed just now
-                    result.unretrievable++;
-                } finally {
-                    if (mefFile != null) {
-                        FileUtils.deleteQuietly(mefFile.toFile());
-                    }
-                }
+                importRecord(new UpdateRecordImport(ri, id, localRating, force));
             } else {
                 result.unchangedMetadata++;
             }
@@ -935,4 +800,352 @@ public class Aligner extends BaseAligner<GeonetParams> {
 
         return tempFile;
     }
+
+    /**
+     * Retrieves a set of records in one MEF2 file using the records API of the remote node. A new
+     * request is created so that batches can be downloaded while the previous one is aligned.
+     */
+    private Path retrieveMEFBatch(List<String> uuids) throws IOException {
+        String host = params.host;
+        if (new URL(host).getPath().equals("")) {
+            host += "/";
+        }
+        XmlRequest batchRequest = context.getBean(GeonetHttpRequestFactory.class).createXmlRequest(new URL(host));
+        Lib.net.setupProxy(context, batchRequest);
+        if (params.isUseAccount()) {
+            batchRequest.setCredentials(params.getUsername(), params.getPassword());
+            batchRequest.setPreemptiveBasicAuth(true);
+        }
+        if (request.getCookieStore() != null) {
+            batchRequest.setCookieStore(request.getCookieStore());
+        }
+
+        for (String uuid : uuids) {
+            batchRequest.addParam("uuids", uuid);
+        }
+        batchRequest.addParam("format", (params.mefFormatFull ? MEFLib.Format.FULL : MEFLib.Format.PARTIAL));
+        batchRequest.addParam("withRelated", "false");
+        batchRequest.setAccept(MEFLib.Version.Constants.MEF_V2_ACCEPT_TYPE);
+        batchRequest.setAddress(params.getServletPath() + "/" + params.getNode()
+            + "/api/records/zip");
+
+        Path tempFile = Files.createTempFile("temp-", ".zip");
+        try {
+            batchRequest.executeLarge(tempFile);
+        } catch (IOException | RuntimeException e) {
+            FileUtils.deleteQuietly(tempFile.toFile());
+            throw e;
+        }
+        return tempFile;
+    }
+
+    /**
+     * Imports a record from the remote node. When MEF batch mode is off, the MEF of the record is
+     * retrieved and imported straight away. Otherwise the record is queued and imported when the
+     * MEF of its batch has been downloaded.
+     */
+    private void importRecord(RecordImport recordImport) throws Exception {
+        if (params.mefBatchSize > 1) {
+            pendingBatch.add(recordImport);
+            if (pendingBatch.size() >= params.mefBatchSize) {
+                submitBatch();
+            }
+            return;
+        }
+
+        Path mefFile = null;
+        try {
+            mefFile = retrieveMEF(recordImport.ri.uuid);
+            MEFLib.Version version = MEFLib.getMEFVersion(mefFile);
+            IVisitor visitor = MEFLib.Version.V2.equals(version) ? new MEF2Visitor() : new MEFVisitor();
+            MEFLib.visit(mefFile, visitor, recordImport);
+        } catch (Exception e) {
+            //--- we ignore the exception here. Maybe the metadata has been removed just now
+            recordImport.onError(e);
+        } finally {
+            if (mefFile != null) {
+                FileUtils.deleteQuietly(mefFile.toFile());
+            }
+        }
+    }
+
+    /**
+     * Starts the download of the pending batch. No more than mefBatchConcurrency batches are
+     * downloaded ahead of the alignment, the oldest one being imported first when that limit is
+     * reached.
+     */
+    private void submitBatch() throws Exception {
+        if (pendingBatch.isEmpty()) {
+            return;
+        }
+        final List<RecordImport> batch = pendingBatch;
+        pendingBatch = new ArrayList<>();
+
+        int concurrency = Math.max(1, params.mefBatchConcurrency);
+        if (mefDownloader == null) {
+            mefDownloader = Executors.newFixedThreadPool(concurrency);
+        }
+        while (downloads.size() >= concurrency) {
+            importNextBatch();
+        }
+
+        final List<String> uuids = new ArrayList<>(batch.size());
+        for (RecordImport recordImport : batch) {
+            uuids.add(recordImport.ri.uuid);
+        }
+        if (log.isDebugEnabled())
+            log.debug("  - Downloading MEF batch of " + uuids.size() + " records");
+        downloads.add(Pair.read(batch, mefDownloader.submit(() -> retrieveMEFBatch(uuids))));
+    }
+
+    private void importNextBatch() throws Exception {
+        Pair<List<RecordImport>, Future<Path>> download = downloads.poll();
+        BatchImport batchImport = new BatchImport(download.one());
+        Path mefFile = null;
+        try {
+            mefFile = download.two().get();
+            MEFLib.visit(mefFile, new MEF2Visitor(), batchImport);
+            batchImport.close(null);
+        } catch (ExecutionException e) {
+            log.error("Couldn't retrieve MEF batch: " + e.getCause().getMessage());
+            batchImport.close(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+        } catch (Exception e) {
+            batchImport.close(e);
+        } finally {
+            if (mefFile != null) {
+                FileUtils.deleteQuietly(mefFile.toFile());
+            }
+        }
+    }
+
+    /**
+     * Imports the records still queued or being downloaded.
+     */
+    private void importPendingBatches() throws Exception {
+        submitBatch();
+        while (!downloads.isEmpty()) {
+            importNextBatch();
+        }
+    }
+
+    /**
+     * Stops the MEF downloads and removes the files of the batches which were not imported (eg.
+     * harvester cancelled).
+     */
+    private void closeDownloads() {
+        if (mefDownloader == null) {
+            return;
+        }
+        mefDownloader.shutdownNow();
+        for (Pair<List<RecordImport>, Future<Path>> download : downloads) {
+            try {
+                Path mefFile = download.two().get();
+                FileUtils.deleteQuietly(mefFile.toFile());
+            } catch (Exception e) {
+                // Nothing to clean
+            }
+        }
+        downloads.clear();
+        pendingBatch.clear();
+        mefDownloader = null;
+    }
+
+    /**
+     * Import of one remote record from a MEF file.
+     */
+    private abstract class RecordImport implements IMEFVisitor {
+        protected final RecordInfo ri;
+        protected Element md;
+
+        RecordImport(RecordInfo ri) {
+            this.ri = ri;
+        }
+
+        public void handleMetadata(Element mdata, int index) throws Exception {
+            md = mdata;
+        }
+
+        public void handleMetadataFiles(DirectoryStream<Path> files, Element info, int index) throws Exception {
+            // Import valid metadata
+            Element metadataValidForImport = extractValidMetadataForImport(files, info);
+
+            if (metadataValidForImport != null) {
+                handleMetadata(metadataValidForImport, index);
+            }
+        }
+
+        public void handleFeatureCat(Element md, int index) throws Exception {
+            // Feature Catalog not managed for harvesting
+        }
+
+        /**
+         * Called when the MEF could not be retrieved or imported.
+         */
+        abstract void onError(Exception e);
+    }
+
+    private class AddRecordImport extends RecordImport {
+        private final boolean localRating;
+        private final String uuid;
+        private String id;
+
+        AddRecordImport(RecordInfo ri, boolean localRating, String uuid) {
+            super(ri);
+            this.localRating = localRating;
+            this.uuid = uuid;
+        }
+
+        public void handleInfo(Element info, int index) throws Exception {
+            String schema = dataMan.autodetectSchema(md, null);
+            if (info != null && info.getContentSize() != 0) {
+                Element general = info.getChild("general");
+                if (general != null && general.getContentSize() != 0) {
+                    Element schemaInfo = general.getChild("schema");
+                    if (schemaInfo != null) {
+                        schemaInfo.setText(schema);
+                    }
+                }
+            }
+            if (info != null) {
+                id = addMetadata(ri, md, info, localRating, uuid);
+            }
+        }
+
+        public void handlePublicFile(String file, String changeDate, InputStream is, int index) throws Exception {
+            handleFile(file, changeDate, is, MetadataResourceVisibility.PUBLIC);
+        }
+
+        public void handlePrivateFile(String file, String changeDate, InputStream is, int index) throws Exception {
+            if (params.mefFormatFull) {
+                handleFile(file, changeDate, is, MetadataResourceVisibility.PRIVATE);
+            }
+        }
+
+        private void handleFile(String file, String changeDate, InputStream is, MetadataResourceVisibility visibility) throws Exception {
+            if (id == null) return;
+            if (log.isDebugEnabled())
+                log.debug("    - Adding remote " + visibility + " file with name: " + file);
+            final Store store = context.getBean("resourceStore", Store.class);
+            final IMetadataUtils metadataUtils = context.getBean(IMetadataUtils.class);
+            final String metadataUuid = metadataUtils.getMetadataUuid(id);
+            store.putResource(context, metadataUuid, file, is, new ISODate(changeDate).toDate(), visibility, true);
+        }
+
+        void onError(Exception e) {
+            if (log.isDebugEnabled())
+                log.debug("  - Skipped unretrievable metadata (maybe has been removed) with uuid:" + ri.uuid);
+            result.unretrievable++;
+            log.error(e);
+        }
+    }
+
+    private class UpdateRecordImport extends RecordImport {
+        private final String id;
+        private final boolean localRating;
+        private final boolean force;
+        private Element publicFiles;
+        private Element privateFiles;
+
+        UpdateRecordImport(RecordInfo ri, String id, boolean localRating, boolean force) {
+            super(ri);
+            this.id = id;
+            this.localRating = localRating;
+            this.force = force;
+        }
+
+        public void handleInfo(Element info, int index) throws Exception {
+            updateMetadata(ri, id, md, info, localRating, force);
+            publicFiles = info.getChild("public");
+            privateFiles = info.getChild("private");
+        }
+
+        public void handlePublicFile(String file, String changeDate, InputStream is, int index) throws Exception {
+            handleFile(id, file, MetadataResourceVisibility.PUBLIC, changeDate, is, publicFiles);
+        }
+
+        public void handlePrivateFile(String file, String changeDate, InputStream is, int index) throws Exception {
+            handleFile(id, file, MetadataResourceVisibility.PRIVATE, changeDate, is, privateFiles);
+        }
+
+        void onError(Exception e) {
+            result.unretrievable++;
+        }
+    }
+
+    /**
+     * Dispatches the records of a MEF batch to their import, using the uuid of the info file. A
+     * failure only skips the record being imported. Records missing from the batch (eg. removed
+     * from the remote node in the meantime) are reported as unretrievable.
+     */
+    private class BatchImport implements IMEFVisitor {
+        private final Map<String, RecordImport> imports = new LinkedHashMap<>();
+        private RecordImport current;
+
+        BatchImport(List<RecordImport> batch) {
+            for (RecordImport recordImport : batch) {
+                imports.put(recordImport.ri.uuid, recordImport);
+            }
+        }
+
+        public void handleMetadataFiles(DirectoryStream<Path> files, Element info, int index) throws Exception {
+            String uuid = info == null ? null : info.getChild("general") == null ? null
+                : info.getChild("general").getChildText("uuid");
+            current = uuid == null ? null : imports.remove(uuid);
+            if (current == null) {
+                log.warning("  - Ignoring record with uuid " + uuid + " not requested in MEF batch");
+                return;
+            }
+            dispatch(r -> r.handleMetadataFiles(files, info, 0));
+        }
+
+        public void handleMetadata(Element md, int index) throws Exception {
+            dispatch(r -> r.handleMetadata(md, 0));
+        }
+
+        public void handleInfo(Element info, int index) throws Exception {
+            dispatch(r -> r.handleInfo(info, 0));
+        }
+
+        public void handleFeatureCat(Element md, int index) throws Exception {
+            dispatch(r -> r.handleFeatureCat(md, 0));
+        }
+
+        public void handlePublicFile(String file, String changeDate, InputStream is, int index) throws Exception {
+            dispatch(r -> r.handlePublicFile(file, changeDate, is, 0));
+        }
+
+        public void handlePrivateFile(String file, String changeDate, InputStream is, int index) throws Exception {
+            dispatch(r -> r.handlePrivateFile(file, changeDate, is, 0));
+        }
+
+        private void dispatch(VisitorCall call) {
+            if (current == null) {
+                return;
+            }
+            try {
+                call.apply(current);
+            } catch (Exception e) {
+                current.onError(e);
+                current = null;
+            }
+        }
+
+        /**
+         * Reports the records of the batch which were not found in the MEF file.
+         *
+         * @param cause the reason why the batch could not be read entirely, or null
+         */
+        void close(Exception cause) {
+            for (RecordImport recordImport : imports.values()) {
+                recordImport.onError(cause != null ? cause
+                    : new NoSuchElementException("Record " + recordImport.ri.uuid + " not found in MEF batch."));
+            }
+            imports.clear();
+        }
+    }
+
+    @FunctionalInterface
+    private interface VisitorCall {
+        void apply(RecordImport recordImport) throws Exception;
+    }
 }
@@ -48,6 +48,8 @@ public class GeonetHarvester extends AbstractHarvester<HarvestResult, GeonetPara
         harvesterSettingsManager.add("id:" + siteId, "useChangeDateForUpdate", params.useChangeDateForUpdate());
         harvesterSettingsManager.add("id:" + siteId, "createRemoteCategory", params.createRemoteCategory);
         harvesterSettingsManager.add("id:" + siteId, "mefFormatFull", params.mefFormatFull);
+        harvesterSettingsManager.add("id:" + siteId, "mefBatchSize", params.mefBatchSize);
+        harvesterSettingsManager.add("id:" + siteId, "mefBatchConcurrency", params.mefBatchConcurrency);
         harvesterSettingsManager.add("id:" + siteId, "xslfilter", params.xslfilter);
 
         //--- store search nodes
@@ -43,6 +43,17 @@ public class GeonetParams extends AbstractParams {
 
     public boolean mefFormatFull;
 
+    /**
+     * Number of records retrieved in one MEF file. 0 or 1 retrieves one MEF per record (required
+     * for remote nodes without the records API).
+     */
+    public int mefBatchSize;
+
+    /**
+     * Number of MEF batches downloaded while the previous ones are aligned.
+     */
+    public int mefBatchConcurrency = 2;
+
     /**
      * The filter is a process (see schema/process folder) which depends on the schema. It could be
      * composed of parameter which will be sent to XSL transformation using the following syntax :
@@ -78,6 +89,8 @@ public class GeonetParams extends AbstractParams {
 
         createRemoteCategory = Util.getParam(site, "createRemoteCategory", false);
         mefFormatFull = Util.getParam(site, "mefFormatFull", false);
+        mefBatchSize = Util.getParam(site, "mefBatchSize", 0);
+        mefBatchConcurrency = Util.getParam(site, "mefBatchConcurrency", 2);
         xslfilter = Util.getParam(site, "xslfilter", "");
 
         //checkPort(port);
@@ -97,6 +110,8 @@ public class GeonetParams extends AbstractParams {
         this.setUseChangeDateForUpdate(Util.getParam(site, "useChangeDateForUpdate", false));
         createRemoteCategory = Util.getParam(site, "createRemoteCategory", createRemoteCategory);
         mefFormatFull = Util.getParam(site, "mefFormatFull", mefFormatFull);
+        mefBatchSize = Util.getParam(site, "mefBatchSize", mefBatchSize);
+        mefBatchConcurrency = Util.getParam(site, "mefBatchConcurrency", mefBatchConcurrency);
         xslfilter = Util.getParam(site, "xslfilter", "");
 
         //checkPort(port);
@@ -144,6 +159,8 @@ public class GeonetParams extends AbstractParams {
         copy.useChangeDateForUpdate = useChangeDateForUpdate;
         copy.createRemoteCategory = createRemoteCategory;
         copy.mefFormatFull = mefFormatFull;
+        copy.mefBatchSize = mefBatchSize;
+        copy.mefBatchConcurrency = mefBatchConcurrency;
         copy.xslfilter = xslfilter;
 
         for (Search s : alSearches)
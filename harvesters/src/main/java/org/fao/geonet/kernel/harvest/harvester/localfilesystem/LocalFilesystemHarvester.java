@@ -46,12 +46,9 @@ import org.fao.geonet.kernel.harvest.harvester.CategoryMapper;
 import org.fao.geonet.kernel.harvest.harvester.GroupMapper;
 import org.fao.geonet.kernel.harvest.harvester.HarvestResult;
 import org.fao.geonet.kernel.search.IndexingMode;
-import org.fao.geonet.repository.MetadataRepository;
 import org.fao.geonet.repository.OperationAllowedRepository;
-import org.fao.geonet.repository.specification.MetadataSpecs;
 import org.fao.geonet.utils.IO;
 import org.jdom.Element;
-import org.springframework.data.jpa.domain.Specification;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
@@ -77,6 +74,14 @@ public class LocalFilesystemHarvester extends AbstractHarvester<HarvestResult, L
         harvesterSettingsManager.add("id:" + siteId, "nodelete", params.nodelete);
         harvesterSettingsManager.add("id:" + siteId, "checkFileLastModifiedForUpdate", params.checkFileLastModifiedForUpdate);
         harvesterSettingsManager.add("id:" + siteId, "beforeScript", params.beforeScript);
+        harvesterSettingsManager.add("id:" + siteId, "useManifest", params.useManifest);
+        harvesterSettingsManager.add("id:" + siteId, "threads", params.threads);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        super.destroy();
+        Files.deleteIfExists(LocalFsHarvesterFileVisitor.getManifestPath(params));
     }
 
     @Override
@@ -95,16 +100,20 @@ public class LocalFilesystemHarvester extends AbstractHarvester<HarvestResult, L
     private HarvestResult align(Path root) throws Exception {
         log.debug("Start of alignment for : " + params.getName());
         final LocalFsHarvesterFileVisitor visitor = new LocalFsHarvesterFileVisitor(cancelMonitor, context, params, this);
-        if (params.recurse) {
-            Files.walkFileTree(root, visitor);
-        } else {
-            try (DirectoryStream<Path> paths = Files.newDirectoryStream(root)) {
-                for (Path path : paths) {
-                    if (path != null && Files.isRegularFile(path)) {
-                        visitor.visitFile(path, Files.readAttributes(path, BasicFileAttributes.class));
+        try {
+            if (params.recurse) {
+                Files.walkFileTree(root, visitor);
+            } else {
+                try (DirectoryStream<Path> paths = Files.newDirectoryStream(root)) {
+                    for (Path path : paths) {
+                        if (path != null && Files.isRegularFile(path)) {
+                            visitor.visitFile(path, Files.readAttributes(path, BasicFileAttributes.class));
+                        }
                     }
                 }
             }
+        } finally {
+            visitor.finish();
         }
         result = visitor.getResult();
         log.debug(String.format("Scan directory is done. %d files analyzed.", result.totalMetadata));
@@ -115,8 +124,7 @@ public class LocalFilesystemHarvester extends AbstractHarvester<HarvestResult, L
             log.debug("Starting to delete locally existing metadata " +
                 "from the same source if they " +
                 " were not in this harvesting result...");
-            List<Integer> existingMetadata = context.getBean(MetadataRepository.class).findIdsBy((Specification<Metadata>) MetadataSpecs.hasHarvesterUuid(params.getUuid()));
-            for (Integer existingId : existingMetadata) {
+            for (Integer existingId : visitor.getHarvestedIds()) {
 
                 if (cancelMonitor.get()) {
                     return this.result;
@@ -169,8 +177,6 @@ public class LocalFilesystemHarvester extends AbstractHarvester<HarvestResult, L
         aligner.addCategories(metadata, params.getCategories(), localCateg, context, null, true);
 
         metadataManager.flush();
-
-        dataMan.indexMetadata(id, true);
     }
 
     String addMetadata(Element xml, String uuid, String schema, GroupMapper localGroups, final CategoryMapper localCateg,
@@ -42,6 +42,14 @@ public class LocalFilesystemParams extends AbstractParams {
     public boolean nodelete;
     public String recordType;
     public String beforeScript;
+    /**
+     * Skip the files which did not change since the last run (see {@link LocalFsHarvesterManifest}).
+     */
+    public boolean useManifest;
+    /**
+     * Number of threads reading and validating files.
+     */
+    public int threads;
 
     @Override
     public String getIcon() {
@@ -77,7 +85,7 @@ public class LocalFilesystemParams extends AbstractParams {
     /**
      * TODO Javadoc.
      */
-    private void createOrUpdate(Element node) {
+    private void createOrUpdate(Element node) throws BadInputEx {
         Element site = node.getChild("site");
         directoryname = Util.getParam(site, "directory", "");
         icon = Util.getParam(site, "icon", "filesystem.gif");
@@ -89,6 +97,9 @@ public class LocalFilesystemParams extends AbstractParams {
         checkFileLastModifiedForUpdate = (checkFileLastModifiedForUpdateString.equals("on") || checkFileLastModifiedForUpdateString.equals("true"));
         recordType = Util.getParam(site, "recordType", "n");
         beforeScript = Util.getParam(site, "beforeScript", "");
+        String useManifestString = Util.getParam(site, "useManifest", "true");
+        useManifest = (useManifestString.equals("on") || useManifestString.equals("true"));
+        threads = Util.getParam(site, "threads", 4);
     }
 
     public LocalFilesystemParams copy() {
@@ -101,6 +112,8 @@ public class LocalFilesystemParams extends AbstractParams {
         copy.checkFileLastModifiedForUpdate = checkFileLastModifiedForUpdate;
         copy.recordType = recordType;
         copy.beforeScript = beforeScript;
+        copy.useManifest = useManifest;
+        copy.threads = threads;
         return copy;
     }
 }
@@ -36,6 +36,7 @@ import org.fao.geonet.domain.AbstractMetadata;
 import org.fao.geonet.domain.ISODate;
 import org.fao.geonet.domain.Metadata;
 import org.fao.geonet.domain.MetadataType;
+import org.fao.geonet.domain.Pair;
 import org.fao.geonet.kernel.DataManager;
 import org.fao.geonet.kernel.GeonetworkDataDirectory;
 import org.fao.geonet.kernel.datamanager.IMetadataUtils;
@@ -43,10 +44,12 @@ import org.fao.geonet.kernel.harvest.BaseAligner;
 import org.fao.geonet.kernel.harvest.harvester.CategoryMapper;
 import org.fao.geonet.kernel.harvest.harvester.GroupMapper;
 import org.fao.geonet.kernel.harvest.harvester.HarvestResult;
+import org.fao.geonet.kernel.harvest.harvester.Privileges;
 import org.fao.geonet.kernel.harvest.harvester.csw.Aligner;
 import org.fao.geonet.kernel.mef.MEFLib;
 import org.fao.geonet.repository.MetadataRepository;
 import org.fao.geonet.repository.Updater;
+import org.fao.geonet.repository.specification.MetadataSpecs;
 import org.fao.geonet.utils.Xml;
 import org.jdom.Element;
 import org.jdom.JDOMException;
@@ -56,6 +59,7 @@ import org.json.JSONObject;
 import org.json.XML;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.jpa.domain.Specification;
 
 import javax.annotation.Nonnull;
 import java.io.IOException;
@@ -65,6 +69,10 @@ import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -89,6 +97,12 @@ class LocalFsHarvesterFileVisitor extends SimpleFileVisitor<Path> {
     private final GroupMapper localGroups;
     private final Set<Integer> listOfRecords = Sets.newHashSet();
     private final Set<Integer> listOfRecordsToIndex = Sets.newHashSet();
+    private final Set<Integer> harvestedIds;
+    private final LocalFsHarvesterManifest manifest;
+    private final LocalFsHarvesterManifest newManifest;
+    private final ExecutorService executor;
+    private final Deque<Pair<Path, Future<AlignTask>>> pending = new ArrayDeque<>();
+    private final int maxPending;
     private boolean transformIt = false;
     private Path thisXslt;
     private long startTime;
@@ -110,6 +124,18 @@ class LocalFsHarvesterFileVisitor extends SimpleFileVisitor<Path> {
         this.repo = context.getBean(IMetadataUtils.class);
         this.startTime = System.currentTimeMillis();
 
+        this.harvestedIds = Sets.newHashSet(context.getBean(MetadataRepository.class).findIdsBy(
+            (Specification<Metadata>) MetadataSpecs.hasHarvesterUuid(params.getUuid())));
+        String settings = getSettingsFingerprint();
+        this.manifest = params.useManifest ?
+            LocalFsHarvesterManifest.load(getManifestPath(params), settings) :
+            new LocalFsHarvesterManifest(settings);
+        this.newManifest = new LocalFsHarvesterManifest(settings);
+
+        int threads = Math.max(1, params.threads);
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.maxPending = threads * 2;
+
         String harvesterName = params.getName().replaceAll("\\W+", "_");
         LOGGER =  LoggerFactory.getLogger(harvesterName);
         LOGGER.debug("Start visiting files at {}.", this.startTime);
@@ -133,36 +159,142 @@ class LocalFsHarvesterFileVisitor extends SimpleFileVisitor<Path> {
             return FileVisitResult.CONTINUE;
         }
 
+        result.totalMetadata++;
+
+        if (LOGGER.isDebugEnabled() && result.totalMetadata % 1000 == 0) {
+            long elapsedTime = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - startTime));
+            LOGGER.debug("{} records inserted in {} s ({} records/s).", new Object[] {
+                result.totalMetadata,
+                elapsedTime,
+                result.totalMetadata / elapsedTime});
+        }
+
+        final Path filePath = file.toAbsolutePath().normalize();
+        final LocalFsHarvesterManifest.Entry previous = manifest.getFiles().get(filePath.toString());
+        if (previous != null && previous.isSameFile(attrs) && isHarvested(previous)) {
+            skip(filePath, previous);
+            return FileVisitResult.CONTINUE;
+        }
+
+        // Reading, parsing and validating files is done by the worker pool.
+        // Records are aligned in this thread in the order the files are visited.
+        pending.add(Pair.read(filePath, executor.submit(() -> prepare(file, filePath, attrs, previous))));
+        while (pending.size() >= maxPending) {
+            alignNext();
+        }
+        return FileVisitResult.CONTINUE;
+    }
+
+    /**
+     * Reads the file in a worker thread. Files with the same content as on last run are skipped.
+     */
+    private AlignTask prepare(Path file, Path filePath, BasicFileAttributes attrs,
+                              LocalFsHarvesterManifest.Entry previous) throws Exception {
+        context.setAsThreadLocal();
+        String hash = LocalFsHarvesterManifest.hash(file);
+        LocalFsHarvesterManifest.Entry entry = new LocalFsHarvesterManifest.Entry(attrs, hash);
+        if (previous != null && hash.equals(previous.getHash()) && isHarvested(previous)) {
+            LOGGER.debug("File {} has the same content as on last run.", filePath);
+            entry.setIds(previous.getIds());
+            return () -> skip(filePath, entry);
+        }
+
+        String fileName = file.getFileName().toString();
+        if (MEFLib.isValidArchiveExtensionForMEF(fileName)) {
+            return () -> processMef(file, entry);
+        } else if (fileName.endsWith(".json")) {
+            return prepareJson(file, entry);
+        } else {
+            return prepareXml(file, entry);
+        }
+    }
+
+    /**
+     * Aligns the records of the files still processed by the worker pool and saves the manifest if
+     * the harvester was not cancelled.
+     */
+    public void finish() throws IOException {
         try {
-            result.totalMetadata++;
-
-            if (LOGGER.isDebugEnabled() && result.totalMetadata % 1000 == 0) {
-                long elapsedTime = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - startTime);
-                LOGGER.debug("{} records inserted in {} s ({} records/s).", new Object[] {
-                    result.totalMetadata,
-                    elapsedTime,
-                    result.totalMetadata / elapsedTime});
+            while (!pending.isEmpty() && !cancelMonitor.get()) {
+                alignNext();
             }
-
-            if(isMef) {
-                processMef(file);
-            } else if(isJson) {
-                processJson(file);
-            } else {
-                processXml(file);
+        } finally {
+            for (Pair<Path, Future<AlignTask>> task : pending) {
+                task.two().cancel(true);
             }
+            pending.clear();
+            executor.shutdownNow();
+        }
+
+        if (params.useManifest && !cancelMonitor.get()) {
+            newManifest.save(getManifestPath(params));
+        }
+    }
+
+    private void alignNext() {
+        Pair<Path, Future<AlignTask>> task = pending.poll();
+        try {
+            task.two().get().align();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelMonitor.set(true);
         } catch (Exception e) {
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
             LOGGER.error("An error occurred while harvesting file {}. Error is: {}.",
-                file.toAbsolutePath().normalize(), e.getMessage());
+                task.one(), cause.getMessage());
         }
-        return FileVisitResult.CONTINUE;
     }
 
+    private boolean isHarvested(LocalFsHarvesterManifest.Entry entry) {
+        return !entry.getIds().isEmpty() && harvestedIds.containsAll(entry.getIds());
+    }
+
+    private void skip(Path filePath, LocalFsHarvesterManifest.Entry entry) {
+        LOGGER.debug("File {} not changed since last run, skipping.", filePath);
+        result.unchangedMetadata++;
+        listOfRecords.addAll(entry.getIds());
+        newManifest.getFiles().put(filePath.toString(), entry);
+    }
+
+    private void harvested(Path filePath, LocalFsHarvesterManifest.Entry entry, String id) {
+        listOfRecords.add(Integer.valueOf(id));
+        if (harvestedIds.contains(Integer.valueOf(id)) || listOfRecordsToIndex.contains(Integer.valueOf(id))) {
+            entry.getIds().add(Integer.valueOf(id));
+            newManifest.getFiles().put(filePath.toString(), entry);
+        }
+    }
+
+    /**
+     * Fingerprint of the settings used to import files. The manifest of a previous run is not
+     * used when they changed.
+     */
+    private String getSettingsFingerprint() throws IOException {
+        StringBuilder settings = new StringBuilder()
+            .append(params.getImportXslt()).append('|')
+            .append(thisXslt != null && Files.exists(thisXslt) ? Files.getLastModifiedTime(thisXslt).toMillis() : 0).append('|')
+            .append(params.getBatchEdits()).append('|')
+            .append(params.getValidate()).append('|')
+            .append(params.getOverrideUuid()).append('|')
+            .append(params.getOwnerIdGroup()).append('|')
+            .append(params.recordType).append('|')
+            .append(params.checkFileLastModifiedForUpdate).append('|')
+            .append(Iterables.toString(params.getCategories())).append('|');
+        for (Privileges privileges : params.getPrivileges()) {
+            settings.append(privileges.getGroupId()).append(':')
+                .append(Iterables.toString(privileges.getOperations())).append(';');
+        }
+        return LocalFsHarvesterManifest.hash(settings.toString());
+    }
+
+    static Path getManifestPath(LocalFilesystemParams params) {
+        return ApplicationContextHolder.get().getBean(GeonetworkDataDirectory.class).getSystemDataDir()
+            .resolve("harvester-manifests").resolve(params.getUuid() + ".json");
+    }
 
     // Reads a JSON file, transform it to XML and use the same workflow as for XML files
     // inspired by:
     // https://github.com/geonetwork/core-geonetwork/blob/c57f5de06e5e456af1ee55178eca437235b1d499/harvesters/src/main/java/org/fao/geonet/kernel/harvest/harvester/simpleUrl/Harvester.java#L239
-    private void processJson(Path file) throws Exception {
+    private AlignTask prepareJson(Path file, LocalFsHarvesterManifest.Entry entry) throws Exception {
         Path filePath = file.toAbsolutePath().normalize();
 
         ObjectMapper objectMapper = new ObjectMapper();
@@ -182,21 +314,18 @@ class LocalFsHarvesterFileVisitor extends SimpleFileVisitor<Path> {
         } catch (JsonProcessingException e) {
             LOGGER.error("Error processing JSON from file {}, ignoring", filePath);
             LOGGER.error("full stack", e);
-            result.badFormat++;
-            return;
+            return () -> result.badFormat++;
         } catch (JDOMException e) {
             LOGGER.error("Error transforming JSON into XML from file {}, ignoring", filePath);
             LOGGER.error("full stack", e);
-            result.badFormat++;
-            return;
+            return () -> result.badFormat++;
         } catch (Exception e) {
             LOGGER.error("Error retrieving JSON from file {}, ignoring", filePath);
             LOGGER.error("full stack", e);
-            result.unretrievable++;
-            return;
+            return () -> result.unretrievable++;
         }
 
-        processXmlData(file, recordAsElement);
+        return prepareXmlData(file, recordAsElement, entry);
     }
 
     /**
@@ -236,7 +365,7 @@ class LocalFsHarvesterFileVisitor extends SimpleFileVisitor<Path> {
         return array;
     }
 
-    private void processXml(Path file) throws Exception {
+    private AlignTask prepareXml(Path file, LocalFsHarvesterManifest.Entry entry) throws Exception {
         Path filePath = file.toAbsolutePath().normalize();
 
         Element xml;
@@ -246,19 +375,21 @@ class LocalFsHarvesterFileVisitor extends SimpleFileVisitor<Path> {
         } catch (JDOMException e) {
             LOGGER.error("Error loading XML from file {}, ignoring", filePath);
             LOGGER.error("full stack", e);
-            result.badFormat++;
-            return;
+            return () -> result.badFormat++;
         } catch (Exception e) {
             LOGGER.error("Error retrieving XML from file {}, ignoring", filePath);
             LOGGER.error("full stack", e);
-            result.unretrievable++;
-            return;
+            return () -> result.unretrievable++;
         }
 
-        processXmlData(file, xml);
+        return prepareXmlData(file, xml, entry);
     }
 
-    private void processXmlData(Path file, Element rawXml) throws Exception {
+    /**
+     * Transforms, validates and extracts the UUID of a record. This is done in the worker pool,
+     * the returned task updating the catalog.
+     */
+    private AlignTask prepareXmlData(Path file, Element rawXml, LocalFsHarvesterManifest.Entry entry) throws Exception {
         Path filePath = file.toAbsolutePath().normalize();
 
         Element xml = rawXml;
@@ -267,17 +398,15 @@ class LocalFsHarvesterFileVisitor extends SimpleFileVisitor<Path> {
                 xml = Xml.transform(xml, thisXslt);
             } catch (Exception e) {
                 LOGGER.error("Cannot transform XML from file {}, ignoring. Error was: {}", filePath, e.getMessage());
-                result.badFormat++;
-                return;
+                return () -> result.badFormat++;
             }
         }
 
-        String schema = null;
+        String schema;
         try {
             schema = dataMan.autodetectSchema(xml, null);
         } catch (Exception e) {
-            result.unknownSchema++;
-            return;
+            return () -> result.unknownSchema++;
         }
 
         try {
@@ -289,16 +418,22 @@ class LocalFsHarvesterFileVisitor extends SimpleFileVisitor<Path> {
             params.getValidate().validate(dataMan, context, xml, groupIdVal);
         } catch (Exception e) {
             LOGGER.error("Cannot validate XML from file {}, ignoring. Error was: {}", filePath, e.getMessage());
-            result.doesNotValidate++;
-            return;
+            return () -> result.doesNotValidate++;
         }
 
         String uuid = getUuidFromFile(xml, filePath, schema);
         if (StringUtils.isEmpty(uuid)) {
-            result.badFormat++;
-            return;
+            return () -> result.badFormat++;
         }
 
+        final Element record = xml;
+        return () -> alignXmlData(file, record, schema, uuid, entry);
+    }
+
+    private void alignXmlData(Path file, Element xml, String schema, String uuid,
+                              LocalFsHarvesterManifest.Entry entry) throws Exception {
+        Path filePath = file.toAbsolutePath().normalize();
+
         Aligner.applyBatchEdits(uuid, xml, schema, params.getBatchEdits(), context, null);
 
         String id = dataMan.getMetadataId(uuid);
@@ -337,7 +472,7 @@ class LocalFsHarvesterFileVisitor extends SimpleFileVisitor<Path> {
             }
 
         }
-        listOfRecords.add(Integer.valueOf(id));
+        harvested(filePath, entry, id);
     }
 
     private String getCreateDate(Path file, Element xml, String schema, String uuid) throws IOException {
@@ -403,7 +538,7 @@ class LocalFsHarvesterFileVisitor extends SimpleFileVisitor<Path> {
         }
     }
 
-    private void processMef(Path file) {
+    private void processMef(Path file, LocalFsHarvesterManifest.Entry entry) {
         Path filePath = file.toAbsolutePath().normalize();
 
         LOGGER.debug("reading file: {}", filePath);
@@ -450,7 +585,7 @@ class LocalFsHarvesterFileVisitor extends SimpleFileVisitor<Path> {
                 });
                 aligner.addPrivileges(id, params.getPrivileges(), localGroups, context);
                 listOfRecordsToIndex.add(Integer.valueOf(id));
-                listOfRecords.add(Integer.valueOf(id));
+                harvested(filePath, entry, id);
                 result.addedMetadata++;
             }
         } catch (Exception e) {
@@ -508,4 +643,19 @@ class LocalFsHarvesterFileVisitor extends SimpleFileVisitor<Path> {
     public Set<Integer> getListOfRecordsToIndex() {
         return listOfRecordsToIndex;
     }
+
+    /**
+     * @return the ids of the records owned by the harvester before this run.
+     */
+    public Set<Integer> getHarvestedIds() {
+        return harvestedIds;
+    }
+
+    /**
+     * Update of the catalog for a file, run in the harvester thread.
+     */
+    @FunctionalInterface
+    private interface AlignTask {
+        void align() throws Exception;
+    }
 }
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2001-2023 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.harvest.harvester.localfilesystem;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+import org.fao.geonet.constants.Geonet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Files harvested by a local filesystem harvester on its last complete run, with the records they
+ * were imported in. It is saved in the data directory so that the next run can skip the files which
+ * did not change, without parsing them again.
+ *
+ * The manifest is discarded when the harvester settings used to import the files change (see
+ * {@link #getSettings()}).
+ */
+class LocalFsHarvesterManifest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Geonet.HARVESTER);
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private String settings;
+    private Map<String, Entry> files = new HashMap<>();
+
+    public LocalFsHarvesterManifest() {
+    }
+
+    public LocalFsHarvesterManifest(String settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Loads the manifest of a previous run.
+     *
+     * @param settings fingerprint of the current harvester settings
+     * @return the manifest, or an empty one if it does not exist, can't be read or was built with
+     * other settings.
+     */
+    static LocalFsHarvesterManifest load(Path path, String settings) {
+        if (Files.exists(path)) {
+            try {
+                LocalFsHarvesterManifest manifest = MAPPER.readValue(path.toFile(), LocalFsHarvesterManifest.class);
+                if (settings.equals(manifest.settings)) {
+                    return manifest;
+                }
+                LOGGER.info("Harvester settings changed since the last run, all files will be harvested.");
+            } catch (IOException e) {
+                LOGGER.warn("Unable to read harvester manifest {}, all files will be harvested. Error is: {}",
+                    path, e.getMessage());
+            }
+        }
+        return new LocalFsHarvesterManifest(settings);
+    }
+
+    /**
+     * Writes the manifest in a temporary file first so that an interrupted write does not
+     * corrupt the previous manifest.
+     */
+    void save(Path path) throws IOException {
+        Files.createDirectories(path.getParent());
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        MAPPER.writeValue(tmp.toFile(), this);
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static String hash(Path file) throws IOException {
+        return com.google.common.io.Files.asByteSource(file.toFile()).hash(Hashing.sha256()).toString();
+    }
+
+    static String hash(String value) {
+        return Hashing.sha256().hashString(value, StandardCharsets.UTF_8).toString();
+    }
+
+    public String getSettings() {
+        return settings;
+    }
+
+    public void setSettings(String settings) {
+        this.settings = settings;
+    }
+
+    public Map<String, Entry> getFiles() {
+        return files;
+    }
+
+    public void setFiles(Map<String, Entry> files) {
+        this.files = files;
+    }
+
+    /**
+     * A harvested file and the ids of the records imported from it (a MEF may contain more than one
+     * record).
+     */
+    public static class Entry {
+        private long size;
+        private long lastModified;
+        private String hash;
+        private List<Integer> ids = new ArrayList<>();
+
+        public Entry() {
+        }
+
+        public Entry(BasicFileAttributes attrs, String hash) {
+            this.size = attrs.size();
+            this.lastModified = attrs.lastModifiedTime().toMillis();
+            this.hash = hash;
+        }
+
+        /**
+         * @return true if size and last modification date did not change.
+         */
+        boolean isSameFile(BasicFileAttributes attrs) {
+            return size == attrs.size() && lastModified == attrs.lastModifiedTime().toMillis();
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public void setSize(long size) {
+            this.size = size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public void setLastModified(long lastModified) {
+            this.lastModified = lastModified;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public void setHash(String hash) {
+            this.hash = hash;
+        }
+
+        public List<Integer> getIds() {
+            return ids;
+        }
+
+        public void setIds(List<Integer> ids) {
+            this.ids = ids;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2001-2023 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.kernel.harvest.harvester.localfilesystem;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LocalFsHarvesterManifestTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        Path record = folder.newFile("record.xml").toPath();
+        Files.write(record, "<record/>".getBytes(StandardCharsets.UTF_8));
+        BasicFileAttributes attrs = Files.readAttributes(record, BasicFileAttributes.class);
+
+        LocalFsHarvesterManifest manifest = new LocalFsHarvesterManifest("settings");
+        LocalFsHarvesterManifest.Entry entry = new LocalFsHarvesterManifest.Entry(attrs, LocalFsHarvesterManifest.hash(record));
+        entry.getIds().add(12);
+        manifest.getFiles().put(record.toString(), entry);
+
+        Path path = folder.getRoot().toPath().resolve("manifests").resolve("harvester.json");
+        manifest.save(path);
+
+        LocalFsHarvesterManifest loaded = LocalFsHarvesterManifest.load(path, "settings");
+        LocalFsHarvesterManifest.Entry loadedEntry = loaded.getFiles().get(record.toString());
+        assertEquals(entry.getHash(), loadedEntry.getHash());
+        assertEquals(Arrays.asList(12), loadedEntry.getIds());
+        assertTrue(loadedEntry.isSameFile(attrs));
+        assertFalse(Files.exists(path.resolveSibling("harvester.json.tmp")));
+    }
+
+    @Test
+    public void testSettingsChanged() throws Exception {
+        LocalFsHarvesterManifest manifest = new LocalFsHarvesterManifest("settings");
+        manifest.getFiles().put("/data/record.xml", new LocalFsHarvesterManifest.Entry());
+        Path path = folder.getRoot().toPath().resolve("harvester.json");
+        manifest.save(path);
+
+        LocalFsHarvesterManifest loaded = LocalFsHarvesterManifest.load(path, "other settings");
+        assertTrue(loaded.getFiles().isEmpty());
+        assertEquals("other settings", loaded.getSettings());
+    }
+
+    @Test
+    public void testMissingOrCorruptedManifest() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("harvester.json");
+        assertTrue(LocalFsHarvesterManifest.load(path, "settings").getFiles().isEmpty());
+
+        Files.write(path, "{not json".getBytes(StandardCharsets.UTF_8));
+        assertTrue(LocalFsHarvesterManifest.load(path, "settings").getFiles().isEmpty());
+    }
+
+    @Test
+    public void testFileChanged() throws Exception {
+        Path record = folder.newFile("record.xml").toPath();
+        Files.write(record, "<record/>".getBytes(StandardCharsets.UTF_8));
+        String hash = LocalFsHarvesterManifest.hash(record);
+        LocalFsHarvesterManifest.Entry entry = new LocalFsHarvesterManifest.Entry(
+            Files.readAttributes(record, BasicFileAttributes.class), hash);
+
+        // Touching the file changes its date but not its content
+        Files.setLastModifiedTime(record, FileTime.fromMillis(entry.getLastModified() + 60000));
+        assertFalse(entry.isSameFile(Files.readAttributes(record, BasicFileAttributes.class)));
+        assertEquals(hash, LocalFsHarvesterManifest.hash(record));
+
+        Files.write(record, "<record>changed</record>".getBytes(StandardCharsets.UTF_8));
+        assertNotEquals(hash, LocalFsHarvesterManifest.hash(record));
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2001-2023 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.index.es;
+
+import org.elasticsearch.ElasticsearchStatusException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.rest.RestStatus;
+import org.fao.geonet.utils.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Send bulk requests asynchronously with a maximum number of requests in flight.
+ *
+ * When the maximum is reached, {@link #send(BulkRequest)} blocks until a request completes
+ * so that producers can not overload the cluster. Requests or items rejected by Elasticsearch
+ * because its queues are full (HTTP 429, es_rejected_execution_exception) are sent again
+ * after an exponential backoff. Completion of the returned futures happens on the sender
+ * threads, not on the HTTP client threads, so callers can run blocking requests in them.
+ */
+public class EsBulkSender {
+    private static final String LOGGER = "geonetwork.index";
+
+    private final RestHighLevelClient client;
+    private final int maxInFlight;
+    private final int maxRetries;
+    private final long retryBackoff;
+    private final Semaphore inFlight;
+    private final ScheduledExecutorService executor;
+
+    private final AtomicLong bulkCount = new AtomicLong();
+    private final AtomicLong indexedDocumentCount = new AtomicLong();
+    private final AtomicLong failedDocumentCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+
+    /**
+     * @param client       the client to send the requests with
+     * @param maxInFlight  the maximum number of requests sent and not yet completed
+     * @param maxRetries   the maximum number of times rejected requests or items are sent again
+     * @param retryBackoff the delay in milliseconds before the first retry, doubled on each retry
+     */
+    public EsBulkSender(RestHighLevelClient client, int maxInFlight, int maxRetries, long retryBackoff) {
+        this.client = client;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.maxRetries = Math.max(0, maxRetries);
+        this.retryBackoff = Math.max(1, retryBackoff);
+        this.inFlight = new Semaphore(this.maxInFlight);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ScheduledThreadPoolExecutor scheduledExecutor = new ScheduledThreadPoolExecutor(this.maxInFlight, r -> {
+            Thread thread = new Thread(r, "es-bulk-sender-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduledExecutor.setRemoveOnCancelPolicy(true);
+        this.executor = scheduledExecutor;
+    }
+
+    /**
+     * Send a bulk request, waiting first if the maximum number of requests in flight is reached.
+     *
+     * @return the response, with for each item the result of its last attempt.
+     */
+    public CompletableFuture<BulkResponse> send(BulkRequest request) throws InterruptedException {
+        inFlight.acquire();
+        CompletableFuture<BulkResponse> result = new CompletableFuture<>();
+        int numberOfActions = request.numberOfActions();
+        result.whenComplete((response, error) -> {
+            inFlight.release();
+            bulkCount.incrementAndGet();
+            if (error != null) {
+                failedDocumentCount.addAndGet(numberOfActions);
+            } else {
+                long failed = 0;
+                for (BulkItemResponse item : response.getItems()) {
+                    if (item.isFailed()) {
+                        failed++;
+                    }
+                }
+                failedDocumentCount.addAndGet(failed);
+                indexedDocumentCount.addAndGet(numberOfActions - failed);
+            }
+        });
+
+        int[] positions = new int[numberOfActions];
+        for (int i = 0; i < numberOfActions; i++) {
+            positions[i] = i;
+        }
+        execute(request, positions, new BulkItemResponse[numberOfActions], 0, 0, result);
+        return result;
+    }
+
+    /**
+     * Wait for all requests in flight to complete.
+     */
+    public void flush(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+        if (!inFlight.tryAcquire(maxInFlight, timeout, unit)) {
+            throw new TimeoutException(String.format(
+                "%d bulk requests still in flight after %d %s.",
+                getInFlightCount(), timeout, unit));
+        }
+        inFlight.release(maxInFlight);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void execute(BulkRequest request, int[] positions, BulkItemResponse[] items,
+                         int attempt, long took, CompletableFuture<BulkResponse> result) {
+        try {
+            client.bulkAsync(request, RequestOptions.DEFAULT, new ActionListener<BulkResponse>() {
+                @Override
+                public void onResponse(BulkResponse response) {
+                    executor.execute(() -> handleResponse(request, positions, items, attempt,
+                        took + response.getTook().millis(), response, result));
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    executor.execute(() -> handleFailure(request, positions, items, attempt, took, e, result));
+                }
+            });
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+        }
+    }
+
+    private void handleResponse(BulkRequest request, int[] positions, BulkItemResponse[] items,
+                                int attempt, long took, BulkResponse response,
+                                CompletableFuture<BulkResponse> result) {
+        List<Integer> rejected = new ArrayList<>();
+        BulkItemResponse[] responseItems = response.getItems();
+        for (int i = 0; i < responseItems.length; i++) {
+            if (attempt < maxRetries && responseItems[i].status() == RestStatus.TOO_MANY_REQUESTS) {
+                rejected.add(i);
+            } else {
+                items[positions[i]] = responseItems[i];
+            }
+        }
+
+        if (rejected.isEmpty()) {
+            result.complete(new BulkResponse(items, took));
+            return;
+        }
+
+        BulkRequest retryRequest = new BulkRequest();
+        retryRequest.setRefreshPolicy(request.getRefreshPolicy());
+        retryRequest.timeout(request.timeout());
+        List<DocWriteRequest<?>> requests = request.requests();
+        int[] retryPositions = new int[rejected.size()];
+        for (int i = 0; i < rejected.size(); i++) {
+            retryRequest.add(requests.get(rejected.get(i)));
+            retryPositions[i] = positions[rejected.get(i)];
+        }
+        Log.debug(LOGGER, String.format(
+            "%d items of bulk request rejected by Elasticsearch. Retry %d/%d.",
+            rejected.size(), attempt + 1, maxRetries));
+        retry(retryRequest, retryPositions, items, attempt, took, result);
+    }
+
+    private void handleFailure(BulkRequest request, int[] positions, BulkItemResponse[] items,
+                               int attempt, long took, Exception e,
+                               CompletableFuture<BulkResponse> result) {
+        if (attempt < maxRetries && isRejection(e)) {
+            Log.debug(LOGGER, String.format(
+                "Bulk request rejected by Elasticsearch. Retry %d/%d.", attempt + 1, maxRetries));
+            retry(request, positions, items, attempt, took, result);
+        } else {
+            result.completeExceptionally(e);
+        }
+    }
+
+    private void retry(BulkRequest request, int[] positions, BulkItemResponse[] items,
+                       int attempt, long took, CompletableFuture<BulkResponse> result) {
+        retryCount.incrementAndGet();
+        long delay = retryBackoff << Math.min(attempt, 16);
+        executor.schedule(() -> execute(request, positions, items, attempt + 1, took, result),
+            delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return true if the request was rejected because Elasticsearch queues are full.
+     */
+    static boolean isRejection(Exception e) {
+        if (e instanceof ElasticsearchStatusException
+            && ((ElasticsearchStatusException) e).status() == RestStatus.TOO_MANY_REQUESTS) {
+            return true;
+        }
+        if (e instanceof ResponseException
+            && ((ResponseException) e).getResponse().getStatusLine().getStatusCode()
+            == RestStatus.TOO_MANY_REQUESTS.getStatus()) {
+            return true;
+        }
+        return e.getMessage() != null && e.getMessage().contains("es_rejected_execution_exception");
+    }
+
+    /**
+     * @return the number of requests sent and not yet completed.
+     */
+    public int getInFlightCount() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    /**
+     * @return the number of bulk requests completed.
+     */
+    public long getBulkCount() {
+        return bulkCount.get();
+    }
+
+    /**
+     * @return the number of documents successfully indexed.
+     */
+    public long getIndexedDocumentCount() {
+        return indexedDocumentCount.get();
+    }
+
+    /**
+     * @return the number of documents which failed to be indexed.
+     */
+    public long getFailedDocumentCount() {
+        return failedDocumentCount.get();
+    }
+
+    /**
+     * @return the number of retries after a rejection.
+     */
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+}
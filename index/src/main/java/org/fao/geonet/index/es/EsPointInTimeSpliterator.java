@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2001-2023 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.index.es;
+
+import org.elasticsearch.action.search.ClosePointInTimeRequest;
+import org.elasticsearch.action.search.OpenPointInTimeRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.PointInTimeBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.SortBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.fao.geonet.utils.Log;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Iterate over all the hits of a query, one page at a time, using a point in time
+ * and search_after. Only one page of hits is kept in memory whatever the number of hits.
+ *
+ * The point in time is opened on the first page and closed once the last page is read
+ * or when {@link #close()} is called, whichever comes first. Streams built from this
+ * spliterator close it when they are closed, so consumers which may stop before the end
+ * of the results must use them in a try-with-resources block.
+ */
+public class EsPointInTimeSpliterator implements Spliterator<SearchHit>, AutoCloseable {
+    private static final String LOGGER = "geonetwork.index";
+
+    private final RestHighLevelClient client;
+    private final String index;
+    private final QueryBuilder query;
+    private final QueryBuilder postFilter;
+    private final String[] includedFields;
+    private final List<SortBuilder<FieldSortBuilder>> sort;
+    private final int pageSize;
+    private final TimeValue keepAlive;
+
+    private String pointInTimeId;
+    private Object[] searchAfter;
+    private SearchHit[] page = new SearchHit[0];
+    private int position = 0;
+    private boolean lastPage = false;
+
+    /**
+     * @param client         the client to send the requests with
+     * @param index          the index to search
+     * @param query          the query
+     * @param postFilter     an optional filter applied to the hits of the query
+     * @param includedFields the fields of the documents to return
+     * @param sort           an optional sort, index order is used if null or empty
+     * @param pageSize       the number of hits to retrieve per request
+     * @param keepAlive      how long the point in time is kept between two requests
+     */
+    public EsPointInTimeSpliterator(RestHighLevelClient client, String index,
+                                    QueryBuilder query, QueryBuilder postFilter,
+                                    Set<String> includedFields, List<SortBuilder<FieldSortBuilder>> sort,
+                                    int pageSize, TimeValue keepAlive) {
+        this.client = client;
+        this.index = index;
+        this.query = query;
+        this.postFilter = postFilter;
+        this.includedFields = includedFields.toArray(new String[0]);
+        this.sort = sort;
+        this.pageSize = pageSize;
+        this.keepAlive = keepAlive;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super SearchHit> action) {
+        if (position >= page.length) {
+            if (lastPage) {
+                return false;
+            }
+            try {
+                nextPage();
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException(e);
+            }
+            if (page.length == 0) {
+                return false;
+            }
+        }
+        action.accept(page[position++]);
+        return true;
+    }
+
+    private void nextPage() throws IOException {
+        if (pointInTimeId == null) {
+            pointInTimeId = client.openPointInTime(
+                new OpenPointInTimeRequest(index).keepAlive(keepAlive),
+                RequestOptions.DEFAULT).getPointInTimeId();
+        }
+
+        SearchSourceBuilder source = new SearchSourceBuilder()
+            .query(query)
+            .fetchSource(includedFields, null)
+            .size(pageSize)
+            .trackTotalHits(false)
+            .pointInTimeBuilder(new PointInTimeBuilder(pointInTimeId).setKeepAlive(keepAlive));
+        if (sort != null) {
+            sort.forEach(source::sort);
+        }
+        // Index order is the cheapest and a unique tie breaker for search_after
+        source.sort(SortBuilders.fieldSort("_shard_doc").order(SortOrder.ASC));
+        if (postFilter != null) {
+            source.postFilter(postFilter);
+        }
+        if (searchAfter != null) {
+            source.searchAfter(searchAfter);
+        }
+
+        // Requests on a point in time must not define the index
+        SearchResponse response = client.search(new SearchRequest().source(source), RequestOptions.DEFAULT);
+        if (response.pointInTimeId() != null) {
+            pointInTimeId = response.pointInTimeId();
+        }
+        page = response.getHits().getHits();
+        position = 0;
+        if (page.length > 0) {
+            searchAfter = page[page.length - 1].getSortValues();
+        }
+        if (page.length < pageSize) {
+            lastPage = true;
+            close();
+        }
+    }
+
+    @Override
+    public Spliterator<SearchHit> trySplit() {
+        return null;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+
+    /**
+     * Close the point in time if still open. Can be called more than once.
+     */
+    @Override
+    public void close() {
+        lastPage = true;
+        if (pointInTimeId == null) {
+            return;
+        }
+        try {
+            client.closePointInTime(new ClosePointInTimeRequest(pointInTimeId), RequestOptions.DEFAULT);
+        } catch (Exception e) {
+            // The point in time expires anyway after keepAlive
+            Log.warning(LOGGER, String.format(
+                "Failed to close point in time on index %s. Error is: %s", index, e.getMessage()));
+        } finally {
+            pointInTimeId = null;
+        }
+    }
+}
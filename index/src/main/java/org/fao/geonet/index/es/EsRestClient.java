@@ -37,14 +37,20 @@ import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
 import org.apache.http.nio.conn.SchemeIOSessionStrategy;
 import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
 import org.apache.http.ssl.SSLContextBuilder;
-import org.apache.lucene.search.TotalHits;
 import org.elasticsearch.ElasticsearchStatusException;
 import org.elasticsearch.action.admin.cluster.health.ClusterHealthRequest;
 import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
 import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequest;
+import org.elasticsearch.action.get.MultiGetResponse;
 import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.support.WriteRequest;
@@ -52,6 +58,7 @@ import org.elasticsearch.client.*;
 import org.elasticsearch.client.indices.AnalyzeRequest;
 import org.elasticsearch.client.indices.AnalyzeResponse;
 import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.index.query.QueryStringQueryBuilder;
@@ -59,22 +66,30 @@ import org.elasticsearch.index.reindex.BulkByScrollResponse;
 import org.elasticsearch.index.reindex.DeleteByQueryRequest;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
 import org.elasticsearch.search.sort.FieldSortBuilder;
 import org.elasticsearch.search.sort.SortBuilder;
 import org.fao.geonet.utils.Log;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Value;
 
+import javax.annotation.PreDestroy;
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
 import java.io.IOException;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 /**
@@ -103,6 +118,23 @@ public class EsRestClient implements InitializingBean {
     @Value("${es.password}")
     private String password;
 
+    @Value("${es.bulk.maxInFlight:4}")
+    private int bulkMaxInFlight = 4;
+
+    @Value("${es.bulk.maxRetries:5}")
+    private int bulkMaxRetries = 5;
+
+    @Value("${es.bulk.retryBackoff:200}")
+    private long bulkRetryBackoff = 200;
+
+    @Value("${es.search.pageSize:1000}")
+    private int searchPageSize = 1000;
+
+    @Value("${es.search.keepAlive:1m}")
+    private String searchKeepAlive = "1m";
+
+    private EsBulkSender bulkSender;
+
     private boolean activated = false;
 
     public static EsRestClient get() {
@@ -176,6 +208,7 @@ public class EsRestClient implements InitializingBean {
                 }
             }
             client = new RestHighLevelClient(builder);
+            bulkSender = new EsBulkSender(client, bulkMaxInFlight, bulkMaxRetries, bulkRetryBackoff);
 
             synchronized (EsRestClient.class) {
                 instance = this;
@@ -188,6 +221,21 @@ public class EsRestClient implements InitializingBean {
         }
     }
 
+    @PreDestroy
+    public void destroy() {
+        if (bulkSender != null) {
+            bulkSender.shutdown();
+        }
+    }
+
+    /**
+     * @return the sender shared by all asynchronous bulk requests
+     * or null if no Elasticsearch URL is defined.
+     */
+    public EsBulkSender getBulkSender() {
+        return bulkSender;
+    }
+
     public String getServerUrl() {
         return serverUrl;
     }
@@ -218,12 +266,26 @@ public class EsRestClient implements InitializingBean {
     public static final String ROUTING_KEY = "101";
 
     public BulkResponse bulkRequest(String index, Map<String, String> docs) throws IOException {
+        return bulkRequest(index, docs, WriteRequest.RefreshPolicy.IMMEDIATE);
+    }
+
+    /**
+     * Index a set of documents in one bulk request.
+     *
+     * @param index         the index (or alias) name
+     * @param docs          the JSON documents by id
+     * @param refreshPolicy the refresh to apply once the bulk is done.
+     *                      Use {@link WriteRequest.RefreshPolicy#NONE} when loading
+     *                      an index which is not yet searched.
+     */
+    public BulkResponse bulkRequest(String index, Map<String, String> docs,
+                                    WriteRequest.RefreshPolicy refreshPolicy) throws IOException {
         if (!activated) {
             throw new IOException("Index not yet activated.");
         }
 
         BulkRequest request = new BulkRequest();
-        request.setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE);
+        request.setRefreshPolicy(refreshPolicy);
         Iterator iterator = docs.entrySet().iterator();
         while (iterator.hasNext()) {
             Map.Entry<String, String> entry = (Map.Entry) iterator.next();
@@ -242,6 +304,52 @@ public class EsRestClient implements InitializingBean {
         }
     }
 
+    /**
+     * Index a set of documents in one bulk request sent by the {@link EsBulkSender}.
+     * The call only blocks when the maximum number of bulk requests in flight is reached.
+     *
+     * @param index         the index (or alias) name
+     * @param docs          the JSON documents by id
+     * @param refreshPolicy the refresh to apply once the bulk is done
+     */
+    public CompletableFuture<BulkResponse> bulkRequestAsync(String index, Map<String, String> docs,
+                                                            WriteRequest.RefreshPolicy refreshPolicy) throws IOException {
+        if (!activated) {
+            throw new IOException("Index not yet activated.");
+        }
+
+        BulkRequest request = new BulkRequest();
+        request.setRefreshPolicy(refreshPolicy);
+        docs.forEach((id, doc) -> request.add(new IndexRequest(index).id(id)
+            .source(doc, XContentType.JSON)));
+        try {
+            return bulkSender.send(request);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to send bulk request.", e);
+        }
+    }
+
+    /**
+     * Delete documents by id with the bulk sender.
+     */
+    public CompletableFuture<BulkResponse> bulkDeleteAsync(String index, Collection<String> ids,
+                                                           WriteRequest.RefreshPolicy refreshPolicy) throws IOException {
+        if (!activated) {
+            throw new IOException("Index not yet activated.");
+        }
+
+        BulkRequest request = new BulkRequest();
+        request.setRefreshPolicy(refreshPolicy);
+        ids.forEach(id -> request.add(new DeleteRequest(index, id)));
+        try {
+            return bulkSender.send(request);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to send bulk request.", e);
+        }
+    }
+
 //
 //    public void bulkRequestAsync(Bulk.Builder bulk , JestResultHandler<BulkResult> handler) {
 //        client.executeAsync(bulk.build(), handler);
@@ -295,21 +403,7 @@ public class EsRestClient implements InitializingBean {
         // See EsHTTPProxy#addUserInfo
         SearchRequest searchRequest = new SearchRequest();
         searchRequest.indices(index);
-        SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
-        searchSourceBuilder.query(queryBuilder);
-        searchSourceBuilder.fetchSource(includedFields.toArray(new String[includedFields.size()]), null);
-        searchSourceBuilder.from(from);
-        searchSourceBuilder.size(size);
-        searchSourceBuilder.trackTotalHits(true);
-        if (postFilterBuilder != null) {
-            searchSourceBuilder.postFilter(postFilterBuilder);
-        }
-
-        if ((sort != null) && (!sort.isEmpty())) {
-            sort.forEach(s -> searchSourceBuilder.sort(s));
-        }
-
-        searchRequest.source(searchSourceBuilder);
+        searchRequest.source(buildSearchSource(queryBuilder, postFilterBuilder, includedFields, from, size, sort));
 
         try {
             SearchResponse searchResponse = client.search(searchRequest, RequestOptions.DEFAULT);
@@ -332,6 +426,103 @@ public class EsRestClient implements InitializingBean {
     }
 
 
+    /**
+     * Build the source of a search request using Lucene query syntax.
+     */
+    public static SearchSourceBuilder buildSearchSource(String luceneQuery, String filterQuery, Set<String> includedFields,
+                                                        int from, int size) {
+        QueryBuilder filter = null;
+        if (StringUtils.isNotEmpty(filterQuery)) {
+            filter = QueryBuilders.queryStringQuery(filterQuery);
+        }
+        return buildSearchSource(QueryBuilders.queryStringQuery(luceneQuery), filter, includedFields, from, size, null);
+    }
+
+    public static SearchSourceBuilder buildSearchSource(QueryBuilder queryBuilder, QueryBuilder postFilterBuilder, Set<String> includedFields,
+                                                        int from, int size, List<SortBuilder<FieldSortBuilder>> sort) {
+        SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
+        searchSourceBuilder.query(queryBuilder);
+        searchSourceBuilder.fetchSource(includedFields.toArray(new String[includedFields.size()]), null);
+        searchSourceBuilder.from(from);
+        searchSourceBuilder.size(size);
+        searchSourceBuilder.trackTotalHits(true);
+        if (postFilterBuilder != null) {
+            searchSourceBuilder.postFilter(postFilterBuilder);
+        }
+
+        if ((sort != null) && (!sort.isEmpty())) {
+            sort.forEach(s -> searchSourceBuilder.sort(s));
+        }
+        return searchSourceBuilder;
+    }
+
+    /**
+     * Run a set of searches in one multi search request.
+     *
+     * @return the responses in the same order as the searches.
+     * @throws IOException if one of the searches failed.
+     */
+    public List<SearchResponse> multiQuery(String index, List<SearchSourceBuilder> searches) throws Exception {
+        if (!activated) {
+            return null;
+        }
+        List<SearchResponse> responses = new ArrayList<>(searches.size());
+        if (searches.isEmpty()) {
+            return responses;
+        }
+
+        MultiSearchRequest multiSearchRequest = new MultiSearchRequest();
+        for (SearchSourceBuilder search : searches) {
+            multiSearchRequest.add(new SearchRequest(index).source(search));
+        }
+
+        MultiSearchResponse multiSearchResponse = client.msearch(multiSearchRequest, RequestOptions.DEFAULT);
+        for (MultiSearchResponse.Item item : multiSearchResponse.getResponses()) {
+            if (item.isFailure()) {
+                throw new IOException(String.format(
+                    "Error during querying index. Errors is '%s'.", item.getFailureMessage()
+                ));
+            }
+            responses.add(item.getResponse());
+        }
+        return responses;
+    }
+
+
+    /**
+     * Stream all hits of a query using a point in time and search_after,
+     * retrieving {@code es.search.pageSize} hits per request.
+     *
+     * @see #stream(String, QueryBuilder, QueryBuilder, Set, List, int)
+     */
+    public Stream<SearchHit> stream(String index, QueryBuilder queryBuilder, QueryBuilder postFilterBuilder,
+                                    Set<String> includedFields) {
+        return stream(index, queryBuilder, postFilterBuilder, includedFields, null, searchPageSize);
+    }
+
+    public Stream<SearchHit> stream(String index, QueryBuilder queryBuilder, QueryBuilder postFilterBuilder,
+                                    Set<String> includedFields, List<SortBuilder<FieldSortBuilder>> sort) {
+        return stream(index, queryBuilder, postFilterBuilder, includedFields, sort, searchPageSize);
+    }
+
+    /**
+     * Stream all hits of a query using a point in time and search_after, in index order
+     * if no sort is defined. Only one page of hits is kept in memory. The point in time is
+     * closed when the last hit is read or when the stream is closed: use a try-with-resources
+     * block when the stream may not be consumed entirely.
+     */
+    public Stream<SearchHit> stream(String index, QueryBuilder queryBuilder, QueryBuilder postFilterBuilder,
+                                    Set<String> includedFields, List<SortBuilder<FieldSortBuilder>> sort,
+                                    int pageSize) {
+        if (!activated) {
+            return Stream.empty();
+        }
+        EsPointInTimeSpliterator spliterator = new EsPointInTimeSpliterator(
+            client, index, queryBuilder, postFilterBuilder, includedFields, sort, pageSize,
+            TimeValue.parseTimeValue(searchKeepAlive, "es.search.keepAlive"));
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+    }
+
     public String deleteByQuery(String index, String query) throws Exception {
         if (!activated) {
             return "";
@@ -369,55 +560,80 @@ public class EsRestClient implements InitializingBean {
     }
 
     /**
-     * Query the index for a specific record and return values for a set of fields.
+     * Get a specific record from the index and return values for a set of fields.
      */
     public Map<String, String> getFieldsValues(String index, String id, Set<String> fields) throws IOException {
         if (!activated) {
             return null;
         }
 
-        Map<String, String> fieldValues = new HashMap<>(fields.size());
+        Map<String, Map<String, Object>> documents =
+            getDocumentsFields(index, Collections.singleton(id), fields);
+        Map<String, Object> source = documents.get(id);
+        return source == null ? new HashMap<>(fields.size()) : toFieldValues(source, fields);
+    }
+
+    /**
+     * Get a set of documents with one multi get request and return their source
+     * restricted to a set of fields. Documents not found are not part of the result.
+     *
+     * @param ids    For record index, use UUIDs.
+     * @param fields the fields to return, all if empty.
+     * @return the source of the documents by id.
+     */
+    public Map<String, Map<String, Object>> getDocumentsFields(String index, Collection<String> ids,
+                                                               Set<String> fields) throws IOException {
+        if (!activated) {
+            return null;
+        }
+
+        Map<String, Map<String, Object>> documents = new HashMap<>(ids.size());
+        if (ids.isEmpty()) {
+            return documents;
+        }
+
+        FetchSourceContext sourceContext = fields.isEmpty() ?
+            FetchSourceContext.FETCH_SOURCE :
+            new FetchSourceContext(true, fields.toArray(new String[0]), null);
+        MultiGetRequest request = new MultiGetRequest();
+        ids.forEach(id -> request.add(new MultiGetRequest.Item(index, id).fetchSourceContext(sourceContext)));
         try {
-            String query = String.format("_id:\"%s\"", id);
-            // TODO: Check maxRecords
-            // TODO: Use _doc API?
-            final SearchResponse searchResponse = this.query(index, query, null, fields, 0, 1, null);
-            if (searchResponse.status().getStatus() == 200) {
-                TotalHits totalHits = searchResponse.getHits().getTotalHits();
-                long matches = totalHits == null ? -1 : totalHits.value; 
-                if (matches == 0) {
-                    return fieldValues;
-                } else if (matches == 1) {
-                    final SearchHit[] hits = searchResponse.getHits().getHits();
-
-                    fields.forEach(f -> {
-                        final Object o = hits[0].getSourceAsMap().get(f);
-                        if (o instanceof String) {
-                            fieldValues.put(f, (String) o);
-                        } else if (o instanceof HashMap && f.endsWith("Object")) {
-                            fieldValues.put(f, (String) ((HashMap) o).get("default"));
-                        }
-                    });
-                } else {
+            MultiGetResponse response = client.mget(request, RequestOptions.DEFAULT);
+            for (MultiGetItemResponse item : response.getResponses()) {
+                if (item.isFailed()) {
                     throw new IOException(String.format(
-                        "Your query '%s' returned more than one record, %d in fact. Can't retrieve field values for more than one record.",
-                        query,
-                        matches
-                    ));
+                        "Error while getting document '%s'. Error is '%s'.",
+                        item.getId(), item.getFailure().getMessage()));
+                }
+                GetResponse document = item.getResponse();
+                if (document.isExists()) {
+                    documents.put(document.getId(), document.getSourceAsMap());
                 }
-            } else {
-                throw new IOException(String.format(
-                    "Error during fields value retrieval. Status is '%s'.", searchResponse.status().getStatus()
-                ));
             }
         } catch (Exception e) {
             throw new IOException(String.format(
                 "Error during fields value retrieval. Errors is '%s'.", e.getMessage()
             ));
         }
-        return fieldValues;
+        return documents;
     }
 
+    /**
+     * Convert the source of a document to field values. Only string fields
+     * and the default value of multilingual fields (ending with Object) are returned.
+     */
+    public static Map<String, String> toFieldValues(Map<String, Object> source, Set<String> fields) {
+        Map<String, String> fieldValues = new HashMap<>(fields.size());
+        fields.forEach(f -> {
+            final Object o = source.get(f);
+            if (o instanceof String) {
+                fieldValues.put(f, (String) o);
+            } else if (o instanceof Map && f.endsWith("Object")) {
+                fieldValues.put(f, (String) ((Map) o).get("default"));
+            }
+        });
+        return fieldValues;
+    }
 
     /**
      * Analyze a field and a value against the index
@@ -22,17 +22,10 @@
  */
 package org.fao.geonet.listener.history;
 
-import org.fao.geonet.constants.Geonet;
-import org.fao.geonet.domain.ISODate;
-import org.fao.geonet.domain.MetadataStatus;
-import org.fao.geonet.domain.StatusValue;
 import org.fao.geonet.events.history.AbstractHistoryEvent;
-import org.fao.geonet.kernel.datamanager.IMetadataUtils;
+import org.fao.geonet.kernel.history.MetadataHistoryWriter;
 import org.fao.geonet.kernel.setting.SettingManager;
 import org.fao.geonet.kernel.setting.Settings;
-import org.fao.geonet.repository.MetadataStatusRepository;
-import org.fao.geonet.repository.StatusValueRepository;
-import org.fao.geonet.utils.Log;
 import org.springframework.beans.factory.annotation.Autowired;
 
 public abstract class GenericMetadataEventListener {
@@ -41,13 +34,7 @@ public abstract class GenericMetadataEventListener {
     private SettingManager settingManager;
 
     @Autowired
-    private MetadataStatusRepository metadataStatusRepository;
-
-    @Autowired
-    private StatusValueRepository statusValueRepository;
-
-    @Autowired
-    IMetadataUtils metadataUtils;
+    private MetadataHistoryWriter metadataHistoryWriter;
 
     public abstract String getChangeMessage();
 
@@ -64,63 +51,15 @@ public abstract class GenericMetadataEventListener {
     }
 
     /**
-     * Stores the event in the database
+     * Stores the event in the database. The event is saved in the background
+     * by the {@link MetadataHistoryWriter}.
      *
      * @param event
      */
     public final void storeContentHistoryEvent(AbstractHistoryEvent event) {
 
         if(settingManager.getValueAsBool(Settings.SYSTEM_METADATA_HISTORY_ENABLED)) {
-
-            Integer metadataid = Math.toIntExact(event.getMdId());
-
-            StatusValue status = statusValueRepository.findOneById(Integer.parseInt(getEventType()));
-
-            if (status != null) {
-                MetadataStatus metadataStatus = new MetadataStatus();
-                metadataStatus.setMetadataId(metadataid);
-                metadataStatus.setUserId(event.getUserId());
-                metadataStatus.setChangeDate(new ISODate(System.currentTimeMillis()));
-                metadataStatus.setStatusValue(status);
-                metadataStatus.setOwner(event.getUserId());
-                // Used the uuid if supplied otherwise try to look it up.
-                if (event.getUuid() != null && event.getUuid().length() > 0) {
-                    metadataStatus.setUuid(event.getUuid());
-                } else {
-                    try {
-                        metadataStatus.setUuid(metadataUtils.getMetadataUuid(Integer.toString(metadataid)));
-                    } catch (Exception e) {
-                        Log.error(Geonet.DATA_MANAGER, String.format(
-                                "Error locating uuid for metadata id: %d", + metadataid), e);
-                    }
-                    if (metadataStatus.getUuid() == null || metadataStatus.getUuid().length() == 0) {
-                        Log.error(Geonet.DATA_MANAGER, String.format(
-                                "Could not located uuid for metadata id: %d", +metadataid));
-                    }
-                }
-
-                if (event.getTitles() != null && event.getTitles().size() > 0) {
-                    metadataStatus.setTitles(event.getTitles());
-                } else {
-                    try {
-                        metadataStatus.setTitles(metadataUtils.extractTitles(Integer.toString(metadataid)));
-                    } catch (Exception e) {
-                        Log.error(Geonet.DATA_MANAGER, String.format(
-                                "Error locating titles for metadata id: %d", +metadataid), e);
-                    }
-                }
-
-                metadataStatus.setChangeMessage(getChangeMessage());
-                metadataStatus.setCurrentState(event.getCurrentState());
-                metadataStatus.setPreviousState(event.getPreviousState());
-                metadataStatus.setRelatedMetadataStatus(event.getRelatedMetadataStatus());
-
-                metadataStatusRepository.save(metadataStatus);
-            } else {
-                Log.warning(Geonet.DATA_MANAGER, String.format(
-                        "Status with id '%s' not found in database. Check database migration SQL file to add default status if you want to log record history.",
-                        getEventType()));
-            }
+            metadataHistoryWriter.submit(event, getEventType(), getChangeMessage());
         }
     }
 
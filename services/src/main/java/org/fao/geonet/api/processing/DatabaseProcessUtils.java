@@ -29,6 +29,7 @@ import org.fao.geonet.api.processing.report.MetadataReplacementProcessingReport;
 import org.fao.geonet.api.processing.report.XsltMetadataProcessingReport;
 import org.fao.geonet.domain.AbstractMetadata;
 import org.fao.geonet.domain.ISODate;
+import org.fao.geonet.domain.MetadataDataCodec;
 import org.fao.geonet.kernel.AccessManager;
 import org.fao.geonet.kernel.DataManager;
 import org.fao.geonet.kernel.SchemaManager;
@@ -44,6 +45,8 @@ import org.fao.geonet.utils.Xml;
 import org.jdom.Element;
 
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class DatabaseProcessUtils {
     /**
@@ -85,15 +88,22 @@ public class DatabaseProcessUtils {
             try {
                 Lib.resource.checkEditPrivilege(context, id);
 
-                String updatedXml =
-                    useRegexp
-                        ? (StringUtils.isNotEmpty(flags)
-                          ? metadataRepository.selectOneWithRegexSearchAndReplaceWithFlags(
-                        info.getUuid(), search, replace, flags)
-                          : metadataRepository.selectOneWithRegexSearchAndReplace(
-                        info.getUuid(), search, replace))
-                        : metadataRepository.selectOneWithSearchAndReplace(
-                        info.getUuid(), search, replace);
+                String updatedXml = null;
+                if (!MetadataDataCodec.isCompressionEnabled()) {
+                    updatedXml =
+                        useRegexp
+                            ? (StringUtils.isNotEmpty(flags)
+                              ? metadataRepository.selectOneWithRegexSearchAndReplaceWithFlags(
+                            info.getUuid(), search, replace, flags)
+                              : metadataRepository.selectOneWithRegexSearchAndReplace(
+                            info.getUuid(), search, replace))
+                            : metadataRepository.selectOneWithSearchAndReplace(
+                            info.getUuid(), search, replace);
+                }
+                if (updatedXml == null || MetadataDataCodec.isCompressed(updatedXml)) {
+                    // The database can not search in compressed records
+                    updatedXml = replace(info.getData(), useRegexp, search, replace, flags);
+                }
 
                 // Check XML is still well formed.
                 wellFormedXml = Xml.loadString(updatedXml, false);
@@ -131,4 +141,72 @@ public class DatabaseProcessUtils {
         }
         return null;
     }
+
+    /**
+     * Apply the replacement done by the SQL queries to a record. Used for records stored
+     * compressed (see {@link MetadataDataCodec}). Regular expressions support the flags of
+     * the PostgreSQL regexp_replace function (g, i, c, n, s, x) and the {@code \1} to {@code \9}
+     * and {@code \&} back references in the replacement.
+     */
+    static String replace(String xml, boolean useRegexp, String search, String replace, String flags) {
+        if (!useRegexp) {
+            return xml.replace(search, replace);
+        }
+        int patternFlags = Pattern.DOTALL;
+        boolean global = false;
+        if (flags != null) {
+            for (char flag : flags.toCharArray()) {
+                switch (flag) {
+                    case 'g':
+                        global = true;
+                        break;
+                    case 'i':
+                        patternFlags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+                        break;
+                    case 'c':
+                        patternFlags &= ~(Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+                        break;
+                    case 'n':
+                    case 'm':
+                        patternFlags = (patternFlags & ~Pattern.DOTALL) | Pattern.MULTILINE;
+                        break;
+                    case 's':
+                        patternFlags = (patternFlags & ~Pattern.MULTILINE) | Pattern.DOTALL;
+                        break;
+                    case 'x':
+                        patternFlags |= Pattern.COMMENTS;
+                        break;
+                    default:
+                        throw new IllegalArgumentException(String.format(
+                            "Invalid regular expression option '%s'.", flag));
+                }
+            }
+        }
+        Matcher matcher = Pattern.compile(search, patternFlags).matcher(xml);
+        String replacement = toJavaReplacement(replace);
+        return global ? matcher.replaceAll(replacement) : matcher.replaceFirst(replacement);
+    }
+
+    private static String toJavaReplacement(String replace) {
+        StringBuilder replacement = new StringBuilder(replace.length());
+        for (int i = 0; i < replace.length(); i++) {
+            char c = replace.charAt(i);
+            char next = i + 1 < replace.length() ? replace.charAt(i + 1) : 0;
+            if (c == '\\' && Character.isDigit(next)) {
+                replacement.append('$').append(next);
+                i++;
+            } else if (c == '\\' && next == '&') {
+                replacement.append("$0");
+                i++;
+            } else if (c == '\\' && next == '\\') {
+                replacement.append("\\\\");
+                i++;
+            } else if (c == '\\' || c == '$') {
+                replacement.append('\\').append(c);
+            } else {
+                replacement.append(c);
+            }
+        }
+        return replacement.toString();
+    }
 }
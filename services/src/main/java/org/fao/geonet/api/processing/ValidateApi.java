@@ -31,6 +31,7 @@ import jeeves.server.UserSession;
 import jeeves.server.context.ServiceContext;
 import org.apache.commons.lang.StringUtils;
 import org.fao.geonet.ApplicationContextHolder;
+import org.fao.geonet.api.API;
 import org.fao.geonet.api.ApiParams;
 import org.fao.geonet.api.ApiUtils;
 import org.fao.geonet.api.processing.report.SimpleMetadataProcessingReport;
@@ -50,15 +51,18 @@ import org.fao.geonet.kernel.setting.SettingManager;
 import org.fao.geonet.kernel.setting.Settings;
 import org.fao.geonet.repository.MetadataValidationRepository;
 import org.fao.geonet.kernel.search.index.BatchOpsMetadataReindexer;
+import org.fao.geonet.utils.Log;
 import org.jdom.Element;
 import org.jdom.filter.Filter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.jmx.export.MBeanExporter;
 import org.springframework.jmx.export.naming.SelfNaming;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
@@ -68,8 +72,15 @@ import javax.management.MalformedObjectNameException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static org.fao.geonet.api.ApiParams.*;
 import static org.fao.geonet.api.records.InspireValidationApi.API_PARAM_INSPIRE_VALIDATION_MODE;
@@ -110,6 +121,18 @@ public class ValidateApi {
     @Autowired
     protected XmlSerializer xmlSerializer;
 
+    /**
+     * Number of records validated in parallel by {@link #validateRecords}.
+     */
+    @Value("${validation.batch.threads:4}")
+    private int validationThreads = 4;
+
+    /**
+     * Number of seconds after which the validation of a record is reported as failed.
+     */
+    @Value("${validation.batch.timeout:120}")
+    private long validationTimeout = 120;
+
     private final ArrayDeque<SelfNaming> mAnalyseProcesses = new ArrayDeque<>(NUMBER_OF_SUBSEQUENT_PROCESS_MBEAN_TO_KEEP);
 
     @PostConstruct
@@ -168,9 +191,13 @@ public class ValidateApi {
 
         SimpleMetadataProcessingReport report =
             new SimpleMetadataProcessingReport();
+        ExecutorService executor = new DelegatingSecurityContextExecutorService(
+            Executors.newFixedThreadPool(Math.max(1, validationThreads)));
         try {
             ApplicationContext applicationContext = ApplicationContextHolder.get();
             ServiceContext serviceContext = ApiUtils.createServiceContext(request);
+            int userId = ApiUtils.getUserSession(request.getSession()).getUserIdAsInt();
+            List<Pair<AbstractMetadata, Future<Boolean>>> validations = new ArrayList<>();
 
             Set<String> records = ApiUtils.getUuidsParameterOrSelection(uuids, bucket, userSession);
             report.setTotalRecords(records.size());
@@ -193,18 +220,11 @@ public class ValidateApi {
                         if (!accessMan.canEdit(serviceContext, String.valueOf(record.getId()))) {
                             report.addNotEditableMetadataId(record.getId());
                         } else {
-
-                            Pair<Element, String> errorReport = validator.doValidate(userSession, record.getDataInfo().getSchemaId(), Integer.toString(record.getId()), xmlSerializer.select(serviceContext, String.valueOf(record.getId())), serviceContext.getLanguage(), false);
-                            boolean isValid = !errorReport.one().getDescendants(ErrorFinder).hasNext();
-                            if (isValid) {
-                                report.addMetadataInfos(record, "Is valid");
-                                new RecordValidationTriggeredEvent(record.getId(), ApiUtils.getUserSession(request.getSession()).getUserIdAsInt(), "1").publish(applicationContext);
-                            } else {
-                                report.addMetadataError(record, "Is invalid");
-                                new RecordValidationTriggeredEvent(record.getId(), ApiUtils.getUserSession(request.getSession()).getUserIdAsInt(), "0").publish(applicationContext);
-                            }
-                            report.addMetadataId(record.getId());
-                            report.incrementProcessedRecords();
+                            validations.add(Pair.read(record, executor.submit(() -> {
+                                serviceContext.setAsThreadLocal();
+                                Pair<Element, String> errorReport = validator.doValidate(userSession, record.getDataInfo().getSchemaId(), Integer.toString(record.getId()), xmlSerializer.select(serviceContext, String.valueOf(record.getId())), serviceContext.getLanguage(), false);
+                                return !errorReport.one().getDescendants(ErrorFinder).hasNext();
+                            })));
                         }
                     }
                 }
@@ -214,12 +234,39 @@ public class ValidateApi {
                 }
             }
 
+            // Tasks are started in submission order so when waiting for a record, the previous
+            // ones are done and the record validation is running.
+            for (Pair<AbstractMetadata, Future<Boolean>> validation : validations) {
+                AbstractMetadata record = validation.one();
+                try {
+                    boolean isValid = validation.two().get(validationTimeout, TimeUnit.SECONDS);
+                    if (isValid) {
+                        report.addMetadataInfos(record, "Is valid");
+                        new RecordValidationTriggeredEvent(record.getId(), userId, "1").publish(applicationContext);
+                    } else {
+                        report.addMetadataError(record, "Is invalid");
+                        new RecordValidationTriggeredEvent(record.getId(), userId, "0").publish(applicationContext);
+                    }
+                } catch (TimeoutException e) {
+                    validation.two().cancel(true);
+                    report.addMetadataError(record, String.format(
+                        "Validation not completed after %d seconds", validationTimeout));
+                } catch (ExecutionException e) {
+                    Log.error(API.LOG_MODULE_NAME, String.format(
+                        "Error while validating record %d. Error is %s", record.getId(), e.getCause().getMessage()), e.getCause());
+                    report.addMetadataError(record, e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+                }
+                report.addMetadataId(record.getId());
+                report.incrementProcessedRecords();
+            }
+
             // index records
             BatchOpsMetadataReindexer r = new BatchOpsMetadataReindexer(dataMan, report.getMetadata());
             r.process(settingManager.getSiteId(), true);
         } catch (Exception e) {
             throw e;
         } finally {
+            executor.shutdownNow();
             report.close();
         }
         return report;
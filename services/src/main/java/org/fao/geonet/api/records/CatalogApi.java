@@ -43,6 +43,7 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.text.StrSubstitutor;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.SearchHit;
 import org.fao.geonet.ApplicationContextHolder;
 import org.fao.geonet.api.API;
 import org.fao.geonet.api.ApiParams;
@@ -89,6 +90,7 @@ import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.fao.geonet.api.ApiParams.*;
 import static org.fao.geonet.kernel.mef.MEFLib.Version.Constants.MEF_V1_ACCEPT_TYPE;
@@ -543,14 +545,16 @@ public class CatalogApi {
         int maxhits = Integer.parseInt(settingInfo.getSelectionMaxRecords());
         ServiceContext context = ApiUtils.createServiceContext(httpRequest);
 
-        final SearchResponse searchResponse = searchManager.query(
+        List<String> idsToExport;
+        try (Stream<SearchHit> hits = searchManager.stream(
             String.format("uuid:(\"%s\")", String.join("\" or \"", uuidList)),
             EsFilterBuilder.buildPermissionsFilter(ApiUtils.createServiceContext(httpRequest)),
-            FIELDLIST_CORE, 0, maxhits);
-
-        List<String> idsToExport = Arrays.stream(searchResponse.getHits().getHits())
-            .map(h -> (String) h.getSourceAsMap().get("id"))
-            .collect(Collectors.toList());
+            FIELDLIST_CORE)) {
+            idsToExport = hits
+                .limit(maxhits)
+                .map(h -> (String) h.getSourceAsMap().get("id"))
+                .collect(Collectors.toList());
+        }
 
         // Determine filename to use
         String fileName = replaceFilenamePlaceholder(settingManager.getValue("metadata/csvReport/csvName"), "csv");
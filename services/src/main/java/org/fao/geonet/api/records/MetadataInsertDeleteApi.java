@@ -75,6 +75,7 @@ import org.fao.geonet.repository.MetadataRepository;
 import org.fao.geonet.repository.Updater;
 import org.fao.geonet.repository.UserGroupRepository;
 import org.fao.geonet.repository.specification.UserGroupSpecs;
+import org.fao.geonet.util.ThreadPool;
 import org.fao.geonet.utils.FilePathChecker;
 import org.fao.geonet.utils.IO;
 import org.fao.geonet.utils.Log;
@@ -83,13 +84,16 @@ import org.jdom.Element;
 import org.jdom.input.JDOMParseException;
 import org.jdom.output.XMLOutputter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.hierarchicalroles.RoleHierarchy;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
@@ -173,6 +177,15 @@ public class MetadataInsertDeleteApi {
     @Autowired
     IMetadataValidator metadataValidator;
 
+    @Autowired
+    ThreadPool threadPool;
+
+    /**
+     * Number of records of a MEF file parsed, transformed and validated concurrently on import.
+     */
+    @Value("${mef.import.threads:4}")
+    private int mefImportThreads;
+
     @io.swagger.v3.oas.annotations.Operation(summary = "Delete a record", description = "User MUST be able to edit the record to delete it. "
         + "By default, a backup is made in ZIP format. After that, "
         + "the record attachments are removed, the document removed "
@@ -406,7 +419,7 @@ public class MetadataInsertDeleteApi {
                         MEFLib.Version version = MEFLib.getMEFVersion(f);
                         List<String> ids = MEFLib.doImport(version == MEFLib.Version.V1 ? "mef" : "mef2",
                             uuidProcessing, transformWith, settingManager.getSiteId(), metadataType, category,
-                            group, rejectIfInvalid, assignToCatalog, context, f);
+                            group, rejectIfInvalid, assignToCatalog, context, f, mefImportThreads, null);
                         for (String id : ids) {
                             report.addMetadataInfos(Integer.parseInt(id), id, !publishToAll, false,
                                     String.format(messages.getString("api.metadata.import.importedFromMEF"), id));
@@ -580,6 +593,8 @@ public class MetadataInsertDeleteApi {
         @Parameter(description = "(experimental) Add extra information to the record.", required = false) @RequestParam(required = false) final String extra,
         @Parameter(description = "Is editable by group members with editor profile? "
             + "If not, only the author and administrator can edit the record.", required = false) @RequestParam(required = false, defaultValue = "false") final boolean allowEditGroupMembers,
+        @Parameter(description = "(MEF file only) Import in the background. The report is returned "
+            + "immediately and the import progress is available in the processes reports.", required = false) @RequestParam(required = false, defaultValue = "false") final boolean async,
         HttpServletRequest request) throws Exception {
 
         Locale locale = languageUtils.parseAcceptLanguage(request.getLocales());
@@ -592,20 +607,47 @@ public class MetadataInsertDeleteApi {
         SimpleMetadataProcessingReport report = new SimpleMetadataProcessingReport();
         if (file != null) {
             ServiceContext context = ApiUtils.createServiceContext(request);
+            UserSession userSession = context.getUserSession();
 
-            checkUserProfileToImportMetadata(context.getUserSession());
+            checkUserProfileToImportMetadata(userSession);
 
+            List<Pair<String, Path>> mefFiles = new ArrayList<>();
             for (MultipartFile f : file) {
                 if (MEFLib.isValidArchiveExtensionForMEF(f.getOriginalFilename())) {
                     Path tempFile = Files.createTempFile("mef-import", ".zip");
                     try {
                         FileUtils.copyInputStreamToFile(f.getInputStream(), tempFile.toFile());
+                        mefFiles.add(Pair.read(f.getOriginalFilename(), tempFile));
+                    } catch (Exception e) {
+                        IO.deleteFile(tempFile, false, Geonet.MEF);
+                        report.addError(e);
+                        report.addInfos(String.format(messages.getString("api.metadata.import.errorImportMEF"),
+                            f.getOriginalFilename()));
+                    }
+                } else {
+                    Pair<Integer, String> pair = loadRecord(metadataType, Xml.loadStream(f.getInputStream()),
+                            uuidProcessing, group, category, rejectIfInvalid, publishToAll, allowEditGroupMembers, transformWith, schema,
+                            extra, request);
+                    report.addMetadataInfos(pair.one(), pair.two(), !publishToAll, false, String.format(messages.getString("api.metadata.import.importedWithUuid"), pair.two()));
+
+                    triggerImportEvent(request, pair.two());
+
+                    report.incrementProcessedRecords();
+                }
+            }
 
+            Runnable mefImport = () -> {
+                for (Pair<String, Path> mefFile : mefFiles) {
+                    String fileName = mefFile.one();
+                    Path tempFile = mefFile.two();
+                    try {
                         MEFLib.Version version = MEFLib.getMEFVersion(tempFile);
 
+                        // Processed records are counted as soon as they are stored to report the import progress
                         List<String> ids = MEFLib.doImport(version == MEFLib.Version.V1 ? "mef" : "mef2",
                                 uuidProcessing, transformWith, settingManager.getSiteId(), metadataType, category,
-                                group, rejectIfInvalid, assignToCatalog, context, tempFile);
+                                group, rejectIfInvalid, assignToCatalog, context, tempFile,
+                                mefImportThreads, id -> report.incrementProcessedRecords());
                         if (ids.isEmpty()) {
                             //we could have used a finer-grained error handling inside the MEFLib import call (MEF MD file processing)
                             //This is a catch-for-call for the case when there is no record is imported, to notify the user the import is not successful.
@@ -616,34 +658,39 @@ public class MetadataInsertDeleteApi {
                                     String.format(messages.getString("api.metadata.import.importedWithId"), e));
 
                             try {
-                                triggerCreationEvent(request, e);
+                                triggerCreationEvent(userSession, e);
                             } catch (Exception e1) {
                                 report.addError(e1);
                                 report.addInfos(
                                     String.format(messages.getString("api.metadata.import.errorEventStore"),
-                                        f.getOriginalFilename()));
+                                        fileName));
                             }
-
-                            report.incrementProcessedRecords();
                         });
                     } catch (Exception e) {
                         report.addError(e);
                         report.addInfos(String.format(messages.getString("api.metadata.import.errorImportMEF"),
-                            f.getOriginalFilename()));
+                            fileName));
                     } finally {
                         IO.deleteFile(tempFile, false, Geonet.MEF);
                     }
-                } else {
-                    Pair<Integer, String> pair = loadRecord(metadataType, Xml.loadStream(f.getInputStream()),
-                            uuidProcessing, group, category, rejectIfInvalid, publishToAll, allowEditGroupMembers, transformWith, schema,
-                            extra, request);
-                    report.addMetadataInfos(pair.one(), pair.two(), !publishToAll, false, String.format(messages.getString("api.metadata.import.importedWithUuid"), pair.two()));
-
-                    triggerImportEvent(request, pair.two());
-
-                    report.incrementProcessedRecords();
                 }
+            };
+
+            if (async && !mefFiles.isEmpty()) {
+                // The report is registered and its progress is available in the processes reports
+                ConfigurableApplicationContext applicationContext = ApplicationContextHolder.get();
+                threadPool.runTask(new DelegatingSecurityContextRunnable(() -> {
+                    ApplicationContextHolder.set(applicationContext);
+                    context.setAsThreadLocal();
+                    try {
+                        mefImport.run();
+                    } finally {
+                        report.close();
+                    }
+                }));
+                return report;
             }
+            mefImport.run();
         }
         report.close();
         return report;
@@ -795,10 +842,14 @@ public class MetadataInsertDeleteApi {
      * @throws JsonProcessingException
      */
     private void triggerCreationEvent(HttpServletRequest request, String uuid)
+        throws Exception, JsonProcessingException {
+        triggerCreationEvent(ApiUtils.getUserSession(request.getSession()), uuid);
+    }
+
+    private void triggerCreationEvent(UserSession userSession, String uuid)
         throws Exception, JsonProcessingException {
         AbstractMetadata metadata = ApiUtils.getRecord(uuid);
         ApplicationContext applicationContext = ApplicationContextHolder.get();
-        UserSession userSession = ApiUtils.getUserSession(request.getSession());
         new RecordCreateEvent(metadata.getId(), userSession.getUserIdAsInt(),
             ObjectJSONUtils.convertObjectInJsonObject(userSession.getPrincipal(), RecordCreateEvent.FIELD),
             metadata.getData()).publish(applicationContext);
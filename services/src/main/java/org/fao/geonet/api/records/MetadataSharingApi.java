@@ -287,7 +287,7 @@ public class MetadataSharingApi {
         setOperations(sharing, dataManager, context, appContext, metadata, operationMap, privileges,
             ApiUtils.getUserSession(session).getUserIdAsInt(), skipAllReservedGroup, null, request,
             metadataListToNotifyPublication, notifyByEmail);
-        metadataIndexer.indexMetadataPrivileges(metadata.getUuid(), metadata.getId());
+        metadataIndexer.indexMetadataPrivileges(getIndexDocumentId(metadata), metadata.getId());
 
         if (notifyByEmail && !metadataListToNotifyPublication.isEmpty()) {
             notifyPublication(context, request, metadataListToNotifyPublication);
@@ -1098,7 +1098,7 @@ public class MetadataSharingApi {
 
             ServiceContext context = ApiUtils.createServiceContext(request);
 
-            List<String> listOfUpdatedRecords = new ArrayList<>();
+            Map<Integer, String> listOfUpdatedRecords = new LinkedHashMap<>();
             List<MetadataPublicationNotificationInfo> metadataListToNotifyPublication = new ArrayList<>();
             boolean notifyByEmail = StringUtils.isNoneEmpty(sm.getValue(SYSTEM_METADATAPRIVS_PUBLICATION_NOTIFICATIONLEVEL));
 
@@ -1129,7 +1129,7 @@ public class MetadataSharingApi {
                         metadataListToNotifyPublication, notifyByEmail);
 
                     report.incrementProcessedRecords();
-                    listOfUpdatedRecords.add(String.valueOf(metadata.getId()));
+                    listOfUpdatedRecords.put(metadata.getId(), getIndexDocumentId(metadata));
                 }
             }
 
@@ -1138,7 +1138,8 @@ public class MetadataSharingApi {
             }
 
             dataMan.flush();
-            dataMan.indexMetadata(listOfUpdatedRecords);
+            // Only privileges changed, update them in the index without reindexing the records.
+            metadataIndexer.indexMetadataPrivileges(listOfUpdatedRecords);
 
         } catch (Exception exception) {
             report.addError(exception);
@@ -1157,6 +1158,14 @@ public class MetadataSharingApi {
      * @param publish Flag to add/remove sharing privileges.
      * @return
      */
+    /**
+     * @return the id of the index document of a record. With workflow enabled, the record
+     * may be a working copy which is indexed with a -draft suffix.
+     */
+    private static String getIndexDocumentId(AbstractMetadata metadata) {
+        return metadata instanceof MetadataDraft ? metadata.getUuid() + "-draft" : metadata.getUuid();
+    }
+
     private SharingParameter buildSharingForPublicationConfig(boolean publish) {
         SharingParameter sharing = new SharingParameter();
         sharing.setClear(false);
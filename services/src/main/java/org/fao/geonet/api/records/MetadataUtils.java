@@ -33,6 +33,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.text.StringEscapeUtils;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.fao.geonet.ApplicationContextHolder;
 import org.fao.geonet.Constants;
 import org.fao.geonet.GeonetContext;
@@ -45,6 +46,7 @@ import org.fao.geonet.constants.Geonet;
 import org.fao.geonet.domain.AbstractMetadata;
 import org.fao.geonet.domain.ReservedOperation;
 import org.fao.geonet.domain.Source;
+import org.fao.geonet.index.es.EsRestClient;
 import org.fao.geonet.kernel.DataManager;
 import org.fao.geonet.kernel.SchemaManager;
 import org.fao.geonet.kernel.datamanager.IMetadataValidator;
@@ -77,6 +79,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.fao.geonet.kernel.search.EsFilterBuilder.buildPermissionsFilter;
 import static org.fao.geonet.kernel.search.EsSearchManager.*;
@@ -287,14 +290,27 @@ public class MetadataUtils {
 
         String privilegesFilter = buildPermissionsFilter(context);
         ObjectMapper mapper = new ObjectMapper();
-        for (RelatedItemType type : queries.keySet()) {
-            // TODO: Use msearch ?
-            RelatedTypeDetails relatedTypeDetails = queries.get(type);
-            final SearchResponse result = searchMan.query(
-                relatedTypeDetails.getQuery(),
+
+        // All types are searched in one multi search request
+        // sharing the same privileges filter.
+        List<RelatedItemType> searchedTypes = new ArrayList<>(queries.keySet());
+        List<SearchSourceBuilder> searches = new ArrayList<>(searchedTypes.size());
+        for (RelatedItemType type : searchedTypes) {
+            searches.add(EsRestClient.buildSearchSource(
+                queries.get(type).getQuery(),
                 privilegesFilter,
                 FIELDLIST_RELATED,
-                start, size);
+                start, size));
+        }
+        final List<SearchResponse> results = searchMan.multiQuery(searches);
+
+        // A record may be related with more than one type (eg. parent and siblings).
+        // Build its JSON document and user info once.
+        Map<String, JsonNode> sourcesById = new HashMap<>();
+        for (int i = 0; i < searchedTypes.size(); i++) {
+            RelatedItemType type = searchedTypes.get(i);
+            RelatedTypeDetails relatedTypeDetails = queries.get(type);
+            final SearchResponse result = results.get(i);
             Set<String> expectedUuids = relatedTypeDetails.getExpectedRecords();
             Set<String> remoteRecords = relatedTypeDetails.getRemoteRecords();
 
@@ -306,16 +322,10 @@ public class MetadataUtils {
                     record.setUuid(e.getId());
                     // Set properties eg. remote, associationType, ...
                     record.setProperties(relatedTypeDetails.recordsProperties.get(e.getId()));
-                    JsonNode source = mapper.readTree(e.getSourceAsString());
-                    ObjectNode doc = mapper.createObjectNode();
-                    doc.set("_source", source);
-                    EsHTTPProxy.addUserInfo(doc, context);
-                    Iterator<String> fieldNames = doc.fieldNames();
-                    while (fieldNames.hasNext()) {
-                        String field = fieldNames.next();
-                        if (!"_source".equals(field)) {
-                            ((ObjectNode) source).set(field, doc.get(field));
-                        }
+                    JsonNode source = sourcesById.get(e.getId());
+                    if (source == null) {
+                        source = buildRecordSource(mapper, e, context);
+                        sourcesById.put(e.getId(), source);
                     }
                     record.setRecord(source);
                     record.setOrigin(RelatedItemOrigin.catalog.name());
@@ -340,6 +350,22 @@ public class MetadataUtils {
         return associated;
     }
 
+    private static JsonNode buildRecordSource(ObjectMapper mapper, SearchHit hit,
+                                              ServiceContext context) throws Exception {
+        JsonNode source = mapper.readTree(hit.getSourceAsString());
+        ObjectNode doc = mapper.createObjectNode();
+        doc.set("_source", source);
+        EsHTTPProxy.addUserInfo(doc, context);
+        Iterator<String> fieldNames = doc.fieldNames();
+        while (fieldNames.hasNext()) {
+            String field = fieldNames.next();
+            if (!"_source".equals(field)) {
+                ((ObjectNode) source).set(field, doc.get(field));
+            }
+        }
+        return source;
+    }
+
     private static void buildRemoteRecords(ObjectMapper mapper,
                                            RelatedTypeDetails relatedTypeDetails,
                                            List<AssociatedRecord> records) throws JsonProcessingException {
@@ -478,13 +504,14 @@ public class MetadataUtils {
             Set<AssociatedResource> listOfAssociatedResources = schemaPlugin.getAssociatedResourcesUUIDs(md);
 
             if (listOfAssociatedResources != null) {
+                // Search in the index to use the portal filter and verify the metadata are available for the portal
+                Set<String> portalUuids = searchInPortal(listOfAssociatedResources.stream()
+                    .map(AssociatedResource::getUuid)
+                    .collect(Collectors.toSet()));
                 for (AssociatedResource resource : listOfAssociatedResources) {
 
                     String origin;
-                    // Search in the index to use the portal filter and verify the metadata is available for the portal
-                    Element searchResult = search("\"" + resource.getUuid() + "\"", RelatedItemType.siblings.value(), context, from, to, fast, null, false);
-                    // If can't be find, skip the result.
-                    if (hasResult(searchResult)) {
+                    if (portalUuids.contains(resource.getUuid())) {
                         origin = RelatedItemOrigin.portal.name();
                     } else {
                         origin = RelatedItemOrigin.catalog.name();
@@ -562,12 +589,11 @@ public class MetadataUtils {
                 Element fcat = new Element("fcats");
 
                 if (listOfUUIDs != null && listOfUUIDs.size() > 0) {
+                    // Search in the index to use the portal filter and verify the metadata are available for the portal
+                    Set<String> portalUuids = searchInPortal(listOfUUIDs);
                     for (String fcat_uuid : listOfUUIDs) {
                         String origin;
-                        // Search in the index to use the portal filter and verify the metadata is available for the portal
-                        Element searchResult = search("\"" + fcat_uuid + "\"", RelatedItemType.fcats.value(), context, from, to, fast, null, false);
-                        // If can't be find, skip the result.
-                        if (hasResult(searchResult)) {
+                        if (portalUuids.contains(fcat_uuid)) {
                             origin = RelatedItemOrigin.portal.name();
                         } else {
                             origin = RelatedItemOrigin.catalog.name();
@@ -635,17 +661,7 @@ public class MetadataUtils {
             excludeQuery = String.format(" -uuid:%s", exclude);
         }
 
-        String portalFilter = null;
-        if (!ignorePortalFilter) {
-            SourceRepository sourceRepository = ApplicationContextHolder.get().getBean(SourceRepository.class);
-            NodeInfo node = ApplicationContextHolder.get().getBean(NodeInfo.class);
-            if (node != null && !NodeInfo.DEFAULT_NODE.equals(node.getId())) {
-                final Source portal = sourceRepository.findById(node.getId()).get();
-                if (StringUtils.isNotEmpty(portal.getFilter())) {
-                    portalFilter = portal.getFilter();
-                }
-            }
-        }
+        String portalFilter = ignorePortalFilter ? null : getPortalFilter();
 
         final SearchResponse result = searchMan.query(
             String.format("+%s:(%s)%s", relatedIndexFields.get(type), uuidQueryValue, excludeQuery),
@@ -676,6 +692,44 @@ public class MetadataUtils {
         return typeResponse;
     }
 
+    /**
+     * Search in one query which records of a set of uuids are available in the current portal.
+     *
+     * @return the uuids found.
+     */
+    private static Set<String> searchInPortal(Set<String> uuids) throws Exception {
+        Set<String> portalUuids = new HashSet<>();
+        if (uuids.isEmpty()) {
+            return portalUuids;
+        }
+        EsSearchManager searchMan = ApplicationContextHolder.get().getBean(EsSearchManager.class);
+        final SearchResponse result = searchMan.query(
+            // Drafts share the uuid of the approved record
+            String.format("+uuid:(%s) -%s:y",
+                uuids.stream()
+                    .collect(Collectors.joining("\" OR \"", "\"", "\"")),
+                Geonet.IndexFieldNames.DRAFT),
+            getPortalFilter(),
+            FIELDLIST_UUID,
+            0, uuids.size());
+        for (SearchHit e : result.getHits().getHits()) {
+            portalUuids.add((String) e.getSourceAsMap().get(Geonet.IndexFieldNames.UUID));
+        }
+        return portalUuids;
+    }
+
+    private static String getPortalFilter() {
+        SourceRepository sourceRepository = ApplicationContextHolder.get().getBean(SourceRepository.class);
+        NodeInfo node = ApplicationContextHolder.get().getBean(NodeInfo.class);
+        if (node != null && !NodeInfo.DEFAULT_NODE.equals(node.getId())) {
+            final Source portal = sourceRepository.findById(node.getId()).get();
+            if (StringUtils.isNotEmpty(portal.getFilter())) {
+                return portal.getFilter();
+            }
+        }
+        return null;
+    }
+
     private static void setFieldFromIndexDocument(Element record, Map<String, Object> source, String fieldName, String elementName) {
         // TODOES : multilingual records
         Object fields = source.get(fieldName + "Object");
@@ -703,18 +757,15 @@ public class MetadataUtils {
         ApplicationContext applicationContext = ApplicationContextHolder.get();
         EsSearchManager searchMan = applicationContext.getBean(EsSearchManager.class);
 
-        Set<String> uuids = new HashSet<>();
-        Set<String> field = new HashSet<>(1);
-        field.add(Geonet.IndexFieldNames.UUID);
-
-        int from = 0;
         SettingInfo si = applicationContext.getBean(SettingInfo.class);
         int size = Integer.parseInt(si.getSelectionMaxRecords());
 
-        final SearchResponse result = searchMan.query(query, null, from, size);
-        if (result.getHits().getTotalHits().value > 0) {
-            final SearchHit[] elements = result.getHits().getHits();
-            Arrays.asList(elements).forEach(e -> uuids.add((String) e.getSourceAsMap().get(Geonet.IndexFieldNames.UUID)));
+        Set<String> uuids;
+        try (Stream<SearchHit> hits = searchMan.stream(query, null, FIELDLIST_UUID)) {
+            uuids = hits
+                .limit(size)
+                .map(e -> (String) e.getSourceAsMap().get(Geonet.IndexFieldNames.UUID))
+                .collect(Collectors.toSet());
         }
         Log.info(Geonet.MEF, "  Found " + uuids.size() + " record(s).");
         return uuids;
@@ -795,36 +846,6 @@ public class MetadataUtils {
     }
 
 
-    /**
-     * Checks if a result for a search query has results.
-     * <p>
-     * Response examples:
-     *
-     * <siblings>
-     * <response from="1" to="0" />
-     * </siblings>
-     *
-     *
-     * <siblings>
-     * <response from="1" to="1">
-     * <metadata>...</metadata>
-     * </response>
-     * </siblings>
-     *
-     * @param searchResponse
-     * @return True it the response has results, False in other cases.
-     */
-    private static boolean hasResult(Element searchResponse) {
-
-        if (searchResponse.getChildren().size() > 0) {
-            Element containerResults = (Element) searchResponse.getChildren().get(0);
-            return containerResults.getChildren().size() > 0;
-        }
-
-        return false;
-    }
-
-
     /**
      * Process search results to add the origin of the metadata:
      *
@@ -861,6 +861,26 @@ public class MetadataWorkflowApi {
         Map<Integer, String> titles = new HashMap<>();
         Map<Integer, String> uuids = new HashMap<>();
 
+        // Titles not stored in database are read from the index for all records at once
+        String titleField = "resourceTitleObject";
+        Set<String> uuidsWithoutTitle = new HashSet<>();
+        for (MetadataStatus s : listOfStatus) {
+            if ((s.getTitles() == null || s.getTitles().isEmpty()) && s.getUuid() != null) {
+                uuidsWithoutTitle.add(s.getUuid());
+            }
+        }
+        Map<String, Map<String, String>> indexTitles = new HashMap<>();
+        if (!uuidsWithoutTitle.isEmpty()) {
+            try {
+                indexTitles = searchManager.getFieldsValues(uuidsWithoutTitle, Collections.singleton(titleField));
+            } catch (Exception e) {
+                // Titles are then read record by record
+                Log.warning(API.LOG_MODULE_NAME, String.format(
+                    "Error while reading the titles of %d records from the index. Error is: %s",
+                    uuidsWithoutTitle.size(), e.getMessage()));
+            }
+        }
+
         // Add all user info and record title to response
         for (MetadataStatus s : listOfStatus) {
             MetadataStatusResponse status = new MetadataStatusResponse(s, details);
@@ -904,10 +924,13 @@ public class MetadataWorkflowApi {
             // Titles may be missing in database if it is older data or if the extract-titles.xsl does not exists/fails for schema plugin
             if (status.getTitle() == null || status.getTitle().length() == 0) {
                 String title = titles.get(s.getMetadataId());
+                if (title == null && indexTitles.containsKey(s.getUuid())) {
+                    title = indexTitles.get(s.getUuid()).get(titleField);
+                    titles.put(s.getMetadataId(), title);
+                }
                 if (title == null) {
                     try {
                         Set<String> fields = new HashSet<>();
-                        String titleField = "resourceTitleObject";
                         fields.add(titleField);
                         Optional<Metadata> metadata = metadataRepository.findById(s.getMetadataId());
                         final Map<String, String> values =
@@ -915,6 +938,9 @@ public class MetadataWorkflowApi {
                         title = values.get(titleField);
                         titles.put(s.getMetadataId(), title);
                     } catch (Exception e1) {
+                        Log.warning(API.LOG_MODULE_NAME, String.format(
+                            "Error while reading the title of record %d from the index. Error is: %s",
+                            s.getMetadataId(), e1.getMessage()));
                     }
                 }
                 status.setTitle(title);
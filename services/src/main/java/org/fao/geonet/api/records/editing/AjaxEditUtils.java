@@ -416,8 +416,11 @@ public class AjaxEditUtils extends EditUtils {
             editLib.expandElements(schema, child);
             editLib.enumerateTreeStartingAt(child, iRef + 1, Integer.parseInt(ref));
 
-            //--- add editing info to everything from the parent down
-            editLib.expandTree(mds, el);
+            //--- add editing info to the parent, for the cardinality of its
+            //--- children, and to the new subtree. The rest of the record
+            //--- in session is already expanded.
+            editLib.expandElement(mds, el);
+            editLib.expandTree(mds, child);
 
         }
         if (info != null) {
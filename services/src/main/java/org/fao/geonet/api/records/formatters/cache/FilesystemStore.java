@@ -25,6 +25,7 @@ package org.fao.geonet.api.records.formatters.cache;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
+import com.google.common.hash.Hashing;
 import org.fao.geonet.constants.Geonet;
 import org.fao.geonet.kernel.GeonetworkDataDirectory;
 import org.fao.geonet.lib.Lib;
@@ -38,9 +39,12 @@ import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.sql.*;
@@ -52,6 +56,13 @@ import static org.fao.geonet.constants.Params.Access.PUBLIC;
 /**
  * A {@link org.fao.geonet.api.records.formatters.cache.PersistentStore} that saves the files to
  * disk.
+ * <p/>
+ * Reads are not synchronized: the info database connection is thread safe and files are never
+ * modified in place. New values are written to a temporary file outside of any lock and then
+ * renamed atomically to their final location, so only the bookkeeping (size, info and public
+ * links) is done while holding the store lock. The content hash of each value is stored so that
+ * an unchanged value is not written again and that the full and withheld variants of a record
+ * share the same file when they are identical (ie. the record has no withheld elements).
  *
  * @author Jesse on 3/5/2015.
  */
@@ -59,11 +70,13 @@ public class FilesystemStore implements PersistentStore {
     public static final String WITHHELD_MD_DIRNAME = "withheld_md";
     public static final String FULL_MD_NAME = "full_md";
     private static final String BASE_CACHE_DIR = "formatter-cache";
+    private static final String TMP_EXTENSION = ".tmp";
     private static final String INFO_TABLE = "info";
     private static final String KEY = "keyhash";
     private static final String CHANGE_DATE = "changedate";
     private static final String PUBLISHED = "published";
     private static final String PATH = "path";
+    private static final String HASH = "hash";
     private static final String STATS_TABLE = "stats";
     private static final String NAME = "name";
     private static final String CURRENT_SIZE = "currentsize";
@@ -72,7 +85,8 @@ public class FilesystemStore implements PersistentStore {
     public static final String QUERY_GETCURRENT_SIZE = "SELECT " + VALUE + " FROM " + STATS_TABLE + " WHERE " + NAME + " = '" + CURRENT_SIZE + "'";
     private static final String QUERY_GET_INFO = "SELECT * FROM " + INFO_TABLE + " WHERE " + KEY + "=?";
     private static final String QUERY_GET_INFO_FOR_RESIZE = "SELECT " + KEY + "," + PATH + " FROM " + INFO_TABLE + " ORDER BY " + CHANGE_DATE + " ASC";
-    private static final String QUERY_PUT = "MERGE INTO " + INFO_TABLE + " (" + KEY + "," + CHANGE_DATE + "," + PUBLISHED + "," + PATH + ") VALUES (?,?,?, ?)";
+    private static final String QUERY_GET_HASH = "SELECT " + HASH + " FROM " + INFO_TABLE + " WHERE " + KEY + "=?";
+    private static final String QUERY_PUT = "MERGE INTO " + INFO_TABLE + " (" + KEY + "," + CHANGE_DATE + "," + PUBLISHED + "," + PATH + "," + HASH + ") VALUES (?,?,?,?,?)";
     private static final String QUERY_REMOVE = "DELETE FROM " + INFO_TABLE + " WHERE " + KEY + "=?";
     private static final String QUERY_CLEAR_INFO = "DELETE FROM " + INFO_TABLE;
     private static final String QUERY_CLEAR_STATS = "DELETE FROM " + STATS_TABLE;
@@ -85,7 +99,13 @@ public class FilesystemStore implements PersistentStore {
     private volatile long currentSize = 0;
     private volatile boolean initialized = false;
 
-    private synchronized void init() throws SQLException {
+    private void init() throws SQLException {
+        if (!initialized) {
+            doInit();
+        }
+    }
+
+    private synchronized void doInit() throws SQLException {
         if (!initialized) {
             // using a h2 database and not normal geonetwork DB to ensure that the accesses are always on localhost and therefore
             // hopefully quick.
@@ -98,7 +118,8 @@ public class FilesystemStore implements PersistentStore {
             String[] initSql = {
                 "CREATE SCHEMA IF NOT EXISTS " + INFO_TABLE,
                 "CREATE TABLE IF NOT EXISTS " + INFO_TABLE + "(" + KEY + " INT PRIMARY KEY, " + CHANGE_DATE + " BIGINT NOT NULL, " +
-                    PUBLISHED + " BOOL NOT NULL, " + PATH + " CLOB  NOT NULL)",
+                    PUBLISHED + " BOOL NOT NULL, " + PATH + " CLOB  NOT NULL, " + HASH + " VARCHAR(64))",
+                "ALTER TABLE " + INFO_TABLE + " ADD COLUMN IF NOT EXISTS " + HASH + " VARCHAR(64)",
                 "CREATE TABLE IF NOT EXISTS " + STATS_TABLE + " (" + NAME + " VARCHAR(64) PRIMARY KEY, " + VALUE + " VARCHAR(32) NOT NULL)"
 
             };
@@ -137,18 +158,23 @@ public class FilesystemStore implements PersistentStore {
     }
 
     @Override
-    public synchronized StoreInfoAndData get(@Nonnull Key key) throws IOException, SQLException {
+    public StoreInfoAndData get(@Nonnull Key key) throws IOException, SQLException {
         init();
         StoreInfo info = getInfo(key);
         if (info == null) {
             return null;
         }
-        byte[] data = Files.readAllBytes(getPrivatePath(key));
-        return new StoreInfoAndData(info, data);
+        try {
+            byte[] data = Files.readAllBytes(getPrivatePath(key));
+            return new StoreInfoAndData(info, data);
+        } catch (NoSuchFileException e) {
+            // removed meanwhile
+            return null;
+        }
     }
 
     @Override
-    public synchronized StoreInfo getInfo(@Nonnull Key key) throws SQLException {
+    public StoreInfo getInfo(@Nonnull Key key) throws SQLException {
         init();
         try (PreparedStatement statement = this.metadataDb.prepareStatement(QUERY_GET_INFO)) {
             statement.setInt(1, key.hashCode());
@@ -165,39 +191,105 @@ public class FilesystemStore implements PersistentStore {
     }
 
     @Override
-    public synchronized void put(@Nonnull Key key, @Nonnull StoreInfoAndData data) throws IOException, SQLException {
+    public void put(@Nonnull Key key, @Nonnull StoreInfoAndData data) throws IOException, SQLException {
         init();
-        resizeIfRequired(key, data);
         final Path privatePath = getPrivatePath(key);
+        final String hash = Hashing.sha256().hashBytes(data.data).toString();
 
-        if (Files.exists(privatePath)) {
-            currentSize -= Files.size(privatePath);
+        final Path newFile = prepareFile(key, privatePath, hash, data.data);
+        try {
+            synchronized (this) {
+                resizeIfRequired(key, data);
+
+                if (newFile != null) {
+                    if (Files.exists(privatePath)) {
+                        currentSize -= Files.size(privatePath);
+                    }
+                    moveAtomically(newFile, privatePath);
+                    currentSize += data.data.length;
+                    updateDbCurrentSize();
+                } else if (!Files.exists(privatePath)) {
+                    // unchanged value removed by the resize
+                    Files.write(privatePath, data.data);
+                    currentSize += data.data.length;
+                    updateDbCurrentSize();
+                }
+
+                Path publicPath = getPublicPath(key);
+                Files.deleteIfExists(publicPath);
+                // only publish if withheld (hidden) elements are hidden.
+                if (data.isPublished() && key.hideWithheld) {
+                    Files.createDirectories(publicPath.getParent());
+                    try {
+                        Files.createLink(publicPath, privatePath);
+                    } catch (UnsupportedOperationException | SecurityException e) {
+                        // Link likely not supported on this FS use copy then.
+                        Files.copy(privatePath, publicPath);
+                    }
+                }
+                try (PreparedStatement statement = this.metadataDb.prepareStatement(QUERY_PUT)) {
+                    statement.setInt(1, key.hashCode());
+                    statement.setLong(2, data.getChangeDate());
+                    statement.setBoolean(3, data.isPublished());
+                    statement.setString(4, privatePath.toUri().toString());
+                    statement.setString(5, hash);
+                    statement.execute();
+                }
+            }
+        } finally {
+            if (newFile != null) {
+                Files.deleteIfExists(newFile);
+            }
         }
+    }
 
-        Files.createDirectories(privatePath.getParent());
-        Files.write(privatePath, data.data);
-        currentSize += data.data.length;
+    /**
+     * Prepare the file to rename to the private path of the key.
+     *
+     * @return null if the stored value has the same content, otherwise a temporary file next to
+     * the private path which is either a link to the other variant (full or withheld) of the
+     * same output if it has the same content or a copy of the data.
+     */
+    @Nullable
+    private Path prepareFile(Key key, Path privatePath, String hash, byte[] data) throws IOException, SQLException {
+        if (hash.equals(getHash(key.hashCode())) && Files.exists(privatePath)) {
+            return null;
+        }
 
-        updateDbCurrentSize();
+        Files.createDirectories(privatePath.getParent());
+        final Path newFile = privatePath.resolveSibling(privatePath.getFileName() + "." + UUID.randomUUID() + TMP_EXTENSION);
 
-        Path publicPath = getPublicPath(key);
-        Files.deleteIfExists(publicPath);
-        // only publish if withheld (hidden) elements are hidden.
-        if (data.isPublished() && key.hideWithheld) {
-            Files.createDirectories(publicPath.getParent());
+        final Key variant = new Key(key.mdId, key.lang, key.formatType, key.formatterId, !key.hideWithheld, key.width);
+        final Path variantPath = getPrivatePath(variant);
+        if (hash.equals(getHash(variant.hashCode())) && Files.exists(variantPath)) {
             try {
-                Files.createLink(publicPath, privatePath);
-            } catch (UnsupportedOperationException | SecurityException e) {
-                // Link likely not supported on this FS use copy then.
-                Files.copy(privatePath, publicPath);
+                Files.createLink(newFile, variantPath);
+                return newFile;
+            } catch (UnsupportedOperationException | SecurityException | IOException e) {
+                // Link not supported or variant removed meanwhile, write the data
+                Files.deleteIfExists(newFile);
             }
         }
-        try (PreparedStatement statement = this.metadataDb.prepareStatement(QUERY_PUT)) {
-            statement.setInt(1, key.hashCode());
-            statement.setLong(2, data.getChangeDate());
-            statement.setBoolean(3, data.isPublished());
-            statement.setString(4, privatePath.toUri().toString());
-            statement.execute();
+
+        Files.write(newFile, data);
+        return newFile;
+    }
+
+    private void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Nullable
+    private String getHash(int keyHashCode) throws SQLException {
+        try (PreparedStatement statement = this.metadataDb.prepareStatement(QUERY_GET_HASH)) {
+            statement.setInt(1, keyHashCode);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getString(1) : null;
+            }
         }
     }
 
@@ -240,6 +332,18 @@ public class FilesystemStore implements PersistentStore {
         Log.warning(Geonet.FORMATTER, "Resize took " + (System.currentTimeMillis() - startTime) + "ms to complete");
     }
 
+    @Nullable
+    @Override
+    public Path getPublishedPath(@Nonnull Key key) throws IOException {
+        try {
+            init();
+        } catch (SQLException e) {
+            throw new Error(e);
+        }
+        final Path publicPath = getPublicPath(key);
+        return Files.exists(publicPath) ? publicPath : null;
+    }
+
     @Nullable
     @Override
     public byte[] getPublished(@Nonnull Key key) throws IOException {
@@ -249,9 +353,9 @@ public class FilesystemStore implements PersistentStore {
             throw new Error(e);
         }
         final Path publicPath = getPublicPath(key);
-        if (Files.exists(publicPath)) {
+        try {
             return Files.readAllBytes(publicPath);
-        } else {
+        } catch (NoSuchFileException e) {
             return null;
         }
     }
@@ -280,6 +384,9 @@ public class FilesystemStore implements PersistentStore {
 
                 @Override
                 public FileVisitResult visitFile(Path privatePath, BasicFileAttributes attrs) throws IOException {
+                    if (privatePath.getFileName().toString().endsWith(TMP_EXTENSION)) {
+                        return FileVisitResult.CONTINUE;
+                    }
                     final Path publicPath = toPublicPath(privatePath);
                     if (published) {
                         if (!Files.exists(publicPath)) {
@@ -298,7 +405,7 @@ public class FilesystemStore implements PersistentStore {
     }
 
     @Override
-    public void clear() throws SQLException, IOException {
+    public synchronized void clear() throws SQLException, IOException {
         init();
         try (Statement statement = this.metadataDb.createStatement()) {
             statement.execute(QUERY_CLEAR_INFO);
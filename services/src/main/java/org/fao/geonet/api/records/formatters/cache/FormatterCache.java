@@ -30,16 +30,31 @@ import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+import com.yammer.metrics.core.DummyTimer;
+import com.yammer.metrics.core.Timer;
+import jeeves.monitor.MetricsFactory;
+import jeeves.monitor.MonitorManager;
 import org.fao.geonet.domain.Pair;
+import org.fao.geonet.monitor.formatter.FormatterCacheRenderTimer;
+import org.fao.geonet.monitor.formatter.FormatterCacheWaitTimer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
 import javax.annotation.Nullable;
 import javax.annotation.PreDestroy;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.sql.SQLException;
 import java.util.Collection;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -58,6 +73,10 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * parallel with writing to the cache.
  * <p/>
  * Note: The Persistent cache used can be configured.
+ * <p/>
+ * Lookups in the in-memory cache do not take any lock. When a value has to be rendered, concurrent
+ * requests for the same key wait for a single rendering while other keys are rendered in parallel.
+ * The global lock is only held exclusively while values are removed from the caches.
  *
  * @author Jesse on 3/5/2015.
  */
@@ -65,11 +84,22 @@ public class FormatterCache {
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
     private final PersistentStore persistentStore;
     private final Cache<Key, StoreInfoAndData> memoryCache;
-    private final Multimap<Integer, Pair<Key, StoreInfoAndData>> mdIdIndex = ArrayListMultimap.create();
+    private final Multimap<Integer, Pair<Key, StoreInfoAndData>> mdIdIndex =
+        Multimaps.synchronizedMultimap(ArrayListMultimap.<Integer, Pair<Key, StoreInfoAndData>>create());
+    /**
+     * The renderings in progress, shared by all the requests for the same key.
+     */
+    private final ConcurrentMap<Key, CompletableFuture<StoreInfoAndDataLoadResult>> loading = new ConcurrentHashMap<>();
+    /**
+     * Incremented each time values are removed so that a rendering started before is not cached.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
     private final ExecutorService executor;
     private final BlockingQueue<Pair<Key, StoreInfoAndDataLoadResult>> storeRequests;
     @Autowired
     private final CacheConfig cacheConfig;
+    @Autowired(required = false)
+    private MonitorManager monitorManager;
 
     public FormatterCache(PersistentStore persistentStore, int memoryCacheSize, int maxStoreRequests) {
         this(persistentStore, memoryCacheSize, maxStoreRequests, new ConfigurableCacheConfig());
@@ -114,6 +144,7 @@ public class FormatterCache {
         final Lock writeLock = lock.writeLock();
         try {
             writeLock.lock();
+            this.invalidations.incrementAndGet();
             this.memoryCache.invalidate(key);
             this.persistentStore.remove(key);
         } finally {
@@ -138,63 +169,103 @@ public class FormatterCache {
     @Nullable
     public byte[] get(Key key, Validator validator, Callable<StoreInfoAndDataLoadResult> loader,
                       boolean writeToStoreInCurrentThread) throws Exception {
-        final Lock readLock = lock.readLock();
-        StoreInfoAndData cached;
-        try {
-            readLock.lock();
-            if (!cacheConfig.allowCaching(key)) {
-                return loader.call().data;
-            }
+        if (!cacheConfig.allowCaching(key)) {
+            return loader.call().data;
+        }
 
-            cached = memoryCache.getIfPresent(key);
-            boolean invalid = false;
-            if (cached != null && !validator.isCacheVersionValid(cached)) {
-                cached = null;
-                invalid = true;
+        StoreInfoAndData cached = memoryCache.getIfPresent(key);
+        if (cached != null) {
+            if (validator.isCacheVersionValid(cached)) {
+                return cached.data;
             }
-
-            if (!invalid && cached == null) {
-                cached = loadFromPersistentCache(key, validator);
+        } else {
+            cached = loadFromPersistentCache(key, validator);
+            if (cached != null) {
+                return cached.data;
             }
+        }
 
+        return load(key, loader, writeToStoreInCurrentThread).data;
+    }
+
+    /**
+     * Render the value with the loader or wait for the rendering of the same key already started
+     * by another request.
+     */
+    private StoreInfoAndDataLoadResult load(Key key, Callable<StoreInfoAndDataLoadResult> loader,
+                                            boolean writeToStoreInCurrentThread) throws Exception {
+        final CompletableFuture<StoreInfoAndDataLoadResult> rendering = new CompletableFuture<>();
+        final CompletableFuture<StoreInfoAndDataLoadResult> inProgress = this.loading.putIfAbsent(key, rendering);
+        if (inProgress != null) {
+            return await(inProgress);
+        }
+
+        final long generation = this.invalidations.get();
+        final long start = System.nanoTime();
+        try {
+            StoreInfoAndDataLoadResult loaded = loader.call();
+            getTimer(FormatterCacheRenderTimer.class).update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            push(key, loaded, writeToStoreInCurrentThread, generation);
+            rendering.complete(loaded);
+            return loaded;
+        } catch (Throwable e) {
+            rendering.completeExceptionally(e);
+            throw e;
         } finally {
-            readLock.unlock();
+            this.loading.remove(key, rendering);
         }
-        final Lock writeLock = lock.writeLock();
-        if (cached == null) {
-            try {
-                writeLock.lock();
-                StoreInfoAndDataLoadResult loaded = loader.call();
-                cached = loaded;
-                push(key, loaded, writeToStoreInCurrentThread);
-            } finally {
-                writeLock.unlock();
+    }
+
+    private StoreInfoAndDataLoadResult await(CompletableFuture<StoreInfoAndDataLoadResult> inProgress) throws Exception {
+        final long start = System.nanoTime();
+        try {
+            return inProgress.get();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
             }
+            throw e;
+        } finally {
+            getTimer(FormatterCacheWaitTimer.class).update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
         }
+    }
 
-        return cached.data;
-
+    private Timer getTimer(Class<? extends MetricsFactory<Timer>> type) {
+        return monitorManager == null ? DummyTimer.INSTANCE : monitorManager.getTimer(type);
     }
 
-    private void push(Key key, StoreInfoAndDataLoadResult cached,
-                      boolean writeToStoreInCurrentThread) throws IOException, SQLException {
-        final Lock writeLock = lock.writeLock();
+    /**
+     * Add a rendered value to the caches, unless values were removed since the rendering started.
+     * The check and the update are done under the lock taken by the removals so that no removal
+     * happens in between.
+     *
+     * @param generation the number of invalidations when the rendering started
+     */
+    private void push(Key key, StoreInfoAndDataLoadResult cached, boolean writeToStoreInCurrentThread, long generation) {
+        final Lock readLock = lock.readLock();
         try {
-            writeLock.lock();
-
+            readLock.lock();
+            if (generation != this.invalidations.get()) {
+                return;
+            }
             this.memoryCache.put(key, cached);
             this.mdIdIndex.put(key.mdId, Pair.read(key, cached));
             if (writeToStoreInCurrentThread) {
                 createPersistentStoreRunnable(storeRequests, persistentStore).processStoreRequest(Pair.read(key, cached));
-            } else {
-                if (!this.executor.isShutdown()) {
-                    this.storeRequests.put(Pair.read(key, cached));
-                }
+                return;
             }
-        } catch (InterruptedException e) {
-            // return
         } finally {
-            writeLock.unlock();
+            readLock.unlock();
+        }
+        if (!this.executor.isShutdown()) {
+            try {
+                this.storeRequests.put(Pair.read(key, cached));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
     }
 
@@ -235,6 +306,45 @@ public class FormatterCache {
         }
     }
 
+    /**
+     * Write a pre-cached public value (see {@link #getPublished(Key)}) to the output. When the
+     * value is stored in a file it is transferred from the file channel without being loaded
+     * in memory.
+     *
+     * @param key    the lookup key
+     * @param output the output to write to
+     * @return false if the value is not public or not cached.
+     */
+    public boolean writePublished(Key key, OutputStream output) throws IOException, SQLException {
+        final Lock readLock = lock.readLock();
+        try {
+            readLock.lock();
+            final Path path = this.persistentStore.getPublishedPath(key);
+            if (path != null) {
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    final WritableByteChannel target = Channels.newChannel(output);
+                    final long size = channel.size();
+                    long position = 0;
+                    while (position < size) {
+                        position += channel.transferTo(position, size - position, target);
+                    }
+                    return true;
+                } catch (NoSuchFileException e) {
+                    // removed meanwhile
+                    return false;
+                }
+            }
+            final byte[] bytes = this.persistentStore.getPublished(key);
+            if (bytes == null) {
+                return false;
+            }
+            output.write(bytes);
+            return true;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
     /**
      * Publish or unpublish all cached values related to the given metadata.
      *
@@ -258,6 +368,7 @@ public class FormatterCache {
         final Lock writeLock = lock.writeLock();
         try {
             writeLock.lock();
+            this.invalidations.incrementAndGet();
             Collection<Pair<Key, StoreInfoAndData>> storeInfoAndDatas = this.mdIdIndex.removeAll(metadataId);
             for (Pair<Key, StoreInfoAndData> storeInfoAndData : storeInfoAndDatas) {
                 final Key key = storeInfoAndData.one();
@@ -276,6 +387,7 @@ public class FormatterCache {
         final Lock writeLock = lock.writeLock();
         try {
             writeLock.lock();
+            this.invalidations.incrementAndGet();
             this.memoryCache.invalidateAll();
             this.persistentStore.clear();
         } finally {
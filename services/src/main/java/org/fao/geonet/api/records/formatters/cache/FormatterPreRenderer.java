@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2001-2023 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.api.records.formatters.cache;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Splitter;
+import com.google.common.util.concurrent.RateLimiter;
+import jeeves.server.context.ServiceContext;
+import jeeves.server.dispatchers.ServiceManager;
+import org.fao.geonet.api.records.formatters.FormatType;
+import org.fao.geonet.api.records.formatters.FormatterApi;
+import org.fao.geonet.api.records.formatters.FormatterWidth;
+import org.fao.geonet.constants.Geonet;
+import org.fao.geonet.domain.ISODate;
+import org.fao.geonet.domain.MetadataDataInfo_;
+import org.fao.geonet.domain.Metadata_;
+import org.fao.geonet.domain.OperationAllowedId_;
+import org.fao.geonet.domain.Pair;
+import org.fao.geonet.domain.ReservedOperation;
+import org.fao.geonet.kernel.XmlSerializer;
+import org.fao.geonet.kernel.datamanager.IMetadataUtils;
+import org.fao.geonet.repository.MetadataHeader;
+import org.fao.geonet.repository.MetadataRepository;
+import org.fao.geonet.repository.OperationAllowedRepository;
+import org.fao.geonet.repository.SortUtils;
+import org.fao.geonet.repository.specification.OperationAllowedSpecs;
+import org.fao.geonet.utils.Log;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders the public output of the configured formatters for published records in the background
+ * so that {@link FormatterCache#getPublished(Key)} can serve them without the first visitor having to
+ * pay for the rendering.
+ * <p/>
+ * Records are queued by {@link FormatterCachePublishListener} when they are indexed and published,
+ * and all published records (most recently changed first) are queued on startup if configured.
+ * Renderings are done one at a time at a limited rate and output still valid in the cache
+ * is not rendered again.
+ */
+public class FormatterPreRenderer {
+    private static final int PAGE_SIZE = 1000;
+
+    @Autowired
+    private FormatterCache formatterCache;
+    @Autowired
+    private ConfigurableApplicationContext applicationContext;
+
+    @Value("${formatter.prerender.enabled:false}")
+    private boolean enabled = false;
+    @Value("${formatter.prerender.onStartup:false}")
+    private boolean onStartup = false;
+    @Value("${formatter.prerender.formatters:full_view}")
+    private String formatterIds = "full_view";
+    @Value("${formatter.prerender.types:html}")
+    private String formatTypes = "html";
+    @Value("${formatter.prerender.languages:eng}")
+    private String languageCodes = "eng";
+    @Value("${formatter.prerender.maxPerSecond:2}")
+    private double maxPerSecond = 2;
+
+    /**
+     * The records waiting to be rendered, in the order they have been queued.
+     */
+    private final Set<Integer> queue = new LinkedHashSet<>();
+    private List<String> formatters;
+    private List<FormatType> types;
+    private List<String> languages;
+    private ExecutorService executor;
+    private RateLimiter rateLimiter;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        final Splitter splitter = Splitter.on(',').trimResults().omitEmptyStrings();
+        formatters = splitter.splitToList(formatterIds);
+        languages = splitter.splitToList(languageCodes);
+        types = new ArrayList<>();
+        for (String type : splitter.split(formatTypes)) {
+            types.add(FormatType.valueOf(type));
+        }
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory();
+        threadFactory.setDaemon(true);
+        threadFactory.setThreadNamePrefix("FormatterPreRenderer-");
+        threadFactory.setThreadPriority(Thread.MIN_PRIORITY);
+        executor = Executors.newSingleThreadExecutor(threadFactory);
+        rateLimiter = RateLimiter.create(maxPerSecond);
+
+        if (onStartup) {
+            executor.submit(this::scheduleAllPublished);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queue a published record for rendering. Does nothing if the record is already queued.
+     */
+    public void schedule(int metadataId) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (queue) {
+            if (!queue.add(metadataId)) {
+                return;
+            }
+        }
+        executor.submit(this::renderNext);
+    }
+
+    /**
+     * Queue all published records, most recently changed first.
+     */
+    public void scheduleAllPublished() {
+        final Set<Integer> published = new HashSet<>(applicationContext.getBean(OperationAllowedRepository.class)
+            .findAllIds(OperationAllowedSpecs.isPublic(ReservedOperation.view), OperationAllowedId_.metadataId));
+        final MetadataRepository metadataRepository = applicationContext.getBean(MetadataRepository.class);
+        final Sort sort = SortUtils.createSort(Sort.Direction.DESC, Metadata_.dataInfo, MetadataDataInfo_.changeDate);
+
+        Log.info(Geonet.FORMATTER, String.format("Formatter pre-rendering of %d published records.", published.size()));
+        int pageNumber = 0;
+        Page<Pair<Integer, ISODate>> page;
+        do {
+            page = metadataRepository.findIdsAndChangeDates(PageRequest.of(pageNumber++, PAGE_SIZE, sort));
+            for (Pair<Integer, ISODate> idAndChangeDate : page.getContent()) {
+                if (published.contains(idAndChangeDate.one())) {
+                    schedule(idAndChangeDate.one());
+                }
+            }
+        } while (page.hasNext() && !Thread.currentThread().isInterrupted());
+    }
+
+    private void renderNext() {
+        final Integer metadataId;
+        synchronized (queue) {
+            if (queue.isEmpty()) {
+                return;
+            }
+            metadataId = queue.iterator().next();
+            queue.remove(metadataId);
+        }
+        try {
+            render(metadataId);
+        } catch (Exception e) {
+            Log.warning(Geonet.FORMATTER, String.format(
+                "Formatter pre-rendering of record %d failed. Error is: %s", metadataId, e.getMessage()));
+        }
+    }
+
+    @VisibleForTesting
+    void render(int metadataId) throws Exception {
+        final MetadataHeader header = applicationContext.getBean(IMetadataUtils.class).findHeader(metadataId);
+        if (header == null || header.getChangeDate() == null) {
+            return;
+        }
+        final ChangeDateValidator validator = new ChangeDateValidator(header.getChangeDate().toDate().getTime());
+        final ServiceContext context = applicationContext.getBean(ServiceManager.class)
+            .createServiceContext("formatter.prerender", applicationContext);
+        try {
+            for (String language : languages) {
+                context.setLanguage(language);
+                for (String formatterId : formatters) {
+                    for (FormatType type : types) {
+                        final Key key = new Key(metadataId, language, type, formatterId, true, FormatterWidth._100);
+                        rateLimiter.acquire();
+                        // No request: formatters only get their default parameters
+                        formatterCache.get(key, validator,
+                            new FormatterApi().new FormatMetadata(context, key, null), true);
+                    }
+                }
+            }
+        } finally {
+            XmlSerializer.clearThreadLocal();
+        }
+    }
+}
@@ -26,6 +26,7 @@ package org.fao.geonet.api.records.formatters.cache;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.SQLException;
 
 /**
@@ -67,6 +68,18 @@ public interface PersistentStore {
     @Nullable
     byte[] getPublished(@Nonnull Key key) throws IOException, SQLException;
 
+    /**
+     * Return the file containing the cached value if it has been cached and is public, otherwise
+     * null. Stores which do not keep values in files return null, {@link #getPublished(Key)}
+     * is used instead.
+     *
+     * @param key the lookup key.
+     */
+    @Nullable
+    default Path getPublishedPath(@Nonnull Key key) throws IOException, SQLException {
+        return null;
+    }
+
     /**
      * Remove values with the key from the cache.
      *
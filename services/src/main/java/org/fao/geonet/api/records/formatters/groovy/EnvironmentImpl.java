@@ -77,9 +77,12 @@ public class EnvironmentImpl implements Environment {
         this.resourceUrl = fparams.getResourceUrl();
         this.locUrl = fparams.getLocUrl();
         this.metadataInfo = fparams.metadataInfo;
-        for (Map.Entry<String, String[]> entry : fparams.webRequest.getParameterMap().entrySet()) {
-            for (String value : entry.getValue()) {
-                this.params.put(entry.getKey(), new ParamValue(value));
+        // There is no request when the output is rendered in the background
+        if (fparams.webRequest != null) {
+            for (Map.Entry<String, String[]> entry : fparams.webRequest.getParameterMap().entrySet()) {
+                for (String value : entry.getValue()) {
+                    this.params.put(entry.getKey(), new ParamValue(value));
+                }
             }
         }
 
@@ -248,10 +251,16 @@ public class EnvironmentImpl implements Environment {
 
     @Override
     public Optional<String> getHeader(String name) {
+        if (webRequest == null) {
+            return Optional.absent();
+        }
         return Optional.fromNullable(webRequest.getHeader(name));
     }
 
     public Collection<String> getHeaders(final String name) {
+        if (webRequest == null) {
+            return Collections.emptyList();
+        }
         return Arrays.asList(webRequest.getHeaderValues(name));
     }
 }
@@ -35,8 +35,11 @@ import org.fao.geonet.repository.UserRepository;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.fao.geonet.api.reports.ReportUtils.CSV_FORMAT;
 
@@ -102,6 +105,12 @@ public class ReportUpdatedMetadata implements IReport {
                 context.getBean(GroupRepository.class).findAll();
 
             // Process the records
+            // Titles of all records are read from the index at once
+            Set<String> uuids = new HashSet<>();
+            records.forEach(metadata -> uuids.add(metadata.getUuid()));
+            Map<String, String> titles = ReportUtils.retrieveMetadataIndex(
+                uuids, "resourceTitleObject", "default");
+
             for (AbstractMetadata metadata : records) {
                 String userOwnerUsername = "";
                 String userOwnerName = "";
@@ -152,8 +161,7 @@ public class ReportUpdatedMetadata implements IReport {
                     }
                 }
 
-                String mdTitle = ReportUtils.retrieveMetadataIndex(
-                    metadata.getUuid(), "resourceTitleObject", "default");
+                String mdTitle = titles.getOrDefault(metadata.getUuid(), "");
 
                 // Build the record element with the information for the report
                 List<String> record = new ArrayList<>();
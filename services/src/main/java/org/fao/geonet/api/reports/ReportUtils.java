@@ -30,12 +30,14 @@ import org.apache.commons.csv.QuoteMode;
 import org.apache.commons.lang.StringUtils;
 import org.fao.geonet.ApplicationContextHolder;
 import org.fao.geonet.GeonetContext;
+import org.fao.geonet.api.API;
 import org.fao.geonet.constants.Geonet;
 import org.fao.geonet.domain.Profile;
 import org.fao.geonet.domain.ReservedGroup;
 import org.fao.geonet.kernel.AccessManager;
 import org.fao.geonet.kernel.search.EsSearchManager;
 import org.fao.geonet.kernel.search.IndexFields;
+import org.fao.geonet.utils.Log;
 
 import java.util.*;
 
@@ -131,53 +133,67 @@ public final class ReportUtils {
      * @return Metadata field.
      */
     public static String retrieveMetadataIndex(final String metadataUuid,final String fieldName, final String fieldNameKey) {
-        return retrieveMetadataIndexField(metadataUuid, fieldName, fieldNameKey);
+        return retrieveMetadataIndex(Collections.singleton(metadataUuid), fieldName, fieldNameKey)
+            .getOrDefault(metadataUuid, "");
+    }
+
+    /**
+     * Retrieves a metadata field from the index for a set of records at once.
+     *
+     * @param metadataUuids Metadata identifiers.
+     * @param fieldName  Index field name.
+     * @param fieldNameKey  Key of the field name (eg 'default').
+     * @return Metadata field by metadata identifier. Records not found in the index are not part of the result.
+     */
+    public static Map<String, String> retrieveMetadataIndex(final Collection<String> metadataUuids,
+                                                            final String fieldName, final String fieldNameKey) {
+        Map<String, String> values = new HashMap<>(metadataUuids.size());
+        EsSearchManager searchManager = ApplicationContextHolder.get().getBean(EsSearchManager.class);
+        try {
+            searchManager.getDocumentsFields(metadataUuids, Collections.singleton(fieldName))
+                .forEach((uuid, mdIndexFields) ->
+                    values.put(uuid, getIndexFieldValue(mdIndexFields.get(fieldName), fieldNameKey)));
+        } catch (Exception e) {
+            Log.error(API.LOG_MODULE_NAME, String.format(
+                "Error while reading field %s of %d records from the index. Error is: %s",
+                fieldName, metadataUuids.size(), e.getMessage()), e);
+        }
+        return values;
     }
 
 
     /**
-     * Retrieves a metadata value from the Lucene index.
-     * <p>
-     * Duplicated with XslUtil - to refactor.
+     * Retrieves a metadata value from an index field.
      * <p>
      * TODO / TODOES improve the management of the different type of fields
      *
-     * @param metadataUuid Metadata identifier.
-     * @param fieldName  Lucene field name.
+     * @param field  Index field value.
      * @param fieldNameKey  Key of the field name (eg 'default').
      * @return Field value.
      */
-    private static String retrieveMetadataIndexField(
-        final String metadataUuid,
-        final String fieldName,
+    private static String getIndexFieldValue(
+        final Object field,
         final String fieldNameKey) {
-        EsSearchManager searchManager = ApplicationContextHolder.get().getBean(EsSearchManager.class);
-        try {
-            Map<String, Object> mdIndexFields = searchManager.getDocument(metadataUuid);
-            Object field = mdIndexFields.get(fieldName);
-            if (field instanceof HashMap) {
+        if (field instanceof HashMap) {
+            if (StringUtils.isNotEmpty(fieldNameKey)) {
+                return (String) ((HashMap<?, ?>) field).get(fieldNameKey);
+            } else {
+                return (String) field.toString();
+            }
+        } else if (field instanceof String) {
+            return (String) field;
+        } else if (field instanceof ArrayList && !((ArrayList<?>) field).isEmpty()) {
+            Object fieldItem = ((ArrayList<?>) field).get(0);
+            if (fieldItem instanceof HashMap) {
                 if (StringUtils.isNotEmpty(fieldNameKey)) {
-                    return (String) ((HashMap<?, ?>) field).get(fieldNameKey);
+                    return (String) ((HashMap<?, ?>) fieldItem).get(fieldNameKey);
                 } else {
-                    return (String) field.toString();
-                }
-            } else if (field instanceof String) {
-                return (String) field;
-            } else if (field instanceof ArrayList) {
-                Object fieldItem = ((ArrayList<?>) field).get(0);
-                if (fieldItem instanceof HashMap) {
-                    if (StringUtils.isNotEmpty(fieldNameKey)) {
-                        return (String) ((HashMap<?, ?>) fieldItem).get(fieldNameKey);
-                    } else {
-                        return (String) fieldItem.toString();
-                    }
-                }
-                else if (fieldItem instanceof String) {
-                    return (String) fieldItem;
+                    return (String) fieldItem.toString();
                 }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+            else if (fieldItem instanceof String) {
+                return (String) fieldItem;
+            }
         }
         return "";
     }
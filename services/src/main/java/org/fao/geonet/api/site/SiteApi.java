@@ -53,6 +53,7 @@ import org.fao.geonet.exceptions.OperationAbortedEx;
 import org.fao.geonet.index.Status;
 import org.fao.geonet.index.es.EsRestClient;
 import org.fao.geonet.index.es.EsServerStatusChecker;
+import org.fao.geonet.kernel.AccessManager;
 import org.fao.geonet.kernel.DataManager;
 import org.fao.geonet.kernel.GeonetworkDataDirectory;
 import org.fao.geonet.kernel.SchemaManager;
@@ -68,6 +69,7 @@ import org.fao.geonet.repository.*;
 import org.fao.geonet.repository.specification.MetadataSpecs;
 import org.fao.geonet.resources.Resources;
 import org.fao.geonet.utils.FilePathChecker;
+import org.fao.geonet.util.ThreadPool;
 import org.fao.geonet.utils.Log;
 import org.fao.geonet.utils.ProxyInfo;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -77,6 +79,7 @@ import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PutMapping;
@@ -184,6 +187,9 @@ public class SiteApi {
 
         HarvestManager harvestManager = context.getBean(HarvestManager.class);
         harvestManager.rescheduleActiveHarvesters();
+
+        // Intranet network settings are cached by the access manager
+        context.getBean(AccessManager.class).clearPrivilegeCache();
     }
 
     @io.swagger.v3.oas.annotations.Operation(
@@ -588,18 +594,42 @@ public class SiteApi {
             required = false
         )
             String bucket,
+        @Parameter(description = "Rebuild the record index in a new index and switch to it once done. " +
+            "Search remains available during the rebuild. Only on all records (ie. no selection bucket), " +
+            "reset and indices are ignored.",
+            required = false)
+        @RequestParam(required = false, defaultValue = "false")
+            boolean swap,
         HttpServletRequest request
     ) throws Exception {
         ServiceContext context = ApiUtils.createServiceContext(request);
         EsSearchManager searchMan = ApplicationContextHolder.get().getBean(EsSearchManager.class);
         DataManager dataManager = ApplicationContextHolder.get().getBean(DataManager.class);
-        boolean isIndexing = dataManager.isIndexing();
+        boolean isIndexing = dataManager.isIndexing() || searchMan.isRebuilding();
 
         if (isIndexing) {
             throw new NotAllowedException(
                 "Indexing is already in progress. Wait for the current task to complete.");
         }
 
+        if (swap && StringUtils.isEmpty(bucket)) {
+            if (asynchronous) {
+                ConfigurableApplicationContext applicationContext = ApplicationContextHolder.get();
+                applicationContext.getBean(ThreadPool.class).runTask(new DelegatingSecurityContextRunnable(() -> {
+                    ApplicationContextHolder.set(applicationContext);
+                    context.setAsThreadLocal();
+                    try {
+                        searchMan.rebuildIndexWithAliasSwap(context);
+                    } catch (Exception e) {
+                        Log.error(Geonet.INDEX_ENGINE, "Error while rebuilding index. Error is: " + e.getMessage(), e);
+                    }
+                }));
+            } else {
+                searchMan.rebuildIndexWithAliasSwap(context);
+            }
+            return new HttpEntity<>(HttpStatus.CREATED);
+        }
+
         if (reset) {
             searchMan.init(true, Optional.of(Arrays.asList(indices)));
         }
@@ -27,32 +27,21 @@ import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.apache.commons.io.IOUtils;
 import org.fao.geonet.NodeInfo;
-import org.fao.geonet.api.API;
 import org.fao.geonet.api.ApiParams;
-import org.fao.geonet.domain.*;
-import org.fao.geonet.exceptions.SitemapDocumentNotFoundEx;
-import org.fao.geonet.kernel.GeonetworkDataDirectory;
 import org.fao.geonet.kernel.setting.SettingManager;
-import org.fao.geonet.repository.MetadataRepository;
-import org.fao.geonet.repository.OperationAllowedRepository;
-import org.fao.geonet.repository.specification.MetadataSpecs;
-import org.fao.geonet.repository.specification.OperationAllowedSpecs;
-import org.fao.geonet.utils.Xml;
-import org.jdom.Element;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
-import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletRequest;
-import java.nio.file.Path;
-import java.util.List;
+import javax.servlet.http.HttpServletResponse;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
 
 import static org.fao.geonet.api.ApiParams.API_CLASS_CATALOG_TAG;
 
@@ -67,11 +56,8 @@ import static org.fao.geonet.api.ApiParams.API_CLASS_CATALOG_TAG;
     description = ApiParams.API_CLASS_CATALOG_OPS)
 @Controller("sitemap")
 public class SitemapApi {
-    private static final String FORMAT_XML = "xml";
-    private static final String FORMAT_HTML = "html";
-
-    // Max. items in page defined in spec
-    private static final int MAX_ITEMS_PER_PAGE = 2500;
+    private static final String FORMAT_XML = SitemapCache.FORMAT_XML;
+    private static final String FORMAT_HTML = SitemapCache.FORMAT_HTML;
 
     @Autowired
     SettingManager settingManager;
@@ -80,13 +66,7 @@ public class SitemapApi {
     NodeInfo node;
 
     @Autowired
-    OperationAllowedRepository operationAllowedRepository;
-
-    @Autowired
-    MetadataRepository metadataRepository;
-
-    @Autowired
-    GeonetworkDataDirectory dataDirectory;
+    SitemapCache sitemapCache;
 
 
     @io.swagger.v3.oas.annotations.Operation(
@@ -119,8 +99,7 @@ public class SitemapApi {
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Site map.")
     })
-    public @ResponseBody
-    ResponseEntity<Element> getSitemap(
+    public void getSitemap(
         @Parameter(
             description = "Format (xml or html).",
             required = false
@@ -140,75 +119,61 @@ public class SitemapApi {
         )
             Integer doc,
         @Parameter(hidden = true)
-            HttpServletRequest request
+            HttpServletRequest request,
+        @Parameter(hidden = true)
+            HttpServletResponse response
     ) throws Exception {
         if (!(format.equalsIgnoreCase(FORMAT_HTML) ||
             format.equalsIgnoreCase(FORMAT_XML))) {
             format = FORMAT_HTML;
         }
 
-        Integer allgroup = 1;
-
-        Specification<OperationAllowed> spec = Specification.where(
-            OperationAllowedSpecs.hasOperation(ReservedOperation.view));
-        spec = spec.and(OperationAllowedSpecs.hasGroupId(allgroup));
-
-        final List<Integer> list = operationAllowedRepository.findAllIds(
-            spec,
-            OperationAllowedId_.metadataId);
-
-        Sort sortByChangeDateDesc = Sort.by(
-            Sort.Direction.DESC,
-            Metadata_.dataInfo.getName() + "." + MetadataDataInfo_.changeDate.getName());
-
-        long metadatataCount = metadataRepository.count((Specification<Metadata>) MetadataSpecs.hasMetadataIdIn(list));
-        long pages = (long) Math.ceil((double) metadatataCount / MAX_ITEMS_PER_PAGE);
-
-        Element result = null;
-
-        if (doc > 0) {
-            // Requesting a sitemap specific document
-            if (doc <= pages) {
-                final PageRequest pageRequest = PageRequest.of(doc - 1, MAX_ITEMS_PER_PAGE, sortByChangeDateDesc);
-                result = metadataRepository.findUuidsAndChangeDatesAndSchemaId(list, pageRequest);
-
-                Element formatEl = new Element("format");
-                formatEl.setText(format.toLowerCase());
-                result.addContent(formatEl);
+        // Documents are stored gzipped, send them as is to clients supporting it
+        try (InputStream document = sitemapCache.getDocument(node.getId(), format.toLowerCase(), doc)) {
+            response.setContentType(MediaType.APPLICATION_XML_VALUE);
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                IOUtils.copy(document, response.getOutputStream());
             } else {
-                throw new SitemapDocumentNotFoundEx(doc);
+                IOUtils.copy(new GZIPInputStream(document), response.getOutputStream());
             }
-        } else {
-            // Request the sitemap (no specific document)
-            if (metadatataCount <= MAX_ITEMS_PER_PAGE) {
-                // Request the full sitemap
-                result = metadataRepository.findUuidsAndChangeDatesAndSchemaId(list);
-
-                Element formatEl = new Element("format");
-                formatEl.setText(format.toLowerCase());
-                result.addContent(formatEl);
-            } else {
-                // Request the index
-                result = new Element("response");
-
-                Element indexDocs = new Element("indexDocs");
-                indexDocs.setText(pages + "");
-                result.addContent(indexDocs);
+        }
+    }
 
-                Element changeDate = new Element("changeDate");
-                changeDate.setText(new ISODate().toString());
-                result.addContent(changeDate);
+    /**
+     * @return true if the Accept-Encoding header accepts gzip with a non zero quality value,
+     * explicitly or with the * wildcard.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzipQuality = null;
+        Double wildcardQuality = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim().toLowerCase();
+            double quality = 1;
+            for (int i = 1; i < parameters.length; i++) {
+                String parameter = parameters[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzipQuality = quality;
+            } else if (name.equals("*")) {
+                wildcardQuality = quality;
             }
         }
-        Path xslt = dataDirectory.getWebappDir()
-            .resolve("xslt/services/sitemap/sitemap.xsl");
-        Element root = new Element("root");
-        Element requestElt = new Element("request");
-        requestElt.addContent(new Element("format").setText(format));
-        root.addContent(requestElt);
-        root.addContent(result);
-
-        Element sitemap = Xml.transform(root, xslt);
-        return new ResponseEntity<>(sitemap, HttpStatus.OK);
+        if (gzipQuality != null) {
+            return gzipQuality > 0;
+        }
+        return wildcardQuality != null && wildcardQuality > 0;
     }
 }
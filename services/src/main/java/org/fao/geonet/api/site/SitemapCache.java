@@ -0,0 +1,338 @@
+/*
+ * Copyright (C) 2001-2023 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.api.site;
+
+import com.google.common.collect.ImmutableSet;
+import org.apache.commons.io.FileUtils;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.SortBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.fao.geonet.api.API;
+import org.fao.geonet.constants.Geonet;
+import org.fao.geonet.domain.ISODate;
+import org.fao.geonet.domain.ReservedOperation;
+import org.fao.geonet.events.md.MetadataEvent;
+import org.fao.geonet.events.md.MetadataIndexCompleted;
+import org.fao.geonet.events.md.MetadataPublished;
+import org.fao.geonet.events.md.MetadataRemove;
+import org.fao.geonet.events.md.MetadataUnpublished;
+import org.fao.geonet.exceptions.SitemapDocumentNotFoundEx;
+import org.fao.geonet.kernel.GeonetworkDataDirectory;
+import org.fao.geonet.kernel.datamanager.IMetadataUtils;
+import org.fao.geonet.kernel.search.EsSearchManager;
+import org.fao.geonet.kernel.setting.SettingManager;
+import org.fao.geonet.repository.OperationAllowedRepository;
+import org.fao.geonet.repository.specification.OperationAllowedSpecs;
+import org.fao.geonet.utils.Log;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.springframework.data.jpa.domain.Specification.where;
+
+/**
+ * Sitemap documents of the public records, precomputed as gzip files.
+ * <p/>
+ * The documents of a portal and format are generated on the first request by streaming
+ * over the index, one page of {@link #MAX_ITEMS_PER_PAGE} records per file, and are then
+ * served as is. When records are published, unpublished or removed, or when public records
+ * are indexed, all generated documents are regenerated in the background after a delay
+ * (so that the index is up to date and a batch of changes triggers only one regeneration).
+ * The previous documents are served until the new ones are ready.
+ */
+public class SitemapCache implements ApplicationListener<MetadataEvent> {
+    public static final String FORMAT_XML = "xml";
+    public static final String FORMAT_HTML = "html";
+
+    // Max. items in page defined in spec
+    public static final int MAX_ITEMS_PER_PAGE = 2500;
+
+    private static final String SITEMAP_NS = "http://www.sitemaps.org/schemas/sitemap/0.9";
+    private static final String XSI_NS = "http://www.w3.org/2001/XMLSchema-instance";
+    private static final String INDEX_FILE = "index.xml.gz";
+    private static final String PUBLIC_RECORDS_QUERY = String.format(
+        "+%s:true +%s:n -%s:y",
+        Geonet.IndexFieldNames.IS_PUBLISHED_TO_ALL,
+        Geonet.IndexFieldNames.IS_TEMPLATE,
+        Geonet.IndexFieldNames.DRAFT);
+    private static final Set<String> FIELDS = ImmutableSet.of(
+        Geonet.IndexFieldNames.UUID,
+        Geonet.IndexFieldNames.DATABASE_CHANGE_DATE);
+    private static final List<SortBuilder<FieldSortBuilder>> SORT_BY_CHANGE_DATE_DESC = Collections.singletonList(
+        SortBuilders.fieldSort(Geonet.IndexFieldNames.DATABASE_CHANGE_DATE).order(SortOrder.DESC));
+
+    @Autowired
+    private EsSearchManager searchManager;
+    @Autowired
+    private SettingManager settingManager;
+    @Autowired
+    private IMetadataUtils metadataUtils;
+    @Autowired
+    private GeonetworkDataDirectory dataDirectory;
+    @Autowired
+    private OperationAllowedRepository operationAllowedRepository;
+
+    @Value("${sitemap.regenerationDelay:60}")
+    private long regenerationDelay = 60;
+
+    /**
+     * The directory of the current documents of each portal and format.
+     */
+    private final Map<String, Path> documents = new ConcurrentHashMap<>();
+    private final Map<String, Object> locks = new ConcurrentHashMap<>();
+    private final AtomicBoolean regenerationScheduled = new AtomicBoolean(false);
+    private ScheduledExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory();
+        threadFactory.setDaemon(true);
+        threadFactory.setThreadNamePrefix("SitemapCache-");
+        threadFactory.setThreadPriority(Thread.MIN_PRIORITY);
+        executor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void onApplicationEvent(MetadataEvent event) {
+        if (documents.isEmpty() || regenerationScheduled.get()) {
+            return;
+        }
+        // Removed records may have been public, updated public records have a new change date
+        boolean sitemapChanged = event instanceof MetadataPublished
+            || event instanceof MetadataUnpublished
+            || event instanceof MetadataRemove
+            || (event instanceof MetadataIndexCompleted && isPublic(event.getMd().getId()));
+        if (sitemapChanged && regenerationScheduled.compareAndSet(false, true)) {
+            executor.schedule(this::regenerateAll, regenerationDelay, TimeUnit.SECONDS);
+        }
+    }
+
+    private boolean isPublic(int metadataId) {
+        return operationAllowedRepository.findOne(
+            where(OperationAllowedSpecs.hasMetadataId(metadataId))
+                .and(OperationAllowedSpecs.isPublic(ReservedOperation.view))).isPresent();
+    }
+
+    /**
+     * Open a sitemap document, generating the documents of the portal and format if needed.
+     *
+     * @param nodeId the portal
+     * @param format {@link #FORMAT_HTML} to link to the record permalinks or {@link #FORMAT_XML}
+     *               to link to the record XML documents
+     * @param doc    the page of records, or 0 for the full sitemap if it contains only one page
+     *               or the sitemap index otherwise
+     * @return the gzipped document
+     * @throws SitemapDocumentNotFoundEx if the page does not exist
+     */
+    public InputStream getDocument(String nodeId, String format, int doc) throws Exception {
+        String key = nodeId + "/" + format;
+        Path directory = documents.get(key);
+        if (directory == null) {
+            synchronized (locks.computeIfAbsent(key, k -> new Object())) {
+                directory = documents.get(key);
+                if (directory == null) {
+                    directory = generate(nodeId, format);
+                }
+            }
+        }
+        Path file = directory.resolve(doc == 0 ? INDEX_FILE : doc + ".xml.gz");
+        if (doc < 0 || !Files.exists(file)) {
+            throw new SitemapDocumentNotFoundEx(doc);
+        }
+        return Files.newInputStream(file);
+    }
+
+    private void regenerateAll() {
+        regenerationScheduled.set(false);
+        for (String key : documents.keySet()) {
+            String[] nodeAndFormat = key.split("/");
+            try {
+                synchronized (locks.computeIfAbsent(key, k -> new Object())) {
+                    generate(nodeAndFormat[0], nodeAndFormat[1]);
+                }
+            } catch (Exception e) {
+                Log.error(API.LOG_MODULE_NAME, String.format(
+                    "Sitemap generation for portal %s and format %s failed. Error is: %s",
+                    nodeAndFormat[0], nodeAndFormat[1], e.getMessage()), e);
+            }
+        }
+    }
+
+    /**
+     * Write all documents of a portal and format in a new directory, make it the current one
+     * and remove older ones, keeping the previous one for requests still reading it.
+     */
+    private Path generate(String nodeId, String format) throws Exception {
+        String key = nodeId + "/" + format;
+        Path parent = dataDirectory.getHtmlCacheDir().resolve("sitemap").resolve(nodeId).resolve(format);
+        Path directory = parent.resolve(String.valueOf(System.currentTimeMillis()));
+        Files.createDirectories(directory);
+
+        long start = System.currentTimeMillis();
+        String nodeUrl = settingManager.getBaseURL() + nodeId + "/";
+        int pages = 0;
+        int items = 0;
+        SitemapWriter writer = null;
+        try (Stream<SearchHit> hits = searchManager.stream(PUBLIC_RECORDS_QUERY, null,
+            FIELDS, SORT_BY_CHANGE_DATE_DESC)) {
+            Iterator<SearchHit> iterator = hits.iterator();
+            while (iterator.hasNext()) {
+                if (writer == null) {
+                    pages++;
+                    writer = new SitemapWriter(directory.resolve(pages + ".xml.gz"), "urlset",
+                        "https://www.sitemaps.org/schemas/sitemap/0.9/sitemap.xsd");
+                }
+                Map<String, Object> source = iterator.next().getSourceAsMap();
+                String uuid = (String) source.get(Geonet.IndexFieldNames.UUID);
+                writer.writeEntry("url",
+                    FORMAT_XML.equals(format)
+                        ? nodeUrl + "api/records/" + uuid + "/formatters/xml"
+                        : metadataUtils.getPermalink(uuid, Geonet.DEFAULT_LANGUAGE, nodeUrl),
+                    (String) source.get(Geonet.IndexFieldNames.DATABASE_CHANGE_DATE));
+                if (++items == MAX_ITEMS_PER_PAGE) {
+                    writer.close();
+                    writer = null;
+                    items = 0;
+                }
+            }
+        } finally {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+
+        Path index = directory.resolve(INDEX_FILE);
+        if (pages == 0) {
+            new SitemapWriter(index, "urlset",
+                "https://www.sitemaps.org/schemas/sitemap/0.9/sitemap.xsd").close();
+        } else if (pages == 1) {
+            Files.copy(directory.resolve("1.xml.gz"), index);
+        } else {
+            String lastModification = new ISODate().toString();
+            try (SitemapWriter indexWriter = new SitemapWriter(index, "sitemapindex",
+                "https://www.sitemaps.org/schemas/sitemap/0.9/siteindex.xsd")) {
+                for (int page = 1; page <= pages; page++) {
+                    indexWriter.writeEntry("sitemap",
+                        nodeUrl + "api/sitemap?format=" + format + "&doc=" + page,
+                        lastModification);
+                }
+            }
+        }
+
+        Path previous = documents.put(key, directory);
+        try (DirectoryStream<Path> generations = Files.newDirectoryStream(parent)) {
+            for (Path generation : generations) {
+                if (!generation.equals(directory) && !generation.equals(previous)) {
+                    FileUtils.deleteQuietly(generation.toFile());
+                }
+            }
+        }
+        Log.info(API.LOG_MODULE_NAME, String.format(
+            "Sitemap for portal %s and format %s generated with %d page(s) in %dms.",
+            nodeId, format, pages, System.currentTimeMillis() - start));
+        return directory;
+    }
+
+    /**
+     * Write a gzipped urlset or sitemapindex document entry by entry.
+     */
+    private static class SitemapWriter implements Closeable {
+        private final OutputStream output;
+        private final XMLStreamWriter writer;
+
+        SitemapWriter(Path file, String rootElement, String schemaLocation) throws IOException, XMLStreamException {
+            output = new GZIPOutputStream(Files.newOutputStream(file));
+            writer = XMLOutputFactory.newInstance().createXMLStreamWriter(output, StandardCharsets.UTF_8.name());
+            writer.writeStartDocument(StandardCharsets.UTF_8.name(), "1.0");
+            writer.setDefaultNamespace(SITEMAP_NS);
+            writer.writeStartElement(SITEMAP_NS, rootElement);
+            writer.writeDefaultNamespace(SITEMAP_NS);
+            writer.writeNamespace("xsi", XSI_NS);
+            writer.writeAttribute(XSI_NS, "schemaLocation", SITEMAP_NS + " " + schemaLocation);
+        }
+
+        void writeEntry(String element, String location, String lastModification) throws XMLStreamException {
+            writer.writeStartElement(SITEMAP_NS, element);
+            writer.writeStartElement(SITEMAP_NS, "loc");
+            writer.writeCharacters(location);
+            writer.writeEndElement();
+            if (lastModification != null) {
+                writer.writeStartElement(SITEMAP_NS, "lastmod");
+                writer.writeCharacters(lastModification.length() > 10
+                    ? lastModification.substring(0, 10) : lastModification);
+                writer.writeEndElement();
+            }
+            writer.writeEndElement();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                writer.writeEndElement();
+                writer.writeEndDocument();
+                writer.close();
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            } finally {
+                output.close();
+            }
+        }
+    }
+}
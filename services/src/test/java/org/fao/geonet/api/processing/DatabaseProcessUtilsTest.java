@@ -4,6 +4,7 @@ import jeeves.server.context.ServiceContext;
 import org.fao.geonet.api.processing.report.MetadataReplacementProcessingReport;
 import org.fao.geonet.api.processing.report.Report;
 import org.fao.geonet.domain.AbstractMetadata;
+import org.fao.geonet.domain.MetadataDataCodec;
 import org.fao.geonet.kernel.datamanager.IMetadataUtils;
 import org.fao.geonet.kernel.mef.MEFLibIntegrationTest;
 import org.fao.geonet.services.AbstractServiceIntegrationTest;
@@ -108,4 +109,44 @@ public class DatabaseProcessUtilsTest extends AbstractServiceIntegrationTest {
         }
 
     }
+
+    @Test
+    public void testProcessWithCompression() throws Exception {
+        MetadataDataCodec.setCompressionEnabled(true);
+        try {
+            MetadataReplacementProcessingReport report = new MetadataReplacementProcessingReport("test");
+
+            Element updatedRecord = DatabaseProcessUtils.process(context, metadataId,
+                false, "Localities in Victoria", "Localities in Hobart",
+                "", false, false, false, report);
+            assertEquals(0, report.getNumberOfRecordsWithErrors());
+            assertEquals(true, Xml.getString(updatedRecord).contains("Localities in Hobart"));
+
+            updatedRecord = DatabaseProcessUtils.process(context, metadataId,
+                true, "localities in ([a-z]+)", "Points in \\1",
+                "i", false, false, false, report);
+            assertEquals(0, report.getNumberOfRecordsWithErrors());
+            assertEquals(true, Xml.getString(updatedRecord).contains("Points in Victoria"));
+        } finally {
+            MetadataDataCodec.setCompressionEnabled(false);
+        }
+    }
+
+    @Test
+    public void testReplace() {
+        String xml = "<a>Points 1</a>\n<a>Points 2</a>";
+
+        assertEquals("<a>Lines 1</a>\n<a>Lines 2</a>",
+            DatabaseProcessUtils.replace(xml, false, "Points", "Lines", ""));
+        assertEquals("<a>Lines 1</a>\n<a>Points 2</a>",
+            DatabaseProcessUtils.replace(xml, true, "Points ([0-9])", "Lines \\1", ""));
+        assertEquals("<a>Lines 1</a>\n<a>Lines 2</a>",
+            DatabaseProcessUtils.replace(xml, true, "points ([0-9])", "Lines \\1", "gi"));
+        assertEquals("<a>$Points 1</a>\n<a>$Points 2</a>",
+            DatabaseProcessUtils.replace(xml, true, "Points", "$\\&", "g"));
+        assertEquals("<a>Points</a>",
+            DatabaseProcessUtils.replace(xml, true, ">Points.*2<", ">Points<", ""));
+        assertEquals("<a>Points 1</a>\n<a>Points</a>",
+            DatabaseProcessUtils.replace(xml, true, ">Points.*2<", ">Points<", "n"));
+    }
 }
@@ -26,13 +26,20 @@ import jeeves.server.context.ServiceContext;
 import jeeves.server.dispatchers.ServiceManager;
 import org.fao.geonet.ApplicationContextHolder;
 import org.fao.geonet.api.ApiParams;
+import org.fao.geonet.constants.Geonet;
+import org.fao.geonet.constants.Params;
+import org.fao.geonet.domain.MetadataType;
+import org.fao.geonet.domain.ReservedGroup;
 import org.fao.geonet.kernel.DataManager;
 import org.fao.geonet.kernel.SchemaManager;
 import org.fao.geonet.kernel.mef.MEFLibIntegrationTest;
 import org.fao.geonet.repository.MetadataRepository;
 import org.fao.geonet.repository.SourceRepository;
 import org.fao.geonet.services.AbstractServiceIntegrationTest;
+import org.fao.geonet.utils.Xml;
+import org.jdom.Element;
 import org.junit.Before;
+import org.junit.Ignore;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
@@ -45,6 +52,8 @@ import org.springframework.web.context.WebApplicationContext;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.UUID;
 
 import static org.hamcrest.Matchers.equalTo;
@@ -218,4 +227,56 @@ public class MetadataAssociatedApiTest extends AbstractServiceIntegrationTest {
             .andExpect(jsonPath("$.associated", hasSize(1)))
             .andExpect(jsonPath("$.associated[0]._source.uuid").value(SERIE_UUID));
     }
+
+    @Test
+    public void getAssociatedDatasetsOfService() throws Exception {
+        final String serviceUuid = importServiceOperatingOnDatasets(50);
+
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(this.wac).build();
+        MockHttpSession mockHttpSession = loginAsAdmin();
+        mockMvc.perform(get("/srv/api/records/" + serviceUuid + "/associated?type=datasets")
+                .session(mockHttpSession)
+                .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(API_JSON_EXPECTED_ENCODING))
+            .andExpect(jsonPath("$.datasets", hasSize(50)))
+            .andExpect(jsonPath("$.datasets[0].origin").value("catalog"));
+    }
+
+    /**
+     * Benchmark of the associated resources of a service operating on 50 datasets.
+     */
+    @Ignore
+    @Test
+    public void benchmarkGetAssociatedOfService() throws Exception {
+        final String serviceUuid = importServiceOperatingOnDatasets(50);
+
+        final MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(this.wac).build();
+        final MockHttpSession mockHttpSession = loginAsAdmin();
+        measurePerformance(() -> mockMvc.perform(get("/srv/api/records/" + serviceUuid + "/associated")
+                .session(mockHttpSession)
+                .accept(MediaType.APPLICATION_JSON))
+            .andExpect(status().isOk()));
+    }
+
+    private String importServiceOperatingOnDatasets(int numberOfDatasets) throws Exception {
+        loginAsAdmin(context);
+
+        Element service = getSampleMetadataXml();
+        Element identification = service
+            .getChild("identificationInfo", Geonet.Namespaces.GMD)
+            .getChild("MD_DataIdentification", Geonet.Namespaces.GMD);
+        for (int i = 0; i < numberOfDatasets; i++) {
+            int datasetId = importMetadataXML(context, "uuid",
+                new ByteArrayInputStream(Xml.getString(getSampleMetadataXml()).getBytes(StandardCharsets.UTF_8)),
+                MetadataType.METADATA, ReservedGroup.all.getId(), Params.GENERATE_UUID);
+            identification.addContent(new Element("operatesOn", Geonet.Namespaces.SRV)
+                .setAttribute("uuidref", metadataRepository.findById(datasetId).get().getUuid()));
+        }
+
+        int serviceId = importMetadataXML(context, "uuid",
+            new ByteArrayInputStream(Xml.getString(service).getBytes(StandardCharsets.UTF_8)),
+            MetadataType.METADATA, ReservedGroup.all.getId(), Params.GENERATE_UUID);
+        return metadataRepository.findById(serviceId).get().getUuid();
+    }
 }
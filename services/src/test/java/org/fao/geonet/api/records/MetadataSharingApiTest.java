@@ -0,0 +1,295 @@
+/*
+ * Copyright (C) 2001-2023 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.api.records;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.gson.Gson;
+import jeeves.server.UserSession;
+import jeeves.server.context.ServiceContext;
+import org.fao.geonet.api.ApiUtils;
+import org.fao.geonet.api.records.model.GroupOperations;
+import org.fao.geonet.api.records.model.SharingParameter;
+import org.fao.geonet.constants.Geonet;
+import org.fao.geonet.domain.*;
+import org.fao.geonet.kernel.DataManager;
+import org.fao.geonet.kernel.SchemaManager;
+import org.fao.geonet.kernel.SelectionManager;
+import org.fao.geonet.kernel.UpdateDatestamp;
+import org.fao.geonet.kernel.datamanager.IMetadataIndexer;
+import org.fao.geonet.kernel.search.EsSearchManager;
+import org.fao.geonet.kernel.search.IndexingMode;
+import org.fao.geonet.kernel.setting.SettingManager;
+import org.fao.geonet.kernel.setting.Settings;
+import org.fao.geonet.repository.GroupRepository;
+import org.fao.geonet.repository.MetadataDraftRepository;
+import org.fao.geonet.repository.OperationAllowedRepository;
+import org.fao.geonet.repository.SourceRepository;
+import org.fao.geonet.services.AbstractServiceIntegrationTest;
+import org.fao.geonet.utils.Xml;
+import org.jdom.Element;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.fao.geonet.schema.iso19139.ISO19139Namespaces.GCO;
+import static org.fao.geonet.schema.iso19139.ISO19139Namespaces.GMD;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class MetadataSharingApiTest extends AbstractServiceIntegrationTest {
+
+    private static final String STALE_GROUP = "stale-group";
+
+    @Autowired
+    private WebApplicationContext wac;
+
+    @Autowired
+    private DataManager dataManager;
+
+    @Autowired
+    private SourceRepository sourceRepository;
+
+    @Autowired
+    private SchemaManager schemaManager;
+
+    @Autowired
+    private SettingManager settingManager;
+
+    @Autowired
+    private GroupRepository groupRepository;
+
+    @Autowired
+    private OperationAllowedRepository operationAllowedRepository;
+
+    @Autowired
+    private MetadataDraftRepository metadataDraftRepository;
+
+    @Autowired
+    private IMetadataIndexer metadataIndexer;
+
+    @Autowired
+    private EsSearchManager searchManager;
+
+    private ServiceContext context;
+
+    private final List<Metadata> records = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        this.context = createServiceContext();
+        loginAsAdmin(context);
+        settingManager.setValue(Settings.METADATA_WORKFLOW_ALLOW_PUBLISH_INVALID_MD, true);
+        settingManager.setValue(Settings.METADATA_WORKFLOW_ALLOW_PUBLISH_NON_APPROVED_MD, true);
+
+        for (int i = 0; i < 3; i++) {
+            Metadata metadata = insertRecord();
+            records.add(metadata);
+
+            // Privileges left in the index by a previous sharing
+            Map<String, Object> staleFields = new HashMap<>();
+            staleFields.put(Geonet.IndexFieldNames.GROUP_PUBLISHED, STALE_GROUP);
+            staleFields.put(Geonet.IndexFieldNames.OP_PREFIX + ReservedOperation.view.getId(), "-42");
+            searchManager.updateFields(metadata.getUuid(), staleFields);
+        }
+    }
+
+    @Test
+    public void testShareSelection() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.webAppContextSetup(this.wac).build();
+        MockHttpSession mockHttpSession = loginAsAdmin();
+
+        UserSession session = ApiUtils.getUserSession(mockHttpSession);
+        records.forEach(r ->
+            SelectionManager.getManager(session).getSelection(SelectionManager.SELECTION_METADATA).add(r.getUuid()));
+
+        mockMvc.perform(put("/srv/api/records/sharing")
+                .param("bucket", SelectionManager.SELECTION_METADATA)
+                .content(new Gson().toJson(buildSharing()))
+                .contentType(API_JSON_EXPECTED_ENCODING)
+                .accept(MediaType.parseMediaType("application/json"))
+                .session(mockHttpSession))
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.numberOfRecordsProcessed").value(records.size()));
+
+        for (Metadata metadata : records) {
+            assertTrue(operationAllowedRepository.findAllById_MetadataId(metadata.getId()).size() > 0);
+            assertPrivilegesInIndex(metadata.getId(), metadata.getUuid());
+        }
+    }
+
+    /**
+     * With workflow enabled, the sharing API may get the working copy of a record.
+     * Its privileges must go to the -draft document and leave the approved
+     * record document untouched.
+     */
+    @Test
+    public void testIndexPrivilegesOfWorkingCopy() throws Exception {
+        Metadata approved = records.get(0);
+        Group sample = groupRepository.findByName("sample");
+        dataManager.setOperation(context, approved.getId(), ReservedGroup.all.getId(), ReservedOperation.view.getId());
+        dataManager.setOperation(context, approved.getId(), sample.getId(), ReservedOperation.download.getId());
+
+        MetadataDraft draft = insertWorkingCopy(approved);
+        String draftDocumentId = approved.getUuid() + "-draft";
+        operationAllowedRepository.save(new OperationAllowed(
+            new OperationAllowedId(draft.getId(), sample.getId(), ReservedOperation.view.getId())));
+        operationAllowedRepository.save(new OperationAllowed(
+            new OperationAllowedId(draft.getId(), sample.getId(), ReservedOperation.editing.getId())));
+
+        Map<Integer, String> updatedRecords = new LinkedHashMap<>();
+        updatedRecords.put(approved.getId(), approved.getUuid());
+        updatedRecords.put(draft.getId(), draftDocumentId);
+        metadataIndexer.indexMetadataPrivileges(updatedRecords);
+
+        assertPrivilegesInIndex(approved.getId(), approved.getUuid());
+        assertPrivilegesInIndex(draft.getId(), draftDocumentId);
+    }
+
+    private SharingParameter buildSharing() {
+        Group sample = groupRepository.findByName("sample");
+
+        GroupOperations all = new GroupOperations();
+        all.setGroup(ReservedGroup.all.getId());
+        Map<String, Boolean> allOperations = new HashMap<>();
+        allOperations.put(ReservedOperation.view.name(), true);
+        allOperations.put(ReservedOperation.download.name(), true);
+        all.setOperations(allOperations);
+
+        GroupOperations group = new GroupOperations();
+        group.setGroup(sample.getId());
+        Map<String, Boolean> groupOperations = new HashMap<>();
+        groupOperations.put(ReservedOperation.view.name(), true);
+        groupOperations.put(ReservedOperation.editing.name(), true);
+        groupOperations.put(ReservedOperation.notify.name(), false);
+        group.setOperations(groupOperations);
+
+        SharingParameter sharing = new SharingParameter();
+        sharing.setClear(true);
+        sharing.setPrivileges(Arrays.asList(all, group));
+        return sharing;
+    }
+
+    /**
+     * Check that the privileges fields of an index document match the privileges in the database.
+     */
+    private void assertPrivilegesInIndex(int metadataId, String documentId) throws Exception {
+        Map<String, Object> document = searchManager.getDocument(documentId);
+        List<OperationAllowed> operations = operationAllowedRepository.findAllById_MetadataId(metadataId);
+
+        for (ReservedOperation operation : ReservedOperation.values()) {
+            Set<String> expectedGroups = operations.stream()
+                .filter(o -> o.getId().getOperationId() == operation.getId())
+                .map(o -> String.valueOf(o.getId().getGroupId()))
+                .collect(Collectors.toSet());
+            assertEquals(String.format("%s in %s", Geonet.IndexFieldNames.OP_PREFIX + operation.getId(), documentId),
+                expectedGroups, toStrings(document.get(Geonet.IndexFieldNames.OP_PREFIX + operation.getId())));
+        }
+
+        Set<Integer> viewGroups = operations.stream()
+            .filter(o -> o.getId().getOperationId() == ReservedOperation.view.getId())
+            .map(o -> o.getId().getGroupId())
+            .collect(Collectors.toSet());
+        Set<String> expectedGroupPublished = viewGroups.stream()
+            .map(g -> groupRepository.findById(g).get().getName())
+            .collect(Collectors.toSet());
+        assertEquals(String.format("%s in %s", Geonet.IndexFieldNames.GROUP_PUBLISHED, documentId),
+            expectedGroupPublished, toStrings(document.get(Geonet.IndexFieldNames.GROUP_PUBLISHED)));
+        assertEquals(String.format("%s in %s", Geonet.IndexFieldNames.IS_PUBLISHED_TO_ALL, documentId),
+            Collections.singleton(String.valueOf(viewGroups.contains(ReservedGroup.all.getId()))),
+            toStrings(document.get(Geonet.IndexFieldNames.IS_PUBLISHED_TO_ALL)));
+    }
+
+    private static Set<String> toStrings(Object value) {
+        if (value == null) {
+            return Collections.emptySet();
+        } else if (value instanceof Collection) {
+            return ((Collection<?>) value).stream().map(String::valueOf).collect(Collectors.toSet());
+        }
+        return Collections.singleton(String.valueOf(value));
+    }
+
+    private Metadata insertRecord() throws Exception {
+        final Element sampleMetadataXml = getSampleMetadataXml();
+        String uuid = UUID.randomUUID().toString();
+        Xml.selectElement(sampleMetadataXml, "gmd:fileIdentifier/gco:CharacterString", Arrays.asList(GMD, GCO)).setText(uuid);
+
+        String source = sourceRepository.findAll().get(0).getUuid();
+        String schema = schemaManager.autodetectSchema(sampleMetadataXml);
+        final Metadata metadata = (Metadata) new Metadata()
+            .setDataAndFixCR(sampleMetadataXml)
+            .setUuid(uuid);
+        metadata.getDataInfo()
+            .setRoot(sampleMetadataXml.getQualifiedName())
+            .setSchemaId(schema)
+            .setType(MetadataType.METADATA)
+            .setPopularity(1000);
+        metadata.getSourceInfo()
+            .setOwner(1)
+            .setSourceId(source);
+        metadata.getHarvestInfo()
+            .setHarvested(false);
+
+        return (Metadata) dataManager.insertMetadata(context, metadata, sampleMetadataXml, IndexingMode.full, false,
+            UpdateDatestamp.NO, false, true);
+    }
+
+    /**
+     * Create the working copy of a record in the database and in the index
+     * the way the draft metadata utilities do when workflow is enabled.
+     */
+    private MetadataDraft insertWorkingCopy(Metadata approved) throws Exception {
+        Element xml = approved.getXmlData(false);
+        MetadataDraft draft = (MetadataDraft) new MetadataDraft()
+            .setDataAndFixCR(xml)
+            .setUuid(approved.getUuid());
+        draft.setApprovedVersion(approved);
+        draft.getDataInfo()
+            .setRoot(approved.getDataInfo().getRoot())
+            .setSchemaId(approved.getDataInfo().getSchemaId())
+            .setType(MetadataType.METADATA);
+        draft.getSourceInfo()
+            .setOwner(approved.getSourceInfo().getOwner())
+            .setSourceId(approved.getSourceInfo().getSourceId());
+        draft.getHarvestInfo()
+            .setHarvested(false);
+        draft = metadataDraftRepository.save(draft);
+
+        Map<String, Object> document = searchManager.getDocument(approved.getUuid());
+        document.put(Geonet.IndexFieldNames.DRAFT, "y");
+        searchManager.client.bulkRequest(searchManager.getDefaultIndex(), Collections.singletonMap(
+            approved.getUuid() + "-draft", new ObjectMapper().writeValueAsString(document)));
+        return draft;
+    }
+}
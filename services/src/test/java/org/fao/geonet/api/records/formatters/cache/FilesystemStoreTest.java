@@ -100,6 +100,35 @@ public class FilesystemStoreTest {
 
     }
 
+    @Test
+    public void testIdenticalVariantsShareFile() throws Exception {
+        final Key withheld = new Key(1, "eng", FormatType.html, "full_view", true, FormatterWidth._100);
+        final Key full = new Key(1, "eng", FormatType.html, "full_view", false, FormatterWidth._100);
+        store.put(withheld, new StoreInfoAndData("same", 10000, true));
+        store.put(full, new StoreInfoAndData("same", 10000, true));
+
+        assertTrue(Files.isSameFile(store.getPrivatePath(withheld), store.getPrivatePath(full)));
+        assertEquals("same", store.get(full).getDataAsString());
+
+        store.put(full, new StoreInfoAndData("different", 10001, true));
+        assertFalse(Files.isSameFile(store.getPrivatePath(withheld), store.getPrivatePath(full)));
+        assertEquals("same", store.get(withheld).getDataAsString());
+        assertEquals("different", store.get(full).getDataAsString());
+        assertEquals("same", new String(store.getPublished(withheld), "UTF-8"));
+    }
+
+    @Test
+    public void testPutUnchangedValue() throws Exception {
+        final Key key = new Key(1, "eng", FormatType.html, "full_view", true, FormatterWidth._100);
+        store.put(key, new StoreInfoAndData("result", 10000, false));
+        store.put(key, new StoreInfoAndData("result", 10001, true));
+
+        assertEquals(10001, store.getInfo(key).getChangeDate());
+        assertTrue(store.getInfo(key).isPublished());
+        assertEquals("result", new String(store.getPublished(key), "UTF-8"));
+        assertEquals(2, countFiles(geonetworkDataDirectory.getHtmlCacheDir()));
+    }
+
     @Test
     public void testGetPublic() throws Exception {
 
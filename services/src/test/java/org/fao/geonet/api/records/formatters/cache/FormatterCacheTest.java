@@ -42,7 +42,13 @@ import java.sql.SQLException;
 import java.util.Date;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -51,6 +57,7 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class FormatterCacheTest {
 
@@ -143,6 +150,69 @@ public class FormatterCacheTest {
         assertEquals(false, basicInfo.isPublished());
     }
 
+    @Test(timeout = 10000L)
+    public void testConcurrentMissesShareRendering() throws Exception {
+        this.formatterCache = new FormatterCache(new MemoryPersistentStore(), 100, 5000);
+        final long changeDate = new Date().getTime();
+        final Key key = new Key(1, "eng", FormatType.html, "full_view", true, FormatterWidth._100);
+        final AtomicInteger renderings = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Callable<StoreInfoAndDataLoadResult> loader = new Callable<StoreInfoAndDataLoadResult>() {
+            @Override
+            public StoreInfoAndDataLoadResult call() throws Exception {
+                renderings.incrementAndGet();
+                started.countDown();
+                release.await();
+                return new StoreInfoAndDataLoadResult("result", changeDate, false, null, null);
+            }
+        };
+
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> first = executorService.submit(() -> getAsString(key, changeDate, loader));
+            started.await();
+            Future<String> second = executorService.submit(() -> getAsString(key, changeDate, loader));
+            Future<String> third = executorService.submit(() -> getAsString(key, changeDate, loader));
+            Thread.sleep(200);
+            release.countDown();
+
+            assertEquals("result", first.get());
+            assertEquals("result", second.get());
+            assertEquals("result", third.get());
+            assertEquals(1, renderings.get());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 10000L)
+    public void testDifferentKeysRenderInParallel() throws Exception {
+        this.formatterCache = new FormatterCache(new MemoryPersistentStore(), 100, 5000);
+        final long changeDate = new Date().getTime();
+        final Key key = new Key(1, "eng", FormatType.html, "full_view", true, FormatterWidth._100);
+        final Key key2 = new Key(2, "eng", FormatType.html, "full_view", true, FormatterWidth._100);
+        final CountDownLatch secondStarted = new CountDownLatch(1);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> slow = executorService.submit(() -> getAsString(key, changeDate, () -> {
+                // only completes if the other key can be rendered meanwhile
+                assertTrue(secondStarted.await(5, TimeUnit.SECONDS));
+                return new StoreInfoAndDataLoadResult("slow", changeDate, false, null, null);
+            }));
+            Future<String> fast = executorService.submit(() -> getAsString(key2, changeDate, () -> {
+                secondStarted.countDown();
+                return new StoreInfoAndDataLoadResult("fast", changeDate, false, null, null);
+            }));
+
+            assertEquals("fast", fast.get());
+            assertEquals("slow", slow.get());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
     private String getAsString(Key key, long changeDate, Callable<StoreInfoAndDataLoadResult> loader) throws Exception {
         byte[] bytes = formatterCache.get(key, new ChangeDateValidator(changeDate), loader, true);
         return new String(bytes, Constants.CHARSET);
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2001-2023 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.api.records.formatters.cache;
+
+import jeeves.server.context.ServiceContext;
+import org.fao.geonet.SystemInfo;
+import org.fao.geonet.api.records.formatters.FormatType;
+import org.fao.geonet.api.records.formatters.FormatterWidth;
+import org.fao.geonet.kernel.mef.MEFLibIntegrationTest.ImportMetadata;
+import org.fao.geonet.services.AbstractServiceIntegrationTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+@ContextConfiguration(inheritLocations = true, locations = "classpath:formatter-cache-test-context.xml")
+public class FormatterPreRendererIntegrationTest extends AbstractServiceIntegrationTest {
+    @Autowired
+    private SystemInfo systemInfo;
+    @Autowired
+    private FilesystemStore fsStore;
+
+    private int metadataId;
+    private String stagingProfile;
+    private FormatterPreRenderer preRenderer;
+
+    @Before
+    public void setUp() throws Exception {
+        ServiceContext context = createServiceContext();
+        ImportMetadata importer = new ImportMetadata(this, context);
+        importer.invoke();
+        this.metadataId = Integer.parseInt(importer.getMetadataIds().get(0));
+
+        this.stagingProfile = systemInfo.getStagingProfile();
+        systemInfo.setStagingProfile(SystemInfo.STAGE_PRODUCTION);
+
+        preRenderer = new FormatterPreRenderer();
+        _applicationContext.getAutowireCapableBeanFactory().autowireBean(preRenderer);
+        ReflectionTestUtils.setField(preRenderer, "enabled", true);
+        ReflectionTestUtils.setField(preRenderer, "formatterIds", "full_view");
+        ReflectionTestUtils.setField(preRenderer, "formatTypes", "html");
+        ReflectionTestUtils.setField(preRenderer, "languageCodes", "eng");
+        preRenderer.init();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        preRenderer.shutdown();
+        systemInfo.setStagingProfile(stagingProfile);
+    }
+
+    @Test
+    public void testRenderGroovyFormatterWithoutRequest() throws Exception {
+        // The iso19139 full_view formatter is a groovy formatter
+        preRenderer.render(metadataId);
+
+        final Key key = new Key(metadataId, "eng", FormatType.html, "full_view", true, FormatterWidth._100);
+        final StoreInfoAndData rendered = fsStore.get(key);
+        assertNotNull(rendered);
+        assertTrue(rendered.data.length > 0);
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2001-2023 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.api.site;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SitemapApiTest {
+
+    @Test
+    public void testAcceptsGzip() {
+        assertTrue(SitemapApi.acceptsGzip("gzip"));
+        assertTrue(SitemapApi.acceptsGzip("deflate, gzip;q=1.0, *;q=0.5"));
+        assertTrue(SitemapApi.acceptsGzip("br, x-gzip"));
+        assertTrue(SitemapApi.acceptsGzip("*"));
+        assertTrue(SitemapApi.acceptsGzip("GZIP ; q=0.3"));
+
+        assertFalse(SitemapApi.acceptsGzip(null));
+        assertFalse(SitemapApi.acceptsGzip(""));
+        assertFalse(SitemapApi.acceptsGzip("identity"));
+        assertFalse(SitemapApi.acceptsGzip("gzip;q=0"));
+        assertFalse(SitemapApi.acceptsGzip("gzip;q=0.0, deflate"));
+        assertFalse(SitemapApi.acceptsGzip("*;q=0"));
+        assertFalse(SitemapApi.acceptsGzip("gzip;q=0, *"));
+    }
+}
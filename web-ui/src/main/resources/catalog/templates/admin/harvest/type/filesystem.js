@@ -15,6 +15,8 @@ var gnHarvesterfilesystem = {
                 "recurse" : true,
                 "nodelete" : false,
                 "checkFileLastModifiedForUpdate" : true,
+                "useManifest" : true,
+                "threads" : 4,
                 "recordType" : 'n',
                 "icon" : "blank.png",
                 "beforeScript": ""
@@ -55,6 +57,8 @@ var gnHarvesterfilesystem = {
                 + '    <recurse>' + h.site.recurse + '</recurse>'
                 + '    <nodelete>' + h.site.nodelete + '</nodelete>'
                 + '    <checkFileLastModifiedForUpdate>' + h.site.checkFileLastModifiedForUpdate + '</checkFileLastModifiedForUpdate>'
+                + '    <useManifest>' + h.site.useManifest + '</useManifest>'
+                + '    <threads>' + h.site.threads + '</threads>'
                 + '    <directory>' + h.site.directory + '</directory>'
                 + '    <recordType>' + h.site.recordType + '</recordType>'
                 + '    <icon>' + h.site.icon + '</icon>'
@@ -21,6 +21,8 @@ var gnHarvestergeonetwork = {
         "useChangeDateForUpdate": false,
         "createRemoteCategory": false,
         "mefFormatFull": false,
+        "mefBatchSize": 0,
+        "mefBatchConcurrency": 2,
         "xslfilter": []
       },
       "content":   {
@@ -76,6 +78,8 @@ var gnHarvestergeonetwork = {
       + '    <createRemoteCategory>' + h.site.createRemoteCategory + '</createRemoteCategory>'
       + '    <icon>' + h.site.icon + '</icon>'
       + '    <mefFormatFull>' + h.site.mefFormatFull + '</mefFormatFull>'
+      + '    <mefBatchSize>' + h.site.mefBatchSize + '</mefBatchSize>'
+      + '    <mefBatchConcurrency>' + h.site.mefBatchConcurrency + '</mefBatchConcurrency>'
       + '    <xslfilter>'
       + (h.site.xslfilter[0] ? h.site.xslfilter.replace(/&/g, '&amp;') : '')
       + '</xslfilter>'
@@ -23,13 +23,14 @@
 
 package org.fao.geonet.harvester.wfsfeatures.worker;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import org.apache.camel.Exchange;
 import org.apache.camel.spring.SpringCamelContext;
 import org.apache.jcs.access.exception.InvalidArgumentException;
@@ -45,11 +46,13 @@ import org.fao.geonet.harvester.wfsfeatures.model.WFSHarvesterParameter;
 import org.fao.geonet.index.es.EsRestClient;
 import org.fao.geonet.kernel.search.EsSearchManager;
 import org.geotools.data.DataSourceException;
+import org.geotools.data.Query;
 import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureSource;
 import org.geotools.data.store.ReprojectingFeatureCollection;
 import org.geotools.data.wfs.WFSDataStore;
+import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.feature.FeatureIterator;
-import org.geotools.geojson.geom.GeometryJSON;
 import org.geotools.referencing.CRS;
 import org.geotools.temporal.object.DefaultInstant;
 import org.geotools.util.logging.Logging;
@@ -57,8 +60,14 @@ import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.Geometry;
 import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.PrecisionModel;
+import org.locationtech.jts.io.WKBWriter;
 import org.locationtech.jts.precision.GeometryPrecisionReducer;
+import org.locationtech.jts.simplify.TopologyPreservingSimplifier;
 import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.filter.sort.SortBy;
+import org.opengis.filter.sort.SortOrder;
 import org.opengis.geometry.BoundingBox;
 import org.opengis.temporal.Instant;
 import org.opengis.temporal.Position;
@@ -66,7 +75,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
@@ -77,7 +90,10 @@ import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Phaser;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -148,9 +164,78 @@ public class EsWFSFeatureIndexer {
         this.numberOfDecimals = numberOfDecimals;
     }
 
+    /**
+     * Distance tolerance (in degrees) used to simplify the geometries
+     * before indexing. 0 to index the geometries as is.
+     */
+    @Value("${es.index.features.simplificationTolerance:0}")
+    private double simplificationTolerance;
+
+    public double getSimplificationTolerance() {
+        return simplificationTolerance;
+    }
+
+    public void setSimplificationTolerance(double simplificationTolerance) {
+        this.simplificationTolerance = simplificationTolerance;
+    }
+
+    /**
+     * Number of threads converting and sending the features, shared by all feature types.
+     */
+    @Value("${es.index.features.indexingThreads:4}")
+    private int indexingThreads = 4;
+
+    public int getIndexingThreads() {
+        return indexingThreads;
+    }
+
+    public void setIndexingThreads(int indexingThreads) {
+        this.indexingThreads = indexingThreads;
+    }
+
+    /**
+     * Number of features requested per GetFeature request when the service
+     * supports paging. 0 to harvest the feature types in one request.
+     */
+    @Value("${es.index.features.pageSize:10000}")
+    private int pageSize = 10000;
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
     @Autowired
     private EsRestClient client;
 
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * Names of the attributes used to sort paged requests, in lower case.
+     */
+    private static final Set<String> ID_ATTRIBUTES = ImmutableSet.of(
+        "id", "fid", "gid", "ogc_fid", "objectid", "pk", "uid", "identifier");
+
+    private ExecutorService indexingPool;
+
+    @PostConstruct
+    public void init() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory();
+        threadFactory.setDaemon(true);
+        threadFactory.setThreadNamePrefix("WFSFeatureIndexer-");
+        indexingPool = Executors.newFixedThreadPool(indexingThreads, threadFactory);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (indexingPool != null) {
+            indexingPool.shutdownNow();
+        }
+    }
+
     public void setIndex(String index) {
         this.index = index;
     }
@@ -159,10 +244,6 @@ public class EsWFSFeatureIndexer {
         this.indexType = indexType;
     }
 
-    private ObjectMapper jacksonMapper = new ObjectMapper();
-
-    private int nbOfFeatures;
-
     /**
      * Create exchange states for this feature type.
      * <p>
@@ -236,6 +317,9 @@ public class EsWFSFeatureIndexer {
                 getIdentifier(url, typeName)));
             LOGGER.info("  Report deleted in {} ms.", System.currentTimeMillis() - begin);
 
+            client.deleteByQuery(index, String.format("+id:\"%s\"",
+                getCheckpointId(url, typeName)));
+
         } catch (Exception e) {
             e.printStackTrace();
             LOGGER.error("Error connecting to ES at '{}'. Error is {}.", index, e.getMessage());
@@ -243,7 +327,7 @@ public class EsWFSFeatureIndexer {
     }
 
     interface TitleResolver {
-        void setTitle(ObjectNode objectNode, SimpleFeature simpleFeature);
+        void setTitle(JsonGenerator generator, SimpleFeature simpleFeature) throws IOException;
     }
 
     public CompletableFuture<Void> indexFeatures(Exchange exchange) throws Exception {
@@ -253,23 +337,38 @@ public class EsWFSFeatureIndexer {
         String url = state.getParameters().getUrl();
         String typeName = state.getParameters().getTypeName();
         String resolvedTypeName = state.getResolvedTypeName();
-        Map<String, String> tokenizedFields = state.getParameters().getTokenizedFields();
         WFSDataStore wfs = state.getWfsDatastore();
-        Map<String, String> featureAttributes = state.getFields();
-        TitleResolver titleResolver = getTitleResolver(state);
 
-        LOGGER.info("Indexing WFS features from service '{}' and feature type '{}'. Precision model applied: '{}', number of decimals: '{}'", url, typeName, applyPrecisionModel, numberOfDecimals);
+        LOGGER.info("Indexing WFS features from service '{}' and feature type '{}'. Precision model applied: '{}', number of decimals: '{}', simplification tolerance: '{}'", url, typeName, applyPrecisionModel, numberOfDecimals, simplificationTolerance);
         Report report = new Report(url, typeName);
-        ObjectNode protoNode = createProtoNode(url, typeName);
         if (state.getParameters().getMetadataUuid() != null) {
             report.put("parent", state.getParameters().getMetadataUuid());
-            protoNode.put("recordGroup", state.getParameters().getMetadataUuid());
-            ObjectNode linkToParent = jacksonMapper.createObjectNode();
-            linkToParent.put("name", "feature");
-            linkToParent.put("parent", state.getParameters().getMetadataUuid());
-            protoNode.set("featureOfRecord", linkToParent);
         }
-        initFeatureAttributeToDocumentFieldNamesMapping(featureAttributes, state.getParameters().getTreeFields(), report);
+        SimpleFeatureSource source = wfs.getFeatureSource(resolvedTypeName);
+        // Pages are only stable if the features are sorted
+        SortBy[] sortBy = pageSize > 0 && source.getQueryCapabilities().isOffsetSupported() ?
+            getPagingSortBy(source) : null;
+        FeatureTypeIndexing indexing = new FeatureTypeIndexing(state, report, sortBy);
+
+        // Paged harvests resume from or update the features already indexed,
+        // other harvests start from scratch.
+        WFSHarvesterCheckpoint checkpoint = null;
+        if (sortBy != null) {
+            checkpoint = WFSHarvesterCheckpoint.load(client, index, getCheckpointId(url, typeName));
+            String configurationHash = indexing.getConfigurationHash();
+            if (checkpoint == null || !checkpoint.isValidFor(configurationHash, pageSize)) {
+                deleteFeatures(url, typeName, client);
+                checkpoint = new WFSHarvesterCheckpoint(getCheckpointId(url, typeName), configurationHash, pageSize);
+            } else if (checkpoint.isComplete()) {
+                LOGGER.info("{}: updating features indexed by the previous harvest, unchanged pages are skipped.", typeName);
+                checkpoint.restart();
+            } else {
+                LOGGER.info("{}: resuming harvest from feature {}.", typeName, checkpoint.getNextStartIndex());
+            }
+        } else {
+            deleteFeatures(url, typeName, client);
+        }
+
         boolean initializeESReportSucceeded = report.saveHarvesterReport();
         if (!initializeESReportSucceeded) {
             String msg = "Couldn't initialize harvesting report, don't even try to go further querying wfs.";
@@ -278,179 +377,29 @@ public class EsWFSFeatureIndexer {
         }
 
         try {
-            nbOfFeatures = 0;
-
-            final Phaser phaser = new Phaser();
-            BulkResutHandler brh = new AsyncBulkResutHandler(phaser, typeName, url, nbOfFeatures, report, state.getParameters().getMetadataUuid());
-
             long begin = System.currentTimeMillis();
-//            FeatureIterator<SimpleFeature> features = wfs.getFeatureSource(typeName).getFeatures(query).features();
-
-            SimpleFeatureCollection fc = wfs.getFeatureSource(resolvedTypeName).getFeatures();
-            ReprojectingFeatureCollection rfc = new ReprojectingFeatureCollection(fc, CRS.decode("urn:ogc:def:crs:OGC:1.3:CRS84"));
-
-            FeatureIterator<SimpleFeature> features = rfc.features();
-
-            try {
-                while (features.hasNext()) {
-                    String featurePointer = String.format("%s#%s", typeName, nbOfFeatures);
-                    try {
-                        SimpleFeature feature = null;
-                        try {
-                            feature = features.next();
-                            featurePointer = String.format("%s/id:%s", featurePointer, feature.getID());
-                        } catch (Exception e) {
-                            if (e.getCause() instanceof IOException
-                                || e.getCause() instanceof DataSourceException) {
-                                String msg = String.format(
-                                    "Error while getting feature %s. Exception is: %s. Harvesting task will be stopped. This is probably a problem with the data source or some network related issues. Try to relaunch it later.",
-                                    featurePointer,
-                                    e.getMessage()
-                                );
-                                LOGGER.warn(msg);
-                                report.put("error_ss", msg);
-                                break;
-                            }
-                            String msg = String.format(
-                                "Error on reading %s. Exception is: %s",
-                                featurePointer, e.getMessage()
-                            );
-                            LOGGER.warn(msg);
-                            report.put("error_ss", msg);
-                            continue;
-                        }
-                        ObjectNode rootNode = protoNode.deepCopy();
-                        titleResolver.setTitle(rootNode, feature);
-
-                        for (String attributeName : featureAttributes.keySet()) {
-                            Object attributeValue = feature.getAttribute(attributeName);
-                            if (attributeValue == null) {
-
-                            } else if (tokenizedFields != null && tokenizedFields.get(attributeName) != null) {
-                                String rawValue = (String) attributeValue;
-                                String value = rawValue.startsWith(CDATA_START) ?
-                                    rawValue.replaceFirst(CDATA_START_REGEX, "").substring(0, rawValue.length() - CDATA_END.length() - CDATA_START.length()) :
-                                    rawValue;
-
-                                String separator = tokenizedFields.get(attributeName);
-                                String[] tokens = value.split(separator);
-                                ArrayNode arrayNode = jacksonMapper.createArrayNode();
-                                for (String token : tokens) {
-                                    arrayNode.add(token.trim());
-                                }
-                                rootNode.putPOJO(getDocumentFieldName(attributeName), arrayNode);
-                            } else if (getDocumentFieldName(attributeName).equals("geom")) {
-                                Geometry geom = (Geometry) feature.getDefaultGeometry();
-
-                                if (applyPrecisionModel) {
-                                    if (geom.isValid()) {
-                                        PrecisionModel precisionModel = new PrecisionModel(Math.pow(10, numberOfDecimals - 1));
-                                        geom = GeometryPrecisionReducer.reduce(geom, precisionModel);
-                                        // numberOfDecimals is equal to
-                                        // precisionModel.getMaximumSignificantDigits()
-                                    } else {
-                                        String msg = String.format(
-                                            "Feature %s: Cannot apply precision reducer on invalid geometry. Check the geometry validity. The feature will be indexed but with no geometry.",
-                                            featurePointer);
-                                        LOGGER.warn(msg);
-                                        report.put("error_ss", msg);
-                                        break;
-                                    }
-                                }
-
-                                // An issue here is that GeometryJSON conversion may over simplify
-                                // the geometry by truncating coordinates based on numberOfDecimals
-                                // which on default constructor is set to 4. This may lead to
-                                // invalid geometry and Elasticsearch will fail parsing the GeoJSON
-                                // with the following type of error:
-                                // Caused by: org.locationtech.spatial4j.exception.InvalidShapeException:
-                                // Provided shape has duplicate
-                                // consecutive coordinates at: (-3.9997, 48.7463, NaN)
-                                //
-                                // To avoid this, it may be relevant to apply the reduction model
-                                // preserving topology.
-                                String gjson = new GeometryJSON(numberOfDecimals).toString(geom);
-
-                                JsonNode jsonNode = jacksonMapper.readTree(gjson.getBytes(StandardCharsets.UTF_8));
-                                rootNode.put(getDocumentFieldName(attributeName), jsonNode);
-
-                                boolean isPoint = geom instanceof Point;
-                                if (isPoint) {
-                                    Coordinate point = geom.getCoordinate();
-                                    rootNode.put("location", String.format("%s,%s", point.y, point.x));
-                                } else {
-                                    report.setPointOnlyForGeomsFalse();
-                                }
-
-                                // Populate bbox coordinates to be able to compute
-                                // global bbox of search results
-                                final BoundingBox bbox = feature.getBounds();
-                                rootNode.put("bbox_xmin", bbox.getMinX());
-                                rootNode.put("bbox_ymin", bbox.getMinY());
-                                rootNode.put("bbox_xmax", bbox.getMaxX());
-                                rootNode.put("bbox_ymax", bbox.getMaxY());
-                            } else if (attributeValue instanceof Instant) {
-                                try {
-                                    Position position = ((DefaultInstant) attributeValue).getPosition();
-                                    if (position != null && position.getDate() != null) {
-                                        rootNode.put(getDocumentFieldName(attributeName),
-                                            position.getDate().toInstant().toString());
-                                    }
-                                } catch (Exception instantException) {
-                                    String msg = String.format(
-                                        "Feature %s: Cannot read attribute %s, value %s. Exception is: %s",
-                                        featurePointer, attributeName, attributeValue, instantException.getMessage());
-                                    LOGGER.warn(msg);
-                                    report.put("error_ss", msg);
-                                }
-                            } else {
-                                String value = attributeValue.toString();
-                                rootNode.put(getDocumentFieldName(attributeName),
-                                    value.startsWith(CDATA_START) ?
-                                        value.replaceFirst(CDATA_START_REGEX, "").substring(0, value.length() - CDATA_END.length() - CDATA_START.length()) :
-                                        value
-
-                                );
-                            }
-                        }
-
-                        nbOfFeatures++;
-                        brh.addAction(rootNode, feature);
-
-                    } catch (Exception ex) {
-                        String msg = String.format(
-                            "Feature %s: Error is: %s",
-                            featurePointer, ex.getMessage()
-                        );
-                        LOGGER.warn(msg);
-                        report.put("error_ss", msg);
-                    }
-
-                    if (brh.getBulkSize() >= featureCommitInterval) {
-                        brh.launchBulk(client);
-                        brh = new AsyncBulkResutHandler(phaser, typeName, url, nbOfFeatures, report, state.getParameters().getMetadataUuid());
-                    }
-                }
-            } finally {
-                features.close();
-            }
-
-            if (brh.getBulkSize() > 0) {
-                brh.launchBulk(client);
+            int resumedFeatures = 0;
+            if (checkpoint != null) {
+                resumedFeatures = checkpoint.getNextStartIndex();
+                indexing.indexPages(source, checkpoint);
+            } else {
+                indexing.indexAll(source);
             }
 
             try {
-                if (nbOfFeatures > 0) {
-                    phaser.awaitAdvanceInterruptibly(0, 3, TimeUnit.HOURS);
-                }
+                indexing.awaitCompletion(3, TimeUnit.HOURS);
             } catch (TimeoutException e) {
                 throw new Exception("Timeout when awaiting all bulks to be processed.");
             }
-            LOGGER.info("{}: {} features processed in {} ms.", new Object[]{
-                typeName, nbOfFeatures,
-                System.currentTimeMillis() - begin
+            long duration = System.currentTimeMillis() - begin;
+            int nbOfIndexedFeatures = indexing.getNumberOfConvertedFeatures();
+            double featuresPerSecond = duration > 0 ? nbOfIndexedFeatures * 1000.0 / duration : nbOfIndexedFeatures;
+            LOGGER.info("{}: {} features processed in {} ms ({} features/s), {} unchanged and {} indexed by a previous harvest.", new Object[]{
+                typeName, nbOfIndexedFeatures, duration, Math.round(featuresPerSecond),
+                indexing.getNumberOfSkippedFeatures(), resumedFeatures
             });
-            report.success(nbOfFeatures);
+            report.put("skippedRecords_i", indexing.getNumberOfSkippedFeatures());
+            report.success(resumedFeatures + indexing.getNumberOfSkippedFeatures() + nbOfIndexedFeatures, featuresPerSecond);
         } catch (Exception e) {
             report.put("status_s", "error");
             report.put("error_ss", e.getMessage());
@@ -464,6 +413,28 @@ public class EsWFSFeatureIndexer {
         return future;
     }
 
+    /**
+     * @return the sort order of the features for a paged harvest, or null if the feature type
+     * has no identifier attribute the service can sort on. WFS paging is not deterministic
+     * without a sort order, so pages would not be stable from one request to the next.
+     */
+    private SortBy[] getPagingSortBy(SimpleFeatureSource source) {
+        for (AttributeDescriptor attribute : source.getSchema().getAttributeDescriptors()) {
+            if (!(attribute instanceof GeometryDescriptor)
+                && ID_ATTRIBUTES.contains(attribute.getLocalName().toLowerCase())) {
+                SortBy[] sortBy = new SortBy[]{
+                    CommonFactoryFinder.getFilterFactory2().sort(attribute.getLocalName(), SortOrder.ASCENDING)
+                };
+                if (source.getQueryCapabilities().supportsSorting(sortBy)) {
+                    return sortBy;
+                }
+            }
+        }
+        LOGGER.info("{}: no identifier attribute to sort features on, features are harvested in one request.",
+            source.getSchema().getTypeName());
+        return null;
+    }
+
     private TitleResolver getTitleResolver(WFSHarvesterExchangeState state) {
         TitleResolver titleResolver;
         String titleExpression = state.getParameters().getTitleExpression();
@@ -471,25 +442,25 @@ public class EsWFSFeatureIndexer {
         if (titleExpression != null) {
             titleResolver = new TitleResolver() {
                 @Override
-                public void setTitle(ObjectNode objectNode, SimpleFeature simpleFeature) {
-                    objectNode.put("resourceTitle",
+                public void setTitle(JsonGenerator generator, SimpleFeature simpleFeature) throws IOException {
+                    generator.writeStringField("resourceTitle",
                         WFSFeatureUtils.buildFeatureTitle(simpleFeature, state.getFields(), titleExpression));
                 }
             };
         } else if (defaultTitleAttribute != null) {
             titleResolver = new TitleResolver() {
                 @Override
-                public void setTitle(ObjectNode objectNode, SimpleFeature simpleFeature) {
+                public void setTitle(JsonGenerator generator, SimpleFeature simpleFeature) throws IOException {
                     Object titleAttribute = simpleFeature.getAttribute(defaultTitleAttribute);
                     if (titleAttribute != null) {
-                        objectNode.put("resourceTitle", titleAttribute.toString());
+                        generator.writeStringField("resourceTitle", titleAttribute.toString());
                     }
                 }
             };
         } else {
             titleResolver = new TitleResolver() {
                 @Override
-                public void setTitle(ObjectNode objectNode, SimpleFeature simpleFeature) {
+                public void setTitle(JsonGenerator generator, SimpleFeature simpleFeature) {
 
                 }
             };
@@ -497,19 +468,473 @@ public class EsWFSFeatureIndexer {
         return titleResolver;
     }
 
-    private ObjectNode createProtoNode(String url, String typeName) {
-        ObjectNode protoNode = jacksonMapper.createObjectNode();
-        protoNode.put("docType", "feature");
-        protoNode.put("resourceType", "feature");
-        protoNode.put("featureTypeId", getIdentifier(url, typeName));
-        return protoNode;
+    /**
+     * Indexing state of one feature type. Chunks of features are converted to JSON and
+     * sent to the index by the indexing pool, so that several chunks of one feature type
+     * and several feature types are processed in parallel. The number of chunks waiting
+     * for the pool is bounded for each feature type to bound memory usage.
+     */
+    class FeatureTypeIndexing {
+        private final String url;
+        private final String typeName;
+        private final String featureTypeId;
+        private final String metadataUuid;
+        private final Report report;
+        private final Map<String, String> featureAttributes;
+        private final Map<String, String> tokenizedFields;
+        private final Map<String, String> documentFieldNames;
+        private final TitleResolver titleResolver;
+        private final PrecisionModel precisionModel;
+        private final GeometryJsonWriter geometryWriter;
+        // The harvesting thread is registered until awaitCompletion
+        private final Phaser phaser = new Phaser(1);
+        private final Semaphore pendingChunks;
+        private final AtomicInteger convertedFeatures = new AtomicInteger();
+        private final String configurationHash;
+        private final SortBy[] sortBy;
+        private final int maxFeatures;
+        private final WKBWriter wkbWriter = new WKBWriter();
+        // Index of the next feature read by the harvesting thread
+        private int nbOfFeatures = 0;
+        private int skippedFeatures = 0;
+
+        /**
+         * @param sortBy the sort order of the pages or null if the feature type is not paged.
+         */
+        FeatureTypeIndexing(WFSHarvesterExchangeState state, Report report, SortBy[] sortBy) {
+            this.url = state.getParameters().getUrl();
+            this.typeName = state.getParameters().getTypeName();
+            this.featureTypeId = getIdentifier(url, typeName);
+            this.metadataUuid = state.getParameters().getMetadataUuid();
+            this.report = report;
+            this.featureAttributes = state.getFields();
+            this.tokenizedFields = state.getParameters().getTokenizedFields();
+            this.documentFieldNames = initFeatureAttributeToDocumentFieldNamesMapping(
+                featureAttributes, state.getParameters().getTreeFields(), report);
+            this.titleResolver = getTitleResolver(state);
+            // numberOfDecimals is equal to
+            // precisionModel.getMaximumSignificantDigits()
+            this.precisionModel = applyPrecisionModel ? new PrecisionModel(Math.pow(10, numberOfDecimals - 1)) : null;
+            this.geometryWriter = new GeometryJsonWriter(numberOfDecimals);
+            this.pendingChunks = new Semaphore(indexingThreads * 2);
+            this.maxFeatures = state.getParameters().getMaxFeatures();
+            this.sortBy = sortBy;
+            this.configurationHash = Hashing.murmur3_128().hashString(String.join("|",
+                state.getParameters().toString(),
+                sortBy == null ? "" : sortBy[0].getPropertyName().getPropertyName(),
+                String.valueOf(applyPrecisionModel),
+                String.valueOf(numberOfDecimals),
+                String.valueOf(simplificationTolerance)), StandardCharsets.UTF_8).toString();
+        }
+
+        /**
+         * @return a hash of the configuration the features are indexed with.
+         */
+        String getConfigurationHash() {
+            return configurationHash;
+        }
+
+        /**
+         * Index all features of the feature type in one pass.
+         */
+        void indexAll(SimpleFeatureSource source) throws Exception {
+            FeatureIterator<SimpleFeature> features = reproject(source.getFeatures()).features();
+
+            // Features are read by this thread, converted and sent
+            // by chunk of featureCommitInterval by the indexing pool.
+            List<SimpleFeature> chunk = new ArrayList<>(featureCommitInterval);
+            try {
+                while (features.hasNext()) {
+                    SimpleFeature feature;
+                    try {
+                        feature = nextFeature(features);
+                    } catch (DataSourceException e) {
+                        LOGGER.warn(e.getMessage());
+                        report.put("error_ss", e.getMessage());
+                        break;
+                    }
+                    if (feature == null) {
+                        continue;
+                    }
+                    chunk.add(feature);
+                    if (chunk.size() >= featureCommitInterval) {
+                        submit(chunk, nbOfFeatures - chunk.size(), null);
+                        chunk = new ArrayList<>(featureCommitInterval);
+                    }
+                }
+            } finally {
+                features.close();
+            }
+
+            if (!chunk.isEmpty()) {
+                submit(chunk, nbOfFeatures - chunk.size(), null);
+            }
+        }
+
+        /**
+         * Index the feature type page by page using WFS startIndex and count, from the
+         * checkpoint start index. Only one page of features is kept in memory.
+         * <p>
+         * The checkpoint is saved once all features of a page are indexed, so that a
+         * failed harvest can resume from the next page. Pages with the same hash as in
+         * the previous harvest are skipped. The features of a changed page are replaced
+         * and the features of the pages which do not exist anymore are removed.
+         */
+        void indexPages(SimpleFeatureSource source, WFSHarvesterCheckpoint checkpoint) throws Exception {
+            int startIndex = checkpoint.getNextStartIndex();
+            int page = checkpoint.getNextPage();
+            nbOfFeatures = startIndex;
+
+            while (maxFeatures == -1 || startIndex < maxFeatures) {
+                Query query = new Query(source.getSchema().getTypeName());
+                query.setSortBy(sortBy);
+                query.setStartIndex(startIndex);
+                query.setMaxFeatures(maxFeatures == -1 ? pageSize : Math.min(pageSize, maxFeatures - startIndex));
+
+                List<SimpleFeature> pageFeatures = new ArrayList<>(pageSize);
+                Hasher hasher = Hashing.murmur3_128().newHasher();
+                // Number of features returned, readable or not
+                int count = 0;
+                FeatureIterator<SimpleFeature> features = reproject(source.getFeatures(query)).features();
+                try {
+                    while (features.hasNext()) {
+                        count++;
+                        // A data source failure stops the harvest, it will resume from this page
+                        SimpleFeature feature = nextFeature(features);
+                        if (feature != null) {
+                            pageFeatures.add(feature);
+                            hash(hasher, feature);
+                        }
+                    }
+                } finally {
+                    features.close();
+                }
+                // Servers may return less features than requested, only an empty page ends the harvest
+                if (count == 0) {
+                    break;
+                }
+
+                String hash = hasher.hash().toString();
+                String previousHash = checkpoint.getPageHash(page);
+                // Unreadable features are tried again on the next harvest
+                boolean pageFailed = pageFeatures.size() < count;
+                if (!pageFailed && hash.equals(previousHash)) {
+                    skippedFeatures += pageFeatures.size();
+                    LOGGER.debug("  {} - Page {} unchanged, {} features skipped.", new Object[]{
+                        typeName, page, pageFeatures.size()});
+                } else {
+                    if (previousHash != null) {
+                        client.deleteByQuery(index, String.format(
+                            "+featureTypeId:\"%s\" +featurePage:%d", featureTypeId, page));
+                    }
+                    int failedBulks = report.getFailedBulks();
+                    int failedFeatures = report.getFailedFeatures();
+                    int firstFeatureIndex = nbOfFeatures - pageFeatures.size();
+                    for (List<SimpleFeature> chunk : Lists.partition(pageFeatures, featureCommitInterval)) {
+                        submit(new ArrayList<>(chunk), firstFeatureIndex, page);
+                        firstFeatureIndex += chunk.size();
+                    }
+                    try {
+                        phaser.awaitAdvanceInterruptibly(phaser.arrive(), 3, TimeUnit.HOURS);
+                    } catch (TimeoutException e) {
+                        throw new Exception(String.format(
+                            "Timeout when awaiting bulks of page %d to be processed. Harvest will resume from feature %d.",
+                            page, startIndex));
+                    }
+                    if (report.getFailedBulks() > failedBulks) {
+                        throw new Exception(String.format(
+                            "Features of page %d not indexed. Harvest will resume from feature %d.",
+                            page, startIndex));
+                    }
+                    pageFailed |= report.getFailedFeatures() > failedFeatures;
+                }
+
+                startIndex += count;
+                if (pageFailed) {
+                    // The page is indexed again by the next harvest
+                    checkpoint.commitFailedPage(page, startIndex);
+                } else {
+                    checkpoint.commitPage(page, hash, startIndex);
+                }
+                checkpoint.save(client, index);
+                page++;
+            }
+
+            client.deleteByQuery(index, String.format(
+                "+featureTypeId:\"%s\" +featurePage:>=%d", featureTypeId, page));
+            checkpoint.complete(page);
+            checkpoint.save(client, index);
+        }
+
+        /**
+         * @return the next feature or null if it can not be read.
+         * @throws DataSourceException if the data source failed. The harvest should be stopped.
+         */
+        private SimpleFeature nextFeature(FeatureIterator<SimpleFeature> features) throws DataSourceException {
+            String featurePointer = String.format("%s#%s", typeName, nbOfFeatures);
+            try {
+                SimpleFeature feature = features.next();
+                nbOfFeatures++;
+                return feature;
+            } catch (Exception e) {
+                if (e.getCause() instanceof IOException
+                    || e.getCause() instanceof DataSourceException) {
+                    throw new DataSourceException(String.format(
+                        "Error while getting feature %s. Exception is: %s. Harvesting task will be stopped. This is probably a problem with the data source or some network related issues. Try to relaunch it later.",
+                        featurePointer,
+                        e.getMessage()
+                    ), e);
+                }
+                String msg = String.format(
+                    "Error on reading %s. Exception is: %s",
+                    featurePointer, e.getMessage()
+                );
+                LOGGER.warn(msg);
+                report.put("error_ss", msg);
+                return null;
+            }
+        }
+
+        private void hash(Hasher hasher, SimpleFeature feature) {
+            hasher.putString(feature.getID(), StandardCharsets.UTF_8);
+            for (Object value : feature.getAttributes()) {
+                if (value instanceof Geometry) {
+                    hasher.putBytes(wkbWriter.write((Geometry) value));
+                } else {
+                    hasher.putString(String.valueOf(value), StandardCharsets.UTF_8);
+                }
+            }
+        }
+
+        int getNumberOfSkippedFeatures() {
+            return skippedFeatures;
+        }
+
+        /**
+         * @param page the page of the features in a paged harvest, null otherwise.
+         */
+        void submit(List<SimpleFeature> features, int firstFeatureIndex, Integer page) throws InterruptedException {
+            pendingChunks.acquire();
+            phaser.register();
+            try {
+                indexingPool.execute(() -> {
+                    try {
+                        indexChunk(features, firstFeatureIndex, page);
+                    } finally {
+                        pendingChunks.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                pendingChunks.release();
+                phaser.arriveAndDeregister();
+                throw e;
+            }
+        }
+
+        void awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+            phaser.awaitAdvanceInterruptibly(phaser.arriveAndDeregister(), timeout, unit);
+        }
+
+        int getNumberOfConvertedFeatures() {
+            return convertedFeatures.get();
+        }
+
+        /**
+         * Convert the features and send them in one bulk. The phaser party registered
+         * for the chunk arrives once the bulk is processed.
+         */
+        private void indexChunk(List<SimpleFeature> features, int firstFeatureIndex, Integer page) {
+            BulkResutHandler brh = new AsyncBulkResutHandler(phaser, typeName, url, firstFeatureIndex, report, metadataUuid);
+            try {
+                // One buffer for all features of the bulk, each feature is copied once to its request
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+                for (int i = 0; i < features.size(); i++) {
+                    SimpleFeature feature = features.get(i);
+                    String featurePointer = String.format("%s#%s/id:%s", typeName, firstFeatureIndex + i, feature.getID());
+                    buffer.reset();
+                    try (JsonGenerator generator = JSON_FACTORY.createGenerator(buffer)) {
+                        writeFeature(generator, feature, featurePointer, page);
+                    } catch (Exception ex) {
+                        String msg = String.format(
+                            "Feature %s: Error is: %s",
+                            featurePointer, ex.getMessage()
+                        );
+                        LOGGER.warn(msg);
+                        report.put("error_ss", msg);
+                        continue;
+                    }
+
+                    // generate a unique feature id when geotools gives us a placeholder one
+                    String featureId = feature.getID();
+                    if (featureId.toLowerCase().indexOf("placeholder") > -1) {
+                        featureId = "fid-" + (firstFeatureIndex + i + 1);
+                    }
+                    brh.addAction(String.format("%s#%s#%s", url, typeName, featureId), buffer.toByteArray());
+                    convertedFeatures.incrementAndGet();
+                }
+            } catch (Exception e) {
+                String msg = String.format(
+                    "Features [%s-%s] conversion failed. Exception: %s",
+                    typeName, firstFeatureIndex, e.getMessage());
+                report.put("error_ss", msg);
+                LOGGER.error(msg);
+            }
+
+            // Features not converted
+            report.featuresFailed(features.size() - brh.getBulkSize());
+
+            if (brh.getBulkSize() > 0) {
+                try {
+                    brh.launchBulk(client);
+                    return;
+                } catch (Exception e) {
+                    String msg = String.format(
+                        "Features [%s-%s] not sent. Exception: %s",
+                        typeName, firstFeatureIndex, e.getMessage());
+                    report.put("error_ss", msg);
+                    report.bulkFailed();
+                    LOGGER.error(msg);
+                }
+            }
+            phaser.arriveAndDeregister();
+        }
+
+        private void writeFeature(JsonGenerator generator, SimpleFeature feature, String featurePointer, Integer page) throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("docType", "feature");
+            generator.writeStringField("resourceType", "feature");
+            generator.writeStringField("featureTypeId", featureTypeId);
+            if (page != null) {
+                generator.writeNumberField("featurePage", page);
+            }
+            if (metadataUuid != null) {
+                generator.writeStringField("recordGroup", metadataUuid);
+                generator.writeObjectFieldStart("featureOfRecord");
+                generator.writeStringField("name", "feature");
+                generator.writeStringField("parent", metadataUuid);
+                generator.writeEndObject();
+            }
+            titleResolver.setTitle(generator, feature);
+
+            boolean geometryWritten = false;
+            for (String attributeName : featureAttributes.keySet()) {
+                Object attributeValue = feature.getAttribute(attributeName);
+                String fieldName = documentFieldNames.get(attributeName);
+                if (attributeValue == null) {
+
+                } else if (tokenizedFields != null && tokenizedFields.get(attributeName) != null) {
+                    String rawValue = (String) attributeValue;
+                    String value = rawValue.startsWith(CDATA_START) ?
+                        rawValue.replaceFirst(CDATA_START_REGEX, "").substring(0, rawValue.length() - CDATA_END.length() - CDATA_START.length()) :
+                        rawValue;
+
+                    String separator = tokenizedFields.get(attributeName);
+                    String[] tokens = value.split(separator);
+                    generator.writeArrayFieldStart(fieldName);
+                    for (String token : tokens) {
+                        generator.writeString(token.trim());
+                    }
+                    generator.writeEndArray();
+                } else if (fieldName.equals("geom")) {
+                    // The default geometry is indexed once whatever the number of geometry attributes
+                    if (!geometryWritten) {
+                        geometryWritten = true;
+                        writeGeometry(generator, feature, featurePointer);
+                    }
+                } else if (attributeValue instanceof Instant) {
+                    try {
+                        Position position = ((DefaultInstant) attributeValue).getPosition();
+                        if (position != null && position.getDate() != null) {
+                            generator.writeStringField(fieldName,
+                                position.getDate().toInstant().toString());
+                        }
+                    } catch (Exception instantException) {
+                        String msg = String.format(
+                            "Feature %s: Cannot read attribute %s, value %s. Exception is: %s",
+                            featurePointer, attributeName, attributeValue, instantException.getMessage());
+                        LOGGER.warn(msg);
+                        report.put("error_ss", msg);
+                    }
+                } else {
+                    String value = attributeValue.toString();
+                    generator.writeStringField(fieldName,
+                        value.startsWith(CDATA_START) ?
+                            value.replaceFirst(CDATA_START_REGEX, "").substring(0, value.length() - CDATA_END.length() - CDATA_START.length()) :
+                            value
+                    );
+                }
+            }
+            generator.writeEndObject();
+        }
+
+        private void writeGeometry(JsonGenerator generator, SimpleFeature feature, String featurePointer) throws IOException {
+            Geometry geom = prepareGeometry((Geometry) feature.getDefaultGeometry(), featurePointer);
+            if (geom == null) {
+                return;
+            }
+
+            // Coordinates are written with numberOfDecimals decimals. Without
+            // the precision model, this may over simplify the geometry and lead to
+            // invalid geometry and Elasticsearch will fail parsing the GeoJSON
+            // with the following type of error:
+            // Caused by: org.locationtech.spatial4j.exception.InvalidShapeException:
+            // Provided shape has duplicate
+            // consecutive coordinates at: (-3.9997, 48.7463, NaN)
+            generator.writeFieldName("geom");
+            geometryWriter.write(generator, geom);
+
+            boolean isPoint = geom instanceof Point;
+            if (isPoint) {
+                Coordinate point = geom.getCoordinate();
+                generator.writeStringField("location", String.format("%s,%s", point.y, point.x));
+            } else {
+                report.setPointOnlyForGeomsFalse();
+            }
+
+            // Populate bbox coordinates to be able to compute
+            // global bbox of search results
+            final BoundingBox bbox = feature.getBounds();
+            generator.writeNumberField("bbox_xmin", bbox.getMinX());
+            generator.writeNumberField("bbox_ymin", bbox.getMinY());
+            generator.writeNumberField("bbox_xmax", bbox.getMaxX());
+            generator.writeNumberField("bbox_ymax", bbox.getMaxY());
+        }
+
+        /**
+         * Simplify the geometry and apply the precision model before serialization.
+         *
+         * @return the geometry to index or null if the feature is indexed without geometry.
+         */
+        private Geometry prepareGeometry(Geometry geom, String featurePointer) {
+            if (geom == null || geom.isEmpty()) {
+                return null;
+            }
+            if (simplificationTolerance > 0 && !(geom instanceof Point)) {
+                geom = TopologyPreservingSimplifier.simplify(geom, simplificationTolerance);
+            }
+            if (precisionModel != null) {
+                if (geom.isValid()) {
+                    geom = GeometryPrecisionReducer.reduce(geom, precisionModel);
+                } else {
+                    String msg = String.format(
+                        "Feature %s: Cannot apply precision reducer on invalid geometry. Check the geometry validity. The feature will be indexed but with no geometry.",
+                        featurePointer);
+                    LOGGER.warn(msg);
+                    report.put("error_ss", msg);
+                    return null;
+                }
+            }
+            return geom;
+        }
     }
 
     class Report {
-        private Map<String, Object> report = new HashMap<>();
+        private Map<String, Object> report = Collections.synchronizedMap(new HashMap<>());
         private String url;
         private String typeName;
-        private boolean pointOnlyForGeoms;
+        private volatile boolean pointOnlyForGeoms;
+        private final AtomicInteger failedBulks = new AtomicInteger();
+        private final AtomicInteger failedFeatures = new AtomicInteger();
 
         public Report(String url, String typeName) throws UnsupportedEncodingException {
             this.typeName = typeName;
@@ -527,9 +952,29 @@ public class EsWFSFeatureIndexer {
             this.pointOnlyForGeoms = false;
         }
 
-        public void success(int nbOfFeatures) {
+        public void bulkFailed() {
+            failedBulks.incrementAndGet();
+        }
+
+        public int getFailedBulks() {
+            return failedBulks.get();
+        }
+
+        /**
+         * Features not converted or rejected by the index.
+         */
+        public void featuresFailed(int nb) {
+            failedFeatures.addAndGet(nb);
+        }
+
+        public int getFailedFeatures() {
+            return failedFeatures.get();
+        }
+
+        public void success(int nbOfFeatures, double featuresPerSecond) {
             report.put("status_s", "success");
             report.put("totalRecords_i", nbOfFeatures);
+            report.put("featuresPerSecond_d", featuresPerSecond);
             OffsetDateTime dateTime = OffsetDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS);
             report.put("endDate_dt", dateTime.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
             report.put("isPointOnly", pointOnlyForGeoms);
@@ -539,7 +984,9 @@ public class EsWFSFeatureIndexer {
         public boolean saveHarvesterReport() {
             IndexRequest request = new IndexRequest(index);
             request.id(report.get("id").toString());
-            request.source(report);
+            synchronized (report) {
+                request.source(new HashMap<>(report));
+            }
             try {
                 IndexResponse response = client.getClient().index(request, RequestOptions.DEFAULT);
                 if (response.status() == RestStatus.CREATED || response.status() == RestStatus.OK) {
@@ -558,6 +1005,14 @@ public class EsWFSFeatureIndexer {
         }
     }
 
+    private SimpleFeatureCollection reproject(SimpleFeatureCollection features) throws Exception {
+        return new ReprojectingFeatureCollection(features, CRS.decode("urn:ogc:def:crs:OGC:1.3:CRS84"));
+    }
+
+    private String getCheckpointId(String url, String typeName) {
+        return getIdentifier(url, typeName) + "#checkpoint";
+    }
+
     private String getIdentifier(String url, String typeName) {
         try {
             return URLEncoder.encode(url + "#" + typeName, "UTF-8");
@@ -619,6 +1074,7 @@ public class EsWFSFeatureIndexer {
                             " but with " + bulkFailures + " errors" : ""
                     });
                     failuresCount = bulkFailures.get();
+                    report.featuresFailed(failuresCount);
                     phaser.arriveAndDeregister();
                 }
 
@@ -631,6 +1087,8 @@ public class EsWFSFeatureIndexer {
                         e.getMessage()
                     );
                     report.put("error_ss", msg);
+                    report.bulkFailed();
+                    report.featuresFailed(bulkSize);
                     LOGGER.error(msg);
                     phaser.arriveAndDeregister();
                 }
@@ -645,22 +1103,17 @@ public class EsWFSFeatureIndexer {
             return bulkSize - failuresCount;
         }
 
-        public void addAction(ObjectNode rootNode, SimpleFeature feature) throws JsonProcessingException {
-            // generate a unique feature id when geotools gives us a placeholder one
-            String featureId = feature.getID();
-            if (featureId.toLowerCase().indexOf("placeholder") > -1) {
-                featureId = "fid-" + nbOfFeatures;
-            }
-
-            String id = String.format("%s#%s#%s", url, typeName, featureId);
+        public void addAction(String id, byte[] source) {
             bulk.add(new IndexRequest(index).id(id)
-                .source(jacksonMapper.writeValueAsString(rootNode), XContentType.JSON));
+                .source(source, XContentType.JSON));
 //                .routing(ROUTING_KEY));
             bulkSize++;
         }
 
+        /**
+         * The phaser party of the bulk is registered when its features are submitted.
+         */
         protected void prepareLaunch() {
-            phaser.register();
             this.begin = System.currentTimeMillis();
         }
 
@@ -675,7 +1128,14 @@ public class EsWFSFeatureIndexer {
 
         public void launchBulk(EsRestClient client) throws Exception {
             prepareLaunch();
-            client.getClient().bulkAsync(this.bulk, RequestOptions.DEFAULT, this.listener);
+            // The shared sender bounds the requests in flight and retries rejected ones
+            client.getBulkSender().send(this.bulk).whenComplete((response, error) -> {
+                if (error == null) {
+                    this.listener.onResponse(response);
+                } else {
+                    this.listener.onFailure(error instanceof Exception ? (Exception) error : new Exception(error));
+                }
+            });
         }
     }
 
@@ -699,9 +1159,8 @@ public class EsWFSFeatureIndexer {
             .build();
     }
 
-    private Map<String, String> featureAttributeToDocumentFieldNames = new LinkedHashMap<String, String>();
-
-    private void initFeatureAttributeToDocumentFieldNamesMapping(Map<String, String> featureAttributes, List<String> treeFields, Report report) {
+    private Map<String, String> initFeatureAttributeToDocumentFieldNamesMapping(Map<String, String> featureAttributes, List<String> treeFields, Report report) {
+        Map<String, String> featureAttributeToDocumentFieldNames = new LinkedHashMap<String, String>();
         for (String attributeName : featureAttributes.keySet()) {
             String attributeType = featureAttributes.get(attributeName);
             if (attributeType.equals("geometry")) {
@@ -720,9 +1179,6 @@ public class EsWFSFeatureIndexer {
         }
         report.put("ftColumns_s", Joiner.on("|").join(featureAttributes.keySet()));
         report.put("docColumns_s", Joiner.on("|").join(featureAttributeToDocumentFieldNames.values()));
-    }
-
-    private String getDocumentFieldName(String attributeName) {
-        return featureAttributeToDocumentFieldNames.get(attributeName);
+        return featureAttributeToDocumentFieldNames;
     }
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright (C) 2001-2023 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.harvester.wfsfeatures.worker;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.CoordinateSequence;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryCollection;
+import org.locationtech.jts.geom.LineString;
+import org.locationtech.jts.geom.MultiLineString;
+import org.locationtech.jts.geom.MultiPoint;
+import org.locationtech.jts.geom.MultiPolygon;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+
+import java.io.IOException;
+
+/**
+ * Write JTS geometries as GeoJSON directly to a {@link JsonGenerator}, without building
+ * an intermediate string or tree. Coordinates are rounded to the number of decimals,
+ * like {@link org.geotools.geojson.geom.GeometryJSON} does.
+ */
+public class GeometryJsonWriter {
+    private final double scale;
+
+    public GeometryJsonWriter(int numberOfDecimals) {
+        this.scale = Math.pow(10, numberOfDecimals);
+    }
+
+    public void write(JsonGenerator generator, Geometry geometry) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("type", geometry.getGeometryType());
+        if (geometry instanceof GeometryCollection
+            && !(geometry instanceof MultiPoint
+            || geometry instanceof MultiLineString
+            || geometry instanceof MultiPolygon)) {
+            generator.writeArrayFieldStart("geometries");
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                write(generator, geometry.getGeometryN(i));
+            }
+            generator.writeEndArray();
+        } else if (geometry instanceof Point) {
+            // The coordinates of a point are a single position, not an array of positions
+            generator.writeFieldName("coordinates");
+            if (geometry.isEmpty()) {
+                generator.writeStartArray();
+                generator.writeEndArray();
+            } else {
+                writeCoordinate(generator, geometry.getCoordinate());
+            }
+        } else {
+            generator.writeArrayFieldStart("coordinates");
+            writeCoordinates(generator, geometry);
+            generator.writeEndArray();
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Write the content of the coordinates array of a geometry which is not a point
+     * nor a geometry collection.
+     */
+    private void writeCoordinates(JsonGenerator generator, Geometry geometry) throws IOException {
+        if (geometry instanceof LineString) {
+            writeSequence(generator, ((LineString) geometry).getCoordinateSequence());
+        } else if (geometry instanceof Polygon) {
+            Polygon polygon = (Polygon) geometry;
+            generator.writeStartArray();
+            writeSequence(generator, polygon.getExteriorRing().getCoordinateSequence());
+            generator.writeEndArray();
+            for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+                generator.writeStartArray();
+                writeSequence(generator, polygon.getInteriorRingN(i).getCoordinateSequence());
+                generator.writeEndArray();
+            }
+        } else {
+            // MultiPoint, MultiLineString, MultiPolygon
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                Geometry part = geometry.getGeometryN(i);
+                if (part instanceof Point) {
+                    writeCoordinate(generator, part.getCoordinate());
+                } else {
+                    generator.writeStartArray();
+                    writeCoordinates(generator, part);
+                    generator.writeEndArray();
+                }
+            }
+        }
+    }
+
+    private void writeSequence(JsonGenerator generator, CoordinateSequence sequence) throws IOException {
+        for (int i = 0; i < sequence.size(); i++) {
+            writeCoordinate(generator, sequence.getCoordinate(i));
+        }
+    }
+
+    private void writeCoordinate(JsonGenerator generator, Coordinate coordinate) throws IOException {
+        generator.writeStartArray();
+        generator.writeNumber(round(coordinate.x));
+        generator.writeNumber(round(coordinate.y));
+        if (!Double.isNaN(coordinate.getZ())) {
+            generator.writeNumber(round(coordinate.getZ()));
+        }
+        generator.writeEndArray();
+    }
+
+    private double round(double value) {
+        return Math.round(value * scale) / scale;
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2001-2023 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+
+package org.fao.geonet.harvester.wfsfeatures.worker;
+
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.support.WriteRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.fao.geonet.index.es.EsRestClient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Progress of a paged harvest of a feature type, stored in the features index
+ * next to the harvester report.
+ * <p>
+ * The checkpoint is saved after each page once all its features are indexed.
+ * A harvest which did not complete resumes after the last committed page.
+ * A new harvest of a completed feature type reuses the page hashes to skip
+ * the pages which did not change. The checkpoint is only valid for the
+ * configuration and page size it was created with.
+ */
+public class WFSHarvesterCheckpoint {
+    public static final String DOC_TYPE = "harvesterCheckpoint";
+    private static final String FAILED_PAGE_HASH = "";
+
+    private final String id;
+    private final String configurationHash;
+    private final int pageSize;
+    private int nextStartIndex = 0;
+    private int nextPage = 0;
+    private boolean complete = false;
+    private final List<String> pageHashes;
+
+    public WFSHarvesterCheckpoint(String id, String configurationHash, int pageSize) {
+        this(id, configurationHash, pageSize, new ArrayList<>());
+    }
+
+    private WFSHarvesterCheckpoint(String id, String configurationHash, int pageSize, List<String> pageHashes) {
+        this.id = id;
+        this.configurationHash = configurationHash;
+        this.pageSize = pageSize;
+        this.pageHashes = pageHashes;
+    }
+
+    /**
+     * @return the checkpoint or null if none is stored.
+     */
+    @SuppressWarnings("unchecked")
+    public static WFSHarvesterCheckpoint load(EsRestClient client, String index, String id) throws Exception {
+        Map<String, Object> source = client.getDocument(index, id);
+        if (source == null || !DOC_TYPE.equals(source.get("docType"))) {
+            return null;
+        }
+        Object hashes = source.get("pageHashes");
+        WFSHarvesterCheckpoint checkpoint = new WFSHarvesterCheckpoint(id,
+            (String) source.get("configurationHash"),
+            ((Number) source.get("pageSize")).intValue(),
+            hashes instanceof List ? new ArrayList<>((List<String>) hashes) : new ArrayList<>());
+        checkpoint.nextStartIndex = ((Number) source.get("nextStartIndex")).intValue();
+        checkpoint.nextPage = ((Number) source.get("nextPage")).intValue();
+        checkpoint.complete = Boolean.TRUE.equals(source.get("complete"));
+        return checkpoint;
+    }
+
+    public void save(EsRestClient client, String index) throws IOException {
+        Map<String, Object> source = new HashMap<>();
+        source.put("id", id);
+        source.put("docType", DOC_TYPE);
+        source.put("configurationHash", configurationHash);
+        source.put("pageSize", pageSize);
+        source.put("nextStartIndex", nextStartIndex);
+        source.put("nextPage", nextPage);
+        source.put("complete", complete);
+        source.put("pageHashes", pageHashes);
+        IndexRequest request = new IndexRequest(index).id(id).source(source)
+            .setRefreshPolicy(WriteRequest.RefreshPolicy.NONE);
+        client.getClient().index(request, RequestOptions.DEFAULT);
+    }
+
+    /**
+     * @return true if the checkpoint can be used for a harvest with this configuration.
+     */
+    public boolean isValidFor(String configurationHash, int pageSize) {
+        return this.pageSize == pageSize && this.configurationHash.equals(configurationHash);
+    }
+
+    /**
+     * Start a new harvest of a completed feature type, keeping the page hashes.
+     */
+    public void restart() {
+        nextStartIndex = 0;
+        nextPage = 0;
+        complete = false;
+    }
+
+    /**
+     * @return the hash of a page when it was last indexed or null.
+     */
+    public String getPageHash(int page) {
+        return page < pageHashes.size() ? pageHashes.get(page) : null;
+    }
+
+    /**
+     * Record that all features of a page are indexed.
+     */
+    public void commitPage(int page, String hash, int nextStartIndex) {
+        while (pageHashes.size() <= page) {
+            pageHashes.add(null);
+        }
+        pageHashes.set(page, hash);
+        this.nextPage = page + 1;
+        this.nextStartIndex = nextStartIndex;
+    }
+
+    /**
+     * Record that a page is processed but some of its features are not indexed.
+     * The page never matches a hash, so the next harvest indexes it again.
+     */
+    public void commitFailedPage(int page, int nextStartIndex) {
+        commitPage(page, FAILED_PAGE_HASH, nextStartIndex);
+    }
+
+    /**
+     * Record the end of the harvest. Hashes of pages which do not exist anymore are removed.
+     */
+    public void complete(int numberOfPages) {
+        while (pageHashes.size() > numberOfPages) {
+            pageHashes.remove(pageHashes.size() - 1);
+        }
+        complete = true;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int getNextStartIndex() {
+        return nextStartIndex;
+    }
+
+    public int getNextPage() {
+        return nextPage;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+}
@@ -84,7 +84,6 @@ public class WFSHarvesterRouteBuilder extends RouteBuilder {
 //                        .setProperty("typeName", xpath("wfs/@typeName", String.class))
                         .log(LoggingLevel.INFO, LOGGER_NAME, "#${property.CamelSplitIndex}. Harvesting ${property.configuration.url} - start (Exchange ${exchangeId}).")
                         .beanRef("WFSFeatureIndexer", "initialize(*, true)")
-                        .to("direct:delete-wfs-featuretype-features")
                         .to("direct:index-wfs")
                         .log(LoggingLevel.INFO, LOGGER_NAME, "#${property.CamelSplitIndex}. Harvesting ${property.configuration.url} - end (Exchange ${exchangeId}).")
                 .end()
@@ -102,7 +101,6 @@ public class WFSHarvesterRouteBuilder extends RouteBuilder {
                 .log(LoggingLevel.INFO, LOGGER_NAME, "${body}")
                 .setProperty("configuration", simple("${body.parameters}"))
                 .beanRef("WFSFeatureIndexer", "initialize(*, true)")
-                .to("direct:delete-wfs-featuretype-features")
                 .to("direct:index-wfs");
 
         from("activemq:queue:" + MESSAGE_DELETE_WFS_FEATURES + "?concurrentConsumers=5")
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2001-2023 Food and Agriculture Organization of the
+ * United Nations (FAO-UN), United Nations World Food Programme (WFP)
+ * and United Nations Environment Programme (UNEP)
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301, USA
+ *
+ * Contact: Jeroen Ticheler - FAO - Viale delle Terme di Caracalla 2,
+ * Rome - Italy. email: geonetwork@osgeo.org
+ */
+package org.fao.geonet.harvester.wfsfeatures.worker;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.geotools.geojson.geom.GeometryJSON;
+import org.junit.Test;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.io.WKTReader;
+
+import java.io.StringWriter;
+import java.util.Comparator;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The GeoJSON written by GeometryJsonWriter must be the one written by GeoTools.
+ */
+public class GeometryJsonWriterTest {
+    private static final int NUMBER_OF_DECIMALS = 4;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Compare numbers by value as GeoTools may write 1 where Jackson writes 1.0.
+     */
+    private static final Comparator<JsonNode> NUMERIC_COMPARATOR = (a, b) -> {
+        if (a.isNumber() && b.isNumber()) {
+            return Double.compare(a.doubleValue(), b.doubleValue());
+        }
+        return a.equals(b) ? 0 : 1;
+    };
+
+    @Test
+    public void testPoint() throws Exception {
+        assertSameGeoJson("POINT (6.123456 46.987654)");
+    }
+
+    @Test
+    public void testMultiPoint() throws Exception {
+        assertSameGeoJson("MULTIPOINT ((6.123456 46.987654), (7 47))");
+    }
+
+    @Test
+    public void testLineString() throws Exception {
+        assertSameGeoJson("LINESTRING (6.1 46.1, 6.2 46.2, 6.333333 46.333333)");
+    }
+
+    @Test
+    public void testMultiLineString() throws Exception {
+        assertSameGeoJson("MULTILINESTRING ((6.1 46.1, 6.2 46.2), (7.1 47.1, 7.2 47.2, 7.3 47.3))");
+    }
+
+    @Test
+    public void testPolygon() throws Exception {
+        assertSameGeoJson("POLYGON ((0 0, 10 0, 10 10, 0 10, 0 0), (2 2, 2 4, 4 4, 4 2, 2 2))");
+    }
+
+    @Test
+    public void testMultiPolygon() throws Exception {
+        assertSameGeoJson("MULTIPOLYGON (((0 0, 10 0, 10 10, 0 10, 0 0), (2 2, 2 4, 4 4, 4 2, 2 2)), "
+            + "((20 20, 30 20, 30 30, 20 20)))");
+    }
+
+    @Test
+    public void testGeometryCollection() throws Exception {
+        assertSameGeoJson("GEOMETRYCOLLECTION (POINT (6.123456 46.987654), "
+            + "LINESTRING (6.1 46.1, 6.2 46.2), POLYGON ((0 0, 10 0, 10 10, 0 0)))");
+    }
+
+    private void assertSameGeoJson(String wkt) throws Exception {
+        Geometry geometry = new WKTReader().read(wkt);
+
+        StringWriter expected = new StringWriter();
+        new GeometryJSON(NUMBER_OF_DECIMALS).write(geometry, expected);
+
+        StringWriter actual = new StringWriter();
+        try (JsonGenerator generator = MAPPER.getFactory().createGenerator(actual)) {
+            new GeometryJsonWriter(NUMBER_OF_DECIMALS).write(generator, geometry);
+        }
+
+        JsonNode expectedJson = MAPPER.readTree(expected.toString());
+        JsonNode actualJson = MAPPER.readTree(actual.toString());
+        assertTrue(String.format("Expected %s but was %s", expectedJson, actualJson),
+            expectedJson.equals(NUMERIC_COMPARATOR, actualJson));
+    }
+}